@@ -4,6 +4,10 @@ import org.example.data.model.ArbitrageConfiguration;
 import org.example.data.model.ExchangeConfiguration;
 import org.example.data.model.RiskConfiguration;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Factory for accessing configuration objects.
  * Provides convenient access to typed configuration objects from the configuration service.
@@ -53,6 +57,22 @@ public class ConfigurationFactory {
         return configService.getObject(RISK_CONFIG_PATH, RiskConfiguration.class, new RiskConfiguration());
     }
     
+    /**
+     * Get the asset risk factors (risk.assetRiskFactors), by base asset
+     * 
+     * @return A copy of the risk factors, empty if none are configured
+     */
+    public static Map<String, Double> getAssetRiskFactors() {
+        Map<?, ?> values = configService.getObject(RISK_CONFIG_PATH + ".assetRiskFactors", Map.class, Collections.emptyMap());
+        Map<String, Double> factors = new HashMap<>();
+        for (Map.Entry<?, ?> entry : values.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                factors.put(String.valueOf(entry.getKey()), ((Number) entry.getValue()).doubleValue());
+            }
+        }
+        return factors;
+    }
+    
     /**
      * Get a double value from the configuration
      * 
@@ -8,6 +8,9 @@ import java.util.TreeMap;
  * Factory class for creating exchange-specific fee structures.
  * This class encapsulates the knowledge of fee structures for different exchanges
  * and provides methods to create appropriate Fee objects for each exchange.
+ *
+ * Live code shares the instance from {@link #getInstance()}; code that runs
+ * many isolated simulations side by side, such as backtests, creates its own.
  */
 public class ExchangeFeeFactory {
     
@@ -21,9 +24,9 @@ public class ExchangeFeeFactory {
     private final Map<String, Fee> defaultTakerFees;
     
     /**
-     * Private constructor for singleton pattern.
+     * Creates a factory of its own, independent of the shared instance.
      */
-    private ExchangeFeeFactory() {
+    public ExchangeFeeFactory() {
         defaultMakerFees = new HashMap<>();
         defaultTakerFees = new HashMap<>();
         initializeDefaultFees();
@@ -0,0 +1,16 @@
+package org.example.data.interfaces;
+
+import org.example.data.model.ArbitrageCycle;
+
+/**
+ * Interface for consumers of arbitrage cycles found in the multi-exchange
+ * price graph.
+ */
+public interface IArbitrageCycleListener {
+    /**
+     * Called when a profitable cycle has been detected.
+     *
+     * @param cycle The detected cycle
+     */
+    void onCycle(ArbitrageCycle cycle);
+}
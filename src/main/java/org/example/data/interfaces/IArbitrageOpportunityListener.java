@@ -0,0 +1,27 @@
+package org.example.data.interfaces;
+
+import org.example.data.model.ArbitrageOpportunity;
+
+/**
+ * Interface for consumers of arbitrage opportunities that are detected
+ * incrementally as market data arrives.
+ */
+public interface IArbitrageOpportunityListener {
+    /**
+     * Called when a profitable opportunity has been detected.
+     *
+     * @param opportunity The detected opportunity
+     */
+    void onOpportunity(ArbitrageOpportunity opportunity);
+
+    /**
+     * Called when a pair that had an opportunity between two exchanges no longer
+     * has one in either direction.
+     *
+     * @param symbol The normalized symbol
+     * @param exchangeA One exchange of the pair
+     * @param exchangeB The other exchange of the pair
+     */
+    default void onOpportunityClosed(String symbol, String exchangeA, String exchangeB) {
+    }
+}
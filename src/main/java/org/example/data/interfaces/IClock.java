@@ -0,0 +1,25 @@
+package org.example.data.interfaces;
+
+/**
+ * Source of time for code that must run both live and against recorded data.
+ * Live code uses the system clock; replays and backtests drive a virtual one.
+ *
+ * Market data timestamps are epoch nanoseconds from {@link #epochNanos()}, so
+ * they can be compared with the exchanges' own event times.
+ */
+public interface IClock {
+    /**
+     * @return The current time in epoch milliseconds
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return The current time in epoch nanoseconds
+     */
+    long epochNanos();
+
+    /**
+     * @return A monotonic time in nanoseconds, only meaningful as a difference
+     */
+    long nanoTime();
+}
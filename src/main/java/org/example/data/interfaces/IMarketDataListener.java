@@ -0,0 +1,32 @@
+package org.example.data.interfaces;
+
+import org.example.data.model.OrderBook;
+import org.example.data.model.Ticker;
+import org.example.data.service.ExchangeService;
+
+/**
+ * Interface for components that react to market data as soon as an exchange
+ * receives it, instead of polling the exchange caches on a timer.
+ *
+ * Callbacks are invoked on the exchange's WebSocket (or REST) thread, so
+ * implementations must be thread-safe and should return quickly.
+ */
+public interface IMarketDataListener {
+    /**
+     * Called after a ticker has been written to the exchange cache.
+     *
+     * @param exchange The exchange that produced the update
+     * @param symbol The exchange-specific symbol
+     * @param ticker The new ticker
+     */
+    void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker);
+
+    /**
+     * Called after an order book has been written to the exchange cache.
+     *
+     * @param exchange The exchange that produced the update
+     * @param symbol The exchange-specific symbol
+     * @param orderBook The new order book
+     */
+    void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook);
+}
@@ -0,0 +1,16 @@
+package org.example.data.interfaces;
+
+import org.example.data.model.TriangularOpportunity;
+
+/**
+ * Interface for consumers of triangular (single-exchange) arbitrage
+ * opportunities detected as market data arrives.
+ */
+public interface ITriangularOpportunityListener {
+    /**
+     * Called when a profitable cycle has been detected.
+     *
+     * @param opportunity The detected cycle
+     */
+    void onOpportunity(TriangularOpportunity opportunity);
+}
@@ -0,0 +1,148 @@
+package org.example.data.model;
+
+import java.util.Date;
+
+/**
+ * A profitable cycle of conversions across one or more exchanges, e.g.
+ * USDT on Binance -> BTC on Binance -> BTC on Kraken -> USDT on Kraken -> USDT on Binance.
+ *
+ * Each leg either trades a pair on one exchange, selling its base at the bid
+ * or buying it at the ask, or transfers a currency between two exchanges.
+ * Rates include the taker fee of trades and the cost of transfers.
+ *
+ * Instances are immutable.
+ */
+public final class ArbitrageCycle {
+
+    /**
+     * How a leg converts its currency.
+     */
+    public enum LegType {
+        SELL,
+        BUY,
+        TRANSFER
+    }
+
+    // By leg: where the leg starts, how it converts, and at what rate
+    private final String[] exchanges;
+    private final String[] currencies;
+    private final LegType[] types;
+    // Pair traded by the leg, null for transfers
+    private final String[] symbols;
+    private final double[] rates;
+    private final double profitPercent;
+    private final long timestampMillis;
+
+    /**
+     * @param exchanges The exchange each leg starts on
+     * @param currencies The currency each leg starts from
+     * @param types How each leg converts
+     * @param symbols The pair each trade leg trades, null for transfers
+     * @param rates Units received per unit spent on each leg, after fees
+     * @param profitPercent Net profit of the whole cycle, in percent of the starting amount
+     * @param timestampMillis When the cycle was found, in epoch milliseconds
+     */
+    public ArbitrageCycle(String[] exchanges, String[] currencies, LegType[] types, String[] symbols,
+                          double[] rates, double profitPercent, long timestampMillis) {
+        this.exchanges = exchanges.clone();
+        this.currencies = currencies.clone();
+        this.types = types.clone();
+        this.symbols = symbols.clone();
+        this.rates = rates.clone();
+        this.profitPercent = profitPercent;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public ArbitrageCycle(String[] exchanges, String[] currencies, LegType[] types, String[] symbols,
+                          double[] rates, double profitPercent) {
+        this(exchanges, currencies, types, symbols, rates, profitPercent, System.currentTimeMillis());
+    }
+
+    /**
+     * @return The number of legs
+     */
+    public int getLegCount() {
+        return types.length;
+    }
+
+    /**
+     * @param leg The leg
+     * @return The exchange the leg starts on
+     */
+    public String getExchange(int leg) {
+        return exchanges[leg];
+    }
+
+    /**
+     * @param leg The leg
+     * @return The currency the leg starts from
+     */
+    public String getCurrency(int leg) {
+        return currencies[leg];
+    }
+
+    /**
+     * @param leg The leg
+     * @return How the leg converts its currency
+     */
+    public LegType getType(int leg) {
+        return types[leg];
+    }
+
+    /**
+     * @param leg The leg
+     * @return The pair traded by the leg, or null for a transfer
+     */
+    public String getSymbol(int leg) {
+        return symbols[leg];
+    }
+
+    /**
+     * @param leg The leg
+     * @return Units received per unit spent, after fees
+     */
+    public double getRate(int leg) {
+        return rates[leg];
+    }
+
+    /**
+     * @return true if the cycle moves funds between exchanges
+     */
+    public boolean isCrossExchange() {
+        for (LegType type : types) {
+            if (type == LegType.TRANSFER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public double getProfitPercent() {
+        return profitPercent;
+    }
+
+    public Date getTimestamp() {
+        return new Date(timestampMillis);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int leg = 0; leg < types.length; leg++) {
+            sb.append(exchanges[leg]).append(':').append(currencies[leg]).append(" -(");
+            if (types[leg] == LegType.TRANSFER) {
+                sb.append("transfer");
+            } else {
+                sb.append(types[leg] == LegType.SELL ? "sell " : "buy ").append(symbols[leg]);
+            }
+            sb.append(")-> ");
+        }
+        return sb.append(exchanges[0]).append(':').append(currencies[0])
+                .append(String.format(", %.4f%% after fees", profitPercent))
+                .toString();
+    }
+}
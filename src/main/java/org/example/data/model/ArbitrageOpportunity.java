@@ -7,6 +7,7 @@ public class ArbitrageOpportunity {
     private String exchangeBuy;
     private String exchangeSell;
     private double potentialProfit;
+    private double amount;
     private RiskAssessment riskAssessment;
 
     // Additional fields to store more detailed information
@@ -134,6 +135,7 @@ public class ArbitrageOpportunity {
         this.sellPrice = sellPrice;
         this.profitPercent = profitPercent;
         this.potentialProfit = profit;
+        this.amount = amount;
         this.pair = new TradingPair(tradingPair);
         this.successfulArbitragePercent = successRate;
         
@@ -170,6 +172,13 @@ public class ArbitrageOpportunity {
         return potentialProfit;
     }
 
+    /**
+     * @return The quantity the opportunity was priced for, or 0 if not known
+     */
+    public double getAmount() {
+        return amount;
+    }
+
     public RiskAssessment getRiskAssessment() {
         return riskAssessment;
     }
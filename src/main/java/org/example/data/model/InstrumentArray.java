@@ -0,0 +1,88 @@
+package org.example.data.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent array indexed by instrument ID (see {@link SymbolRegistry}).
+ *
+ * Replaces a {@code Map<String, T>} on hot paths: a lookup is two array
+ * reads instead of hashing and comparing a symbol string. Storage is split
+ * into fixed-size chunks that are created on first write and never moved,
+ * so the array grows with the registry without copying and without losing
+ * concurrent writes.
+ *
+ * @param <T> The element type
+ */
+public class InstrumentArray<T> {
+
+    private static final int CHUNK_BITS = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Up to 1,048,576 instruments
+    private static final int MAX_CHUNKS = 4096;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+    /**
+     * Returns the element for an instrument.
+     *
+     * @param id The instrument ID
+     * @return The element, or null if none was set or the ID is negative
+     */
+    public T get(int id) {
+        if (id < 0) {
+            return null;
+        }
+        AtomicReferenceArray<T> chunk = chunks.get(id >>> CHUNK_BITS);
+        return chunk != null ? chunk.get(id & CHUNK_MASK) : null;
+    }
+
+    /**
+     * Sets the element for an instrument.
+     *
+     * @param id The instrument ID
+     * @param value The element, or null to clear it
+     */
+    public void set(int id, T value) {
+        chunkFor(id).set(id & CHUNK_MASK, value);
+    }
+
+    /**
+     * Sets the element for an instrument if none is set yet.
+     *
+     * @param id The instrument ID
+     * @param value The element
+     * @return The element now stored
+     */
+    public T setIfAbsent(int id, T value) {
+        AtomicReferenceArray<T> chunk = chunkFor(id);
+        int index = id & CHUNK_MASK;
+        if (chunk.compareAndSet(index, null, value)) {
+            return value;
+        }
+        return chunk.get(index);
+    }
+
+    /**
+     * Clears every element.
+     */
+    public void clear() {
+        for (int i = 0; i < MAX_CHUNKS; i++) {
+            chunks.set(i, null);
+        }
+    }
+
+    private AtomicReferenceArray<T> chunkFor(int id) {
+        if (id < 0 || (id >>> CHUNK_BITS) >= MAX_CHUNKS) {
+            throw new IndexOutOfBoundsException("Instrument ID out of range: " + id);
+        }
+        int chunkIndex = id >>> CHUNK_BITS;
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(CHUNK_SIZE));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+}
@@ -2,41 +2,89 @@ package org.example.data.model;
 
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Represents the order book for a given trading pair.
  * <p>
- * This class stores the list of bid and ask orders along with a timestamp.
+ * Bids and asks are held in {@link OrderBookSide}s backed by sorted primitive
+ * arrays and are updated in place, so streaming diffs can be applied without
+ * copying the book or allocating entries. A StampedLock lets readers on other
+ * threads see a consistent book while the feed thread writes to it.
+ * <p>
  * Additional helper methods provide quick access to key values such as:
  * - The best bid and best ask orders.
  * - The volume available at the best bid or ask.
  * - The spread between the best ask and best bid prices.
+ * <p>
+ * {@link #getBids()} and {@link #getAsks()} return read-only snapshots for
+ * existing callers; latency-sensitive code should prefer the primitive
+ * accessors such as {@link #getBidPrice(int)} and {@link #getBestAskPrice()}.
+ * <p>
+ * Like {@link Ticker}, the book keeps the local receive time and the exchange
+ * time of its latest update as epoch nanoseconds.
  */
 public class OrderBook {
 
     // The trading pair symbol (e.g., "BTC/USD")
-    private String symbol;
+    private final String symbol;
+
+    // Price levels for bids and asks
+    private final OrderBookSide bids;
+    private final OrderBookSide asks;
+
+    // Guards the two sides; writers are the feed threads, readers everything else
+    private final StampedLock lock = new StampedLock();
 
-    // Lists of order book entries for bids and asks.
-    private List<OrderBookEntry> bids;
-    private List<OrderBookEntry> asks;
+    // Incremented on every change, used to reuse list snapshots
+    private long version;
 
-    // The timestamp when the order book was last updated.
-    private Date timestamp;
+    // Snapshots handed out by getBids()/getAsks(), rebuilt only after a change
+    private volatile Snapshot bidSnapshot;
+    private volatile Snapshot askSnapshot;
+
+    // When the latest update was received, and the exchange's time for it (-1 if not sent), in epoch nanoseconds
+    private volatile long receivedNanos;
+    private volatile long exchangeTimeNanos = -1;
 
     /**
      * Constructor to initialize the OrderBook.
      *
      * @param symbol    The trading pair symbol.
-     * @param bids      The list of bid entries (typically sorted descending by price).
-     * @param asks      The list of ask entries (typically sorted ascending by price).
+     * @param bids      The list of bid entries, in any order.
+     * @param asks      The list of ask entries, in any order.
      * @param timestamp The timestamp of the order book snapshot.
      */
     public OrderBook(String symbol, List<OrderBookEntry> bids, List<OrderBookEntry> asks, Date timestamp) {
+        this(symbol, bids, asks, timestamp != null ? timestamp.getTime() * 1_000_000 : System.currentTimeMillis() * 1_000_000);
+    }
+
+    /**
+     * Constructor to initialize the OrderBook.
+     *
+     * @param symbol        The trading pair symbol.
+     * @param bids          The list of bid entries, in any order.
+     * @param asks          The list of ask entries, in any order.
+     * @param receivedNanos When the snapshot was received, in epoch nanoseconds.
+     */
+    public OrderBook(String symbol, List<OrderBookEntry> bids, List<OrderBookEntry> asks, long receivedNanos) {
+        this(symbol, 0);
+        this.bids.load(bids);
+        this.asks.load(asks);
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * Creates an empty order book to be filled by streaming updates.
+     *
+     * @param symbol   The trading pair symbol.
+     * @param maxDepth Maximum number of levels kept per side, or 0 for no limit.
+     */
+    public OrderBook(String symbol, int maxDepth) {
         this.symbol = symbol;
-        this.bids = bids;
-        this.asks = asks;
-        this.timestamp = timestamp;
+        this.bids = new OrderBookSide(true, maxDepth);
+        this.asks = new OrderBookSide(false, maxDepth);
+        this.receivedNanos = System.currentTimeMillis() * 1_000_000;
     }
 
     /**
@@ -49,21 +97,180 @@ public class OrderBook {
     }
 
     /**
-     * Returns the list of bid entries.
+     * Sets the size of a bid level; a size of zero removes it.
+     *
+     * @param price The level price
+     * @param size  The new total size at that price
+     */
+    public void updateBid(double price, double size) {
+        long stamp = lock.writeLock();
+        try {
+            bids.update(price, size);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the size of an ask level; a size of zero removes it.
+     *
+     * @param price The level price
+     * @param size  The new total size at that price
+     */
+    public void updateAsk(double price, double size) {
+        long stamp = lock.writeLock();
+        try {
+            asks.update(price, size);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the whole book, e.g. from a REST or WebSocket snapshot.
+     *
+     * @param bidEntries The bid entries, in any order
+     * @param askEntries The ask entries, in any order
+     */
+    public void replace(List<OrderBookEntry> bidEntries, List<OrderBookEntry> askEntries) {
+        long stamp = lock.writeLock();
+        try {
+            bids.load(bidEntries);
+            asks.load(askEntries);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the whole book with levels held in caller-owned arrays, best
+     * first, without allocating.
+     *
+     * @param bidPrices Bid prices, highest first
+     * @param bidSizes  Bid sizes
+     * @param bidCount  Number of bid levels
+     * @param askPrices Ask prices, lowest first
+     * @param askSizes  Ask sizes
+     * @param askCount  Number of ask levels
+     */
+    public void replace(double[] bidPrices, double[] bidSizes, int bidCount,
+                        double[] askPrices, double[] askSizes, int askCount) {
+        long stamp = lock.writeLock();
+        try {
+            bids.load(bidPrices, bidSizes, bidCount);
+            asks.load(askPrices, askSizes, askCount);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Applies a diff of levels held in caller-owned arrays, in any order, under
+     * one write lock, so readers never see part of it applied. A zero size
+     * removes the level.
+     *
+     * @param bidPrices Bid prices
+     * @param bidSizes  New total bid sizes at those prices
+     * @param bidCount  Number of bid levels
+     * @param askPrices Ask prices
+     * @param askSizes  New total ask sizes at those prices
+     * @param askCount  Number of ask levels
+     */
+    public void apply(double[] bidPrices, double[] bidSizes, int bidCount,
+                      double[] askPrices, double[] askSizes, int askCount) {
+        long stamp = lock.writeLock();
+        try {
+            for (int i = 0; i < bidCount; i++) {
+                bids.update(bidPrices[i], bidSizes[i]);
+            }
+            for (int i = 0; i < askCount; i++) {
+                asks.update(askPrices[i], askSizes[i]);
+            }
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces the book with a single level per side, as delivered by
+     * best-bid/offer streams.
+     *
+     * @param bidPrice The best bid price
+     * @param bidSize  The size at the best bid
+     * @param askPrice The best ask price
+     * @param askSize  The size at the best ask
+     */
+    public void setTopOfBook(double bidPrice, double bidSize, double askPrice, double askSize) {
+        long stamp = lock.writeLock();
+        try {
+            bids.clear();
+            asks.clear();
+            bids.update(bidPrice, bidSize);
+            asks.update(askPrice, askSize);
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes every level from both sides.
+     */
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            bids.clear();
+            asks.clear();
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Records the times of the latest update.
+     *
+     * @param receivedNanos     When the update was received, in epoch nanoseconds
+     * @param exchangeTimeNanos The exchange's time for it, in epoch nanoseconds, or -1 if not sent
+     */
+    public void touch(long receivedNanos, long exchangeTimeNanos) {
+        this.receivedNanos = receivedNanos;
+        this.exchangeTimeNanos = exchangeTimeNanos;
+    }
+
+    /**
+     * Returns a read-only snapshot of the bid entries, best first.
      *
      * @return A list of OrderBookEntry objects for bids.
      */
     public List<OrderBookEntry> getBids() {
-        return bids;
+        Snapshot snapshot = bidSnapshot;
+        long currentVersion = readVersion();
+        if (snapshot == null || snapshot.version != currentVersion) {
+            snapshot = buildSnapshot(bids);
+            bidSnapshot = snapshot;
+        }
+        return snapshot.entries;
     }
 
     /**
-     * Returns the list of ask entries.
+     * Returns a read-only snapshot of the ask entries, best first.
      *
      * @return A list of OrderBookEntry objects for asks.
      */
     public List<OrderBookEntry> getAsks() {
-        return asks;
+        Snapshot snapshot = askSnapshot;
+        long currentVersion = readVersion();
+        if (snapshot == null || snapshot.version != currentVersion) {
+            snapshot = buildSnapshot(asks);
+            askSnapshot = snapshot;
+        }
+        return snapshot.entries;
     }
 
     /**
@@ -72,29 +279,198 @@ public class OrderBook {
      * @return The timestamp.
      */
     public Date getTimestamp() {
-        return timestamp;
+        return new Date(getTimestampMillis());
+    }
+
+    /**
+     * Returns the time of the latest update without allocating a Date.
+     *
+     * @return The receive time in epoch milliseconds.
+     */
+    public long getTimestampMillis() {
+        return receivedNanos / 1_000_000;
+    }
+
+    /**
+     * @return When the latest update was received, in epoch nanoseconds.
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    /**
+     * @return The exchange's time for the latest update, in epoch nanoseconds, or -1 if not sent.
+     */
+    public long getExchangeTimeNanos() {
+        return exchangeTimeNanos;
+    }
+
+    /**
+     * @return The number of bid levels
+     */
+    public int getBidDepth() {
+        long stamp = lock.tryOptimisticRead();
+        int depth = bids.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                depth = bids.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * @return The number of ask levels
+     */
+    public int getAskDepth() {
+        long stamp = lock.tryOptimisticRead();
+        int depth = asks.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                depth = asks.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Returns the bid price at a level, 0 being the best bid.
+     *
+     * @param level The level number
+     * @return The price, or 0 if the level does not exist
+     */
+    public double getBidPrice(int level) {
+        return readLevel(bids, level, true);
+    }
+
+    /**
+     * Returns the bid size at a level, 0 being the best bid.
+     *
+     * @param level The level number
+     * @return The size, or 0 if the level does not exist
+     */
+    public double getBidSize(int level) {
+        return readLevel(bids, level, false);
+    }
+
+    /**
+     * Returns the ask price at a level, 0 being the best ask.
+     *
+     * @param level The level number
+     * @return The price, or 0 if the level does not exist
+     */
+    public double getAskPrice(int level) {
+        return readLevel(asks, level, true);
+    }
+
+    /**
+     * Returns the ask size at a level, 0 being the best ask.
+     *
+     * @param level The level number
+     * @return The size, or 0 if the level does not exist
+     */
+    public double getAskSize(int level) {
+        return readLevel(asks, level, false);
+    }
+
+    /**
+     * @return The highest bid price, or 0 if there are no bids
+     */
+    public double getBestBidPrice() {
+        return getBidPrice(0);
+    }
+
+    /**
+     * @return The lowest ask price, or 0 if there are no asks
+     */
+    public double getBestAskPrice() {
+        return getAskPrice(0);
+    }
+
+    /**
+     * Copies up to {@code maxLevels} bid levels, best first, into caller-owned arrays.
+     *
+     * @return The number of levels copied
+     */
+    public int copyBids(double[] prices, double[] sizes, int maxLevels) {
+        long stamp = lock.readLock();
+        try {
+            return bids.copyTo(prices, sizes, maxLevels);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies up to {@code maxLevels} ask levels, best first, into caller-owned arrays.
+     *
+     * @return The number of levels copied
+     */
+    public int copyAsks(double[] prices, double[] sizes, int maxLevels) {
+        long stamp = lock.readLock();
+        try {
+            return asks.copyTo(prices, sizes, maxLevels);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the total volume on one side of the book.
+     *
+     * @param bidSide true for bids, false for asks
+     * @return The summed size of every level
+     */
+    public double getTotalVolume(boolean bidSide) {
+        long stamp = lock.readLock();
+        try {
+            return (bidSide ? bids : asks).totalSize();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the cost of filling a quantity against one side of the book,
+     * best price first. Only the visible volume is priced.
+     *
+     * @param bidSide  true to sell into the bids, false to buy from the asks
+     * @param quantity The quantity to fill
+     * @return The total cost of the filled part
+     */
+    public double getCostToFill(boolean bidSide, double quantity) {
+        long stamp = lock.readLock();
+        try {
+            return (bidSide ? bids : asks).costToFill(quantity);
+        } finally {
+            lock.unlockRead(stamp);
+        }
     }
 
     /**
      * Retrieves the best bid entry.
-     * <p>
-     * Assumes that the bids list is sorted in descending order by price.
      *
      * @return The highest bid entry, or null if there are no bids.
      */
     public OrderBookEntry getBestBid() {
-        return (bids != null && !bids.isEmpty()) ? bids.get(0) : null;
+        List<OrderBookEntry> entries = getBids();
+        return !entries.isEmpty() ? entries.get(0) : null;
     }
 
     /**
      * Retrieves the best ask entry.
-     * <p>
-     * Assumes that the asks list is sorted in ascending order by price.
      *
      * @return The lowest ask entry, or null if there are no asks.
      */
     public OrderBookEntry getBestAsk() {
-        return (asks != null && !asks.isEmpty()) ? asks.get(0) : null;
+        List<OrderBookEntry> entries = getAsks();
+        return !entries.isEmpty() ? entries.get(0) : null;
     }
 
     /**
@@ -103,8 +479,7 @@ public class OrderBook {
      * @return The volume of the best bid, or 0 if no bids are available.
      */
     public double getBestBidVolume() {
-        OrderBookEntry bestBid = getBestBid();
-        return bestBid != null ? bestBid.getVolume() : 0;
+        return getBidSize(0);
     }
 
     /**
@@ -113,8 +488,7 @@ public class OrderBook {
      * @return The volume of the best ask, or 0 if no asks are available.
      */
     public double getBestAskVolume() {
-        OrderBookEntry bestAsk = getBestAsk();
-        return bestAsk != null ? bestAsk.getVolume() : 0;
+        return getAskSize(0);
     }
 
     /**
@@ -123,13 +497,76 @@ public class OrderBook {
      * @return The spread (best ask price minus best bid price), or 0 if either side is missing.
      */
     public double getSpread() {
-        OrderBookEntry bestBid = getBestBid();
-        OrderBookEntry bestAsk = getBestAsk();
-        if (bestBid != null && bestAsk != null) {
-            return bestAsk.getPrice() - bestBid.getPrice();
+        long stamp = lock.readLock();
+        try {
+            if (bids.isEmpty() || asks.isEmpty()) {
+                return 0;
+            }
+            return asks.bestPrice() - bids.bestPrice();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long readVersion() {
+        long stamp = lock.tryOptimisticRead();
+        long current = version;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = version;
+            } finally {
+                lock.unlockRead(stamp);
+            }
         }
-        return 0;
+        return current;
     }
 
+    private Snapshot buildSnapshot(OrderBookSide side) {
+        long stamp = lock.readLock();
+        try {
+            return new Snapshot(version, side.toEntries());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private double readLevel(OrderBookSide side, int level, boolean price) {
+        long stamp = lock.tryOptimisticRead();
+        double value = readLevelUnlocked(side, level, price);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = readLevelUnlocked(side, level, price);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
 
+    private static double readLevelUnlocked(OrderBookSide side, int level, boolean price) {
+        // Bounds are re-checked here because an optimistic read may race a writer
+        if (level < 0 || level >= side.size()) {
+            return 0;
+        }
+        try {
+            return price ? side.priceAt(level) : side.sizeAt(level);
+        } catch (IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A list view of one side tagged with the book version it was built from.
+     */
+    private static final class Snapshot {
+        final long version;
+        final List<OrderBookEntry> entries;
+
+        Snapshot(long version, List<OrderBookEntry> entries) {
+            this.version = version;
+            this.entries = entries;
+        }
+    }
 }
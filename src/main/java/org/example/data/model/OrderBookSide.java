@@ -0,0 +1,349 @@
+package org.example.data.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One side (bids or asks) of a price-level order book, stored in sorted
+ * primitive arrays.
+ * <p>
+ * Levels are located by binary search and inserted, updated or removed in place,
+ * so applying a diff allocates nothing once the arrays have reached their
+ * working size. Internally the levels are kept worst-to-best, which puts the
+ * best price at the end of the arrays; most updates happen near the top of the
+ * book and therefore only shift a few elements.
+ * <p>
+ * Public accessors use level numbers counted from the best price (level 0).
+ * This class is not thread-safe; {@link OrderBook} guards access to it.
+ */
+public class OrderBookSide {
+
+    private static final int DEFAULT_CAPACITY = 32;
+
+    // true for bids (best = highest price), false for asks (best = lowest price)
+    private final boolean bid;
+
+    // Maximum number of levels kept, or 0 for no limit
+    private final int maxDepth;
+
+    // Level prices and sizes, sorted worst-to-best in [0, size)
+    private double[] prices;
+    private double[] sizes;
+    private int size;
+
+    /**
+     * Creates an unbounded side.
+     *
+     * @param bid true for the bid side, false for the ask side
+     */
+    public OrderBookSide(boolean bid) {
+        this(bid, 0);
+    }
+
+    /**
+     * Creates a side that keeps at most {@code maxDepth} levels.
+     * Levels that fall outside the depth are discarded, as exchanges with
+     * depth-limited subscriptions expect.
+     *
+     * @param bid true for the bid side, false for the ask side
+     * @param maxDepth Maximum number of levels, or 0 for no limit
+     */
+    public OrderBookSide(boolean bid, int maxDepth) {
+        this.bid = bid;
+        this.maxDepth = Math.max(0, maxDepth);
+        int capacity = this.maxDepth > 0 ? this.maxDepth + 1 : DEFAULT_CAPACITY;
+        this.prices = new double[capacity];
+        this.sizes = new double[capacity];
+    }
+
+    /**
+     * @return true if this is the bid side
+     */
+    public boolean isBid() {
+        return bid;
+    }
+
+    /**
+     * @return The maximum number of levels kept, or 0 for no limit
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The number of price levels
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the side has no levels
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the price at a level counted from the best price.
+     *
+     * @param level 0 for the best price
+     * @return The price at that level
+     */
+    public double priceAt(int level) {
+        checkLevel(level);
+        return prices[size - 1 - level];
+    }
+
+    /**
+     * Returns the size at a level counted from the best price.
+     *
+     * @param level 0 for the best price
+     * @return The size at that level
+     */
+    public double sizeAt(int level) {
+        checkLevel(level);
+        return sizes[size - 1 - level];
+    }
+
+    /**
+     * @return The best price, or 0 if the side is empty
+     */
+    public double bestPrice() {
+        return size > 0 ? prices[size - 1] : 0;
+    }
+
+    /**
+     * @return The size at the best price, or 0 if the side is empty
+     */
+    public double bestSize() {
+        return size > 0 ? sizes[size - 1] : 0;
+    }
+
+    /**
+     * Sets the size of a price level. A size of zero (or less) removes the level.
+     *
+     * @param price The level price
+     * @param quantity The new total size at that price
+     */
+    public void update(double price, double quantity) {
+        int index = search(price);
+        if (index >= 0) {
+            if (quantity > 0) {
+                sizes[index] = quantity;
+            } else {
+                removeAt(index);
+            }
+            return;
+        }
+        if (quantity <= 0) {
+            return;
+        }
+
+        int insertAt = -index - 1;
+        if (maxDepth > 0 && size >= maxDepth) {
+            if (insertAt == 0) {
+                // Worse than every level we keep
+                return;
+            }
+            // Drop the worst level to make room
+            removeAt(0);
+            insertAt--;
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(prices, insertAt, prices, insertAt + 1, size - insertAt);
+        System.arraycopy(sizes, insertAt, sizes, insertAt + 1, size - insertAt);
+        prices[insertAt] = price;
+        sizes[insertAt] = quantity;
+        size++;
+    }
+
+    /**
+     * Removes a price level if it exists.
+     *
+     * @param price The level price
+     */
+    public void remove(double price) {
+        int index = search(price);
+        if (index >= 0) {
+            removeAt(index);
+        }
+    }
+
+    /**
+     * Removes every level.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Keeps only the best {@code depth} levels.
+     *
+     * @param depth Number of levels to keep
+     */
+    public void truncate(int depth) {
+        if (depth < size) {
+            int drop = size - Math.max(0, depth);
+            System.arraycopy(prices, drop, prices, 0, size - drop);
+            System.arraycopy(sizes, drop, sizes, 0, size - drop);
+            size -= drop;
+        }
+    }
+
+    /**
+     * Replaces the contents of this side with the given entries, in any order.
+     *
+     * @param entries The entries to load
+     */
+    public void load(List<OrderBookEntry> entries) {
+        clear();
+        if (entries != null) {
+            for (OrderBookEntry entry : entries) {
+                update(entry.getPrice(), entry.getVolume());
+            }
+        }
+    }
+
+    /**
+     * Replaces the contents of this side with levels given best first, as
+     * {@link #copyTo(double[], double[], int)} produces them.
+     *
+     * @param levelPrices Level prices, best first
+     * @param levelSizes Level sizes
+     * @param count Number of levels to load
+     */
+    public void load(double[] levelPrices, double[] levelSizes, int count) {
+        if (maxDepth > 0) {
+            count = Math.min(count, maxDepth);
+        }
+        ensureCapacity(count);
+        for (int level = 0; level < count; level++) {
+            prices[count - 1 - level] = levelPrices[level];
+            sizes[count - 1 - level] = levelSizes[level];
+        }
+        size = count;
+    }
+
+    /**
+     * Replaces the contents of this side with a copy of another side.
+     *
+     * @param other The side to copy
+     */
+    public void copyFrom(OrderBookSide other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.prices, 0, prices, 0, other.size);
+        System.arraycopy(other.sizes, 0, sizes, 0, other.size);
+        size = other.size;
+        if (maxDepth > 0) {
+            truncate(maxDepth);
+        }
+    }
+
+    /**
+     * Copies up to {@code maxLevels} levels, best first, into caller-owned arrays.
+     *
+     * @param levelPrices Destination for prices
+     * @param levelSizes Destination for sizes
+     * @param maxLevels Maximum number of levels to copy
+     * @return The number of levels copied
+     */
+    public int copyTo(double[] levelPrices, double[] levelSizes, int maxLevels) {
+        int count = Math.min(Math.min(size, maxLevels), Math.min(levelPrices.length, levelSizes.length));
+        for (int level = 0; level < count; level++) {
+            levelPrices[level] = prices[size - 1 - level];
+            levelSizes[level] = sizes[size - 1 - level];
+        }
+        return count;
+    }
+
+    /**
+     * @return The total size across all levels
+     */
+    public double totalSize() {
+        double total = 0;
+        for (int i = 0; i < size; i++) {
+            total += sizes[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the cost of taking {@code quantity} from this side, best price first.
+     * If the side holds less than the requested quantity, only the available size
+     * is priced.
+     *
+     * @param quantity The quantity to take
+     * @return The total cost (price times size) of the filled quantity
+     */
+    public double costToFill(double quantity) {
+        double remaining = quantity;
+        double cost = 0;
+        for (int i = size - 1; i >= 0 && remaining > 0; i--) {
+            double taken = Math.min(remaining, sizes[i]);
+            cost += taken * prices[i];
+            remaining -= taken;
+        }
+        return cost;
+    }
+
+    /**
+     * Builds an immutable list of entries, best first.
+     *
+     * @return The levels as OrderBookEntry objects
+     */
+    public List<OrderBookEntry> toEntries() {
+        List<OrderBookEntry> entries = new ArrayList<>(size);
+        for (int i = size - 1; i >= 0; i--) {
+            entries.add(new OrderBookEntry(prices[i], sizes[i]));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Binary search over the worst-to-best arrays.
+     *
+     * @return The index of the price, or (-(insertion point) - 1) if absent
+     */
+    private int search(double price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            double midPrice = prices[mid];
+            if (midPrice == price) {
+                return mid;
+            }
+            // Bids are stored ascending and asks descending
+            boolean before = bid ? midPrice < price : midPrice > price;
+            if (before) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        System.arraycopy(sizes, index + 1, sizes, index, size - index - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > prices.length) {
+            int newCapacity = Math.max(capacity, prices.length * 2);
+            prices = Arrays.copyOf(prices, newCapacity);
+            sizes = Arrays.copyOf(sizes, newCapacity);
+        }
+    }
+
+    private void checkLevel(int level) {
+        if (level < 0 || level >= size) {
+            throw new IndexOutOfBoundsException("Level " + level + " out of range for depth " + size);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package org.example.data.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Central registry of instruments.
+ *
+ * Every normalized instrument symbol (e.g. "BTCUSDT") gets a dense int ID, and
+ * each exchange gets a table mapping its native symbols ("BTC-USDT",
+ * "XBT/USDT") to and from those IDs. Code on the hot path resolves a symbol to
+ * an ID once and then indexes arrays ({@link InstrumentArray}) instead of
+ * hashing strings.
+ *
+ * A shared instance is available through {@link #getInstance()}; separate
+ * instances can be created where isolation is needed.
+ */
+public class SymbolRegistry {
+
+    private static final SymbolRegistry INSTANCE = new SymbolRegistry();
+
+    // Normalized symbol -> ID, and ID -> normalized symbol
+    private final Map<String, Integer> idsBySymbol = new ConcurrentHashMap<>();
+    private final InstrumentArray<String> symbolsById = new InstrumentArray<>();
+
+    // Any spelling seen so far -> ID, so each spelling is normalized only once
+    private final Map<String, Integer> idsBySpelling = new ConcurrentHashMap<>();
+
+    // Exchange name -> symbol table
+    private final Map<String, ExchangeSymbolTable> exchangeTables = new ConcurrentHashMap<>();
+
+    private int nextId = 0;
+
+    /**
+     * @return The shared registry
+     */
+    public static SymbolRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Normalizes a symbol to the exchange-independent form (see
+     * {@link TradingPair#normalize(String)}).
+     *
+     * @param symbol The symbol in any exchange format
+     * @return The normalized symbol
+     */
+    public static String normalize(String symbol) {
+        return TradingPair.normalize(symbol);
+    }
+
+    /**
+     * Returns the ID of a symbol, registering it if it is new.
+     *
+     * @param symbol The symbol in any exchange format
+     * @return The instrument ID
+     */
+    public int intern(String symbol) {
+        Integer id = idsBySpelling.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        String normalized = normalize(symbol);
+        id = idsBySymbol.get(normalized);
+        if (id == null) {
+            synchronized (this) {
+                id = idsBySymbol.get(normalized);
+                if (id == null) {
+                    id = nextId++;
+                    // Publish the name before the ID can be looked up
+                    symbolsById.set(id, normalized);
+                    idsBySymbol.put(normalized, id);
+                }
+            }
+        }
+        idsBySpelling.put(symbol, id);
+        return id;
+    }
+
+    /**
+     * Returns the ID of a symbol without registering it.
+     *
+     * @param symbol The symbol in any exchange format
+     * @return The instrument ID, or -1 if the instrument is unknown
+     */
+    public int idOf(String symbol) {
+        Integer id = idsBySpelling.get(symbol);
+        if (id == null) {
+            id = idsBySymbol.get(normalize(symbol));
+            if (id == null) {
+                return -1;
+            }
+            idsBySpelling.put(symbol, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param id The instrument ID
+     * @return The normalized symbol, or null if the ID is unknown
+     */
+    public String symbolOf(int id) {
+        return symbolsById.get(id);
+    }
+
+    /**
+     * @return The number of registered instruments; IDs range from 0 to size - 1
+     */
+    public synchronized int size() {
+        return nextId;
+    }
+
+    /**
+     * Returns the symbol table of an exchange, creating it on first use.
+     *
+     * @param exchangeName The exchange name
+     * @return The exchange's symbol table
+     */
+    public ExchangeSymbolTable forExchange(String exchangeName) {
+        return exchangeTables.computeIfAbsent(exchangeName, name -> new ExchangeSymbolTable(this, name));
+    }
+
+    /**
+     * Maps one exchange's native symbols to and from instrument IDs.
+     */
+    public static class ExchangeSymbolTable {
+        private final SymbolRegistry registry;
+        private final String exchangeName;
+        private final Map<String, Integer> idsByNativeSymbol = new ConcurrentHashMap<>();
+        private final InstrumentArray<String> nativeSymbolsById = new InstrumentArray<>();
+
+        ExchangeSymbolTable(SymbolRegistry registry, String exchangeName) {
+            this.registry = registry;
+            this.exchangeName = exchangeName;
+        }
+
+        /**
+         * Registers a native symbol listed by the exchange.
+         *
+         * @param nativeSymbol The exchange's symbol
+         * @return The instrument ID
+         */
+        public int register(String nativeSymbol) {
+            Integer id = idsByNativeSymbol.get(nativeSymbol);
+            if (id != null) {
+                return id;
+            }
+            int newId = registry.intern(nativeSymbol);
+            // The first listing of an instrument is the one used to address it
+            nativeSymbolsById.setIfAbsent(newId, nativeSymbol);
+            idsByNativeSymbol.put(nativeSymbol, newId);
+            return newId;
+        }
+
+        /**
+         * @param nativeSymbol The exchange's symbol
+         * @return The instrument ID, or -1 if the exchange does not list it
+         */
+        public int idOf(String nativeSymbol) {
+            Integer id = idsByNativeSymbol.get(nativeSymbol);
+            return id != null ? id : -1;
+        }
+
+        /**
+         * @param id The instrument ID
+         * @return The exchange's symbol for the instrument, or null if not listed
+         */
+        public String nativeSymbol(int id) {
+            return nativeSymbolsById.get(id);
+        }
+
+        /**
+         * @param id The instrument ID
+         * @return true if the exchange lists the instrument
+         */
+        public boolean lists(int id) {
+            return nativeSymbolsById.get(id) != null;
+        }
+
+        /**
+         * @return The number of native symbols registered
+         */
+        public int size() {
+            return idsByNativeSymbol.size();
+        }
+
+        /**
+         * @return The exchange name
+         */
+        public String getExchangeName() {
+            return exchangeName;
+        }
+
+        /**
+         * @return The registry the IDs belong to
+         */
+        public SymbolRegistry getRegistry() {
+            return registry;
+        }
+    }
+}
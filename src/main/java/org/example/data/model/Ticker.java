@@ -2,19 +2,37 @@ package org.example.data.model;
 
 import java.util.Date;
 
+/**
+ * Best bid/ask, last price and volume of a trading pair.
+ *
+ * Times are kept as epoch nanoseconds: when the update was received locally,
+ * and when the exchange says it happened if the feed sends that. The gap
+ * between the two is the feed latency. A time that is not known is -1.
+ */
 public class Ticker {
     private double bidPrice;
     private double askPrice;
     private double lastPrice;
     private double volume;
-    private Date timestamp;
+    private long receivedNanos;
+    private long exchangeTimeNanos;
 
-    public Ticker(double bidPrice, double askPrice, double lastPrice, double volume, Date timestamp) {
+    /**
+     * @param receivedNanos When the update was received, in epoch nanoseconds
+     * @param exchangeTimeNanos When the exchange produced it, in epoch nanoseconds, or -1 if not sent
+     */
+    public Ticker(double bidPrice, double askPrice, double lastPrice, double volume,
+                  long receivedNanos, long exchangeTimeNanos) {
         this.bidPrice = bidPrice;
         this.askPrice = askPrice;
         this.lastPrice = lastPrice;
         this.volume = volume;
-        this.timestamp = timestamp;
+        this.receivedNanos = receivedNanos;
+        this.exchangeTimeNanos = exchangeTimeNanos;
+    }
+
+    public Ticker(double bidPrice, double askPrice, double lastPrice, double volume, Date timestamp) {
+        this(bidPrice, askPrice, lastPrice, volume, timestamp != null ? timestamp.getTime() * 1_000_000 : -1, -1);
     }
 
     public double getBidPrice() {
@@ -33,7 +51,32 @@ public class Ticker {
         return volume;
     }
 
+    /**
+     * @return The time the ticker was received, or null if not known. Allocates;
+     *         prefer {@link #getTimestampMillis()} on hot paths.
+     */
     public Date getTimestamp() {
-        return timestamp;
+        return receivedNanos >= 0 ? new Date(getTimestampMillis()) : null;
+    }
+
+    /**
+     * @return The time the ticker was received, in epoch milliseconds
+     */
+    public long getTimestampMillis() {
+        return receivedNanos / 1_000_000;
+    }
+
+    /**
+     * @return The time the ticker was received, in epoch nanoseconds
+     */
+    public long getReceivedNanos() {
+        return receivedNanos;
+    }
+
+    /**
+     * @return The exchange's time for the update, in epoch nanoseconds, or -1 if not sent
+     */
+    public long getExchangeTimeNanos() {
+        return exchangeTimeNanos;
     }
 }
@@ -1,29 +1,210 @@
 package org.example.data.model;
 
-public class TradingPair {
-    private String baseCurrency;
-    private String quoteCurrency;
-    private String symbol;
+/**
+ * An instrument as listed by an exchange.
+ *
+ * A pair keeps the exchange's own symbol (e.g. "BTC-USD", "XXBTZUSD",
+ * "BTCUSDT") for API calls, and parses it into canonical base and quote
+ * currencies. Two pairs are equal when they denote the same instrument,
+ * whatever exchange format they came from, so pairs can be used as map keys
+ * to group listings across exchanges.
+ *
+ * Instances are immutable.
+ */
+public final class TradingPair {
+
+    // Quote currencies recognised at the end of an unseparated symbol, longest first
+    private static final String[] KNOWN_QUOTES = {
+            "FDUSD", "USDT", "USDC", "BUSD", "TUSD", "USDE", "EURC", "USD", "EUR", "GBP", "JPY",
+            "AUD", "CAD", "CHF", "TRY", "BRL", "DAI", "BTC", "XBT", "ETH", "BNB", "SOL"
+    };
+
+    private final String baseCurrency;
+    private final String quoteCurrency;
+    private final String symbol;
+
+    // Exchange-independent symbol, base followed by quote (e.g. "BTCUSD")
+    private final String normalizedSymbol;
+
+    // Computed once; pairs are used as keys on hot paths
+    private final int hash;
 
     public TradingPair(String baseCurrency, String quoteCurrency) {
-        this.baseCurrency = baseCurrency;
-        this.quoteCurrency = quoteCurrency;
+        this.baseCurrency = canonicalCurrency(baseCurrency);
+        this.quoteCurrency = canonicalCurrency(quoteCurrency);
         this.symbol = baseCurrency + quoteCurrency;
+        this.normalizedSymbol = this.baseCurrency + this.quoteCurrency;
+        this.hash = normalizedSymbol.hashCode();
     }
+
     public TradingPair(String symbol) {
         this.symbol = symbol;
+        String[] parts = parse(symbol);
+        if (parts != null) {
+            this.baseCurrency = parts[0];
+            this.quoteCurrency = parts[1];
+            this.normalizedSymbol = baseCurrency + quoteCurrency;
+        } else {
+            // Unknown format: compare on the cleaned-up symbol
+            this.baseCurrency = null;
+            this.quoteCurrency = null;
+            this.normalizedSymbol = clean(symbol);
+        }
+        this.hash = normalizedSymbol.hashCode();
     }
 
+    /**
+     * Normalizes a symbol in any exchange format to the exchange-independent
+     * form used for comparison, e.g. "XBT/USDT", "XXBTZUSD" and "BTC-USD" to
+     * "BTCUSDT", "BTCUSD" and "BTCUSD".
+     *
+     * @param symbol The exchange symbol
+     * @return The normalized symbol
+     */
+    public static String normalize(String symbol) {
+        String[] parts = parse(symbol);
+        return parts != null ? parts[0] + parts[1] : clean(symbol);
+    }
+
+    /**
+     * Splits an exchange symbol into canonical base and quote currencies.
+     *
+     * @return {base, quote}, or null if the symbol could not be split
+     */
+    private static String[] parse(String symbol) {
+        String cleaned = stripSuffix(symbol.toUpperCase());
+
+        // Separated formats: Coinbase "BTC-USD", Kraken WebSocket "XBT/USD"
+        int separator = indexOfSeparator(cleaned);
+        if (separator > 0 && separator < cleaned.length() - 1) {
+            return new String[] {
+                    canonicalCurrency(cleaned.substring(0, separator)),
+                    canonicalCurrency(cleaned.substring(separator + 1))
+            };
+        }
+        if (separator >= 0) {
+            return null;
+        }
+
+        // Kraken's legacy REST names prefix crypto assets with X and fiat with Z: "XXBTZUSD"
+        if (cleaned.length() == 8 && isKrakenPrefix(cleaned.charAt(0)) && isKrakenPrefix(cleaned.charAt(4))) {
+            return new String[] {
+                    canonicalCurrency(cleaned.substring(1, 4)),
+                    canonicalCurrency(cleaned.substring(5, 8))
+            };
+        }
 
+        // Concatenated formats: Binance and Bybit "BTCUSDT", Kraken "XBTUSDT"
+        for (String quote : KNOWN_QUOTES) {
+            if (cleaned.length() > quote.length() + 1 && cleaned.endsWith(quote)) {
+                return new String[] {
+                        canonicalCurrency(cleaned.substring(0, cleaned.length() - quote.length())),
+                        canonicalCurrency(quote)
+                };
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKrakenPrefix(char c) {
+        return c == 'X' || c == 'Z';
+    }
+
+    private static int indexOfSeparator(String symbol) {
+        int dash = symbol.indexOf('-');
+        return dash >= 0 ? dash : symbol.indexOf('/');
+    }
+
+    /**
+     * Strips exchange-specific contract suffixes we don't need for comparison.
+     */
+    private static String stripSuffix(String symbol) {
+        if (symbol.endsWith(".P") || symbol.endsWith(".T")) {
+            return symbol.substring(0, symbol.length() - 2);
+        }
+        return symbol;
+    }
+
+    /**
+     * Fallback normalization for symbols that could not be split.
+     */
+    private static String clean(String symbol) {
+        String cleaned = stripSuffix(symbol.replace("-", "").replace("/", "").toUpperCase());
+        if (cleaned.startsWith("XBT")) {
+            cleaned = "BTC" + cleaned.substring(3);
+        }
+        return cleaned;
+    }
+
+    /**
+     * Maps exchange-specific currency codes to the common ones.
+     */
+    private static String canonicalCurrency(String currency) {
+        String upper = currency.toUpperCase();
+        switch (upper) {
+            case "XBT":
+                return "BTC";
+            case "XDG":
+                return "DOGE";
+            default:
+                return upper;
+        }
+    }
+
+    /**
+     * @return The canonical base currency, or null if the symbol could not be parsed
+     */
     public String getBaseCurrency() {
         return baseCurrency;
     }
 
+    /**
+     * @return The canonical quote currency, or null if the symbol could not be parsed
+     */
     public String getQuoteCurrency() {
         return quoteCurrency;
     }
 
+    /**
+     * @return The symbol in the listing exchange's format
+     */
     public String getSymbol() {
         return symbol;
     }
+
+    /**
+     * @return The exchange-independent symbol, e.g. "BTCUSDT"
+     */
+    public String getNormalizedSymbol() {
+        return normalizedSymbol;
+    }
+
+    /**
+     * @return The instrument ID of this pair in the shared {@link SymbolRegistry}
+     */
+    public int getInstrumentId() {
+        return SymbolRegistry.getInstance().intern(normalizedSymbol);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TradingPair)) {
+            return false;
+        }
+        TradingPair other = (TradingPair) o;
+        return hash == other.hash && normalizedSymbol.equals(other.normalizedSymbol);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return symbol;
+    }
 }
@@ -0,0 +1,111 @@
+package org.example.data.model;
+
+import java.util.Date;
+
+/**
+ * A profitable three-leg cycle inside one exchange, e.g. USDT -> BTC -> ETH -> USDT.
+ *
+ * Each leg converts the previous leg's currency through one trading pair,
+ * buying the pair's base at the ask or selling it at the bid. The profit
+ * includes the taker fee of every leg.
+ *
+ * Instances are immutable.
+ */
+public final class TriangularOpportunity {
+
+    private final String exchange;
+    // The currencies visited, starting and ending with the first
+    private final String[] currencies;
+    private final String[] symbols;
+    // true if the leg sells the pair's base currency
+    private final boolean[] sells;
+    private final double[] prices;
+    private final double profitPercent;
+    private final long timestampMillis;
+
+    /**
+     * @param exchange The exchange name
+     * @param currencies The three currencies, in trading order
+     * @param symbols The pair traded on each leg
+     * @param sells For each leg, true if it sells the pair's base, false if it buys it
+     * @param prices The bid or ask each leg trades at
+     * @param profitPercent Net profit after fees, in percent of the starting amount
+     * @param timestampMillis When the opportunity was found, in epoch milliseconds
+     */
+    public TriangularOpportunity(String exchange, String[] currencies, String[] symbols, boolean[] sells,
+                                 double[] prices, double profitPercent, long timestampMillis) {
+        this.exchange = exchange;
+        this.currencies = currencies.clone();
+        this.symbols = symbols.clone();
+        this.sells = sells.clone();
+        this.prices = prices.clone();
+        this.profitPercent = profitPercent;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public TriangularOpportunity(String exchange, String[] currencies, String[] symbols, boolean[] sells,
+                                 double[] prices, double profitPercent) {
+        this(exchange, currencies, symbols, sells, prices, profitPercent, System.currentTimeMillis());
+    }
+
+    public String getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @param leg The leg, 0 to 2
+     * @return The currency the leg starts from
+     */
+    public String getCurrency(int leg) {
+        return currencies[leg];
+    }
+
+    /**
+     * @param leg The leg, 0 to 2
+     * @return The exchange symbol of the pair traded on the leg
+     */
+    public String getSymbol(int leg) {
+        return symbols[leg];
+    }
+
+    /**
+     * @param leg The leg, 0 to 2
+     * @return true if the leg sells the pair's base currency at the bid, false if it buys at the ask
+     */
+    public boolean isSell(int leg) {
+        return sells[leg];
+    }
+
+    /**
+     * @param leg The leg, 0 to 2
+     * @return The price the leg trades at
+     */
+    public double getPrice(int leg) {
+        return prices[leg];
+    }
+
+    public double getProfitPercent() {
+        return profitPercent;
+    }
+
+    public Date getTimestamp() {
+        return new Date(timestampMillis);
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(exchange).append(": ");
+        for (int leg = 0; leg < 3; leg++) {
+            sb.append(currencies[leg]).append(" -(")
+                    .append(sells[leg] ? "sell " : "buy ").append(symbols[leg])
+                    .append(" @ ").append(prices[leg]).append(")-> ");
+        }
+        return sb.append(currencies[0])
+                .append(String.format(", %.4f%% after fees", profitPercent))
+                .toString();
+    }
+}
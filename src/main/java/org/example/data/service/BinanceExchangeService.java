@@ -11,16 +11,28 @@ import org.example.data.interfaces.INotificationService;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -36,10 +48,45 @@ public class BinanceExchangeService extends ExchangeService {
     private static final String BASE_URL = "https://api.binance.com";
     private static final String WS_BASE_URL = "wss://stream.binance.com/ws";
 
+    // Above this many symbols a batch ticker fetch requests every symbol instead
+    private static final int MAX_TICKER_BATCH_SYMBOLS = 100;
+
+    // Order book depth requested over REST
+    private static final int DEPTH_LIMIT = 20;
+
+    // Request weights charged by Binance against the per-minute weight budget
+    private static final int EXCHANGE_INFO_WEIGHT = 20;
+    private static final int BOOK_TICKER_WEIGHT = 2;
+    private static final int BOOK_TICKER_BATCH_WEIGHT = 4;
+
+    // Diff updates held per symbol while waiting for a snapshot (10s of 100ms updates)
+    static final int MAX_BUFFERED_DEPTH_UPDATES = 100;
+
+    // Minimum time between snapshot requests for a symbol after a failed one
+    private static final long SNAPSHOT_RETRY_MILLIS = 1000;
+
+    // Streams per SUBSCRIBE request
+    private static final int STREAMS_PER_SUBSCRIBE = 200;
+
+    // Maintain full books from the @depth@100ms diff stream instead of REST polling
+    private volatile boolean depthStream = true;
+
+    // Levels requested in the REST snapshot a diff stream starts from
+    private volatile int depthSnapshotLimit = 1000;
+
+    // Per-symbol diff stream synchronisation state
+    private final Map<String, DepthSync> depthSyncs = new ConcurrentHashMap<>();
+
+    // Depth synchronisation metrics
+    private final AtomicLong depthSnapshots = new AtomicLong();
+    private final AtomicLong depthGaps = new AtomicLong();
+    private final AtomicLong depthUpdatesApplied = new AtomicLong();
+
     // HTTP and WebSocket clients
     private HttpClient wsClient;
-    private WebSocket webSocket;
-    private BinanceWebSocketListener webSocketListener;
+
+    // IDs of SUBSCRIBE requests, which Binance echoes back
+    private final AtomicLong subscribeRequestId = new AtomicLong();
 
     // Add these fee-related fields
     private Fee bnbMakerFee;
@@ -223,34 +270,21 @@ public class BinanceExchangeService extends ExchangeService {
         List<TradingPair> pairs = new ArrayList<>();
         
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(BASE_URL + "/api/v3/exchangeInfo"))
-                    .timeout(Duration.ofSeconds(30))
-                    .header("Content-Type", "application/json")
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            String response = restGet(BASE_URL + "/api/v3/exchangeInfo", EXCHANGE_INFO_WEIGHT, Duration.ofSeconds(30));
+            JSONObject json = new JSONObject(response);
+            JSONArray symbols = json.getJSONArray("symbols");
             
-            if (response.statusCode() == 200) {
-                JSONObject json = new JSONObject(response.body());
-                JSONArray symbols = json.getJSONArray("symbols");
-                
-                for (int i = 0; i < symbols.length(); i++) {
-                    JSONObject symbol = symbols.getJSONObject(i);
-                    if ("TRADING".equals(symbol.getString("status"))) {
-                        String baseAsset = symbol.getString("baseAsset");
-                        String quoteAsset = symbol.getString("quoteAsset");
-                        pairs.add(new TradingPair(baseAsset, quoteAsset));
-                    }
+            for (int i = 0; i < symbols.length(); i++) {
+                JSONObject symbol = symbols.getJSONObject(i);
+                if ("TRADING".equals(symbol.getString("status"))) {
+                    String baseAsset = symbol.getString("baseAsset");
+                    String quoteAsset = symbol.getString("quoteAsset");
+                    pairs.add(new TradingPair(baseAsset, quoteAsset));
                 }
-                
-                setTradingPairs(pairs);
-                logInfo("Fetched " + pairs.size() + " trading pairs from Binance");
-            } else {
-                logError("Failed to fetch trading pairs: " + response.statusCode(), null);
             }
+            
+            setTradingPairs(pairs);
+            logInfo("Fetched " + pairs.size() + " trading pairs from Binance");
         } catch (IOException | InterruptedException e) {
             logError("Error fetching trading pairs", e);
         } catch (JSONException e) {
@@ -263,92 +297,158 @@ public class BinanceExchangeService extends ExchangeService {
     @Override
     protected Ticker fetchTickerDataREST(String symbol) {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(BASE_URL + "/api/v3/ticker/bookTicker?symbol=" + symbol))
-                    .timeout(Duration.ofSeconds(10))
-                    .header("Content-Type", "application/json")
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return fetchTickerDataAsync(symbol).join();
+        } catch (CompletionException e) {
+            logError("Error fetching ticker data for " + symbol, e.getCause());
+            return null;
+        }
+    }
+    
+    /**
+     * Fetches the book ticker and the 24h statistics concurrently and combines
+     * them into one ticker. A failed 24h call leaves last price and volume at 0,
+     * as the bid/ask from the book ticker are what arbitrage needs.
+     *
+     * @param symbol The Binance symbol (e.g., "BTCUSDT")
+     * @return A future completed with the ticker
+     */
+    @Override
+    public CompletableFuture<Ticker> fetchTickerDataAsync(String symbol) {
+        CompletableFuture<JSONObject> bookTicker =
+                restGetAsync(BASE_URL + "/api/v3/ticker/bookTicker?symbol=" + symbol, BOOK_TICKER_WEIGHT)
+                .thenApply(JSONObject::new);
+        
+        CompletableFuture<JSONObject> stats =
+                restGetAsync(BASE_URL + "/api/v3/ticker/24hr?symbol=" + symbol, tickerStatsWeight(1))
+                .thenApply(JSONObject::new)
+                .exceptionally(e -> {
+                    logWarning("Failed to fetch 24h statistics for " + symbol + ": " + e.getMessage());
+                    return null;
+                });
+        
+        return bookTicker.thenCombine(stats, (book, volumeJson) -> {
+            double bidPrice = book.getDouble("bidPrice");
+            double askPrice = book.getDouble("askPrice");
+            double volume = volumeJson != null ? volumeJson.getDouble("volume") : 0;
+            double lastPrice = volumeJson != null ? volumeJson.getDouble("lastPrice") : 0;
+            return new Ticker(bidPrice, askPrice, lastPrice, volume, getClock().epochNanos(), -1);
+        });
+    }
+    
+    /**
+     * Fetches book tickers and 24h statistics for many symbols in two concurrent
+     * calls. Large batches use the unfiltered endpoints, which cost less request
+     * weight than a long symbols list. A symbols list with one symbol Binance
+     * does not know is rejected whole, without saying which, so a rejected list
+     * is retried in halves until the unknown symbols are left out.
+     *
+     * @param symbols The Binance symbols
+     * @return The tickers keyed by symbol
+     */
+    @Override
+    public Map<String, Ticker> fetchAllTickersREST(Collection<String> symbols) {
+        Map<String, Ticker> tickers = new HashMap<>();
+        if (symbols.isEmpty()) {
+            return tickers;
+        }
+        
+        String query = "";
+        if (symbols.size() <= MAX_TICKER_BATCH_SYMBOLS) {
+            JSONArray symbolArray = new JSONArray();
+            for (String symbol : symbols) {
+                symbolArray.put(symbol);
+            }
+            query = "symbols=" + URLEncoder.encode(symbolArray.toString(), StandardCharsets.UTF_8);
+        }
+        
+        int statsWeight = tickerStatsWeight(query.isEmpty() ? Integer.MAX_VALUE : symbols.size());
+        CompletableFuture<JSONArray> bookTickers = restGetAsync(
+                BASE_URL + "/api/v3/ticker/bookTicker" + (query.isEmpty() ? "" : "?" + query),
+                BOOK_TICKER_BATCH_WEIGHT)
+                .thenApply(JSONArray::new);
+        CompletableFuture<JSONArray> stats = restGetAsync(
+                BASE_URL + "/api/v3/ticker/24hr?type=MINI" + (query.isEmpty() ? "" : "&" + query),
+                statsWeight)
+                .thenApply(JSONArray::new)
+                .exceptionally(e -> {
+                    logWarning("Failed to fetch 24h statistics batch: " + e.getMessage());
+                    return new JSONArray();
+                });
+        
+        try {
+            JSONArray statsArray = stats.join();
+            Map<String, JSONObject> statsBySymbol = new HashMap<>();
+            for (int i = 0; i < statsArray.length(); i++) {
+                JSONObject stat = statsArray.getJSONObject(i);
+                statsBySymbol.put(stat.getString("symbol"), stat);
+            }
             
-            if (response.statusCode() == 200) {
-                JSONObject json = new JSONObject(response.body());
-            double bidPrice = json.getDouble("bidPrice");
-            double askPrice = json.getDouble("askPrice");
-                
-                // Get 24h volume from a separate endpoint
-                HttpRequest volumeRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(BASE_URL + "/api/v3/ticker/24hr?symbol=" + symbol))
-                        .timeout(Duration.ofSeconds(10))
-                        .header("Content-Type", "application/json")
-                        .GET()
-                        .build();
-                
-                HttpResponse<String> volumeResponse = client.send(volumeRequest, HttpResponse.BodyHandlers.ofString());
-                
-                double volume = 0;
-                double lastPrice = 0;
-                if (volumeResponse.statusCode() == 200) {
-                    JSONObject volumeJson = new JSONObject(volumeResponse.body());
-                    volume = volumeJson.getDouble("volume");
-                    lastPrice = volumeJson.getDouble("lastPrice");
+            Set<String> wanted = new HashSet<>(symbols);
+            JSONArray bookArray = bookTickers.join();
+            long now = getClock().epochNanos();
+            for (int i = 0; i < bookArray.length(); i++) {
+                JSONObject book = bookArray.getJSONObject(i);
+                String symbol = book.getString("symbol");
+                if (!wanted.contains(symbol)) {
+                    continue;
                 }
-                
-                return new Ticker(bidPrice, askPrice, lastPrice, volume, new Date());
+                JSONObject stat = statsBySymbol.get(symbol);
+                tickers.put(symbol, new Ticker(
+                        book.getDouble("bidPrice"),
+                        book.getDouble("askPrice"),
+                        stat != null ? stat.getDouble("lastPrice") : 0,
+                        stat != null ? stat.getDouble("volume") : 0,
+                        now, -1));
+            }
+        } catch (CompletionException e) {
+            if (!(e.getCause() instanceof RestClientException)
+                    || ((RestClientException) e.getCause()).getStatusCode() != 400 || query.isEmpty()) {
+                logError("Error fetching ticker batch for " + symbols.size() + " symbols", e);
+            } else if (symbols.size() > 1) {
+                List<String> rejected = new ArrayList<>(symbols);
+                int half = rejected.size() / 2;
+                tickers.putAll(fetchAllTickersREST(rejected.subList(0, half)));
+                tickers.putAll(fetchAllTickersREST(rejected.subList(half, rejected.size())));
             } else {
-                logWarning("Failed to fetch ticker for " + symbol + ": " + response.statusCode());
+                logWarning("Ticker batch rejected symbol " + symbols.iterator().next());
             }
-        } catch (IOException | InterruptedException e) {
-            logError("Error fetching ticker data for " + symbol, e);
         } catch (JSONException e) {
-            logError("Error parsing ticker JSON for " + symbol, e);
+            logError("Error fetching ticker batch for " + symbols.size() + " symbols", e);
         }
         
-        return null;
+        return tickers;
     }
     
     @Override
     protected OrderBook fetchOrderBookREST(String symbol) {
         try {
-            HttpClient client = HttpClient.newHttpClient();
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(BASE_URL + "/api/v3/depth?symbol=" + symbol + "&limit=20"))
-                    .timeout(Duration.ofSeconds(10))
-                    .header("Content-Type", "application/json")
-                    .GET()
-                    .build();
-            
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() == 200) {
-                JSONObject json = new JSONObject(response.body());
+            String response = restGet(BASE_URL + "/api/v3/depth?symbol=" + symbol + "&limit=" + DEPTH_LIMIT,
+                    depthWeight(DEPTH_LIMIT));
+            JSONObject json = new JSONObject(response);
 
             List<OrderBookEntry> bids = new ArrayList<>();
-                JSONArray bidsArray = json.getJSONArray("bids");
+            JSONArray bidsArray = json.getJSONArray("bids");
             for (int i = 0; i < bidsArray.length(); i++) {
-                    JSONArray bid = bidsArray.getJSONArray(i);
-                    double price = bid.getDouble(0);
-                    double amount = bid.getDouble(1);
-                    bids.add(new OrderBookEntry(price, amount));
+                JSONArray bid = bidsArray.getJSONArray(i);
+                double price = bid.getDouble(0);
+                double amount = bid.getDouble(1);
+                bids.add(new OrderBookEntry(price, amount));
             }
 
             List<OrderBookEntry> asks = new ArrayList<>();
-                JSONArray asksArray = json.getJSONArray("asks");
+            JSONArray asksArray = json.getJSONArray("asks");
             for (int i = 0; i < asksArray.length(); i++) {
-                    JSONArray ask = asksArray.getJSONArray(i);
-                    double price = ask.getDouble(0);
-                    double amount = ask.getDouble(1);
-                    asks.add(new OrderBookEntry(price, amount));
-                }
-                
-                OrderBook orderBook = new OrderBook(symbol, bids, asks, new Date());
-                logDebug("Fetched order book for " + symbol + " with " + bids.size() + " bids and " + asks.size() + " asks");
-                return orderBook;
-            } else {
-                logWarning("Failed to fetch order book for " + symbol + ": " + response.statusCode());
+                JSONArray ask = asksArray.getJSONArray(i);
+                double price = ask.getDouble(0);
+                double amount = ask.getDouble(1);
+                asks.add(new OrderBookEntry(price, amount));
             }
+            
+            OrderBook orderBook = new OrderBook(symbol, bids, asks, getClock().epochNanos());
+            logDebug("Fetched order book for " + symbol + " with " + bids.size() + " bids and " + asks.size() + " asks");
+            return orderBook;
+        } catch (RestClientException e) {
+            logWarning("Failed to fetch order book for " + symbol + ": " + e.getStatusCode());
         } catch (IOException | InterruptedException e) {
             logError("Error fetching order book for " + symbol, e);
         } catch (JSONException e) {
@@ -358,55 +458,72 @@ public class BinanceExchangeService extends ExchangeService {
         return null;
     }
     
+    /**
+     * Binance allows 1024 streams per connection; each symbol takes two with
+     * the depth stream, and subscriptions are sent in a couple of messages to
+     * stay under the limit of five incoming messages per second.
+     */
     @Override
-    public boolean initializeWebSocket(List<String> symbols) {
-        if (webSocket != null && websocketConnected) {
-            logInfo("WebSocket already connected");
-            return true;
-        }
-        
-        try {
-            StringBuilder streams = new StringBuilder();
-            for (int i = 0; i < symbols.size(); i++) {
-                String symbol = symbols.get(i).toLowerCase();
-                streams.append(symbol).append("@bookTicker");
-                if (i < symbols.size() - 1) {
-                    streams.append("/");
-                }
-            }
-            
-            String wsUrl = WS_BASE_URL + "/" + streams.toString();
-            logDebug("Connecting to WebSocket: " + wsUrl);
-            
-            webSocketListener = new BinanceWebSocketListener();
-            webSocket = wsClient.newWebSocketBuilder()
-                    .buildAsync(URI.create(wsUrl), webSocketListener)
-                    .get();
-            
-            websocketConnected = true;
-            logInfo("WebSocket connection established for " + symbols.size() + " symbols");
-            return true;
-        } catch (InterruptedException | ExecutionException e) {
-            logError("Error initializing WebSocket", e);
-            websocketConnected = false;
-            return false;
-        }
+    protected int getDefaultMaxSymbolsPerConnection() {
+        return 200;
     }
 
+    /**
+     * Connects to the raw stream endpoint and subscribes to the shard's
+     * streams with SUBSCRIBE requests rather than in the URL, whose length
+     * limits how many streams fit.
+     */
     @Override
-    public void closeWebSocket() {
-        if (webSocket != null) {
-                webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "Closing connection");
-                websocketConnected = false;
-            logInfo("WebSocket connection closed");
+    protected WebSocket openWebSocket(MarketDataShard shard) throws Exception {
+        List<String> streams = new ArrayList<>();
+        for (String symbol : shard.getSymbols()) {
+            String stream = symbol.toLowerCase();
+            streams.add(stream + "@bookTicker");
+            if (depthStream) {
+                streams.add(stream + "@depth@100ms");
+            }
+            // A new connection starts the symbol's book from a fresh snapshot
+            depthSyncs.remove(symbol);
         }
+
+        logDebug("Connecting WebSocket shard " + shard.getIndex() + " for " + streams.size() + " streams");
+        WebSocket socket = wsClient.newWebSocketBuilder()
+                .buildAsync(URI.create(WS_BASE_URL), new BinanceWebSocketListener(shard))
+                .get();
+
+        for (int from = 0; from < streams.size(); from += STREAMS_PER_SUBSCRIBE) {
+            JSONArray params = new JSONArray();
+            for (String stream : streams.subList(from, Math.min(from + STREAMS_PER_SUBSCRIBE, streams.size()))) {
+                params.put(stream);
+            }
+            JSONObject request = new JSONObject();
+            request.put("method", "SUBSCRIBE");
+            request.put("params", params);
+            request.put("id", subscribeRequestId.incrementAndGet());
+            // One text message may be in flight at a time
+            socket.sendText(request.toString(), true).get();
+        }
+        logInfo("WebSocket shard " + shard.getIndex() + " subscribed to " + shard.getSymbols().size() + " symbols");
+        return socket;
     }
 
     /**
-     * WebSocket listener for Binance.
+     * WebSocket listener for one Binance connection.
      */
     private class BinanceWebSocketListener implements WebSocket.Listener {
-        private StringBuilder buffer = new StringBuilder();
+        private final MarketDataShard shard;
+
+        // Holds fragments of a message split across several frames
+        private final StringBuilder buffer = new StringBuilder();
+        
+        private final MarketDataJson json = new MarketDataJson();
+        
+        // Decoded message, reused for every message on this socket
+        private final MarketDataEvent event = new MarketDataEvent();
+
+        BinanceWebSocketListener(MarketDataShard shard) {
+            this.shard = shard;
+        }
 
         @Override
         public void onOpen(WebSocket webSocket) {
@@ -416,68 +533,468 @@ public class BinanceExchangeService extends ExchangeService {
 
         @Override
         public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-            buffer.append(data);
-            if (last) {
-                processMessage(buffer.toString());
-                buffer.setLength(0);
-                webSocket.request(1);
+            shard.onMessage();
+            if (!last) {
+                buffer.append(data);
+                return null;
             }
+            // Single-frame messages are parsed straight from the frame
+            processMessage(buffer.length() == 0 ? data : buffer.append(data));
+            buffer.setLength(0);
+            webSocket.request(1);
             return null;
         }
 
         @Override
         public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
-            websocketConnected = false;
             logInfo("WebSocket closed: " + statusCode + " " + reason);
+            shard.onClosed(webSocket, "closed with status " + statusCode);
             return null;
         }
 
         @Override
         public void onError(WebSocket webSocket, Throwable error) {
-            websocketConnected = false;
             logError("WebSocket error", error);
+            shard.onClosed(webSocket, "error: " + error.getMessage());
+        }
+
+        @Override
+        public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+            shard.onMessage();
+            return WebSocket.Listener.super.onPong(webSocket, message);
         }
 
         /**
-         * Process WebSocket message.
+         * Decodes a bookTicker or depthUpdate message with a streaming parser and
+         * publishes it. Both use "b" and "a": prices in a bookTicker, level arrays
+         * in a depthUpdate.
          *
          * @param message The message received
          */
-        private void processMessage(String message) {
-            try {
-                JSONObject json = new JSONObject(message);
-
-                if (json.has("s") && json.has("b") && json.has("a")) {
-                    String symbol = json.getString("s");
-                        double bidPrice = json.getDouble("b");
-                        double askPrice = json.getDouble("a");
-                    double bidQty = json.getDouble("B");
-                    double askQty = json.getDouble("A");
-                    
-                    // Update ticker cache
-                    Ticker existingTicker = tickerCache.get(symbol);
-                    double lastPrice = existingTicker != null ? existingTicker.getLastPrice() : 0;
-                    double volume = existingTicker != null ? existingTicker.getVolume() : 0;
-                    
-                    Ticker updatedTicker = new Ticker(bidPrice, askPrice, lastPrice, volume, new Date());
-                    tickerCache.put(symbol, updatedTicker);
-                    
-                    // Create a simple order book with just the best bid and ask
-                        List<OrderBookEntry> bids = new ArrayList<>();
-                    bids.add(new OrderBookEntry(bidPrice, bidQty));
-
-                        List<OrderBookEntry> asks = new ArrayList<>();
-                    asks.add(new OrderBookEntry(askPrice, askQty));
-                    
-                    OrderBook updatedOrderBook = new OrderBook(symbol, bids, asks, new Date());
-                    orderBookCache.put(symbol, updatedOrderBook);
-                    
-                    logDebug("Updated ticker and order book for " + symbol);
+        private void processMessage(CharSequence message) {
+            event.reset(getClock().epochNanos());
+            event.type = MarketDataEvent.Type.TICKER;
+            
+            try (JsonParser parser = json.open(message)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return;
                 }
-            } catch (JSONException e) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    switch (field) {
+                        case "e":
+                            if ("depthUpdate".equals(parser.getText())) {
+                                event.type = MarketDataEvent.Type.BOOK;
+                            }
+                            break;
+                        case "s":
+                            event.symbol = parser.getText();
+                            break;
+                        case "E":
+                            event.exchangeTimeMillis = parser.getLongValue();
+                            break;
+                        case "U":
+                            event.firstUpdateId = parser.getLongValue();
+                            break;
+                        case "u":
+                            event.lastUpdateId = parser.getLongValue();
+                            break;
+                        case "b":
+                            if (token == JsonToken.START_ARRAY) {
+                                MarketDataJson.readLevels(parser, event.bids);
+                            } else {
+                                event.bidPrice = MarketDataJson.readDouble(parser);
+                            }
+                            break;
+                        case "B":
+                            event.bidSize = MarketDataJson.readDouble(parser);
+                            break;
+                        case "a":
+                            if (token == JsonToken.START_ARRAY) {
+                                MarketDataJson.readLevels(parser, event.asks);
+                            } else {
+                                event.askPrice = MarketDataJson.readDouble(parser);
+                            }
+                            break;
+                        case "A":
+                            event.askSize = MarketDataJson.readDouble(parser);
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
                 logError("Error parsing WebSocket message", e);
+                return;
+            }
+            
+            if (event.symbol == null) {
+                return;
+            }
+            if (event.type == MarketDataEvent.Type.BOOK) {
+                if (event.firstUpdateId < 0 || event.lastUpdateId < 0) {
+                    return;
+                }
+            } else if (Double.isNaN(event.bidPrice) || Double.isNaN(event.askPrice)) {
+                return;
+            }
+            shard.publish(event);
+        }
+    }
+    
+    /**
+     * Applies a decoded update. A depthUpdate goes to the symbol's diff stream
+     * synchronisation. A bookTicker updates the ticker, keeping the last price
+     * and volume from the REST data; without the depth stream the cached book
+     * holds just the best bid and ask.
+     *
+     * @param event The decoded update
+     */
+    @Override
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type == MarketDataEvent.Type.BOOK) {
+            depthSyncs.computeIfAbsent(event.symbol, DepthSync::new).onUpdate(event);
+            return;
+        }
+        
+        String symbol = event.symbol;
+        
+        // Update ticker cache
+        Ticker existingTicker = tickerCache.get(symbol);
+        double lastPrice = existingTicker != null ? existingTicker.getLastPrice() : 0;
+        double volume = existingTicker != null ? existingTicker.getVolume() : 0;
+        
+        Ticker updatedTicker = new Ticker(event.bidPrice, event.askPrice, lastPrice, volume,
+                event.receivedNanos, event.exchangeTimeNanos());
+        updateTicker(symbol, updatedTicker);
+        
+        if (depthStream) {
+            // The book comes from the diff stream
+            return;
+        }
+        
+        // Keep a simple order book with just the best bid and ask, reused across updates
+        OrderBook orderBook = orderBookCache.get(symbol);
+        if (orderBook == null) {
+            orderBook = new OrderBook(symbol, 0);
+        }
+        orderBook.setTopOfBook(event.bidPrice, valueOrZero(event.bidSize), event.askPrice, valueOrZero(event.askSize));
+        orderBook.touch(event.receivedNanos, event.exchangeTimeNanos());
+        updateOrderBook(symbol, orderBook);
+        
+        logDebug("Updated ticker and order book for " + symbol);
+    }
+    
+    /**
+     * Returns the locally maintained book while the symbol's diff stream is in
+     * sync; it is current by construction, however long ago it last changed.
+     * Otherwise falls back to the cache and REST as usual.
+     *
+     * @param symbol The Binance symbol
+     * @return The order book
+     */
+    @Override
+    public OrderBook getOrderBook(String symbol) {
+        DepthSync sync = depthSyncs.get(symbol);
+        if (sync != null && sync.live) {
+            OrderBook orderBook = orderBookCache.get(symbol);
+            if (orderBook != null) {
+                return orderBook;
             }
         }
+        return super.getOrderBook(symbol);
+    }
+    
+    /**
+     * Enables or disables maintaining full order books from the @depth@100ms
+     * diff stream. Takes effect on the next WebSocket connection.
+     *
+     * @param enabled Whether to subscribe to the diff stream
+     * @param snapshotLimit Levels requested in the REST snapshot (up to 5000)
+     */
+    public void setDepthStream(boolean enabled, int snapshotLimit) {
+        this.depthStream = enabled;
+        this.depthSnapshotLimit = Math.max(1, Math.min(5000, snapshotLimit));
+    }
+    
+    /**
+     * @return Whether full order books are maintained from the diff stream
+     */
+    public boolean isDepthStream() {
+        return depthStream;
+    }
+    
+    /**
+     * @return The number of symbols whose book is currently in sync with the diff stream
+     */
+    public int getSyncedBookCount() {
+        int synced = 0;
+        for (DepthSync sync : depthSyncs.values()) {
+            if (sync.live) {
+                synced++;
+            }
+        }
+        return synced;
+    }
+    
+    /**
+     * @return The number of sequence gaps detected, each followed by a resync of that symbol
+     */
+    public long getDepthGapCount() {
+        return depthGaps.get();
+    }
+    
+    /**
+     * @return A one-line summary of diff stream synchronisation
+     */
+    public String getDepthSyncStatus() {
+        return String.format("%s depth: %d/%d books in sync, %d snapshots, %d gaps, %d diffs applied",
+                getExchangeName(), getSyncedBookCount(), depthSyncs.size(), depthSnapshots.get(),
+                depthGaps.get(), depthUpdatesApplied.get());
+    }
+    
+    /**
+     * Keeps one symbol's book in sync with the diff stream, following Binance's
+     * documented procedure:
+     * <ol>
+     *   <li>buffer diff events while a REST depth snapshot is fetched;</li>
+     *   <li>drop buffered events with u &lt;= the snapshot's lastUpdateId;</li>
+     *   <li>the first event applied must have U &lt;= lastUpdateId + 1 &lt;= u,
+     *       otherwise the snapshot is too old and another one is fetched;</li>
+     *   <li>from then on each event's U must be the previous event's u + 1.</li>
+     * </ol>
+     * A gap resynchronises only this symbol. All methods except the snapshot
+     * fetch run on the thread that applies market data; the fetch hands its
+     * result over through a future that is checked on the next update.
+     */
+    private final class DepthSync {
+        private final String symbol;
+        
+        // Book maintained from the snapshot and the diffs applied since
+        private OrderBook book;
+        private long lastUpdateId = -1;
+        
+        // True while the book is in sequence with the stream
+        private volatile boolean live;
+        
+        // Diffs received since the snapshot was requested
+        private final ArrayDeque<MarketDataEvent> buffered = new ArrayDeque<>();
+        
+        // Snapshot being fetched, or null
+        private CompletableFuture<DepthSnapshot> snapshotRequest;
+        private long lastSnapshotFailureMillis;
+        
+        DepthSync(String symbol) {
+            this.symbol = symbol;
+        }
+        
+        void onUpdate(MarketDataEvent event) {
+            if (!live) {
+                buffer(event);
+                synchronize(event);
+                return;
+            }
+            if (event.lastUpdateId <= lastUpdateId) {
+                // Already contained in the book
+                return;
+            }
+            if (event.firstUpdateId > lastUpdateId + 1) {
+                resync(event);
+                return;
+            }
+            apply(event);
+            publish(event);
+        }
+        
+        private void buffer(MarketDataEvent event) {
+            if (buffered.size() >= MAX_BUFFERED_DEPTH_UPDATES) {
+                // A snapshot old enough to need these would be refetched anyway
+                buffered.pollFirst();
+            }
+            MarketDataEvent copy = new MarketDataEvent();
+            copy.copyFrom(event);
+            buffered.addLast(copy);
+        }
+        
+        private void synchronize(MarketDataEvent latest) {
+            if (snapshotRequest == null) {
+                requestSnapshot();
+                return;
+            }
+            if (!snapshotRequest.isDone()) {
+                return;
+            }
+            
+            DepthSnapshot snapshot;
+            try {
+                snapshot = snapshotRequest.join();
+            } catch (CompletionException e) {
+                logWarning("Depth snapshot for " + symbol + " failed: " + e.getCause());
+                snapshotRequest = null;
+                lastSnapshotFailureMillis = getClock().currentTimeMillis();
+                return;
+            }
+            snapshotRequest = null;
+            
+            while (!buffered.isEmpty() && buffered.peekFirst().lastUpdateId <= snapshot.lastUpdateId) {
+                buffered.pollFirst();
+            }
+            if (!buffered.isEmpty() && buffered.peekFirst().firstUpdateId > snapshot.lastUpdateId + 1) {
+                logDebug("Depth snapshot for " + symbol + " predates the buffered updates, fetching another");
+                requestSnapshot();
+                return;
+            }
+            
+            recordSnapshot(snapshot);
+            book = new OrderBook(symbol, 0);
+            BookLevelBuffer.applyTo(book, snapshot.bids, snapshot.asks);
+            lastUpdateId = snapshot.lastUpdateId;
+            live = true;
+            
+            while (!buffered.isEmpty()) {
+                MarketDataEvent next = buffered.pollFirst();
+                if (next.firstUpdateId > lastUpdateId + 1) {
+                    resync(next);
+                    return;
+                }
+                apply(next);
+            }
+            publish(latest);
+            logDebug("Order book for " + symbol + " in sync at update " + lastUpdateId);
+        }
+        
+        /**
+         * Journals the snapshot the book is rebuilt from, as a book snapshot
+         * at its lastUpdateId. The diffs buffered while it was fetched were
+         * journaled as they arrived, before it, so a replay meets them in the
+         * same order and can synchronise the same way.
+         */
+        private void recordSnapshot(DepthSnapshot snapshot) {
+            if (getMarketDataJournal() == null) {
+                return;
+            }
+            MarketDataEvent event = new MarketDataEvent();
+            event.reset(getClock().epochNanos());
+            event.type = MarketDataEvent.Type.BOOK;
+            event.symbol = symbol;
+            event.snapshot = true;
+            event.firstUpdateId = snapshot.lastUpdateId;
+            event.lastUpdateId = snapshot.lastUpdateId;
+            event.bids.copyFrom(snapshot.bids);
+            event.asks.copyFrom(snapshot.asks);
+            journalMarketDataEvent(event);
+        }
+        
+        private void requestSnapshot() {
+            if (getClock().currentTimeMillis() - lastSnapshotFailureMillis < SNAPSHOT_RETRY_MILLIS) {
+                return;
+            }
+            int limit = depthSnapshotLimit;
+            depthSnapshots.incrementAndGet();
+            snapshotRequest = restGetAsync(BASE_URL + "/api/v3/depth?symbol=" + symbol + "&limit=" + limit,
+                    depthWeight(limit))
+                    .thenApply(DepthSnapshot::parse);
+        }
+        
+        private void resync(MarketDataEvent event) {
+            depthGaps.incrementAndGet();
+            logWarning("Depth stream gap for " + symbol + ": expected update " + (lastUpdateId + 1)
+                    + ", got " + event.firstUpdateId + "; resynchronising");
+            live = false;
+            lastUpdateId = -1;
+            buffered.clear();
+            buffer(event);
+            requestSnapshot();
+        }
+        
+        private void apply(MarketDataEvent event) {
+            BookLevelBuffer.applyTo(book, event.bids, event.asks);
+            lastUpdateId = event.lastUpdateId;
+            depthUpdatesApplied.incrementAndGet();
+        }
+        
+        /**
+         * Publishes the book as of the latest update received.
+         */
+        private void publish(MarketDataEvent latest) {
+            book.touch(latest.receivedNanos, latest.exchangeTimeNanos());
+            updateOrderBook(symbol, book);
+        }
+    }
+    
+    /**
+     * A REST depth snapshot and the update it reflects.
+     */
+    private static final class DepthSnapshot {
+        long lastUpdateId = -1;
+        final BookLevelBuffer bids = new BookLevelBuffer();
+        final BookLevelBuffer asks = new BookLevelBuffer();
+        
+        static DepthSnapshot parse(String response) {
+            DepthSnapshot snapshot = new DepthSnapshot();
+            try (JsonParser parser = new MarketDataJson().open(response)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    throw new CompletionException(new IOException("Unexpected depth response"));
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "lastUpdateId":
+                            snapshot.lastUpdateId = parser.getLongValue();
+                            break;
+                        case "bids":
+                            MarketDataJson.readLevels(parser, snapshot.bids);
+                            break;
+                        case "asks":
+                            MarketDataJson.readLevels(parser, snapshot.asks);
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            if (snapshot.lastUpdateId < 0) {
+                throw new CompletionException(new IOException("Depth response without lastUpdateId"));
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Returns the request weight of a depth call, which grows with the number of levels.
+     *
+     * @param limit The requested number of levels
+     * @return The request weight
+     */
+    static int depthWeight(int limit) {
+        if (limit <= 100) {
+            return 5;
+        } else if (limit <= 500) {
+            return 25;
+        } else if (limit <= 1000) {
+            return 50;
+        }
+        return 250;
+    }
+    
+    /**
+     * Returns the request weight of a 24h statistics call, which grows with the
+     * number of symbols requested.
+     *
+     * @param symbolCount The number of symbols, or Integer.MAX_VALUE for all symbols
+     * @return The request weight
+     */
+    static int tickerStatsWeight(int symbolCount) {
+        if (symbolCount <= 20) {
+            return 2;
+        } else if (symbolCount <= 100) {
+            return 40;
+        }
+        return 80;
     }
     
     /**
@@ -0,0 +1,136 @@
+package org.example.data.service;
+
+import org.example.data.model.OrderBook;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch buffer of (price, size) levels read from a market data
+ * message. Streaming parsers can meet the levels before the field that says
+ * which book they belong to, so they collect them here and apply them once
+ * the whole message has been read. The arrays grow to the largest message seen
+ * and are then reused without allocation.
+ *
+ * Levels can also carry the decimal digits of their price and size as the
+ * exchange sent them (the text with the decimal point and leading zeros
+ * removed), for exchanges whose book checksums are computed over that text.
+ */
+final class BookLevelBuffer {
+
+    private double[] prices = new double[16];
+    private double[] sizes = new double[16];
+    private int size;
+
+    // Price and size digits as sent, or -1 where they were not captured
+    private long[] priceDigits = new long[16];
+    private long[] sizeDigits = new long[16];
+
+    /**
+     * Appends a level.
+     *
+     * @param price The level price
+     * @param quantity The level size
+     */
+    void add(double price, double quantity) {
+        add(price, quantity, -1, -1);
+    }
+
+    /**
+     * Appends a level together with the digits of its price and size text.
+     *
+     * @param price The level price
+     * @param quantity The level size
+     * @param priceText The price text as an integer with the decimal point removed, or -1
+     * @param quantityText The size text as an integer with the decimal point removed, or -1
+     */
+    void add(double price, double quantity, long priceText, long quantityText) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            sizes = Arrays.copyOf(sizes, size * 2);
+            priceDigits = Arrays.copyOf(priceDigits, size * 2);
+            sizeDigits = Arrays.copyOf(sizeDigits, size * 2);
+        }
+        prices[size] = price;
+        sizes[size] = quantity;
+        priceDigits[size] = priceText;
+        sizeDigits[size] = quantityText;
+        size++;
+    }
+
+    /**
+     * @return The number of levels collected
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index Level index in arrival order
+     * @return The price of that level
+     */
+    double priceAt(int index) {
+        return prices[index];
+    }
+
+    /**
+     * @param index Level index in arrival order
+     * @return The size of that level
+     */
+    double sizeAt(int index) {
+        return sizes[index];
+    }
+
+    /**
+     * @param index Level index in arrival order
+     * @return The digits of that level's price text, or -1 if not captured
+     */
+    long priceDigitsAt(int index) {
+        return priceDigits[index];
+    }
+
+    /**
+     * @param index Level index in arrival order
+     * @return The digits of that level's size text, or -1 if not captured
+     */
+    long sizeDigitsAt(int index) {
+        return sizeDigits[index];
+    }
+
+    /**
+     * Discards the collected levels, keeping the arrays.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces the collected levels with a copy of another buffer's.
+     *
+     * @param other The buffer to copy
+     */
+    void copyFrom(BookLevelBuffer other) {
+        if (prices.length < other.size) {
+            prices = new double[other.prices.length];
+            sizes = new double[other.sizes.length];
+            priceDigits = new long[other.priceDigits.length];
+            sizeDigits = new long[other.sizeDigits.length];
+        }
+        System.arraycopy(other.prices, 0, prices, 0, other.size);
+        System.arraycopy(other.sizes, 0, sizes, 0, other.size);
+        System.arraycopy(other.priceDigits, 0, priceDigits, 0, other.size);
+        System.arraycopy(other.sizeDigits, 0, sizeDigits, 0, other.size);
+        size = other.size;
+    }
+
+    /**
+     * Applies collected bid and ask levels to a book as one diff, which readers
+     * see either entirely or not at all; a zero size removes the level.
+     *
+     * @param book The book to update
+     * @param bids The bid levels
+     * @param asks The ask levels
+     */
+    static void applyTo(OrderBook book, BookLevelBuffer bids, BookLevelBuffer asks) {
+        book.apply(bids.prices, bids.sizes, bids.size, asks.prices, asks.sizes, asks.size);
+    }
+}
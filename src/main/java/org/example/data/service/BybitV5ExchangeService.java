@@ -6,17 +6,22 @@ import org.example.data.model.Ticker;
 import org.example.data.model.TradingPair;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.IOException;
 import java.net.URI;
-import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
 
 /**
@@ -25,7 +30,7 @@ import java.util.concurrent.CompletionStage;
  *
  * Endpoints used:
  * - Trading Pairs: GET https://api.bybit.com/v5/market/instruments-info?category=spot
- * - Ticker Data:  GET https://api.bybit.com/v5/market/tickers?category=spot
+ * - Ticker Data:  GET https://api.bybit.com/v5/market/tickers?category=spot[&symbol={symbol}]
  * - Order Book:   GET https://api.bybit.com/v5/market/orderbook?category=spot&symbol={symbol}&limit=5
  * - WebSocket:    wss://stream.bybit.com/v5/public/spot
  *
@@ -36,10 +41,11 @@ public class BybitV5ExchangeService extends ExchangeService {
     private static final String BASE_URL = "https://api.bybit.com";
     private static final String WS_BASE_URL = "wss://stream.bybit.com/v5/public/spot";
 
-    // WebSocket client and connection.
+    // Application-level heartbeat; Bybit answers with a "pong" op
+    private static final String PING_MESSAGE = "{\"op\":\"ping\"}";
+
+    // WebSocket client.
     private HttpClient wsClient;
-    private WebSocket webSocket;
-    private BybitWebSocketListener webSocketListener;
 
     // Accumulates important log messages.
     private StringBuilder logBuilder = new StringBuilder();
@@ -52,7 +58,6 @@ public class BybitV5ExchangeService extends ExchangeService {
     public BybitV5ExchangeService(double fees) {
         super("Bybit", fees);
         this.wsClient = HttpClient.newHttpClient();
-        this.webSocketListener = new BybitWebSocketListener();
     }
 
     /**
@@ -75,19 +80,9 @@ public class BybitV5ExchangeService extends ExchangeService {
         List<TradingPair> tradingPairs = new ArrayList<>();
         try {
             String urlStr = BASE_URL + "/v5/market/instruments-info?category=spot";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             int retCode = json.optInt("retCode", -1);
             if (retCode == 0) {
                 JSONObject result = json.getJSONObject("result");
@@ -112,43 +107,58 @@ public class BybitV5ExchangeService extends ExchangeService {
      * Retrieves the latest ticker data for the specified symbol using REST API.
      * This is used as a fallback when WebSocket data is not available.
      *
-     * Endpoint: GET https://api.bybit.com/v5/market/tickers?category=spot
+     * Endpoint: GET https://api.bybit.com/v5/market/tickers?category=spot&symbol={symbol}
      *
      * @param symbol The trading pair symbol (e.g., "BTCUSDT").
      * @return A Ticker object containing bid, ask, last price, volume, and timestamp.
      */
     @Override
     protected Ticker fetchTickerDataREST(String symbol) {
-        Ticker ticker = null;
+        Map<String, Ticker> tickers = fetchTickers(BASE_URL + "/v5/market/tickers?category=spot&symbol=" + symbol,
+                Collections.singleton(symbol));
+        return tickers.get(symbol);
+    }
+
+    /**
+     * Retrieves tickers for many symbols with a single request. The spot tickers
+     * endpoint returns every symbol when none is given, so one call covers any batch.
+     *
+     * Endpoint: GET https://api.bybit.com/v5/market/tickers?category=spot
+     *
+     * @param symbols The trading pair symbols.
+     * @return The tickers keyed by symbol.
+     */
+    @Override
+    public Map<String, Ticker> fetchAllTickersREST(Collection<String> symbols) {
+        if (symbols.isEmpty()) {
+            return new HashMap<>();
+        }
+        return fetchTickers(BASE_URL + "/v5/market/tickers?category=spot", new HashSet<>(symbols));
+    }
+
+    /**
+     * Fetches a tickers list and keeps the requested symbols.
+     */
+    private Map<String, Ticker> fetchTickers(String urlStr, Set<String> symbols) {
+        Map<String, Ticker> tickers = new HashMap<>();
         try {
-            String urlStr = BASE_URL + "/v5/market/tickers?category=spot";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             int retCode = json.optInt("retCode", -1);
             if (retCode == 0) {
                 JSONObject result = json.getJSONObject("result");
                 JSONArray list = result.getJSONArray("list");
+                long receivedNanos = getClock().epochNanos();
                 for (int i = 0; i < list.length(); i++) {
                     JSONObject tickerObj = list.getJSONObject(i);
-                    if (tickerObj.getString("symbol").equalsIgnoreCase(symbol)) {
+                    String symbol = tickerObj.getString("symbol");
+                    if (symbols.contains(symbol)) {
                         double lastPrice = tickerObj.getDouble("lastPrice");
-                        double bid = lastPrice;
-                        double ask = lastPrice;
+                        double bid = tickerObj.optDouble("bid1Price", lastPrice);
+                        double ask = tickerObj.optDouble("ask1Price", lastPrice);
                         double volume = tickerObj.getDouble("volume24h");
-                        Date timestamp = new Date();
-                        ticker = new Ticker(bid, ask, lastPrice, volume, timestamp);
-                        break;
+                        tickers.put(symbol, new Ticker(bid, ask, lastPrice, volume, receivedNanos, -1));
                     }
                 }
             } else {
@@ -157,7 +167,7 @@ public class BybitV5ExchangeService extends ExchangeService {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return ticker;
+        return tickers;
     }
 
     /**
@@ -174,19 +184,9 @@ public class BybitV5ExchangeService extends ExchangeService {
         OrderBook orderBook = null;
         try {
             String urlStr = BASE_URL + "/v5/market/orderbook?category=spot&symbol=" + symbol + "&limit=5";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             int retCode = json.optInt("retCode", -1);
             if (retCode == 0) {
                 JSONObject result = json.getJSONObject("result");
@@ -209,8 +209,7 @@ public class BybitV5ExchangeService extends ExchangeService {
                     asks.add(new OrderBookEntry(price, volume));
                 }
 
-                Date timestamp = new Date();
-                orderBook = new OrderBook(symbol, bids, asks, timestamp);
+                orderBook = new OrderBook(symbol, bids, asks, getClock().epochNanos());
             } else {
                 logBuilder.append("Error fetching order book: ").append(json.optString("retMsg")).append("\n");
             }
@@ -221,64 +220,100 @@ public class BybitV5ExchangeService extends ExchangeService {
     }
 
     /**
-     * Initializes WebSocket connections for market data streaming from Bybit.
+     * Bybit limits the topics of one public connection; two topics are
+     * subscribed per symbol.
+     */
+    @Override
+    protected int getDefaultMaxSymbolsPerConnection() {
+        return 50;
+    }
+
+    /**
+     * Opens one WebSocket connection and subscribes to the ticker and order
+     * book topics of the shard's symbols.
      *
-     * @param symbols List of symbols to subscribe to.
-     * @return true if successfully connected, false otherwise.
+     * @param shard The shard to connect
+     * @return The connected socket
+     * @throws Exception if the connection or a subscription fails
      */
     @Override
-    public boolean initializeWebSocket(List<String> symbols) {
-        try {
-            if (webSocket != null) {
-                closeWebSocket();
-            }
+    protected WebSocket openWebSocket(MarketDataShard shard) throws Exception {
+        WebSocket socket = wsClient.newWebSocketBuilder()
+                .buildAsync(URI.create(WS_BASE_URL), new BybitWebSocketListener(shard))
+                .join();
+
+        for (String symbol : shard.getSymbols()) {
+            String tickerSubRequest = String.format(
+                    "{\"op\":\"subscribe\",\"args\":[\"tickers.%s\"]}",
+                    symbol
+            );
+            // One text message may be in flight at a time, so wait for each send
+            socket.sendText(tickerSubRequest, true).join();
+
+            String orderbookSubRequest = String.format(
+                    "{\"op\":\"subscribe\",\"args\":[\"orderbook.20.%s\"]}",
+                    symbol
+            );
+            socket.sendText(orderbookSubRequest, true).join();
+        }
 
-            webSocket = wsClient.newWebSocketBuilder()
-                    .buildAsync(URI.create(WS_BASE_URL), webSocketListener)
-                    .join();
-
-            for (String symbol : symbols) {
-                String tickerSubRequest = String.format(
-                        "{\"op\":\"subscribe\",\"args\":[\"tickers.%s\"]}",
-                        symbol
-                );
-                webSocket.sendText(tickerSubRequest, true);
-
-                String orderbookSubRequest = String.format(
-                        "{\"op\":\"subscribe\",\"args\":[\"orderbook.20.%s\"]}",
-                        symbol
-                );
-                webSocket.sendText(orderbookSubRequest, true);
-            }
+        logBuilder.append("Bybit WebSocket shard ").append(shard.getIndex())
+                .append(" connected for ").append(shard.getSymbols().size()).append(" symbols.\n");
+        return socket;
+    }
 
-            websocketConnected = true;
-            logBuilder.append("Bybit WebSocket connection and subscriptions initialized.\n");
-            return true;
-        } catch (Exception e) {
-            e.printStackTrace();
-            websocketConnected = false;
-            logBuilder.append("Error initializing Bybit WebSocket: ").append(e.getMessage()).append("\n");
-            return false;
-        }
+    /**
+     * Bybit drops connections that do not send its application-level ping,
+     * so the heartbeat is {"op":"ping"} rather than a WebSocket ping frame.
+     */
+    @Override
+    protected void sendHeartbeat(WebSocket webSocket) {
+        webSocket.sendText(PING_MESSAGE, true);
     }
 
     /**
-     * Closes the WebSocket connection.
+     * Applies a decoded update. Ticker deltas only carry the fields that
+     * changed, so the rest are filled from the cached ticker.
      */
     @Override
-    public void closeWebSocket() {
-        if (webSocket != null) {
-            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "Closing connection");
-            websocketConnected = false;
-            logBuilder.append("Bybit WebSocket connection closed.\n");
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type != MarketDataEvent.Type.TICKER) {
+            super.applyMarketDataEvent(event);
+            return;
+        }
+
+        Ticker previous = tickerCache.get(event.symbol);
+        double last = !Double.isNaN(event.lastPrice) ? event.lastPrice
+                : previous != null ? previous.getLastPrice() : Double.NaN;
+        if (Double.isNaN(last)) {
+            return;
         }
+        double bid = !Double.isNaN(event.bidPrice) ? event.bidPrice
+                : previous != null ? previous.getBidPrice() : last;
+        double ask = !Double.isNaN(event.askPrice) ? event.askPrice
+                : previous != null ? previous.getAskPrice() : last;
+        double volume = !Double.isNaN(event.volume) ? event.volume
+                : previous != null ? previous.getVolume() : 0;
+        updateTicker(event.symbol, new Ticker(bid, ask, last, volume, event.receivedNanos, event.exchangeTimeNanos()));
     }
 
     /**
-     * WebSocket listener for Bybit data.
+     * WebSocket listener for one Bybit connection.
      */
     private class BybitWebSocketListener implements WebSocket.Listener {
-        private StringBuilder buffer = new StringBuilder();
+        private final MarketDataShard shard;
+
+        // Holds fragments of a message split across several frames
+        private final StringBuilder buffer = new StringBuilder();
+
+        private final MarketDataJson json = new MarketDataJson();
+
+        // Decoded message, reused for every message on this socket
+        private final MarketDataEvent event = new MarketDataEvent();
+
+        BybitWebSocketListener(MarketDataShard shard) {
+            this.shard = shard;
+        }
 
         @Override
         public void onOpen(WebSocket webSocket) {
@@ -288,11 +323,13 @@ public class BybitV5ExchangeService extends ExchangeService {
 
         @Override
         public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-            buffer.append(data);
-            if (last) {
-                String message = buffer.toString();
-                buffer = new StringBuilder();
-                processMessage(message);
+            shard.onMessage();
+            if (!last) {
+                buffer.append(data);
+            } else {
+                // Single-frame messages are parsed straight from the frame
+                processMessage(buffer.length() == 0 ? data : buffer.append(data));
+                buffer.setLength(0);
             }
             return WebSocket.Listener.super.onText(webSocket, data, last);
         }
@@ -301,7 +338,7 @@ public class BybitV5ExchangeService extends ExchangeService {
         public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
             logBuilder.append("Bybit WebSocket closed: ").append(statusCode)
                     .append(", reason: ").append(reason).append("\n");
-            websocketConnected = false;
+            shard.onClosed(webSocket, "closed with status " + statusCode);
             return WebSocket.Listener.super.onClose(webSocket, statusCode, reason);
         }
 
@@ -309,68 +346,116 @@ public class BybitV5ExchangeService extends ExchangeService {
         public void onError(WebSocket webSocket, Throwable error) {
             logBuilder.append("Bybit WebSocket error: ").append(error.getMessage()).append("\n");
             error.printStackTrace();
-            websocketConnected = false;
+            shard.onClosed(webSocket, "error: " + error.getMessage());
             WebSocket.Listener.super.onError(webSocket, error);
         }
 
+        @Override
+        public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+            shard.onMessage();
+            return WebSocket.Listener.super.onPong(webSocket, message);
+        }
+
         /**
-         * Process the WebSocket message and update the cache.
+         * Decodes the WebSocket message and publishes it.
+         * The data object is read with a streaming parser before the topic is
+         * necessarily known, so its fields are collected and published afterwards.
          */
-        private void processMessage(String message) {
-            try {
-                JSONObject json = new JSONObject(message);
-
-                // Handle subscription confirmation.
-                if (json.has("op") && json.getString("op").equals("subscribe")) {
-                    logBuilder.append("Bybit subscription success: ").append(json.toString()).append("\n");
+        private void processMessage(CharSequence message) {
+            String op = null;
+            String topic = null;
+            String type = null;
+            event.reset(getClock().epochNanos());
+
+            try (JsonParser parser = json.open(message)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
                     return;
                 }
-
-                // Handle data messages.
-                if (json.has("topic") && json.has("data")) {
-                    String topic = json.getString("topic");
-                    JSONObject data = json.getJSONObject("data");
-
-                    if (topic.startsWith("tickers.")) {
-                        String symbol = topic.substring("tickers.".length());
-                        double lastPrice = data.getDouble("lastPrice");
-                        double bidPrice = data.optDouble("bid1Price", lastPrice);
-                        double askPrice = data.optDouble("ask1Price", lastPrice);
-                        double volume = data.getDouble("volume24h");
-                        Ticker ticker = new Ticker(bidPrice, askPrice, lastPrice, volume, new Date());
-                        tickerCache.put(symbol, ticker);
-                    }
-                    else if (topic.startsWith("orderbook.")) {
-                        String[] parts = topic.split("\\.");
-                        String symbol = parts[2];
-                        JSONArray bidsArray = data.optJSONArray("b");
-                        JSONArray asksArray = data.optJSONArray("a");
-
-                        if (bidsArray != null && asksArray != null) {
-                            List<OrderBookEntry> bids = new ArrayList<>();
-                            for (int i = 0; i < bidsArray.length(); i++) {
-                                JSONArray entry = bidsArray.getJSONArray(i);
-                                double price = entry.getDouble(0);
-                                double volume = entry.getDouble(1);
-                                bids.add(new OrderBookEntry(price, volume));
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "op":
+                            op = parser.getText();
+                            break;
+                        case "topic":
+                            topic = parser.getText();
+                            break;
+                        case "type":
+                            type = parser.getText();
+                            break;
+                        case "ts":
+                            event.exchangeTimeMillis = parser.getLongValue();
+                            break;
+                        case "data":
+                            if (value == JsonToken.START_OBJECT) {
+                                readData(parser);
+                            } else {
+                                parser.skipChildren();
                             }
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            } catch (IOException e) {
+                logBuilder.append("Error parsing Bybit WebSocket message: ").append(e.getMessage()).append("\n");
+                return;
+            }
 
-                            List<OrderBookEntry> asks = new ArrayList<>();
-                            for (int i = 0; i < asksArray.length(); i++) {
-                                JSONArray entry = asksArray.getJSONArray(i);
-                                double price = entry.getDouble(0);
-                                double volume = entry.getDouble(1);
-                                asks.add(new OrderBookEntry(price, volume));
-                            }
+            // Handle subscription confirmation.
+            if ("subscribe".equals(op)) {
+                logBuilder.append("Bybit subscription success: ").append(message).append("\n");
+                return;
+            }
+            if (topic == null) {
+                return;
+            }
 
-                            OrderBook orderBook = new OrderBook(symbol, bids, asks, new Date());
-                            orderBookCache.put(symbol, orderBook);
-                        }
-                    }
+            if (topic.startsWith("tickers.")) {
+                event.type = MarketDataEvent.Type.TICKER;
+                event.symbol = topic.substring("tickers.".length());
+                shard.publish(event);
+            }
+            else if (topic.startsWith("orderbook.")) {
+                // Snapshots start a fresh book; deltas are applied to the cached one in place
+                event.type = MarketDataEvent.Type.BOOK;
+                event.symbol = topic.substring(topic.lastIndexOf('.') + 1);
+                event.snapshot = "snapshot".equals(type);
+                shard.publish(event);
+            }
+        }
+
+        /**
+         * Reads the fields of a ticker or order book data object.
+         */
+        private void readData(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "lastPrice":
+                        event.lastPrice = MarketDataJson.readDouble(parser);
+                        break;
+                    case "bid1Price":
+                        event.bidPrice = MarketDataJson.readDouble(parser);
+                        break;
+                    case "ask1Price":
+                        event.askPrice = MarketDataJson.readDouble(parser);
+                        break;
+                    case "volume24h":
+                        event.volume = MarketDataJson.readDouble(parser);
+                        break;
+                    case "b":
+                        MarketDataJson.readLevels(parser, event.bids);
+                        break;
+                    case "a":
+                        MarketDataJson.readLevels(parser, event.asks);
+                        break;
+                    default:
+                        parser.skipChildren();
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
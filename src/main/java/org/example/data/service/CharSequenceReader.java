@@ -0,0 +1,55 @@
+package org.example.data.service;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reader over a CharSequence that copies characters straight into the
+ * reader's destination buffer, so a WebSocket message can be parsed without
+ * first being turned into a String. Instances are reset and reused per message.
+ */
+final class CharSequenceReader extends Reader {
+
+    private CharSequence text;
+    private int position;
+
+    /**
+     * Points the reader at a new message.
+     *
+     * @param text The characters to read
+     * @return This reader
+     */
+    CharSequenceReader reset(CharSequence text) {
+        this.text = text;
+        this.position = 0;
+        return this;
+    }
+
+    @Override
+    public int read(char[] destination, int offset, int length) {
+        if (text == null || position >= text.length()) {
+            return -1;
+        }
+        int count = Math.min(length, text.length() - position);
+        int end = position + count;
+        if (text instanceof String) {
+            ((String) text).getChars(position, end, destination, offset);
+        } else if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(position, end, destination, offset);
+        } else if (text instanceof CharBuffer) {
+            CharBuffer buffer = (CharBuffer) text;
+            buffer.get(buffer.position() + position, destination, offset, count);
+        } else {
+            for (int i = position; i < end; i++) {
+                destination[offset++] = text.charAt(i);
+            }
+        }
+        position = end;
+        return count;
+    }
+
+    @Override
+    public void close() {
+        text = null;
+    }
+}
@@ -6,16 +6,15 @@ import org.example.data.model.Ticker;
 import org.example.data.model.TradingPair;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.IOException;
 import java.net.URI;
-import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -37,10 +36,8 @@ public class CoinbaseExchangeService extends ExchangeService {
     private static final String BASE_URL = "https://api.exchange.coinbase.com";
     private static final String WS_BASE_URL = "wss://ws-feed.exchange.coinbase.com";
 
-    // WebSocket client and connection
+    // WebSocket client
     private HttpClient wsClient;
-    private WebSocket webSocket;
-    private CoinbaseWebSocketListener webSocketListener;
 
     // Accumulates important log messages.
     private StringBuilder logBuilder = new StringBuilder();
@@ -53,7 +50,6 @@ public class CoinbaseExchangeService extends ExchangeService {
     public CoinbaseExchangeService(double fees) {
         super("Coinbase", fees);
         this.wsClient = HttpClient.newHttpClient();
-        this.webSocketListener = new CoinbaseWebSocketListener();
     }
 
     /**
@@ -76,21 +72,10 @@ public class CoinbaseExchangeService extends ExchangeService {
         List<TradingPair> tradingPairs = new ArrayList<>();
         try {
             String urlStr = BASE_URL + "/products";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            // Read the response
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
             // Parse JSON response (an array of product objects)
-            JSONArray products = new JSONArray(responseStr.toString());
+            JSONArray products = new JSONArray(response);
             for (int i = 0; i < products.length(); i++) {
                 JSONObject productObj = products.getJSONObject(i);
                 String status = productObj.optString("status", "online");
@@ -124,26 +109,15 @@ public class CoinbaseExchangeService extends ExchangeService {
         Ticker ticker = null;
         try {
             String urlStr = BASE_URL + "/products/" + symbol + "/ticker";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             double bid = json.getDouble("bid");
             double ask = json.getDouble("ask");
             double price = json.getDouble("price");
             double volume = json.getDouble("volume");
-            Date timestamp = new Date();
 
-            ticker = new Ticker(bid, ask, price, volume, timestamp);
+            ticker = new Ticker(bid, ask, price, volume, getClock().epochNanos(), -1);
         } catch (Exception e) {
             logBuilder.append("Error fetching ticker data from Coinbase for ")
                     .append(symbol).append(": ").append(e.getMessage()).append("\n");
@@ -165,19 +139,9 @@ public class CoinbaseExchangeService extends ExchangeService {
         OrderBook orderBook = null;
         try {
             String urlStr = BASE_URL + "/products/" + symbol + "/book?level=2";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             JSONArray bidsArray = json.getJSONArray("bids");
             JSONArray asksArray = json.getJSONArray("asks");
 
@@ -197,8 +161,7 @@ public class CoinbaseExchangeService extends ExchangeService {
                 asks.add(new OrderBookEntry(price, volume));
             }
 
-            Date timestamp = new Date();
-            orderBook = new OrderBook(symbol, bids, asks, timestamp);
+            orderBook = new OrderBook(symbol, bids, asks, getClock().epochNanos());
         } catch (Exception e) {
             logBuilder.append("Error fetching order book from Coinbase for ")
                     .append(symbol).append(": ").append(e.getMessage()).append("\n");
@@ -207,84 +170,78 @@ public class CoinbaseExchangeService extends ExchangeService {
     }
 
     /**
-     * Initializes WebSocket connections for market data streaming from Coinbase.
+     * Opens one WebSocket connection and subscribes to the ticker and level2
+     * (order book) channels of the shard's products.
      *
-     * @param symbols List of symbols to subscribe to.
-     * @return true if successfully connected, false otherwise.
+     * @param shard The shard to connect
+     * @return The connected socket
+     * @throws Exception if the connection or subscription fails
      */
     @Override
-    public boolean initializeWebSocket(List<String> symbols) {
-        if (symbols == null || symbols.isEmpty()) {
-            logBuilder.append("No symbols provided for Coinbase WebSocket initialization\n");
-            return false;
-        }
+    protected WebSocket openWebSocket(MarketDataShard shard) throws Exception {
+        logBuilder.append("Connecting to Coinbase WebSocket shard ").append(shard.getIndex()).append("...\n");
 
-        try {
-            // Close existing connection if any
-            if (webSocket != null) {
-                closeWebSocket();
-            }
+        // Connect to Coinbase WebSocket stream with timeout
+        CompletableFuture<WebSocket> futureWs = wsClient.newWebSocketBuilder()
+                .buildAsync(URI.create(WS_BASE_URL), new CoinbaseWebSocketListener(shard));
+        WebSocket socket = futureWs.get(10, TimeUnit.SECONDS);
 
-            logBuilder.append("Connecting to Coinbase WebSocket...\n");
-
-            // Connect to Coinbase WebSocket stream with timeout
-            CompletableFuture<WebSocket> futureWs = wsClient.newWebSocketBuilder()
-                    .buildAsync(URI.create(WS_BASE_URL), webSocketListener);
-            webSocket = futureWs.get(10, TimeUnit.SECONDS);
-
-            // Create subscription message for ticker and level2 (order book) channels
-            JSONObject subscribeMsg = new JSONObject();
-            subscribeMsg.put("type", "subscribe");
-
-            logBuilder.append("Subscribing to Coinbase products: ").append(symbols).append("\n");
-
-            JSONArray productIds = new JSONArray();
-            for (String symbol : symbols) {
-                productIds.put(symbol);
-            }
-            subscribeMsg.put("product_ids", productIds);
+        // Create subscription message for ticker and level2 (order book) channels
+        JSONObject subscribeMsg = new JSONObject();
+        subscribeMsg.put("type", "subscribe");
 
-            JSONArray channels = new JSONArray();
-            channels.put("ticker");
-            channels.put("level2");
-            subscribeMsg.put("channels", channels);
+        JSONArray productIds = new JSONArray();
+        for (String symbol : shard.getSymbols()) {
+            productIds.put(symbol);
+        }
+        subscribeMsg.put("product_ids", productIds);
 
-            String subMessage = subscribeMsg.toString();
-            logBuilder.append("Sending Coinbase subscription message: ").append(subMessage).append("\n");
-            webSocket.sendText(subMessage, true);
+        JSONArray channels = new JSONArray();
+        channels.put("ticker");
+        channels.put("level2");
+        subscribeMsg.put("channels", channels);
 
-            websocketConnected = true;
-            logBuilder.append("Coinbase WebSocket connected for symbols: ").append(symbols).append("\n");
-            return true;
-        } catch (Exception e) {
-            logBuilder.append("Failed to connect to Coinbase WebSocket: ").append(e.getMessage()).append("\n");
-            e.printStackTrace();
-            websocketConnected = false;
-            return false;
-        }
+        socket.sendText(subscribeMsg.toString(), true).get(10, TimeUnit.SECONDS);
+        logBuilder.append("Coinbase WebSocket shard ").append(shard.getIndex())
+                .append(" subscribed to products: ").append(shard.getSymbols()).append("\n");
+        return socket;
     }
 
     /**
-     * Closes the WebSocket connection.
+     * Applies a decoded update. An l2update for a product without a cached book
+     * starts from a REST snapshot; this runs off the WebSocket thread when
+     * market data dispatch is enabled.
      */
     @Override
-    public void closeWebSocket() {
-        if (webSocket != null) {
-            try {
-                webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "Closing connection");
-                websocketConnected = false;
-                logBuilder.append("Coinbase WebSocket connection closed\n");
-            } catch (Exception e) {
-                logBuilder.append("Error closing Coinbase WebSocket: ").append(e.getMessage()).append("\n");
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type == MarketDataEvent.Type.BOOK && !event.snapshot
+                && orderBookCache.get(event.symbol) == null) {
+            OrderBook snapshot = fetchOrderBookREST(event.symbol);
+            if (snapshot == null) {
+                return;
             }
+            orderBookCache.put(event.symbol, snapshot);
         }
+        super.applyMarketDataEvent(event);
     }
 
     /**
-     * WebSocket listener for Coinbase data.
+     * WebSocket listener for one Coinbase connection.
      */
     private class CoinbaseWebSocketListener implements WebSocket.Listener {
-        private StringBuilder buffer = new StringBuilder();
+        private final MarketDataShard shard;
+
+        // Holds fragments of a message split across several frames
+        private final StringBuilder buffer = new StringBuilder();
+
+        private final MarketDataJson json = new MarketDataJson();
+
+        // Decoded message, reused for every message on this socket
+        private final MarketDataEvent event = new MarketDataEvent();
+
+        CoinbaseWebSocketListener(MarketDataShard shard) {
+            this.shard = shard;
+        }
 
         @Override
         public void onOpen(WebSocket webSocket) {
@@ -294,16 +251,19 @@ public class CoinbaseExchangeService extends ExchangeService {
 
         @Override
         public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-            buffer.append(data);
-            if (last) {
-                String message = buffer.toString();
-                buffer = new StringBuilder();
+            shard.onMessage();
+            if (!last) {
+                buffer.append(data);
+            } else {
+                // Single-frame messages are parsed straight from the frame
+                CharSequence message = buffer.length() == 0 ? data : buffer.append(data);
                 try {
                     processMessage(message);
                 } catch (Exception e) {
                     logBuilder.append("Error processing Coinbase WebSocket message: ")
                             .append(e.getMessage()).append("\n");
                 }
+                buffer.setLength(0);
             }
             return WebSocket.Listener.super.onText(webSocket, data, last);
         }
@@ -312,7 +272,7 @@ public class CoinbaseExchangeService extends ExchangeService {
         public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
             logBuilder.append("Coinbase WebSocket closed: ")
                     .append(statusCode).append(", reason: ").append(reason).append("\n");
-            websocketConnected = false;
+            shard.onClosed(webSocket, "closed with status " + statusCode);
             return WebSocket.Listener.super.onClose(webSocket, statusCode, reason);
         }
 
@@ -320,117 +280,113 @@ public class CoinbaseExchangeService extends ExchangeService {
         public void onError(WebSocket webSocket, Throwable error) {
             logBuilder.append("Coinbase WebSocket error: ").append(error.getMessage()).append("\n");
             error.printStackTrace();
-            websocketConnected = false;
+            shard.onClosed(webSocket, "error: " + error.getMessage());
             WebSocket.Listener.super.onError(webSocket, error);
         }
 
+        @Override
+        public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+            shard.onMessage();
+            return WebSocket.Listener.super.onPong(webSocket, message);
+        }
+
         /**
-         * Process the WebSocket message and update the cache.
+         * Decodes the WebSocket message with a streaming parser and publishes it.
+         * Book levels are collected first, since product_id may follow them in the message.
          */
-        private void processMessage(String message) {
-            try {
-                if (message.contains("error")) {
-                    logBuilder.append("Coinbase WebSocket error message: ").append(message).append("\n");
+        private void processMessage(CharSequence message) {
+            String type = "";
+            event.reset(getClock().epochNanos());
+
+            try (JsonParser parser = json.open(message)) {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
                     return;
                 }
-
-                JSONObject json = new JSONObject(message);
-                String type = json.optString("type", "");
-
-                if ("subscriptions".equals(type)) {
-                    logBuilder.append("Coinbase subscription confirmed: ").append(json.toString()).append("\n");
-                } else if ("ticker".equals(type)) {
-                    String symbol = json.getString("product_id");
-                    double price = json.getDouble("price");
-                    double bid = json.getDouble("best_bid");
-                    double ask = json.getDouble("best_ask");
-                    double volume = json.getDouble("volume_24h");
-
-                    Ticker ticker = new Ticker(bid, ask, price, volume, new Date());
-                    tickerCache.put(symbol, ticker);
-                } else if ("snapshot".equals(type)) {
-                    String symbol = json.getString("product_id");
-                    JSONArray bidsArray = json.getJSONArray("bids");
-                    JSONArray asksArray = json.getJSONArray("asks");
-
-                    List<OrderBookEntry> bids = new ArrayList<>();
-                    for (int i = 0; i < bidsArray.length(); i++) {
-                        JSONArray entry = bidsArray.getJSONArray(i);
-                        double price = Double.parseDouble(entry.getString(0));
-                        double volume = Double.parseDouble(entry.getString(1));
-                        bids.add(new OrderBookEntry(price, volume));
-                    }
-
-                    List<OrderBookEntry> asks = new ArrayList<>();
-                    for (int i = 0; i < asksArray.length(); i++) {
-                        JSONArray entry = asksArray.getJSONArray(i);
-                        double price = Double.parseDouble(entry.getString(0));
-                        double volume = Double.parseDouble(entry.getString(1));
-                        asks.add(new OrderBookEntry(price, volume));
-                    }
-
-                    OrderBook orderBook = new OrderBook(symbol, bids, asks, new Date());
-                    orderBookCache.put(symbol, orderBook);
-                } else if ("l2update".equals(type)) {
-                    String symbol = json.getString("product_id");
-                    JSONArray changes = json.getJSONArray("changes");
-                    OrderBook currentBook = orderBookCache.get(symbol);
-                    if (currentBook == null) {
-                        currentBook = fetchOrderBookREST(symbol);
-                        if (currentBook == null) {
-                            return;
-                        }
-                    }
-
-                    List<OrderBookEntry> bids = new ArrayList<>(currentBook.getBids());
-                    List<OrderBookEntry> asks = new ArrayList<>(currentBook.getAsks());
-
-                    for (int i = 0; i < changes.length(); i++) {
-                        JSONArray change = changes.getJSONArray(i);
-                        String side = change.getString(0);
-                        double price = Double.parseDouble(change.getString(1));
-                        double size = Double.parseDouble(change.getString(2));
-
-                        if ("buy".equals(side)) {
-                            updateOrderBookSide(bids, price, size);
-                        } else if ("sell".equals(side)) {
-                            updateOrderBookSide(asks, price, size);
-                        }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (field) {
+                        case "type":
+                            type = parser.getText();
+                            break;
+                        case "product_id":
+                            event.symbol = parser.getText();
+                            break;
+                        case "price":
+                            event.lastPrice = MarketDataJson.readDouble(parser);
+                            break;
+                        case "best_bid":
+                            event.bidPrice = MarketDataJson.readDouble(parser);
+                            break;
+                        case "best_ask":
+                            event.askPrice = MarketDataJson.readDouble(parser);
+                            break;
+                        case "volume_24h":
+                            event.volume = MarketDataJson.readDouble(parser);
+                            break;
+                        case "bids":
+                            MarketDataJson.readLevels(parser, event.bids);
+                            break;
+                        case "asks":
+                            MarketDataJson.readLevels(parser, event.asks);
+                            break;
+                        case "changes":
+                            readChanges(parser);
+                            break;
+                        default:
+                            parser.skipChildren();
                     }
-
-                    OrderBook updatedBook = new OrderBook(symbol, bids, asks, new Date());
-                    orderBookCache.put(symbol, updatedBook);
-                } else {
-                    logBuilder.append("Received unexpected Coinbase message type: ").append(type).append("\n");
                 }
-            } catch (Exception e) {
+            } catch (IOException e) {
                 logBuilder.append("Error parsing Coinbase WebSocket message: ")
                         .append(message).append(" | Exception: ").append(e.getMessage()).append("\n");
-                e.printStackTrace();
+                return;
+            }
+
+            if ("error".equals(type)) {
+                logBuilder.append("Coinbase WebSocket error message: ").append(message).append("\n");
+            } else if ("subscriptions".equals(type)) {
+                logBuilder.append("Coinbase subscription confirmed: ").append(message).append("\n");
+            } else if (event.symbol == null) {
+                logBuilder.append("Received Coinbase message without product_id: ").append(type).append("\n");
+            } else if ("ticker".equals(type)) {
+                event.type = MarketDataEvent.Type.TICKER;
+                shard.publish(event);
+            } else if ("snapshot".equals(type) || "l2update".equals(type)) {
+                event.type = MarketDataEvent.Type.BOOK;
+                event.snapshot = "snapshot".equals(type);
+                shard.publish(event);
+            } else {
+                logBuilder.append("Received unexpected Coinbase message type: ").append(type).append("\n");
             }
         }
 
         /**
-         * Helper method to update a side (bids or asks) of an order book.
+         * Reads l2update changes, [side, price, size] triples, into the bid and ask buffers.
          */
-        private void updateOrderBookSide(List<OrderBookEntry> entries, double price, double size) {
-            boolean found = false;
-            for (int i = 0; i < entries.size(); i++) {
-                OrderBookEntry entry = entries.get(i);
-                if (entry.getPrice() == price) {
-                    if (size > 0) {
-                        entries.set(i, new OrderBookEntry(price, size));
-                    } else {
-                        entries.remove(i);
-                    }
-                    found = true;
-                    break;
-                }
+        private void readChanges(JsonParser parser) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return;
             }
-            if (!found && size > 0) {
-                entries.add(new OrderBookEntry(price, size));
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                String side = parser.getText();
+                parser.nextToken();
+                double price = MarketDataJson.readDouble(parser);
+                parser.nextToken();
+                double size = MarketDataJson.readDouble(parser);
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                    parser.skipChildren();
+                }
+
+                if ("buy".equals(side)) {
+                    event.bids.add(price, size);
+                } else if ("sell".equals(side)) {
+                    event.asks.add(price, size);
+                }
             }
-            entries.sort((e1, e2) -> Double.compare(e2.getPrice(), e1.getPrice()));
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
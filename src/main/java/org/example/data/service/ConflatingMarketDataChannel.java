@@ -0,0 +1,250 @@
+package org.example.data.service;
+
+import org.example.data.interfaces.IMarketDataListener;
+import org.example.data.model.OrderBook;
+import org.example.data.model.Ticker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Conflating hand-off between an exchange's caches and a slow consumer.
+ *
+ * The channel listens to one exchange and keeps only the latest ticker and
+ * order book per symbol, plus a dirty bit per symbol. A consumer calls
+ * {@link #drain(IMarketDataListener)} whenever it is ready and receives each
+ * changed symbol once, with its freshest state, however many updates arrived
+ * in between. Producers never block and nothing is queued, so a burst on one
+ * symbol cannot delay the others.
+ *
+ * Symbols are assigned slots on first sight, up to a fixed capacity; updates
+ * for symbols beyond it are counted and dropped.
+ */
+public class ConflatingMarketDataChannel implements IMarketDataListener {
+
+    private final ExchangeService exchange;
+    private final int capacity;
+
+    // Symbol -> slot index
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> symbols;
+
+    // Latest state per slot
+    private final AtomicReferenceArray<Ticker> tickers;
+    private final AtomicReferenceArray<OrderBook> orderBooks;
+
+    // One bit per slot, set when the slot changed since the last drain
+    private final AtomicLongArray dirtyTickers;
+    private final AtomicLongArray dirtyOrderBooks;
+
+    // Called when a slot turns dirty, e.g. to wake a consumer thread
+    private volatile Runnable dirtySignal;
+
+    // Metrics
+    private final AtomicLong tickerUpdates = new AtomicLong();
+    private final AtomicLong orderBookUpdates = new AtomicLong();
+    private final AtomicLong tickersDelivered = new AtomicLong();
+    private final AtomicLong orderBooksDelivered = new AtomicLong();
+    private final AtomicLong droppedUpdates = new AtomicLong();
+
+    /**
+     * Creates a channel and subscribes it to the exchange's cache updates.
+     *
+     * @param exchange The exchange to listen to
+     * @param capacity Maximum number of symbols tracked
+     */
+    public ConflatingMarketDataChannel(ExchangeService exchange, int capacity) {
+        this.exchange = exchange;
+        this.capacity = capacity;
+        this.symbols = new AtomicReferenceArray<>(capacity);
+        this.tickers = new AtomicReferenceArray<>(capacity);
+        this.orderBooks = new AtomicReferenceArray<>(capacity);
+        int words = (capacity + 63) >>> 6;
+        this.dirtyTickers = new AtomicLongArray(words);
+        this.dirtyOrderBooks = new AtomicLongArray(words);
+        exchange.addMarketDataListener(this);
+    }
+
+    /**
+     * Stops listening to the exchange.
+     */
+    public void close() {
+        exchange.removeMarketDataListener(this);
+    }
+
+    /**
+     * Sets a callback run when a symbol turns dirty. It runs on the producer
+     * thread and only on a clean-to-dirty transition, so it must be cheap,
+     * e.g. unparking the consumer.
+     *
+     * @param dirtySignal The callback, or null for none
+     */
+    public void setDirtySignal(Runnable dirtySignal) {
+        this.dirtySignal = dirtySignal;
+    }
+
+    @Override
+    public void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker) {
+        tickerUpdates.incrementAndGet();
+        int slot = slotOf(symbol);
+        if (slot < 0) {
+            return;
+        }
+        tickers.set(slot, ticker);
+        markDirty(dirtyTickers, slot);
+    }
+
+    @Override
+    public void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook) {
+        orderBookUpdates.incrementAndGet();
+        int slot = slotOf(symbol);
+        if (slot < 0) {
+            return;
+        }
+        orderBooks.set(slot, orderBook);
+        markDirty(dirtyOrderBooks, slot);
+    }
+
+    /**
+     * Delivers every symbol that changed since the last drain, once, with its
+     * latest ticker and order book. Must be called from one consumer thread.
+     *
+     * @param consumer Receives the latest state of each changed symbol
+     * @return The number of updates delivered
+     */
+    public int drain(IMarketDataListener consumer) {
+        int delivered = 0;
+        for (int word = 0; word < dirtyTickers.length(); word++) {
+            long bits = dirtyTickers.get(word) != 0 ? dirtyTickers.getAndSet(word, 0) : 0;
+            while (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                consumer.onTickerUpdate(exchange, symbols.get(slot), tickers.get(slot));
+                delivered++;
+            }
+        }
+        tickersDelivered.addAndGet(delivered);
+
+        int books = 0;
+        for (int word = 0; word < dirtyOrderBooks.length(); word++) {
+            long bits = dirtyOrderBooks.get(word) != 0 ? dirtyOrderBooks.getAndSet(word, 0) : 0;
+            while (bits != 0) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                consumer.onOrderBookUpdate(exchange, symbols.get(slot), orderBooks.get(slot));
+                books++;
+            }
+        }
+        orderBooksDelivered.addAndGet(books);
+        return delivered + books;
+    }
+
+    /**
+     * @return true if any symbol changed since the last drain
+     */
+    public boolean hasPendingUpdates() {
+        for (int word = 0; word < dirtyTickers.length(); word++) {
+            if (dirtyTickers.get(word) != 0 || dirtyOrderBooks.get(word) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int slotOf(String symbol) {
+        Integer slot = slots.get(symbol);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            slot = slots.get(symbol);
+            if (slot == null) {
+                if (slots.size() >= capacity) {
+                    droppedUpdates.incrementAndGet();
+                    return -1;
+                }
+                slot = slots.size();
+                // Publish the symbol before the slot becomes visible to producers and the consumer
+                symbols.set(slot, symbol);
+                slots.put(symbol, slot);
+            }
+            return slot;
+        }
+    }
+
+    private void markDirty(AtomicLongArray dirty, int slot) {
+        int word = slot >>> 6;
+        long bit = 1L << (slot & 63);
+        long bits;
+        do {
+            bits = dirty.get(word);
+            if ((bits & bit) != 0) {
+                // Already pending; the consumer will pick up the value just stored
+                return;
+            }
+        } while (!dirty.compareAndSet(word, bits, bits | bit));
+
+        Runnable signal = dirtySignal;
+        if (signal != null) {
+            signal.run();
+        }
+    }
+
+    /**
+     * @return The exchange this channel listens to
+     */
+    public ExchangeService getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return The number of symbols tracked
+     */
+    public int getSymbolCount() {
+        return slots.size();
+    }
+
+    /**
+     * @return Updates received from the exchange (tickers and order books)
+     */
+    public long getReceivedCount() {
+        return tickerUpdates.get() + orderBookUpdates.get();
+    }
+
+    /**
+     * @return Updates handed to the consumer (tickers and order books)
+     */
+    public long getDeliveredCount() {
+        return tickersDelivered.get() + orderBooksDelivered.get();
+    }
+
+    /**
+     * @return Updates dropped because the symbol capacity was reached
+     */
+    public long getDroppedCount() {
+        return droppedUpdates.get();
+    }
+
+    /**
+     * Returns how many received updates each delivered update stands for.
+     * 1.0 means no conflation; 5.0 means four of every five updates were
+     * superseded before the consumer got to them.
+     *
+     * @return The conflation ratio
+     */
+    public double getConflationRatio() {
+        long delivered = getDeliveredCount();
+        return delivered == 0 ? 1.0 : getReceivedCount() / (double) delivered;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d symbols, %d received (%d tickers, %d books), %d delivered, conflation %.2fx%s",
+                exchange.getExchangeName(), getSymbolCount(), getReceivedCount(), tickerUpdates.get(),
+                orderBookUpdates.get(), getDeliveredCount(), getConflationRatio(),
+                getDroppedCount() > 0 ? ", " + getDroppedCount() + " dropped" : "");
+    }
+}
@@ -1,18 +1,35 @@
 package org.example.data.service;
 
+import org.example.data.model.InstrumentArray;
 import org.example.data.model.OrderBook;
+import org.example.data.model.SymbolRegistry;
 import org.example.data.model.Ticker;
 import org.example.data.model.TradingPair;
 import org.example.data.fee.ExchangeFeeFactory;
 import org.example.data.fee.Fee;
 import org.example.data.fee.FeeTracker;
 import org.example.data.fee.TransactionFee;
+import org.example.data.interfaces.IClock;
 import org.example.data.interfaces.IExchangeService;
+import org.example.data.interfaces.IMarketDataListener;
 import org.example.data.interfaces.INotificationService;
 
+import java.io.IOException;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Base abstract class for cryptocurrency exchange services.
@@ -51,8 +68,71 @@ public abstract class ExchangeService implements IExchangeService {
     // Cache for real-time order book data
     protected ConcurrentHashMap<String, OrderBook> orderBookCache;
 
-    // Flag to track if WebSocket connection is active
-    protected volatile boolean websocketConnected = false;
+    // Native symbol <-> instrument ID mapping for this exchange
+    private final SymbolRegistry.ExchangeSymbolTable symbolTable;
+
+    // The same caches indexed by instrument ID, for lookups without string hashing
+    private final InstrumentArray<Ticker> tickersById = new InstrumentArray<>();
+    private final InstrumentArray<OrderBook> orderBooksById = new InstrumentArray<>();
+
+    // Shared keep-alive client for REST calls
+    protected final RestClient restClient = RestClient.getInstance();
+
+    // Weight of a REST call on exchanges that count requests rather than weights
+    protected static final int DEFAULT_REQUEST_WEIGHT = 1;
+
+    // Request weight budget for REST calls (exchanges.rateLimits), null for no limit
+    private volatile RateLimiter restRateLimiter;
+
+    // Order budget (trading.exchangeLimits.maxOrdersPerSecond), null for no limit
+    private volatile RateLimiter orderRateLimiter;
+
+    // In-flight REST refreshes, so concurrent misses on a symbol share one request
+    private final SingleFlight<String, Ticker> tickerLoads = new SingleFlight<>();
+    private final SingleFlight<String, OrderBook> orderBookLoads = new SingleFlight<>();
+
+    // Serve stale cache entries while a background refresh runs
+    private volatile boolean staleWhileRevalidate = false;
+
+    // Beyond this age a stale entry is not served and callers wait for the refresh
+    private volatile long maxStaleMillis = 30000;
+
+    // WebSocket connections, each carrying a share of the subscribed symbols
+    private volatile List<MarketDataShard> shards = Collections.emptyList();
+    private final Map<String, MarketDataShard> shardsBySymbol = new ConcurrentHashMap<>();
+
+    // Symbols per connection (0 for the exchange's default) and maximum number of connections
+    private volatile int maxSymbolsPerConnection = 0;
+    private volatile int maxConnections = 16;
+
+    // Latest measured message rate per symbol, used to place symbols on shards
+    private final Map<String, Double> symbolRates = new ConcurrentHashMap<>();
+
+    // Each shard hands decoded updates to its own consumer thread; capacity 0 applies them inline
+    private volatile int dispatchCapacity = 0;
+    private volatile MarketDataDispatcher.BackpressurePolicy dispatchPolicy;
+
+    // Shard supervision timings; a heartbeat interval of 0 leaves shards unsupervised
+    private volatile long heartbeatIntervalMillis = 0;
+    private volatile long silenceTimeoutMillis;
+    private volatile long initialBackoffMillis;
+    private volatile long maxBackoffMillis;
+
+    // Payload of protocol-level heartbeat pings
+    private static final ByteBuffer EMPTY_PING = ByteBuffer.allocate(0);
+
+    // Listeners notified on every cache update (read-mostly, so copy-on-write)
+    private final List<IMarketDataListener> marketDataListeners = new CopyOnWriteArrayList<>();
+
+    // Journal that decoded WebSocket updates are recorded to, null when not recording
+    private volatile MarketDataJournal journal;
+    private volatile int journalExchangeId;
+
+    // Stamps market data and ages cache entries; virtual when replaying
+    private volatile IClock clock = SystemClock.INSTANCE;
+
+    // Delay between the exchange's timestamps and our receive times
+    private final FeedLatencyStats feedLatency = new FeedLatencyStats();
 
     // Fee structures
     private Fee makerFee;
@@ -76,6 +156,7 @@ public abstract class ExchangeService implements IExchangeService {
         this.tradingPairs = new ArrayList<>();
         this.tickerCache = new ConcurrentHashMap<>();
         this.orderBookCache = new ConcurrentHashMap<>();
+        this.symbolTable = SymbolRegistry.getInstance().forExchange(exchangeName);
         this.feeTracker = new FeeTracker();
         this.thirtyDayTradingVolume = 0.0;
         this.hasBnbDiscount = false;
@@ -97,6 +178,7 @@ public abstract class ExchangeService implements IExchangeService {
         this.tradingPairs = new ArrayList<>();
         this.tickerCache = new ConcurrentHashMap<>();
         this.orderBookCache = new ConcurrentHashMap<>();
+        this.symbolTable = SymbolRegistry.getInstance().forExchange(exchangeName);
         this.feeTracker = new FeeTracker();
         this.thirtyDayTradingVolume = 0.0;
         this.hasBnbDiscount = false;
@@ -118,6 +200,9 @@ public abstract class ExchangeService implements IExchangeService {
      * Updates the trading pairs cache with a new list.
      */
     protected void setTradingPairs(List<TradingPair> pairs) {
+        for (TradingPair pair : pairs) {
+            symbolTable.register(pair.getSymbol());
+        }
         this.tradingPairs = pairs;
         logInfo("Loaded " + pairs.size() + " trading pairs for " + exchangeName);
     }
@@ -131,17 +216,44 @@ public abstract class ExchangeService implements IExchangeService {
     /**
      * Retrieves the latest ticker data for the specified symbol.
      * Will try to use cached WebSocket data if available, otherwise falls back to REST.
+     * Concurrent callers that miss on the same symbol share a single REST request.
+     * With stale-while-revalidate enabled, a stale ticker that is still within the
+     * maximum staleness is returned immediately while one refresh runs in the background.
      */
     public Ticker getTickerData(String symbol) {
         Ticker ticker = tickerCache.get(symbol);
-        
-        if (ticker == null || isTickerStale(ticker)) {
-            ticker = fetchTickerDataREST(symbol);
-            if (ticker != null) {
-                tickerCache.put(symbol, ticker);
-            }
+        if (ticker != null && !isTickerStale(ticker)) {
+            return ticker;
+        }
+
+        if (ticker != null && staleWhileRevalidate
+                && clock.currentTimeMillis() - ticker.getTimestampMillis() <= maxStaleMillis) {
+            refreshTickerAsync(symbol);
+            return ticker;
+        }
+
+        try {
+            return refreshTickerAsync(symbol).join();
+        } catch (CompletionException e) {
+            logWarning("Failed to refresh ticker for " + symbol + ": " + e.getCause());
+            return null;
         }
-        return ticker;
+    }
+
+    /**
+     * Starts a REST refresh of a ticker, or joins the one already running for the symbol.
+     * The cache is updated when the fetch succeeds.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return A future completed with the fetched ticker, or null if none was returned
+     */
+    public CompletableFuture<Ticker> refreshTickerAsync(String symbol) {
+        return tickerLoads.load(symbol, s -> fetchTickerDataAsync(s).thenApply(fetched -> {
+            if (fetched != null) {
+                updateTicker(s, fetched);
+            }
+            return fetched;
+        }));
     }
 
     /**
@@ -152,17 +264,42 @@ public abstract class ExchangeService implements IExchangeService {
     /**
      * Retrieves the current order book for the specified trading pair.
      * Will try to use cached WebSocket data if available, otherwise falls back to REST.
+     * Concurrent misses share a single REST request, and stale-while-revalidate
+     * applies as for tickers.
      */
     public OrderBook getOrderBook(String symbol) {
         OrderBook orderBook = orderBookCache.get(symbol);
-        
-        if (orderBook == null || isOrderBookStale(orderBook)) {
-            orderBook = fetchOrderBookREST(symbol);
-            if (orderBook != null) {
-                orderBookCache.put(symbol, orderBook);
-            }
+        if (orderBook != null && !isOrderBookStale(orderBook)) {
+            return orderBook;
+        }
+
+        if (orderBook != null && staleWhileRevalidate
+                && clock.currentTimeMillis() - orderBook.getTimestampMillis() <= maxStaleMillis) {
+            refreshOrderBookAsync(symbol);
+            return orderBook;
+        }
+
+        try {
+            return refreshOrderBookAsync(symbol).join();
+        } catch (CompletionException e) {
+            logWarning("Failed to refresh order book for " + symbol + ": " + e.getCause());
+            return null;
         }
-        return orderBook;
+    }
+
+    /**
+     * Starts a REST refresh of an order book, or joins the one already running for the symbol.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return A future completed with the fetched order book, or null if none was returned
+     */
+    public CompletableFuture<OrderBook> refreshOrderBookAsync(String symbol) {
+        return orderBookLoads.load(symbol, s -> fetchOrderBookAsync(s).thenApply(fetched -> {
+            if (fetched != null) {
+                updateOrderBook(s, fetched);
+            }
+            return fetched;
+        }));
     }
 
     /**
@@ -171,17 +308,726 @@ public abstract class ExchangeService implements IExchangeService {
     protected abstract OrderBook fetchOrderBookREST(String symbol);
 
     /**
-     * Initializes WebSocket connections for market data streaming
+     * Performs a rate-limited GET request, waiting for the request weight to be
+     * available in this exchange's budget first.
+     *
+     * @param url The request URL
+     * @param weight The request weight charged by the exchange
+     * @return The response body
+     * @throws IOException if the request fails or returns a non-2xx status
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected String restGet(String url, int weight) throws IOException, InterruptedException {
+        acquireRestPermit(weight);
+        return restClient.get(url);
+    }
+
+    /**
+     * Performs a rate-limited GET request with a custom timeout.
+     *
+     * @param url The request URL
+     * @param weight The request weight charged by the exchange
+     * @param timeout The request timeout
+     * @return The response body
+     * @throws IOException if the request fails or returns a non-2xx status
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected String restGet(String url, int weight, Duration timeout) throws IOException, InterruptedException {
+        acquireRestPermit(weight);
+        return restClient.get(url, timeout);
+    }
+
+    /**
+     * Performs a rate-limited GET request without blocking a thread while the
+     * request waits for its weight.
+     *
+     * @param url The request URL
+     * @param weight The request weight charged by the exchange
+     * @return A future completed with the response body
+     */
+    protected CompletableFuture<String> restGetAsync(String url, int weight) {
+        RateLimiter limiter = restRateLimiter;
+        if (limiter == null) {
+            return restClient.getAsync(url);
+        }
+        return limiter.acquireAsync(weight, restClient.getExecutor())
+                .thenCompose(ignored -> restClient.getAsync(url));
+    }
+
+    private void acquireRestPermit(int weight) throws InterruptedException {
+        RateLimiter limiter = restRateLimiter;
+        if (limiter != null) {
+            limiter.acquire(weight);
+        }
+    }
+
+    /**
+     * Fetches the latest ticker over REST without blocking the caller.
+     * The default runs {@link #fetchTickerDataREST(String)} on the REST executor;
+     * services whose fetch consists of several requests override this to issue
+     * them concurrently.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return A future completed with the ticker, or with null if it could not be fetched
+     */
+    public CompletableFuture<Ticker> fetchTickerDataAsync(String symbol) {
+        return CompletableFuture.supplyAsync(() -> fetchTickerDataREST(symbol), restClient.getExecutor());
+    }
+
+    /**
+     * Fetches tickers for many symbols at once.
+     * The default issues one asynchronous request per symbol and waits for all of
+     * them; services whose API offers a multi-symbol ticker endpoint override this
+     * to use a single call.
+     *
+     * @param symbols The exchange-specific symbols
+     * @return The tickers that could be fetched, keyed by symbol
+     */
+    public Map<String, Ticker> fetchAllTickersREST(Collection<String> symbols) {
+        Map<String, CompletableFuture<Ticker>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            pending.put(symbol, fetchTickerDataAsync(symbol));
+        }
+
+        Map<String, Ticker> tickers = new HashMap<>();
+        for (Map.Entry<String, CompletableFuture<Ticker>> entry : pending.entrySet()) {
+            try {
+                Ticker ticker = entry.getValue().join();
+                if (ticker != null) {
+                    tickers.put(entry.getKey(), ticker);
+                }
+            } catch (CompletionException e) {
+                logWarning("Failed to fetch ticker for " + entry.getKey() + ": " + e.getCause());
+            }
+        }
+        return tickers;
+    }
+
+    /**
+     * Refreshes every missing or stale ticker among the given symbols with one
+     * batch fetch, so a following scan reads from the cache instead of making a
+     * REST call per symbol.
+     *
+     * @param symbols The exchange-specific symbols to keep fresh
+     * @return The number of tickers refreshed
+     */
+    public int refreshTickers(Collection<String> symbols) {
+        List<String> stale = new ArrayList<>();
+        for (String symbol : symbols) {
+            Ticker ticker = tickerCache.get(symbol);
+            if ((ticker == null || isTickerStale(ticker)) && !tickerLoads.isInFlight(symbol)) {
+                stale.add(symbol);
+            }
+        }
+        if (stale.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Ticker> fetched = fetchAllTickersREST(stale);
+        for (Map.Entry<String, Ticker> entry : fetched.entrySet()) {
+            updateTicker(entry.getKey(), entry.getValue());
+        }
+        logDebug("Refreshed " + fetched.size() + " of " + stale.size() + " stale tickers");
+        return fetched.size();
+    }
+
+    /**
+     * Fetches the current order book over REST without blocking the caller.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return A future completed with the order book, or with null if it could not be fetched
+     */
+    public CompletableFuture<OrderBook> fetchOrderBookAsync(String symbol) {
+        return CompletableFuture.supplyAsync(() -> fetchOrderBookREST(symbol), restClient.getExecutor());
+    }
+
+    /**
+     * Returns the cached ticker for the symbol without falling back to REST.
+     * Intended for latency-sensitive callers such as market data listeners.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return The cached ticker, or null if none has been received yet
+     */
+    public Ticker getCachedTicker(String symbol) {
+        return tickerCache.get(symbol);
+    }
+
+    /**
+     * Returns the cached order book for the symbol without falling back to REST.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return The cached order book, or null if none has been received yet
+     */
+    public OrderBook getCachedOrderBook(String symbol) {
+        return orderBookCache.get(symbol);
+    }
+
+    /**
+     * Returns the cached ticker for an instrument without hashing its symbol.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @return The cached ticker, or null if none has been received yet
+     */
+    public Ticker getCachedTicker(int instrumentId) {
+        return tickersById.get(instrumentId);
+    }
+
+    /**
+     * Returns the cached order book for an instrument without hashing its symbol.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @return The cached order book, or null if none has been received yet
+     */
+    public OrderBook getCachedOrderBook(int instrumentId) {
+        return orderBooksById.get(instrumentId);
+    }
+
+    /**
+     * @param symbol The exchange-specific symbol
+     * @return The instrument ID, or -1 if this exchange does not list the symbol
+     */
+    public int getInstrumentId(String symbol) {
+        return symbolTable.idOf(symbol);
+    }
+
+    /**
+     * @param instrumentId The instrument ID
+     * @return This exchange's symbol for the instrument, or null if it is not listed
+     */
+    public String getNativeSymbol(int instrumentId) {
+        return symbolTable.nativeSymbol(instrumentId);
+    }
+
+    /**
+     * Returns the symbol this exchange uses for a trading pair, which may have
+     * come from another exchange's listing.
+     *
+     * @param pair The trading pair, in any exchange's format
+     * @return This exchange's symbol, or null if the exchange does not list the pair
+     */
+    public String getNativeSymbol(TradingPair pair) {
+        return symbolTable.nativeSymbol(pair.getInstrumentId());
+    }
+
+    /**
+     * @return The native symbol to instrument ID mapping of this exchange
+     */
+    public SymbolRegistry.ExchangeSymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Registers a listener that is notified whenever a ticker or order book
+     * in this exchange's cache is updated.
+     *
+     * @param listener The listener to add
+     */
+    public void addMarketDataListener(IMarketDataListener listener) {
+        if (listener != null && !marketDataListeners.contains(listener)) {
+            marketDataListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a previously registered market data listener.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeMarketDataListener(IMarketDataListener listener) {
+        marketDataListeners.remove(listener);
+    }
+
+    /**
+     * Stores a ticker in the cache and notifies market data listeners.
+     * Subclasses should use this instead of writing to tickerCache directly.
+     *
+     * @param symbol The exchange-specific symbol
+     * @param ticker The new ticker
+     */
+    protected void updateTicker(String symbol, Ticker ticker) {
+        tickerCache.put(symbol, ticker);
+        tickersById.set(symbolTable.register(symbol), ticker);
+        for (IMarketDataListener listener : marketDataListeners) {
+            try {
+                listener.onTickerUpdate(this, symbol, ticker);
+            } catch (Exception e) {
+                // A faulty listener must not break the feed
+                logError("Market data listener failed on ticker update for " + symbol, e);
+            }
+        }
+    }
+
+    /**
+     * Stores an order book in the cache and notifies market data listeners.
+     * Subclasses should use this instead of writing to orderBookCache directly.
+     *
+     * @param symbol The exchange-specific symbol
+     * @param orderBook The new order book
+     */
+    protected void updateOrderBook(String symbol, OrderBook orderBook) {
+        orderBookCache.put(symbol, orderBook);
+        orderBooksById.set(symbolTable.register(symbol), orderBook);
+        for (IMarketDataListener listener : marketDataListeners) {
+            try {
+                listener.onOrderBookUpdate(this, symbol, orderBook);
+            } catch (Exception e) {
+                logError("Market data listener failed on order book update for " + symbol, e);
+            }
+        }
+    }
+
+    /**
+     * Removes an order book from the cache, e.g. when it can no longer be kept
+     * correct, so that nothing prices from it. Listeners are not notified.
+     *
+     * @param symbol The exchange-specific symbol
+     */
+    protected void removeOrderBook(String symbol) {
+        orderBookCache.remove(symbol);
+        orderBooksById.set(symbolTable.register(symbol), null);
+    }
+
+    /**
+     * Moves application of WebSocket updates to dedicated consumer threads,
+     * one per connection shard. Listeners then only decode messages and hand
+     * them off through a bounded ring, so slow cache updates, listeners or
+     * REST fallbacks no longer stall the socket. Applies to current shards and
+     * to those created later.
+     *
+     * @param capacity Ring capacity in events, per shard
+     * @param policy What to do when a ring is full
+     */
+    public void enableMarketDataDispatch(int capacity, MarketDataDispatcher.BackpressurePolicy policy) {
+        dispatchCapacity = Math.max(1, capacity);
+        dispatchPolicy = policy;
+        for (MarketDataShard shard : shards) {
+            shard.enableDispatch(dispatchCapacity, dispatchPolicy);
+        }
+    }
+
+    /**
+     * Stops the consumer threads; updates are applied inline on the WebSocket threads again.
+     */
+    public void disableMarketDataDispatch() {
+        dispatchCapacity = 0;
+        for (MarketDataShard shard : shards) {
+            shard.disableDispatch();
+        }
+    }
+
+    /**
+     * @return The dispatchers of the current shards, empty if updates are applied inline
+     */
+    public List<MarketDataDispatcher> getMarketDataDispatchers() {
+        List<MarketDataDispatcher> dispatchers = new ArrayList<>();
+        for (MarketDataShard shard : shards) {
+            if (shard.getDispatcher() != null) {
+                dispatchers.add(shard.getDispatcher());
+            }
+        }
+        return dispatchers;
+    }
+
+    /**
+     * Records every decoded WebSocket update of this exchange to a journal, on the
+     * socket thread and before the update is applied, along with any REST
+     * snapshots the updates are applied on top of.
+     *
+     * @param journal The journal to record to, or null to stop recording
+     */
+    public void setMarketDataJournal(MarketDataJournal journal) {
+        if (journal != null) {
+            // The ID must be visible before the journal is
+            journalExchangeId = journal.registerExchange(exchangeName);
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * @return The journal updates are recorded to, or null
+     */
+    public MarketDataJournal getMarketDataJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the clock that stamps this exchange's market data and decides when
+     * cached entries are stale. Replays and backtests pass a {@link VirtualClock}.
+     *
+     * @param clock The clock
+     */
+    public void setClock(IClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return The clock this exchange's market data is stamped with
+     */
+    public IClock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return The feed latency of this exchange's WebSocket updates
+     */
+    public FeedLatencyStats getFeedLatencyStats() {
+        return feedLatency;
+    }
+
+    /**
+     * Called on the socket thread for every decoded update, before it is applied:
+     * counts its feed latency and journals it when recording.
+     */
+    void recordMarketDataEvent(MarketDataEvent event) {
+        feedLatency.record(event);
+        journalMarketDataEvent(event);
+    }
+
+    /**
+     * Journals an update when recording, without counting it as feed traffic.
+     * Also used for data that did not come over the WebSocket but that the
+     * recorded updates depend on, such as a REST snapshot that diffs are
+     * applied on top of.
+     *
+     * @param event The update
+     */
+    void journalMarketDataEvent(MarketDataEvent event) {
+        MarketDataJournal current = journal;
+        if (current != null) {
+            try {
+                current.record(journalExchangeId, symbolTable.register(event.symbol), event);
+            } catch (Exception e) {
+                // Recording must not break the feed
+                logError("Failed to record market data update for " + event.symbol, e);
+            }
+        }
+    }
+
+    void applyMarketDataEventSafely(MarketDataEvent event) {
+        try {
+            applyMarketDataEvent(event);
+        } catch (Exception e) {
+            logError("Error applying market data update for " + event.symbol, e);
+        }
+    }
+
+    /**
+     * Applies a decoded update to the caches. Runs on the consumer thread of
+     * the symbol's shard when dispatch is enabled; a symbol is only ever
+     * applied by one thread at a time.
+     *
+     * The default stores tickers as they are, and for books starts from a new
+     * book on a snapshot (or when none is cached) and applies the levels in
+     * place otherwise. Exchanges override this where their messages need more.
+     *
+     * @param event The update
+     */
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type == MarketDataEvent.Type.TICKER) {
+            updateTicker(event.symbol, new Ticker(event.bidPrice, event.askPrice,
+                    valueOrZero(event.lastPrice), valueOrZero(event.volume),
+                    event.receivedNanos, event.exchangeTimeNanos()));
+        } else if (event.type == MarketDataEvent.Type.BOOK) {
+            OrderBook orderBook = orderBookCache.get(event.symbol);
+            if (orderBook == null || event.snapshot) {
+                orderBook = newOrderBook(event.symbol);
+            }
+            BookLevelBuffer.applyTo(orderBook, event.bids, event.asks);
+            orderBook.touch(event.receivedNanos, event.exchangeTimeNanos());
+            updateOrderBook(event.symbol, orderBook);
+        }
+    }
+
+    /**
+     * Creates the book that WebSocket updates for a symbol are applied to.
+     *
+     * @param symbol The exchange-specific symbol
+     * @return An empty book
+     */
+    protected OrderBook newOrderBook(String symbol) {
+        return new OrderBook(symbol, 0);
+    }
+
+    /**
+     * @return The value, or 0 if a message did not carry it (NaN)
+     */
+    static double valueOrZero(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    /**
+     * Opens one market data connection and subscribes to the shard's symbols.
+     * Listeners created for the connection report to the shard: every message
+     * and pong through {@link MarketDataShard#onMessage()}, decoded updates
+     * through {@link MarketDataShard#publish(MarketDataEvent)} and closes and
+     * errors through {@link MarketDataShard#onClosed(WebSocket, String)}.
+     *
+     * Exchanges without a WebSocket feed keep the default, which opens nothing.
+     *
+     * @param shard The shard to connect
+     * @return The connected socket, or null if the exchange has no WebSocket feed
+     * @throws Exception if the connection or a subscription fails
+     */
+    protected WebSocket openWebSocket(MarketDataShard shard) throws Exception {
+        return null;
+    }
+
+    /**
+     * @return The number of symbols one connection carries unless configured otherwise
+     */
+    protected int getDefaultMaxSymbolsPerConnection() {
+        return 100;
+    }
+
+    /**
+     * Sets how symbols are spread over connections.
+     *
+     * @param maxSymbolsPerConnection Symbols per connection, or 0 for the exchange's default
+     * @param maxConnections Maximum number of connections
+     */
+    public void setWebSocketSharding(int maxSymbolsPerConnection, int maxConnections) {
+        this.maxSymbolsPerConnection = Math.max(0, maxSymbolsPerConnection);
+        this.maxConnections = Math.max(1, maxConnections);
+    }
+
+    /**
+     * @return The number of symbols one connection carries
+     */
+    public int getMaxSymbolsPerConnection() {
+        return maxSymbolsPerConnection > 0 ? maxSymbolsPerConnection : getDefaultMaxSymbolsPerConnection();
+    }
+
+    /**
+     * Supervises every connection from now on (see {@link WebSocketSupervisor}).
+     *
+     * @param heartbeatIntervalMillis Interval between heartbeats and liveness checks
+     * @param silenceTimeoutMillis Time without any message after which a socket is considered dead
+     * @param initialBackoffMillis Delay before the first reconnect attempt
+     * @param maxBackoffMillis Maximum delay between attempts
+     */
+    public void enableWebSocketSupervision(long heartbeatIntervalMillis, long silenceTimeoutMillis,
+                                           long initialBackoffMillis, long maxBackoffMillis) {
+        this.silenceTimeoutMillis = silenceTimeoutMillis;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.heartbeatIntervalMillis = Math.max(1, heartbeatIntervalMillis);
+    }
+
+    /**
+     * Stops supervising connections; a dropped connection stays down.
+     */
+    public void disableWebSocketSupervision() {
+        heartbeatIntervalMillis = 0;
+        for (MarketDataShard shard : shards) {
+            if (shard.getSupervisor() != null) {
+                shard.getSupervisor().stop();
+            }
+        }
+    }
+
+    /**
+     * Initializes WebSocket connections for market data streaming. Symbols
+     * are spread over as many connections as the per-connection limit
+     * requires, placing the busiest symbols (by previously measured message
+     * rate) on different connections.
      *
      * @param symbols List of symbols to subscribe to
-     * @return true if successfully connected, false otherwise
+     * @return true if every connection was established; supervised connections keep retrying otherwise
      */
-    public abstract boolean initializeWebSocket(List<String> symbols);
+    public synchronized boolean initializeWebSocket(List<String> symbols) {
+        closeWebSocket();
+        if (symbols == null || symbols.isEmpty()) {
+            return false;
+        }
+
+        int perConnection = getMaxSymbolsPerConnection();
+        int shardCount = (symbols.size() + perConnection - 1) / perConnection;
+        List<String> subscribed = symbols;
+        if (shardCount > maxConnections) {
+            shardCount = maxConnections;
+            subscribed = symbols.subList(0, maxConnections * perConnection);
+            logWarning("Subscribing to " + subscribed.size() + " of " + symbols.size()
+                    + " symbols; the rest exceed " + maxConnections + " connections of " + perConnection);
+        }
+
+        List<List<String>> groups = assignToShards(subscribed, shardCount, perConnection);
+        List<MarketDataShard> created = new ArrayList<>();
+        for (int i = 0; i < groups.size(); i++) {
+            MarketDataShard shard = new MarketDataShard(this, i, groups.get(i));
+            if (dispatchCapacity > 0) {
+                shard.enableDispatch(dispatchCapacity, dispatchPolicy);
+            }
+            for (String symbol : shard.getSymbols()) {
+                shardsBySymbol.put(symbol, shard);
+            }
+            created.add(shard);
+        }
+        shards = Collections.unmodifiableList(created);
+
+        boolean allConnected = true;
+        for (MarketDataShard shard : created) {
+            allConnected &= connectShard(shard);
+        }
+        logInfo("WebSocket subscribed to " + subscribed.size() + " symbols over " + created.size() + " connection(s)");
+        return allConnected;
+    }
+
+    private boolean connectShard(MarketDataShard shard) {
+        if (heartbeatIntervalMillis > 0) {
+            WebSocketSupervisor supervisor = shard.getSupervisor();
+            if (supervisor == null) {
+                supervisor = new WebSocketSupervisor(shard, heartbeatIntervalMillis, silenceTimeoutMillis,
+                        initialBackoffMillis, maxBackoffMillis);
+            }
+            return supervisor.start();
+        }
+        return shard.connect();
+    }
+
+    /**
+     * Splits symbols into shards, busiest first, each onto the shard with the
+     * lowest total message rate (then the fewest symbols) that still has room.
+     * Without measured rates this deals symbols out evenly.
+     */
+    private List<List<String>> assignToShards(List<String> symbols, int shardCount, int perShard) {
+        List<String> ordered = new ArrayList<>(symbols);
+        // Stable sort keeps the caller's order among symbols with equal rates
+        ordered.sort((a, b) -> Double.compare(symbolRates.getOrDefault(b, 0.0), symbolRates.getOrDefault(a, 0.0)));
+
+        List<List<String>> groups = new ArrayList<>();
+        double[] loads = new double[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (String symbol : ordered) {
+            int target = -1;
+            for (int i = 0; i < shardCount; i++) {
+                if (groups.get(i).size() >= perShard) {
+                    continue;
+                }
+                if (target < 0 || loads[i] < loads[target]
+                        || (loads[i] == loads[target] && groups.get(i).size() < groups.get(target).size())) {
+                    target = i;
+                }
+            }
+            groups.get(target).add(symbol);
+            loads[target] += symbolRates.getOrDefault(symbol, 0.0);
+        }
+        return groups;
+    }
+
+    /**
+     * Moves symbols between connections when the busiest connection carries
+     * more than {@code maxImbalance} times the average message rate. Only
+     * connections whose symbol set changes are reconnected: each is closed,
+     * its queued updates are applied, and it reconnects with its new symbols,
+     * so no symbol is ever delivered by two connections at once.
+     *
+     * @param maxImbalance Tolerated ratio of the busiest connection's rate to the average, e.g. 1.5
+     * @return The number of connections that were reconnected
+     */
+    public synchronized int rebalanceShards(double maxImbalance) {
+        List<MarketDataShard> current = shards;
+        if (current.size() < 2) {
+            return 0;
+        }
+
+        double total = 0;
+        double busiest = 0;
+        List<String> symbols = new ArrayList<>();
+        for (MarketDataShard shard : current) {
+            Map<String, Double> rates = shard.sampleSymbolRates();
+            double load = 0;
+            for (String symbol : shard.getSymbols()) {
+                double rate = rates.getOrDefault(symbol, 0.0);
+                symbolRates.put(symbol, rate);
+                load += rate;
+                symbols.add(symbol);
+            }
+            total += load;
+            busiest = Math.max(busiest, load);
+        }
+        if (total <= 0 || busiest <= maxImbalance * total / current.size()) {
+            return 0;
+        }
+
+        // The cap may have been lowered since the connections were opened; never drop a symbol here
+        int perConnection = Math.max(getMaxSymbolsPerConnection(), (symbols.size() + current.size() - 1) / current.size());
+        List<List<String>> groups = assignToShards(symbols, current.size(), perConnection);
+        List<MarketDataShard> changed = new ArrayList<>();
+        for (int i = 0; i < current.size(); i++) {
+            MarketDataShard shard = current.get(i);
+            if (!new HashSet<>(groups.get(i)).equals(new HashSet<>(shard.getSymbols()))) {
+                changed.add(shard);
+            }
+        }
+
+        // Take every affected connection down first, then bring them up with their new symbols
+        for (MarketDataShard shard : changed) {
+            if (shard.getSupervisor() != null) {
+                shard.getSupervisor().stop();
+            }
+            shard.abort();
+        }
+        for (MarketDataShard shard : changed) {
+            if (!shard.awaitDrained(1000)) {
+                logWarning("Shard " + shard.getIndex() + " still had queued updates when rebalanced");
+            }
+            shard.setSymbols(groups.get(shard.getIndex()));
+            for (String symbol : shard.getSymbols()) {
+                shardsBySymbol.put(symbol, shard);
+            }
+        }
+        for (MarketDataShard shard : changed) {
+            connectShard(shard);
+        }
+        logInfo("Rebalanced " + changed.size() + " of " + current.size() + " WebSocket connections by message rate");
+        return changed.size();
+    }
 
     /**
      * Closes the WebSocket connections
      */
-    public abstract void closeWebSocket();
+    public synchronized void closeWebSocket() {
+        List<MarketDataShard> current = shards;
+        shards = Collections.emptyList();
+        shardsBySymbol.clear();
+        for (MarketDataShard shard : current) {
+            if (shard.getSupervisor() != null) {
+                shard.getSupervisor().stop();
+            }
+            shard.close();
+            shard.disableDispatch();
+        }
+        if (!current.isEmpty()) {
+            logInfo("WebSocket connections closed");
+        }
+    }
+
+    /**
+     * @return The current connections
+     */
+    public List<MarketDataShard> getMarketDataShards() {
+        return shards;
+    }
+
+    /**
+     * @param symbol The exchange-specific symbol
+     * @return The connection carrying the symbol, or null if it is not subscribed
+     */
+    public MarketDataShard getShard(String symbol) {
+        return shardsBySymbol.get(symbol);
+    }
+
+    /**
+     * Sends a heartbeat on a market data socket. The default is a protocol
+     * ping; exchanges that expect an application-level ping override this.
+     *
+     * @param webSocket The socket
+     */
+    protected void sendHeartbeat(WebSocket webSocket) {
+        webSocket.sendPing(EMPTY_PING.duplicate());
+    }
 
     /**
      * Returns the exchange's unique name.
@@ -208,6 +1054,18 @@ public abstract class ExchangeService implements IExchangeService {
         return takerFee;
     }
     
+    /**
+     * Get the taker fee as a rate, for code that prices many trades at once.
+     * Fees that are not plain percentages are converted at a notional of 1000;
+     * without a configured fee the factory default for the exchange is used.
+     * 
+     * @return The taker fee rate as a decimal (e.g., 0.001 for 0.1%)
+     */
+    public double getTakerFeeRate() {
+        Fee fee = takerFee != null ? takerFee : ExchangeFeeFactory.getInstance().createFee(exchangeName, false);
+        return getEffectiveFeePercentage(fee, 1000.0);
+    }
+    
     /**
      * Update the fee structures based on trading volume.
      * 
@@ -374,9 +1232,16 @@ public abstract class ExchangeService implements IExchangeService {
 
     /**
      * Checks if the WebSocket connection is active
+     *
+     * @return true if at least one connection is open
      */
     public boolean isWebSocketConnected() {
-        return websocketConnected;
+        for (MarketDataShard shard : shards) {
+            if (shard.isConnected()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -401,6 +1266,68 @@ public abstract class ExchangeService implements IExchangeService {
         return getTradingFees();
     }
 
+    /**
+     * Configures stale-while-revalidate for the ticker and order book caches.
+     *
+     * @param enabled Whether stale entries may be served while a refresh runs
+     * @param maxStaleMillis Maximum age of an entry that may still be served
+     */
+    public void setStaleWhileRevalidate(boolean enabled, long maxStaleMillis) {
+        this.staleWhileRevalidate = enabled;
+        this.maxStaleMillis = maxStaleMillis;
+    }
+
+    /**
+     * @return true if stale entries are served while a background refresh runs
+     */
+    public boolean isStaleWhileRevalidate() {
+        return staleWhileRevalidate;
+    }
+
+    /**
+     * Sets the request weight budget applied to every REST call.
+     *
+     * @param restRateLimiter The limiter, or null to disable limiting
+     */
+    public void setRestRateLimiter(RateLimiter restRateLimiter) {
+        this.restRateLimiter = restRateLimiter;
+    }
+
+    /**
+     * @return The REST limiter, or null if REST calls are not limited
+     */
+    public RateLimiter getRestRateLimiter() {
+        return restRateLimiter;
+    }
+
+    /**
+     * Sets the order budget checked before an order is sent.
+     *
+     * @param orderRateLimiter The limiter, or null to disable limiting
+     */
+    public void setOrderRateLimiter(RateLimiter orderRateLimiter) {
+        this.orderRateLimiter = orderRateLimiter;
+    }
+
+    /**
+     * @return The order limiter, or null if orders are not limited
+     */
+    public RateLimiter getOrderRateLimiter() {
+        return orderRateLimiter;
+    }
+
+    /**
+     * Takes one order from the order budget. Orders are not queued: a stale
+     * order is worse than a missed one, so callers should drop the order when
+     * this returns false.
+     *
+     * @return true if an order may be sent now
+     */
+    public boolean tryAcquireOrderPermit() {
+        RateLimiter limiter = orderRateLimiter;
+        return limiter == null || limiter.tryAcquire(1);
+    }
+
     /**
      * Check if a ticker is stale and needs to be refreshed.
      *
@@ -409,7 +1336,7 @@ public abstract class ExchangeService implements IExchangeService {
      */
     protected boolean isTickerStale(Ticker ticker) {
         // Default implementation: consider a ticker stale if it's older than 5 seconds
-        return System.currentTimeMillis() - ticker.getTimestamp().getTime() > 5000;
+        return clock.currentTimeMillis() - ticker.getTimestampMillis() > 5000;
     }
     
     /**
@@ -420,7 +1347,7 @@ public abstract class ExchangeService implements IExchangeService {
      */
     protected boolean isOrderBookStale(OrderBook orderBook) {
         // Default implementation: consider an order book stale if it's older than 5 seconds
-        return System.currentTimeMillis() - orderBook.getTimestamp().getTime() > 5000;
+        return clock.currentTimeMillis() - orderBook.getTimestampMillis() > 5000;
     }
 
     /**
@@ -498,11 +1425,11 @@ public abstract class ExchangeService implements IExchangeService {
         
         if (isBuy) {
             // For a buy order to be a maker, it must be below the current lowest ask
-            double lowestAsk = orderBook.getBestAsk() != null ? orderBook.getBestAsk().getPrice() : 0;
+            double lowestAsk = orderBook.getBestAskPrice();
             return lowestAsk > 0 && price < lowestAsk;
         } else {
             // For a sell order to be a maker, it must be above the current highest bid
-            double highestBid = orderBook.getBestBid() != null ? orderBook.getBestBid().getPrice() : 0;
+            double highestBid = orderBook.getBestBidPrice();
             return highestBid > 0 && price > highestBid;
         }
     }
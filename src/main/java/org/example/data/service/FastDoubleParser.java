@@ -0,0 +1,101 @@
+package org.example.data.service;
+
+/**
+ * Decimal-to-double conversion for exchange price and size strings.
+ *
+ * Exchanges send prices as plain decimals such as "25.35190000". For those,
+ * the digits fit in a long and the value is the exact quotient of two doubles
+ * (mantissa / 10^scale), which IEEE division rounds correctly. This avoids the
+ * String allocation and general-purpose algorithm of Double.parseDouble.
+ * Anything else (exponents, more than 18 significant digits, NaN, malformed
+ * input) falls back to Double.parseDouble, so results are always identical.
+ */
+public final class FastDoubleParser {
+
+    // Powers of ten that are exactly representable as doubles
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Largest mantissa that converts to a double without rounding
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Up to this many digits always fit in a long
+    private static final int MAX_DIGITS = 18;
+
+    private FastDoubleParser() {
+    }
+
+    /**
+     * Parses a decimal number from a character range.
+     *
+     * @param chars The characters
+     * @param offset Index of the first character
+     * @param length Number of characters
+     * @return The parsed value
+     * @throws NumberFormatException if the range is not a number
+     */
+    public static double parseDouble(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        if (length == 0) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        boolean negative = false;
+        char c = chars[i];
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean sawDigit = false;
+        boolean sawPoint = false;
+        for (; i < end; i++) {
+            c = chars[i];
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                if (sawPoint) {
+                    scale++;
+                }
+                if (mantissa == 0 && c == '0') {
+                    // Leading zeros are not significant
+                    continue;
+                }
+                if (++digits > MAX_DIGITS) {
+                    return parseSlow(chars, offset, length);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+            } else if (c == '.' && !sawPoint) {
+                sawPoint = true;
+            } else {
+                return parseSlow(chars, offset, length);
+            }
+        }
+
+        if (!sawDigit || mantissa > MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+            return parseSlow(chars, offset, length);
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal number from a string.
+     *
+     * @param text The text to parse
+     * @return The parsed value
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static double parseDouble(String text) {
+        return parseDouble(text.toCharArray(), 0, text.length());
+    }
+
+    private static double parseSlow(char[] chars, int offset, int length) {
+        return Double.parseDouble(new String(chars, offset, length));
+    }
+}
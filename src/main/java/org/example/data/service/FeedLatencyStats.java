@@ -0,0 +1,88 @@
+package org.example.data.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Feed latency of one exchange: how long after the exchange's own timestamp
+ * an update arrived here, measured on the socket thread.
+ *
+ * Only updates that carry an exchange time are counted. The figures include
+ * any offset between the exchange's clock and ours, so a negative minimum
+ * means our clock is behind theirs.
+ */
+public class FeedLatencyStats {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong minNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxNanos = new AtomicLong(Long.MIN_VALUE);
+    private volatile long lastNanos;
+
+    /**
+     * Counts an update received at {@code receivedNanos} that the exchange
+     * stamped {@code exchangeTimeNanos}; updates without an exchange time are ignored.
+     *
+     * @param receivedNanos The local receive time in epoch nanoseconds
+     * @param exchangeTimeNanos The exchange time in epoch nanoseconds, or -1
+     */
+    public void record(long receivedNanos, long exchangeTimeNanos) {
+        if (exchangeTimeNanos < 0) {
+            return;
+        }
+        long latency = receivedNanos - exchangeTimeNanos;
+        count.increment();
+        totalNanos.add(latency);
+        lastNanos = latency;
+        if (latency < minNanos.get()) {
+            minNanos.accumulateAndGet(latency, Math::min);
+        }
+        if (latency > maxNanos.get()) {
+            maxNanos.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    void record(MarketDataEvent event) {
+        record(event.receivedNanos, event.exchangeTimeNanos());
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The mean latency in milliseconds, or 0 if nothing was counted
+     */
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n > 0 ? totalNanos.sum() / (double) n / 1e6 : 0;
+    }
+
+    public double getMinMillis() {
+        long min = minNanos.get();
+        return min == Long.MAX_VALUE ? 0 : min / 1e6;
+    }
+
+    public double getMaxMillis() {
+        long max = maxNanos.get();
+        return max == Long.MIN_VALUE ? 0 : max / 1e6;
+    }
+
+    public double getLastMillis() {
+        return lastNanos / 1e6;
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        minNanos.set(Long.MAX_VALUE);
+        maxNanos.set(Long.MIN_VALUE);
+        lastNanos = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FeedLatencyStats{count=%d, mean=%.1fms, min=%.1fms, max=%.1fms, last=%.1fms}",
+                getCount(), getMeanMillis(), getMinMillis(), getMaxMillis(), getLastMillis());
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.data.service;
+
+import org.example.data.model.OrderBook;
+
+import java.util.zip.CRC32;
+
+/**
+ * One symbol's Kraken order book, maintained from the v1 WebSocket book
+ * channel and verified against the checksum Kraken sends with each update.
+ *
+ * Each side keeps at most the subscribed depth in primitive arrays, best
+ * price first, located by binary search and updated in place. Next to every
+ * price and size the book keeps the digits of the text Kraken sent, because
+ * the checksum is a CRC32 over that text:
+ * <ol>
+ *   <li>for each of the top 10 asks, lowest first, the price and then the
+ *       volume, each with the decimal point and leading zeros removed;</li>
+ *   <li>the same for the top 10 bids, highest first;</li>
+ *   <li>the CRC32 of the concatenated string, as an unsigned 32-bit integer.</li>
+ * </ol>
+ *
+ * Not thread-safe; it is used only by the thread that applies market data.
+ */
+final class KrakenBook {
+
+    // Levels per side that the checksum covers
+    private static final int CHECKSUM_LEVELS = 10;
+
+    private final Side bids;
+    private final Side asks;
+
+    private final CRC32 crc = new CRC32();
+
+    // Scratch for writing one number's digits
+    private final byte[] digitBuffer = new byte[20];
+
+    // false from a checksum failure until the next snapshot
+    private boolean synced;
+
+    /**
+     * @param depth The subscribed depth; levels beyond it are dropped
+     */
+    KrakenBook(int depth) {
+        this.bids = new Side(true, depth);
+        this.asks = new Side(false, depth);
+    }
+
+    /**
+     * Empties both sides.
+     */
+    void clear() {
+        bids.size = 0;
+        asks.size = 0;
+    }
+
+    /**
+     * @return true if the book was built from a snapshot and has not failed a checksum since
+     */
+    boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * @param synced Whether the book is to be trusted
+     */
+    void setSynced(boolean synced) {
+        this.synced = synced;
+    }
+
+    /**
+     * Applies a list of levels to one side; a zero volume removes the level.
+     *
+     * @param levels The levels, with their digits captured
+     * @param bid true for the bid side
+     */
+    void apply(BookLevelBuffer levels, boolean bid) {
+        Side side = bid ? bids : asks;
+        for (int i = 0; i < levels.size(); i++) {
+            side.update(levels.priceAt(i), levels.sizeAt(i), levels.priceDigitsAt(i), levels.sizeDigitsAt(i));
+        }
+    }
+
+    /**
+     * Computes Kraken's checksum of the current book.
+     *
+     * @return The unsigned CRC32, or -1 if a level's digits were not captured
+     */
+    long checksum() {
+        crc.reset();
+        if (!appendSide(asks) || !appendSide(bids)) {
+            return -1;
+        }
+        return crc.getValue();
+    }
+
+    private boolean appendSide(Side side) {
+        int levels = Math.min(side.size, CHECKSUM_LEVELS);
+        for (int i = 0; i < levels; i++) {
+            if (side.priceDigits[i] < 0 || side.sizeDigits[i] < 0) {
+                return false;
+            }
+            appendDigits(side.priceDigits[i]);
+            appendDigits(side.sizeDigits[i]);
+        }
+        return true;
+    }
+
+    private void appendDigits(long value) {
+        int start = digitBuffer.length;
+        do {
+            digitBuffer[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        crc.update(digitBuffer, start, digitBuffer.length - start);
+    }
+
+    /**
+     * Copies the levels into a cached book.
+     *
+     * @param orderBook The book readers see
+     */
+    void copyTo(OrderBook orderBook) {
+        orderBook.replace(bids.prices, bids.sizes, bids.size, asks.prices, asks.sizes, asks.size);
+    }
+
+    /**
+     * @return The number of bid levels
+     */
+    int getBidDepth() {
+        return bids.size;
+    }
+
+    /**
+     * @return The number of ask levels
+     */
+    int getAskDepth() {
+        return asks.size;
+    }
+
+    /**
+     * One side of the book, best price first.
+     */
+    private static final class Side {
+        private final boolean bid;
+        private final int depth;
+        private final double[] prices;
+        private final double[] sizes;
+        private final long[] priceDigits;
+        private final long[] sizeDigits;
+        private int size;
+
+        Side(boolean bid, int depth) {
+            this.bid = bid;
+            this.depth = depth;
+            // One spare slot so an insert can shift before truncating
+            this.prices = new double[depth + 1];
+            this.sizes = new double[depth + 1];
+            this.priceDigits = new long[depth + 1];
+            this.sizeDigits = new long[depth + 1];
+        }
+
+        void update(double price, double volume, long priceText, long volumeText) {
+            int index = search(price);
+            if (index >= 0) {
+                if (volume > 0) {
+                    sizes[index] = volume;
+                    priceDigits[index] = priceText;
+                    sizeDigits[index] = volumeText;
+                } else {
+                    shift(index + 1, index);
+                    size--;
+                }
+                return;
+            }
+            int insertAt = -index - 1;
+            if (volume <= 0 || insertAt >= depth) {
+                // Deleting an unknown level, or a level outside the subscribed depth
+                return;
+            }
+            shift(insertAt, insertAt + 1);
+            prices[insertAt] = price;
+            sizes[insertAt] = volume;
+            priceDigits[insertAt] = priceText;
+            sizeDigits[insertAt] = volumeText;
+            size = Math.min(size + 1, depth);
+        }
+
+        private void shift(int from, int to) {
+            int count = size - from;
+            if (to > from) {
+                // The level pushed past the spare slot is dropped
+                count = Math.min(count, prices.length - to);
+            }
+            if (count > 0) {
+                System.arraycopy(prices, from, prices, to, count);
+                System.arraycopy(sizes, from, sizes, to, count);
+                System.arraycopy(priceDigits, from, priceDigits, to, count);
+                System.arraycopy(sizeDigits, from, sizeDigits, to, count);
+            }
+        }
+
+        /**
+         * @return The index of the price, or (-(insertion point) - 1) if absent
+         */
+        private int search(double price) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                double midPrice = prices[mid];
+                if (midPrice == price) {
+                    return mid;
+                }
+                // Bids are stored highest first, asks lowest first
+                if (bid ? midPrice > price : midPrice < price) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -6,20 +6,22 @@ import org.example.data.model.Ticker;
 import org.example.data.model.TradingPair;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.IOException;
 import java.net.URI;
-import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * KrakenExchangeService provides concrete implementations for fetching market data
@@ -31,6 +33,11 @@ import java.util.concurrent.CompletionStage;
  * - Order Book:   GET https://api.kraken.com/0/public/Depth?pair={symbol}&count=10
  * - WebSocket:    wss://ws.kraken.com
  *
+ * WebSocket books are kept by {@link KrakenBook}, which truncates them to the
+ * subscribed depth and verifies Kraken's CRC32 checksum on every update. A
+ * book that fails its checksum is withdrawn and only that pair's book
+ * subscription is renewed, which makes Kraken send a fresh snapshot.
+ *
  * Important log messages are now accumulated in a log which can be retrieved
  * via the getLogMessages() method.
  */
@@ -39,13 +46,25 @@ public class KrakenExchangeService extends ExchangeService {
     private static final String BASE_URL = "https://api.kraken.com/0/public";
     private static final String WS_BASE_URL = "wss://ws.kraken.com";
 
+    // Order book depth we subscribe to; levels beyond it are dropped locally
+    private static final int BOOK_DEPTH = 10;
+
+    // Maximum number of pairs requested in one Ticker call
+    private static final int TICKER_BATCH_SIZE = 50;
+
     // Map to translate between Kraken's format and standard format
     private Map<String, String> krakenSymbolMap = new HashMap<>();
 
-    // WebSocket client and connection
+    // WebSocket client
     private HttpClient wsClient;
-    private WebSocket webSocket;
-    private KrakenWebSocketListener webSocketListener;
+
+    // WebSocket pair -> checksummed book
+    private final Map<String, KrakenBook> books = new ConcurrentHashMap<>();
+
+    // Book integrity metrics
+    private final AtomicLong checksumsVerified = new AtomicLong();
+    private final AtomicLong checksumFailures = new AtomicLong();
+    private final AtomicLong bookResubscriptions = new AtomicLong();
 
     // Accumulates important log messages.
     private StringBuilder logBuilder = new StringBuilder();
@@ -58,7 +77,6 @@ public class KrakenExchangeService extends ExchangeService {
     public KrakenExchangeService(double fees) {
         super("Kraken", fees);
         this.wsClient = HttpClient.newHttpClient();
-        this.webSocketListener = new KrakenWebSocketListener();
     }
 
     /**
@@ -82,19 +100,9 @@ public class KrakenExchangeService extends ExchangeService {
         List<TradingPair> tradingPairs = new ArrayList<>();
         try {
             String urlStr = BASE_URL + "/AssetPairs";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             if (json.has("error") && json.getJSONArray("error").length() > 0) {
                 logBuilder.append("Error fetching Kraken trading pairs: ")
                         .append(json.getJSONArray("error").toString()).append("\n");
@@ -182,27 +190,9 @@ public class KrakenExchangeService extends ExchangeService {
             String krakenSymbol = translateToKrakenSymbol(symbol);
             String urlStr = BASE_URL + "/Ticker?pair=" + krakenSymbol;
             
-            URL url = new URL(urlStr);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("GET");
-            
-            int responseCode = con.getResponseCode();
-            if (responseCode != 200) {
-                logBuilder.append("Failed to fetch Kraken ticker data for ").append(symbol)
-                         .append(". Response code: ").append(responseCode).append("\n");
-                return null;
-            }
-            
-            BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-            String inputLine;
-            StringBuilder responseStr = new StringBuilder();
-            
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             if (json.has("error") && json.getJSONArray("error").length() > 0) {
                 logBuilder.append("Error fetching Kraken ticker: ")
                         .append(json.getJSONArray("error").toString()).append("\n");
@@ -233,27 +223,88 @@ public class KrakenExchangeService extends ExchangeService {
                 }
             }
             
-            JSONObject tickerData = result.getJSONObject(krakenSymbol);
+            ticker = parseTicker(result.getJSONObject(krakenSymbol), getClock().epochNanos());
+
+        } catch (Exception e) {
+            logBuilder.append("Exception in fetchTickerDataREST for symbol ").append(symbol)
+                     .append(": ").append(e.getMessage()).append("\n");
+        }
+        return ticker;
+    }
 
-            JSONArray bidData = tickerData.getJSONArray("b");
-            double bidPrice = bidData.getDouble(0);
+    /**
+     * Retrieves tickers for many symbols using Kraken's comma-separated pair list,
+     * in chunks to keep the URL short. One pair Kraken does not know fails its
+     * whole chunk without saying which, so a rejected chunk is retried in halves
+     * until the unknown pairs are left out.
+     *
+     * Endpoint: GET https://api.kraken.com/0/public/Ticker?pair={symbol1},{symbol2},...
+     *
+     * @param symbols The trading symbols.
+     * @return The tickers keyed by the requested symbol.
+     */
+    @Override
+    public Map<String, Ticker> fetchAllTickersREST(Collection<String> symbols) {
+        Map<String, Ticker> tickers = new HashMap<>();
+        List<String> requested = new ArrayList<>(symbols);
 
-            JSONArray askData = tickerData.getJSONArray("a");
-            double askPrice = askData.getDouble(0);
+        for (int start = 0; start < requested.size(); start += TICKER_BATCH_SIZE) {
+            fetchTickerChunk(requested.subList(start, Math.min(start + TICKER_BATCH_SIZE, requested.size())), tickers);
+        }
+        return tickers;
+    }
 
-            JSONArray lastData = tickerData.getJSONArray("c");
-            double lastPrice = lastData.getDouble(0);
+    /**
+     * Fetches one chunk of tickers into the given map, retrying each half of
+     * the chunk if Kraken rejects a pair in it.
+     */
+    private void fetchTickerChunk(List<String> chunk, Map<String, Ticker> tickers) {
+        // Kraken answers with its own pair names, so remember which symbol asked for each
+        Map<String, String> symbolByKrakenName = new HashMap<>();
+        for (String symbol : chunk) {
+            symbolByKrakenName.put(translateToKrakenSymbol(symbol), symbol);
+        }
 
-            JSONArray volumeData = tickerData.getJSONArray("v");
-            double volume = volumeData.getDouble(1); // Using the 24h volume
+        try {
+            String urlStr = BASE_URL + "/Ticker?pair=" + String.join(",", symbolByKrakenName.keySet());
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            ticker = new Ticker(bidPrice, askPrice, lastPrice, volume, new Date());
+            JSONObject json = new JSONObject(response);
+            if (json.has("error") && json.getJSONArray("error").length() > 0) {
+                String error = json.getJSONArray("error").toString();
+                if (error.contains("Unknown asset pair") && chunk.size() > 1) {
+                    int half = chunk.size() / 2;
+                    fetchTickerChunk(chunk.subList(0, half), tickers);
+                    fetchTickerChunk(chunk.subList(half, chunk.size()), tickers);
+                    return;
+                }
+                logBuilder.append("Error fetching Kraken ticker batch ").append(chunk).append(": ")
+                        .append(error).append("\n");
+                return;
+            }
 
+            JSONObject result = json.getJSONObject("result");
+            long receivedNanos = getClock().epochNanos();
+            for (String krakenName : result.keySet()) {
+                String symbol = symbolByKrakenName.get(krakenName);
+                if (symbol != null) {
+                    tickers.put(symbol, parseTicker(result.getJSONObject(krakenName), receivedNanos));
+                }
+            }
         } catch (Exception e) {
-            logBuilder.append("Exception in fetchTickerDataREST for symbol ").append(symbol)
-                     .append(": ").append(e.getMessage()).append("\n");
+            logBuilder.append("Exception in fetchAllTickersREST: ").append(e.getMessage()).append("\n");
         }
-        return ticker;
+    }
+
+    /**
+     * Builds a ticker from a Kraken ticker object (b/a/c arrays and 24h volume in v[1]).
+     */
+    private Ticker parseTicker(JSONObject tickerData, long receivedNanos) {
+        double bidPrice = tickerData.getJSONArray("b").getDouble(0);
+        double askPrice = tickerData.getJSONArray("a").getDouble(0);
+        double lastPrice = tickerData.getJSONArray("c").getDouble(0);
+        double volume = tickerData.getJSONArray("v").getDouble(1); // Using the 24h volume
+        return new Ticker(bidPrice, askPrice, lastPrice, volume, receivedNanos, -1);
     }
 
     /**
@@ -274,19 +325,9 @@ public class KrakenExchangeService extends ExchangeService {
 
         try {
             String urlStr = BASE_URL + "/Depth?pair=" + krakenSymbol + "&count=10";
-            URL url = new URL(urlStr);
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-            StringBuilder responseStr = new StringBuilder();
-            String inputLine;
-            while ((inputLine = in.readLine()) != null) {
-                responseStr.append(inputLine);
-            }
-            in.close();
+            String response = restGet(urlStr, DEFAULT_REQUEST_WEIGHT);
 
-            JSONObject json = new JSONObject(responseStr.toString());
+            JSONObject json = new JSONObject(response);
             if (json.has("error") && json.getJSONArray("error").length() > 0) {
                 logBuilder.append("Error fetching Kraken order book: ")
                         .append(json.getJSONArray("error").toString()).append("\n");
@@ -315,7 +356,7 @@ public class KrakenExchangeService extends ExchangeService {
                 asks.add(new OrderBookEntry(price, volume));
             }
 
-            orderBook = new OrderBook(symbol, bids, asks, new Date());
+            orderBook = new OrderBook(symbol, bids, asks, getClock().epochNanos());
 
         } catch (Exception e) {
             logBuilder.append("Exception in fetchOrderBookREST for symbol ").append(symbol)
@@ -326,75 +367,192 @@ public class KrakenExchangeService extends ExchangeService {
     }
 
     /**
-     * Initializes WebSocket connections for market data streaming from Kraken.
+     * Opens one WebSocket connection and subscribes to the ticker and book
+     * channels of the shard's pairs.
      *
-     * @param symbols List of symbols to subscribe to.
-     * @return true if successfully connected, false otherwise.
+     * @param shard The shard to connect
+     * @return The connected socket
+     * @throws Exception if the connection or a subscription fails
      */
     @Override
-    public boolean initializeWebSocket(List<String> symbols) {
-        try {
-            // Close existing connection if any.
-            if (webSocket != null) {
-                closeWebSocket();
-            }
+    protected WebSocket openWebSocket(MarketDataShard shard) throws Exception {
+        WebSocket socket = wsClient.newWebSocketBuilder()
+                .buildAsync(URI.create(WS_BASE_URL), new KrakenWebSocketListener(shard))
+                .join();
+
+        JSONArray pairs = new JSONArray();
+        for (String symbol : shard.getSymbols()) {
+            // Convert to Kraken format if needed.
+            String krakenSymbol = krakenSymbolMap.getOrDefault(symbol, symbol);
+            pairs.put(krakenSymbol);
+            // The new subscription starts each book from a snapshot
+            books.remove(krakenSymbol);
+        }
 
-            webSocket = wsClient.newWebSocketBuilder()
-                    .buildAsync(URI.create(WS_BASE_URL), webSocketListener)
-                    .join();
+        // Subscribe to ticker and book channels; one text message may be in flight at a time
+        JSONObject ticker = new JSONObject();
+        ticker.put("name", "ticker");
+        socket.sendText(subscriptionMessage("subscribe", pairs, ticker), true).join();
+        socket.sendText(subscriptionMessage("subscribe", pairs, bookSubscription()), true).join();
 
-            // Subscribe to ticker and book channels for each symbol.
-            JSONObject subscribeMsg = new JSONObject();
-            subscribeMsg.put("name", "subscribe");
+        logBuilder.append("Kraken WebSocket shard ").append(shard.getIndex())
+                .append(" connected for symbols: ").append(shard.getSymbols()).append("\n");
+        return socket;
+    }
 
-            JSONArray pairs = new JSONArray();
-            for (String symbol : symbols) {
-                // Convert to Kraken format if needed.
-                String krakenSymbol = krakenSymbolMap.getOrDefault(symbol, symbol);
-                pairs.put(krakenSymbol);
-            }
-            subscribeMsg.put("pair", pairs);
-
-            // Subscribe to ticker channel.
-            JSONObject subscription = new JSONObject();
-            subscription.put("name", "ticker");
-            subscribeMsg.put("subscription", subscription);
-            webSocket.sendText(subscribeMsg.toString(), true);
-
-            // Subscribe to book channel.
-            subscription.put("name", "book");
-            subscription.put("depth", 10); // Depth of 10 entries.
-            subscribeMsg.put("subscription", subscription);
-            webSocket.sendText(subscribeMsg.toString(), true);
-
-            websocketConnected = true;
-            logBuilder.append("Kraken WebSocket connected for symbols: ").append(symbols).append("\n");
-            return true;
-        } catch (Exception e) {
-            logBuilder.append("Exception initializing Kraken WebSocket: ").append(e.getMessage()).append("\n");
-            e.printStackTrace();
-            websocketConnected = false;
-            return false;
+    private static JSONObject bookSubscription() {
+        JSONObject subscription = new JSONObject();
+        subscription.put("name", "book");
+        subscription.put("depth", BOOK_DEPTH);
+        return subscription;
+    }
+
+    private static String subscriptionMessage(String event, JSONArray pairs, JSONObject subscription) {
+        JSONObject message = new JSONObject();
+        message.put("event", event);
+        message.put("pair", pairs);
+        message.put("subscription", subscription);
+        return message.toString();
+    }
+
+    /**
+     * Renews the book subscription of one pair, so Kraken sends a new snapshot.
+     *
+     * @param pair The WebSocket pair name, e.g. "XBT/USD"
+     */
+    private void resubscribeBook(String pair) {
+        MarketDataShard shard = getShard(pair);
+        if (shard == null) {
+            logBuilder.append("No Kraken WebSocket connection carries ").append(pair).append("\n");
+            return;
         }
+        JSONArray pairs = new JSONArray();
+        pairs.put(pair);
+        shard.send(subscriptionMessage("unsubscribe", pairs, bookSubscription()));
+        shard.send(subscriptionMessage("subscribe", pairs, bookSubscription()));
+        bookResubscriptions.incrementAndGet();
+    }
+
+    /**
+     * Books built from WebSocket updates keep the subscribed depth.
+     */
+    @Override
+    protected OrderBook newOrderBook(String symbol) {
+        return new OrderBook(symbol, BOOK_DEPTH);
     }
 
     /**
-     * Closes the WebSocket connection.
+     * Applies book updates through the symbol's {@link KrakenBook} and checks
+     * the checksum sent with each one. Updates that arrive between a failed
+     * checksum and the new snapshot are ignored, and the failed book is
+     * emptied so no signal is taken from it in the meantime.
      */
     @Override
-    public void closeWebSocket() {
-        if (webSocket != null) {
-            webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "Closing connection");
-            websocketConnected = false;
-            logBuilder.append("Kraken WebSocket connection closed\n");
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type != MarketDataEvent.Type.BOOK) {
+            super.applyMarketDataEvent(event);
+            return;
+        }
+
+        KrakenBook book = books.computeIfAbsent(event.symbol, s -> new KrakenBook(BOOK_DEPTH));
+        if (event.snapshot) {
+            book.clear();
+            book.setSynced(true);
+        } else if (!book.isSynced()) {
+            return;
+        }
+        book.apply(event.asks, false);
+        book.apply(event.bids, true);
+
+        OrderBook orderBook = orderBookCache.get(event.symbol);
+        if (event.checksum >= 0) {
+            long checksum = book.checksum();
+            if (checksum >= 0) {
+                checksumsVerified.incrementAndGet();
+                if (checksum != event.checksum) {
+                    checksumFailures.incrementAndGet();
+                    book.clear();
+                    book.setSynced(false);
+                    if (orderBook != null) {
+                        orderBook.clear();
+                    }
+                    logBuilder.append("Kraken book checksum mismatch for ").append(event.symbol)
+                            .append(": expected ").append(event.checksum).append(", computed ")
+                            .append(checksum).append("; resubscribing\n");
+                    resubscribeBook(event.symbol);
+                    return;
+                }
+            }
+        }
+
+        if (orderBook == null) {
+            orderBook = newOrderBook(event.symbol);
         }
+        book.copyTo(orderBook);
+        orderBook.touch(event.receivedNanos, event.exchangeTimeNanos());
+        updateOrderBook(event.symbol, orderBook);
     }
 
     /**
-     * WebSocket listener for Kraken data.
+     * @return Book updates whose checksum was verified
      */
-    private class KrakenWebSocketListener implements WebSocket.Listener {
-        private StringBuilder buffer = new StringBuilder();
+    public long getChecksumVerifiedCount() {
+        return checksumsVerified.get();
+    }
+
+    /**
+     * @return Book updates whose checksum did not match
+     */
+    public long getChecksumFailureCount() {
+        return checksumFailures.get();
+    }
+
+    /**
+     * @return Book subscriptions renewed after a checksum failure
+     */
+    public long getBookResubscriptionCount() {
+        return bookResubscriptions.get();
+    }
+
+    /**
+     * @return The number of books currently in sync
+     */
+    public int getSyncedBookCount() {
+        int synced = 0;
+        for (KrakenBook book : books.values()) {
+            if (book.isSynced()) {
+                synced++;
+            }
+        }
+        return synced;
+    }
+
+    /**
+     * @return A one-line summary of book integrity
+     */
+    public String getBookChecksumStatus() {
+        return String.format("%s books: %d/%d in sync, %d checksums verified, %d failures, %d resubscriptions",
+                getExchangeName(), getSyncedBookCount(), books.size(), checksumsVerified.get(),
+                checksumFailures.get(), bookResubscriptions.get());
+    }
+
+    /**
+     * WebSocket listener for one Kraken connection.
+     */
+    class KrakenWebSocketListener implements WebSocket.Listener {
+        private final MarketDataShard shard;
+
+        // Holds fragments of a message split across several frames
+        private final StringBuilder buffer = new StringBuilder();
+
+        private final MarketDataJson json = new MarketDataJson();
+
+        // Decoded message, reused for every message on this socket
+        private final MarketDataEvent event = new MarketDataEvent();
+
+        KrakenWebSocketListener(MarketDataShard shard) {
+            this.shard = shard;
+        }
 
         @Override
         public void onOpen(WebSocket webSocket) {
@@ -404,11 +562,13 @@ public class KrakenExchangeService extends ExchangeService {
 
         @Override
         public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
-            buffer.append(data);
-            if (last) {
-                String message = buffer.toString();
-                buffer = new StringBuilder();
-                processMessage(message);
+            shard.onMessage();
+            if (!last) {
+                buffer.append(data);
+            } else {
+                // Single-frame messages are parsed straight from the frame
+                processMessage(buffer.length() == 0 ? data : buffer.append(data));
+                buffer.setLength(0);
             }
             return WebSocket.Listener.super.onText(webSocket, data, last);
         }
@@ -417,7 +577,7 @@ public class KrakenExchangeService extends ExchangeService {
         public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
             logBuilder.append("Kraken WebSocket closed: ").append(statusCode)
                     .append(", reason: ").append(reason).append("\n");
-            websocketConnected = false;
+            shard.onClosed(webSocket, "closed with status " + statusCode);
             return WebSocket.Listener.super.onClose(webSocket, statusCode, reason);
         }
 
@@ -425,132 +585,159 @@ public class KrakenExchangeService extends ExchangeService {
         public void onError(WebSocket webSocket, Throwable error) {
             logBuilder.append("Kraken WebSocket error: ").append(error.getMessage()).append("\n");
             error.printStackTrace();
-            websocketConnected = false;
+            shard.onClosed(webSocket, "error: " + error.getMessage());
             WebSocket.Listener.super.onError(webSocket, error);
         }
 
+        @Override
+        public CompletionStage<?> onPong(WebSocket webSocket, ByteBuffer message) {
+            shard.onMessage();
+            return WebSocket.Listener.super.onPong(webSocket, message);
+        }
+
         /**
          * Processes the WebSocket message and updates the cache.
+         *
+         * Data messages are arrays of [channelID, payload..., channelName, pair];
+         * book updates may carry two payload objects, so the channel name and pair
+         * are the last two strings of the array rather than fixed positions.
+         * Payloads are decoded before the channel is known and published afterwards.
          */
-        private void processMessage(String message) {
-            try {
-                // Kraken's WebSocket messages can be arrays or objects.
-                if (message.startsWith("[")) {
-                    JSONArray data = new JSONArray(message);
-
-                    // Check if this is a data message.
-                    if (data.length() >= 3 && !data.isNull(1)) {
-                        String channelName = data.optString(1);
-                        String pair = data.optString(3); // The pair name.
-
-                        if ("ticker".equals(channelName)) {
-                            JSONObject tickerData = data.getJSONObject(1);
-
-                            JSONArray bidData = tickerData.getJSONArray("b");
-                            double bidPrice = bidData.getDouble(0);
-
-                            JSONArray askData = tickerData.getJSONArray("a");
-                            double askPrice = askData.getDouble(0);
-
-                            JSONArray lastData = tickerData.getJSONArray("c");
-                            double lastPrice = lastData.getDouble(0);
-
-                            JSONArray volumeData = tickerData.getJSONArray("v");
-                            double volume = volumeData.getDouble(1); // 24h volume.
-
-                            Ticker ticker = new Ticker(bidPrice, askPrice, lastPrice, volume, new Date());
-                            tickerCache.put(pair, ticker);
-                        }
-                        else if ("book".equals(channelName)) {
-                            JSONObject bookData = data.getJSONObject(1);
-
-                            // Get current order book or create new one.
-                            OrderBook currentBook = orderBookCache.get(pair);
-                            List<OrderBookEntry> bids = new ArrayList<>();
-                            List<OrderBookEntry> asks = new ArrayList<>();
-
-                            if (currentBook != null) {
-                                bids = new ArrayList<>(currentBook.getBids());
-                                asks = new ArrayList<>(currentBook.getAsks());
-                            }
-
-                            // Process bids if present.
-                            if (bookData.has("bs")) {
-                                JSONArray newBids = bookData.getJSONArray("bs");
-                                for (int i = 0; i < newBids.length(); i++) {
-                                    JSONArray entry = newBids.getJSONArray(i);
-                                    double price = Double.parseDouble(entry.getString(0));
-                                    double volume = Double.parseDouble(entry.getString(1));
-
-                                    boolean found = false;
-                                    for (int j = 0; j < bids.size(); j++) {
-                                        if (bids.get(j).getPrice() == price) {
-                                            if (volume > 0) {
-                                                bids.set(j, new OrderBookEntry(price, volume));
-                                            } else {
-                                                bids.remove(j);
-                                            }
-                                            found = true;
-                                            break;
-                                        }
-                                    }
-                                    if (!found && volume > 0) {
-                                        bids.add(new OrderBookEntry(price, volume));
-                                    }
-                                }
-                            }
-
-                            // Process asks if present.
-                            if (bookData.has("as")) {
-                                JSONArray newAsks = bookData.getJSONArray("as");
-                                for (int i = 0; i < newAsks.length(); i++) {
-                                    JSONArray entry = newAsks.getJSONArray(i);
-                                    double price = Double.parseDouble(entry.getString(0));
-                                    double volume = Double.parseDouble(entry.getString(1));
-
-                                    boolean found = false;
-                                    for (int j = 0; j < asks.size(); j++) {
-                                        if (asks.get(j).getPrice() == price) {
-                                            if (volume > 0) {
-                                                asks.set(j, new OrderBookEntry(price, volume));
-                                            } else {
-                                                asks.remove(j);
-                                            }
-                                            found = true;
-                                            break;
-                                        }
-                                    }
-                                    if (!found && volume > 0) {
-                                        asks.add(new OrderBookEntry(price, volume));
-                                    }
-                                }
-                            }
-
-                            // Sort bids descending and asks ascending.
-                            bids.sort((e1, e2) -> Double.compare(e2.getPrice(), e1.getPrice()));
-                            asks.sort((e1, e2) -> Double.compare(e1.getPrice(), e2.getPrice()));
-
-                            OrderBook newBook = new OrderBook(pair, bids, asks, new Date());
-                            orderBookCache.put(pair, newBook);
+        void processMessage(CharSequence message) {
+            String channelName = null;
+            String pair = null;
+            String status = null;
+            event.reset(getClock().epochNanos());
+
+            try (JsonParser parser = json.open(message)) {
+                JsonToken first = parser.nextToken();
+                if (first == JsonToken.START_ARRAY) {
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                        if (token == JsonToken.START_OBJECT) {
+                            readPayload(parser);
+                        } else if (token == JsonToken.VALUE_STRING) {
+                            channelName = pair;
+                            pair = parser.getText();
+                        } else {
+                            parser.skipChildren();
                         }
                     }
-                }
-                else if (message.startsWith("{")) {
-                    JSONObject json = new JSONObject(message);
-                    if (json.has("status")) {
-                        String status = json.getString("status");
-                        if ("subscribed".equals(status)) {
-                            logBuilder.append("Kraken subscription confirmed: ").append(json.toString()).append("\n");
-                        } else if ("error".equals(status)) {
-                            logBuilder.append("Kraken subscription error: ").append(json.toString()).append("\n");
+                } else if (first == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.getCurrentName();
+                        parser.nextToken();
+                        if ("status".equals(field)) {
+                            status = parser.getText();
+                        } else {
+                            parser.skipChildren();
                         }
                     }
                 }
-            } catch (Exception e) {
+            } catch (IOException e) {
                 logBuilder.append("Exception in processing Kraken WebSocket message: ")
                         .append(e.getMessage()).append("\n");
-                e.printStackTrace();
+                return;
+            }
+
+            if (status != null) {
+                if ("subscribed".equals(status)) {
+                    logBuilder.append("Kraken subscription confirmed: ").append(message).append("\n");
+                } else if ("error".equals(status)) {
+                    logBuilder.append("Kraken subscription error: ").append(message).append("\n");
+                }
+                return;
+            }
+            if (channelName == null || pair == null) {
+                return;
+            }
+
+            event.symbol = pair;
+            if ("ticker".equals(channelName)) {
+                if (Double.isNaN(event.bidPrice) || Double.isNaN(event.askPrice)) {
+                    return;
+                }
+                event.type = MarketDataEvent.Type.TICKER;
+                shard.publish(event);
+            } else if (channelName.startsWith("book")) {
+                // A snapshot replaces the book; updates are applied to the cached one in place
+                event.type = MarketDataEvent.Type.BOOK;
+                shard.publish(event);
+            }
+        }
+
+        /**
+         * Reads one payload object of a ticker or book message.
+         */
+        private void readPayload(JsonParser parser) throws IOException {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "as":
+                        event.snapshot = true;
+                        MarketDataJson.readLevels(parser, event.asks, true);
+                        break;
+                    case "bs":
+                        event.snapshot = true;
+                        MarketDataJson.readLevels(parser, event.bids, true);
+                        break;
+                    case "a":
+                        event.askPrice = readTickerOrLevels(parser, event.asks);
+                        break;
+                    case "b":
+                        event.bidPrice = readTickerOrLevels(parser, event.bids);
+                        break;
+                    case "c":
+                        // [price, lot volume] on the ticker channel, a checksum string on the book channel
+                        if (value == JsonToken.START_ARRAY) {
+                            event.lastPrice = MarketDataJson.readDoubleElement(parser, 0);
+                        } else if (value == JsonToken.VALUE_STRING) {
+                            event.checksum = parseChecksum(parser.getText());
+                        }
+                        break;
+                    case "v":
+                        // [today, last 24 hours]
+                        event.volume = MarketDataJson.readDoubleElement(parser, 1);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        /**
+         * Reads an "a" or "b" field, which is a [price, wholeLotVolume, lotVolume]
+         * array on the ticker channel and a list of levels on the book channel.
+         *
+         * @return The ticker price, or NaN if the field held book levels
+         */
+        private double readTickerOrLevels(JsonParser parser, BookLevelBuffer levels) throws IOException {
+            if (parser.currentToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                return Double.NaN;
+            }
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                do {
+                    MarketDataJson.readLevel(parser, levels, true);
+                } while (parser.nextToken() == JsonToken.START_ARRAY);
+                return Double.NaN;
+            }
+            double price = token == JsonToken.END_ARRAY ? Double.NaN : MarketDataJson.readDouble(parser);
+            while (token != JsonToken.END_ARRAY && token != null) {
+                token = parser.nextToken();
+                parser.skipChildren();
+            }
+            return price;
+        }
+
+        private long parseChecksum(String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return -1;
             }
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
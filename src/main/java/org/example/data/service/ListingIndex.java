@@ -0,0 +1,243 @@
+package org.example.data.service;
+
+import org.example.data.model.TradingPair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cross-exchange index of instrument listings.
+ *
+ * Groups every exchange's trading pairs by instrument (pairs compare equal
+ * across exchange formats) and precomputes which instruments are listed on
+ * how many exchanges, so "pairs common to at least two exchanges" or "pairs
+ * common to these exchanges" is a lookup rather than a rebuild on every scan.
+ *
+ * The index is rebuilt by {@link #refresh(List)} only when an exchange's
+ * trading pair list or the set of exchanges changed. Readers always see a
+ * complete, immutable snapshot.
+ */
+public class ListingIndex {
+
+    // Current snapshot, replaced as a whole on rebuild
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), new LinkedHashMap<>());
+
+    // Trading pair lists the snapshot was built from, compared by identity
+    private final Map<ExchangeService, List<TradingPair>> sources = new IdentityHashMap<>();
+
+    /**
+     * Rebuilds the index if the exchanges or their trading pair lists changed
+     * since the last call.
+     *
+     * @param exchanges The exchanges to index, at most 64
+     * @return true if the index was rebuilt
+     */
+    public synchronized boolean refresh(List<ExchangeService> exchanges) {
+        if (exchanges.size() > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " exchanges can be indexed");
+        }
+
+        Map<ExchangeService, List<TradingPair>> current = new IdentityHashMap<>();
+        for (ExchangeService exchange : exchanges) {
+            List<TradingPair> pairs = exchange.getTradingPairs();
+            current.put(exchange, pairs != null ? pairs : Collections.emptyList());
+        }
+        if (!hasChanged(exchanges, current)) {
+            return false;
+        }
+
+        Map<TradingPair, Listing> listings = new LinkedHashMap<>();
+        for (int i = 0; i < exchanges.size(); i++) {
+            ExchangeService exchange = exchanges.get(i);
+            for (TradingPair pair : current.get(exchange)) {
+                Listing listing = listings.computeIfAbsent(pair, p -> new Listing(p, exchanges.size()));
+                // The first listing of an instrument on an exchange is the one used to address it
+                if (listing.byExchange[i] == null) {
+                    listing.byExchange[i] = pair;
+                    listing.mask |= 1L << i;
+                }
+            }
+        }
+
+        sources.clear();
+        sources.putAll(current);
+        snapshot = new Snapshot(new ArrayList<>(exchanges), listings);
+        return true;
+    }
+
+    private boolean hasChanged(List<ExchangeService> exchanges, Map<ExchangeService, List<TradingPair>> current) {
+        if (!snapshot.exchanges.equals(exchanges)) {
+            return true;
+        }
+        for (Map.Entry<ExchangeService, List<TradingPair>> entry : current.entrySet()) {
+            if (sources.get(entry.getKey()) != entry.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the instruments listed on at least the given number of exchanges.
+     *
+     * @param minExchanges Minimum number of listing exchanges
+     * @return The instruments, each as listed on the first exchange that lists it
+     */
+    public List<TradingPair> getPairsListedOn(int minExchanges) {
+        Snapshot current = snapshot;
+        if (minExchanges <= 0) {
+            minExchanges = 1;
+        }
+        if (minExchanges >= current.byMinExchanges.size()) {
+            return Collections.emptyList();
+        }
+        return current.byMinExchanges.get(minExchanges);
+    }
+
+    /**
+     * Returns the instruments listed on every one of the given exchanges. The
+     * result is computed once per exchange combination and snapshot.
+     *
+     * @param exchanges The exchanges
+     * @return The common instruments, empty if an exchange is not indexed
+     */
+    public List<TradingPair> getCommonPairs(Collection<ExchangeService> exchanges) {
+        Snapshot current = snapshot;
+        long mask = 0;
+        for (ExchangeService exchange : exchanges) {
+            int index = current.indexOf(exchange);
+            if (index < 0) {
+                return Collections.emptyList();
+            }
+            mask |= 1L << index;
+        }
+        return current.commonPairs(mask);
+    }
+
+    /**
+     * Returns how an exchange lists an instrument.
+     *
+     * @param pair The instrument, in any exchange's format
+     * @param exchange The exchange
+     * @return The exchange's own pair, or null if it does not list the instrument
+     */
+    public TradingPair getListing(TradingPair pair, ExchangeService exchange) {
+        Snapshot current = snapshot;
+        Listing listing = current.listings.get(pair);
+        int index = current.indexOf(exchange);
+        return listing != null && index >= 0 ? listing.byExchange[index] : null;
+    }
+
+    /**
+     * Returns every listing of an instrument.
+     *
+     * @param pair The instrument, in any exchange's format
+     * @return Exchange -> the exchange's own pair, in exchange order
+     */
+    public Map<ExchangeService, TradingPair> getListings(TradingPair pair) {
+        Snapshot current = snapshot;
+        Listing listing = current.listings.get(pair);
+        if (listing == null) {
+            return Collections.emptyMap();
+        }
+        Map<ExchangeService, TradingPair> result = new LinkedHashMap<>();
+        for (int i = 0; i < current.exchanges.size(); i++) {
+            if (listing.byExchange[i] != null) {
+                result.put(current.exchanges.get(i), listing.byExchange[i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param pair The instrument, in any exchange's format
+     * @return The number of indexed exchanges listing the instrument
+     */
+    public int getExchangeCount(TradingPair pair) {
+        Listing listing = snapshot.listings.get(pair);
+        return listing != null ? Long.bitCount(listing.mask) : 0;
+    }
+
+    /**
+     * @return The number of distinct instruments indexed
+     */
+    public int size() {
+        return snapshot.listings.size();
+    }
+
+    /**
+     * The listings of one instrument.
+     */
+    private static final class Listing {
+        final TradingPair pair;
+        // Each exchange's own pair, by exchange index
+        final TradingPair[] byExchange;
+        // Bit i set if exchange i lists the instrument
+        long mask;
+
+        Listing(TradingPair pair, int exchangeCount) {
+            this.pair = pair;
+            this.byExchange = new TradingPair[exchangeCount];
+        }
+    }
+
+    /**
+     * An immutable view of the index, with its lookups precomputed.
+     */
+    private static final class Snapshot {
+        final List<ExchangeService> exchanges;
+        final Map<ExchangeService, Integer> exchangeIndexes = new IdentityHashMap<>();
+        final Map<TradingPair, Listing> listings;
+
+        // Index n: instruments listed on at least n exchanges
+        final List<List<TradingPair>> byMinExchanges = new ArrayList<>();
+
+        // Exchange bit mask -> instruments listed on all of those exchanges, filled on demand
+        final Map<Long, List<TradingPair>> commonPairsByMask = new ConcurrentHashMap<>();
+
+        Snapshot(List<ExchangeService> exchanges, Map<TradingPair, Listing> listings) {
+            this.exchanges = exchanges;
+            this.listings = listings;
+            for (int i = 0; i < exchanges.size(); i++) {
+                exchangeIndexes.put(exchanges.get(i), i);
+            }
+
+            List<List<TradingPair>> lists = new ArrayList<>();
+            for (int n = 0; n <= exchanges.size(); n++) {
+                lists.add(new ArrayList<>());
+            }
+            for (Listing listing : listings.values()) {
+                int count = Long.bitCount(listing.mask);
+                for (int n = 1; n <= count; n++) {
+                    lists.get(n).add(listing.pair);
+                }
+            }
+            for (List<TradingPair> list : lists) {
+                byMinExchanges.add(Collections.unmodifiableList(list));
+            }
+        }
+
+        int indexOf(ExchangeService exchange) {
+            Integer index = exchangeIndexes.get(exchange);
+            return index != null ? index : -1;
+        }
+
+        List<TradingPair> commonPairs(long mask) {
+            return commonPairsByMask.computeIfAbsent(mask, m -> {
+                List<TradingPair> common = new ArrayList<>();
+                for (Listing listing : listings.values()) {
+                    if ((listing.mask & m) == m) {
+                        common.add(listing.pair);
+                    }
+                }
+                return Collections.unmodifiableList(common);
+            });
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.data.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link MarketDataJournal} files mapped read-only once, so they can be
+ * replayed any number of times, by any number of threads at once.
+ *
+ * Every reader gets its own view of a mapping, with its own position, so
+ * replays running side by side share the mapped pages and nothing else. The
+ * mappings are never written, and are released when this object is
+ * collected.
+ */
+public final class MappedJournalFiles {
+
+    private final List<Path> files;
+    private final List<ByteBuffer> mappings;
+    private final long size;
+
+    private MappedJournalFiles(List<Path> files, List<ByteBuffer> mappings, long size) {
+        this.files = files;
+        this.mappings = mappings;
+        this.size = size;
+    }
+
+    /**
+     * Maps journal files read-only.
+     *
+     * @param files The journal files, in the order they were written
+     * @return The mapped files
+     * @throws IOException if a file cannot be mapped
+     */
+    public static MappedJournalFiles map(List<Path> files) throws IOException {
+        List<Path> paths = List.copyOf(files);
+        List<ByteBuffer> mappings = new ArrayList<>(paths.size());
+        long size = 0;
+        for (Path file : paths) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                mappings.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                size += channel.size();
+            }
+        }
+        return new MappedJournalFiles(paths, Collections.unmodifiableList(mappings), size);
+    }
+
+    /**
+     * @return The journal files, in the order they were written
+     */
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    /**
+     * @return The total size of the mapped files in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Opens a reader over a file's mapping, with a position of its own.
+     *
+     * @param index The index of the file in {@link #getFiles()}
+     * @return The reader
+     * @throws IOException if the file is not a journal
+     */
+    MarketDataJournalReader openReader(int index) throws IOException {
+        // duplicate() only reads the mapping's position and limit, which never change
+        return new MarketDataJournalReader(files.get(index), mappings.get(index).duplicate());
+    }
+}
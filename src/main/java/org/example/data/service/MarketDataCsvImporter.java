@@ -0,0 +1,125 @@
+package org.example.data.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts market data kept as CSV into {@link MarketDataJournal} files, so
+ * that history from other sources can be replayed like a recording.
+ *
+ * Converting once and replaying the journal is much faster than parsing the
+ * text on every replay, which matters when the same data is backtested many
+ * times. Each line is one update, in the order it happened:
+ * <pre>
+ * time,exchange,symbol,ticker,bid,ask[,last[,volume]]
+ * time,exchange,symbol,book,bids,asks
+ * </pre>
+ * The time is in epoch milliseconds or an ISO-8601 instant. A book line is a
+ * full snapshot; each side lists its levels best first as
+ * {@code price:size} pairs separated by semicolons. Blank lines, lines
+ * starting with {@code #} and a header line starting with {@code time} are
+ * skipped.
+ */
+public final class MarketDataCsvImporter {
+
+    private MarketDataCsvImporter() {
+    }
+
+    /**
+     * Appends the updates of a CSV file to a journal directory.
+     *
+     * @param csvFile The CSV file
+     * @param journalDirectory The directory to write journal files to
+     * @param fileSize The size of each journal file in bytes
+     * @return The number of updates written
+     * @throws IOException if a file cannot be read or written, or a line is malformed
+     */
+    public static long importFile(Path csvFile, Path journalDirectory, int fileSize) throws IOException {
+        MarketDataEvent event = new MarketDataEvent();
+        Map<String, Integer> exchangeIds = new HashMap<>();
+        // Symbol IDs per exchange, numbered from 0 in order of appearance
+        Map<String, Map<String, Integer>> symbolIds = new HashMap<>();
+        long written = 0;
+        int lineNumber = 0;
+
+        try (MarketDataJournal journal = new MarketDataJournal(journalDirectory, fileSize);
+             BufferedReader reader = Files.newBufferedReader(csvFile, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("time")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                try {
+                    parse(fields, event);
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IOException(csvFile + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                String exchange = fields[1].trim();
+                int exchangeId = exchangeIds.computeIfAbsent(exchange, journal::registerExchange);
+                Map<String, Integer> symbols = symbolIds.computeIfAbsent(exchange, e -> new HashMap<>());
+                int symbolId = symbols.computeIfAbsent(event.symbol, s -> symbols.size());
+                journal.record(exchangeId, symbolId, event);
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void parse(String[] fields, MarketDataEvent event) {
+        if (fields.length < 6) {
+            throw new IllegalArgumentException("expected at least 6 fields, got " + fields.length);
+        }
+        event.reset(parseTime(fields[0].trim()) * 1_000_000);
+        event.symbol = fields[2].trim();
+        String type = fields[3].trim();
+        if ("ticker".equalsIgnoreCase(type)) {
+            event.type = MarketDataEvent.Type.TICKER;
+            event.bidPrice = Double.parseDouble(fields[4].trim());
+            event.askPrice = Double.parseDouble(fields[5].trim());
+            if (fields.length > 6 && !fields[6].isBlank()) {
+                event.lastPrice = Double.parseDouble(fields[6].trim());
+            }
+            if (fields.length > 7 && !fields[7].isBlank()) {
+                event.volume = Double.parseDouble(fields[7].trim());
+            }
+        } else if ("book".equalsIgnoreCase(type)) {
+            event.type = MarketDataEvent.Type.BOOK;
+            event.snapshot = true;
+            parseLevels(fields[4], event.bids);
+            parseLevels(fields[5], event.asks);
+        } else {
+            throw new IllegalArgumentException("unknown update type " + type);
+        }
+    }
+
+    private static long parseTime(String text) {
+        if (!text.isEmpty() && Character.isDigit(text.charAt(text.length() - 1)) && text.indexOf('T') < 0) {
+            return Long.parseLong(text);
+        }
+        return Instant.parse(text).toEpochMilli();
+    }
+
+    private static void parseLevels(String text, BookLevelBuffer levels) {
+        for (String level : text.split(";")) {
+            level = level.trim();
+            if (level.isEmpty()) {
+                continue;
+            }
+            int colon = level.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("book level " + level + " is not price:size");
+            }
+            levels.add(Double.parseDouble(level.substring(0, colon)), Double.parseDouble(level.substring(colon + 1)));
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package org.example.data.service;
+
+import org.example.data.interfaces.IClock;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Hands decoded market data updates from a WebSocket thread to a dedicated
+ * consumer thread that applies them to the caches.
+ *
+ * The hand-off is a bounded single-producer/single-consumer ring of
+ * preallocated events: the WebSocket thread of one connection is the only
+ * producer and the dispatcher's own thread the only consumer, so publishing is
+ * a copy into a free slot and an ordered store of the tail index. Slow work
+ * downstream (book application, listeners, strategy evaluation) no longer
+ * delays reading the socket.
+ *
+ * When the ring is full the {@link BackpressurePolicy} decides what happens.
+ */
+public class MarketDataDispatcher {
+
+    /**
+     * What the producer does when the ring is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Wait for a free slot. Nothing is dropped, and the wait pushes back on
+         * the socket.
+         */
+        BLOCK,
+        /**
+         * Keep only the latest ticker per symbol until the consumer catches up.
+         * Book updates are incremental and cannot be merged, so they still wait.
+         */
+        CONFLATE
+    }
+
+    // Consumer spins this many empty polls before parking
+    private static final int SPIN_LIMIT = 200;
+
+    // Upper bound on a consumer park, in case an unpark is missed
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final BackpressurePolicy policy;
+    private final IClock clock;
+    private final Consumer<MarketDataEvent> handler;
+
+    // Ring of preallocated events; capacity is a power of two
+    private final MarketDataEvent[] ring;
+    private final int mask;
+
+    // Next slot the producer writes and next slot the consumer reads
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    // Latest ticker per symbol held back while the ring is full (CONFLATE only)
+    private final Map<String, MarketDataEvent> conflated = new ConcurrentHashMap<>();
+
+    private final Thread consumerThread;
+    private volatile boolean running = true;
+    private volatile boolean consumerParked = false;
+
+    // Metrics
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong consumedCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private volatile long maxQueueDepth;
+
+    /**
+     * Creates a dispatcher and starts its consumer thread.
+     *
+     * @param name Name of the consumer thread and of the metrics
+     * @param capacity Ring capacity, rounded up to a power of two
+     * @param policy What to do when the ring is full
+     * @param handler Applies an event; runs on the consumer thread only
+     */
+    public MarketDataDispatcher(String name, int capacity, BackpressurePolicy policy,
+                                Consumer<MarketDataEvent> handler) {
+        this(name, capacity, policy, SystemClock.INSTANCE, handler);
+    }
+
+    /**
+     * Creates a dispatcher and starts its consumer thread.
+     *
+     * @param name Name of the consumer thread and of the metrics
+     * @param capacity Ring capacity, rounded up to a power of two
+     * @param policy What to do when the ring is full
+     * @param clock The clock events are stamped with, for the hand-off latency
+     * @param handler Applies an event; runs on the consumer thread only
+     */
+    public MarketDataDispatcher(String name, int capacity, BackpressurePolicy policy, IClock clock,
+                                Consumer<MarketDataEvent> handler) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.name = name;
+        this.policy = policy;
+        this.clock = clock;
+        this.handler = handler;
+        this.ring = new MarketDataEvent[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new MarketDataEvent();
+        }
+
+        this.consumerThread = new Thread(this::runConsumer, name);
+        this.consumerThread.setDaemon(true);
+        this.consumerThread.start();
+    }
+
+    /**
+     * Publishes a decoded event. Must only be called from the producer thread.
+     * The event is copied, so the caller may reuse it immediately.
+     *
+     * @param event The event to publish
+     */
+    void publish(MarketDataEvent event) {
+        publishedCount.incrementAndGet();
+
+        if (policy == BackpressurePolicy.CONFLATE && event.isConflatable()) {
+            // Once tickers are being conflated, later ones must not overtake them through the ring
+            if (!conflated.isEmpty() || isFull()) {
+                conflate(event);
+                return;
+            }
+        }
+
+        long position = tail.get();
+        if (position - head.get() >= ring.length) {
+            waitForSlot(position);
+        }
+        ring[(int) (position & mask)].copyFrom(event);
+        tail.lazySet(position + 1);
+
+        long depth = position + 1 - head.get();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+        if (consumerParked) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    private boolean isFull() {
+        return tail.get() - head.get() >= ring.length;
+    }
+
+    private void conflate(MarketDataEvent event) {
+        MarketDataEvent copy = new MarketDataEvent();
+        copy.copyFrom(event);
+        MarketDataEvent previous = conflated.get(event.symbol);
+        if (previous != null) {
+            // If the consumer takes the old entry meanwhile, merging only repeats its fields
+            copy.mergeMissingFrom(previous);
+        }
+        if (conflated.put(event.symbol, copy) != null) {
+            conflatedCount.incrementAndGet();
+        }
+        if (consumerParked) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    private void waitForSlot(long position) {
+        long start = System.nanoTime();
+        blockedCount.incrementAndGet();
+        int spins = 0;
+        while (position - head.get() >= ring.length && running) {
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS / 10);
+            }
+        }
+        blockedNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private void runConsumer() {
+        int idle = 0;
+        while (running) {
+            int drained = drain();
+            if (drained > 0) {
+                idle = 0;
+            } else if (++idle < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                consumerParked = true;
+                if (tail.get() == head.get() && conflated.isEmpty()) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                consumerParked = false;
+            }
+        }
+    }
+
+    /**
+     * Applies every queued event, then any conflated tickers, which are newer
+     * than the ticker events still in the ring.
+     */
+    private int drain() {
+        int drained = 0;
+        long position = head.get();
+        long available = tail.get();
+        while (position < available) {
+            handle(ring[(int) (position & mask)]);
+            position++;
+            head.lazySet(position);
+            drained++;
+        }
+
+        if (!conflated.isEmpty()) {
+            Iterator<Map.Entry<String, MarketDataEvent>> iterator = conflated.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, MarketDataEvent> entry = iterator.next();
+                MarketDataEvent event = entry.getValue();
+                if (conflated.remove(entry.getKey(), event)) {
+                    handle(event);
+                    drained++;
+                }
+            }
+        }
+        return drained;
+    }
+
+    private void handle(MarketDataEvent event) {
+        totalLatencyNanos.addAndGet(clock.epochNanos() - event.receivedNanos);
+        consumedCount.incrementAndGet();
+        handler.accept(event);
+    }
+
+    /**
+     * Stops the consumer thread. Events still queued are discarded.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(consumerThread);
+    }
+
+    /**
+     * @return The dispatcher name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The backpressure policy
+     */
+    public BackpressurePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return The ring capacity
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return The number of events waiting in the ring
+     */
+    public long getQueueDepth() {
+        return Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return The largest ring depth observed
+     */
+    public long getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return The number of conflated tickers waiting to be applied
+     */
+    public int getConflatedPending() {
+        return conflated.size();
+    }
+
+    /**
+     * @return The number of events published
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * @return The number of events applied
+     */
+    public long getConsumedCount() {
+        return consumedCount.get();
+    }
+
+    /**
+     * @return The number of tickers replaced by a newer one before being applied
+     */
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
+
+    /**
+     * @return The number of times the producer waited for a free slot
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * @return Total time the producer spent waiting for free slots, in milliseconds
+     */
+    public double getBlockedMillis() {
+        return blockedNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * @return Average time from receiving a message to applying it, in microseconds
+     */
+    public double getAverageLatencyMicros() {
+        long consumed = consumedCount.get();
+        return consumed == 0 ? 0 : totalLatencyNanos.get() / (double) consumed / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: depth %d/%d (max %d), %d published, %d applied, %d conflated, "
+                        + "%d blocked (%.1f ms), avg latency %.1f us",
+                name, getQueueDepth(), getCapacity(), getMaxQueueDepth(), getPublishedCount(),
+                getConsumedCount(), getConflatedCount(), getBlockedCount(), getBlockedMillis(),
+                getAverageLatencyMicros());
+    }
+}
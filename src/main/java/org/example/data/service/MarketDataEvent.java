@@ -0,0 +1,122 @@
+package org.example.data.service;
+
+/**
+ * A decoded market data update, handed from a WebSocket listener to the code
+ * that applies it to the caches.
+ *
+ * Instances are mutable and reused: each listener decodes into its own scratch
+ * event, and {@link MarketDataDispatcher} copies it into a preallocated ring slot.
+ * Fields that a message did not carry are NaN.
+ */
+final class MarketDataEvent {
+
+    enum Type {
+        // Best bid/ask and optionally last price, volume and top-of-book sizes
+        TICKER,
+        // Order book levels; a snapshot replaces the book, otherwise levels are deltas
+        BOOK
+    }
+
+    Type type;
+    String symbol;
+    boolean snapshot;
+    double bidPrice;
+    double askPrice;
+    double lastPrice;
+    double volume;
+    double bidSize;
+    double askSize;
+    final BookLevelBuffer bids = new BookLevelBuffer();
+    final BookLevelBuffer asks = new BookLevelBuffer();
+
+    // Exchange sequence numbers of the first and last change in a book update, -1 if not sent
+    long firstUpdateId;
+    long lastUpdateId;
+
+    // Book checksum sent with the update (unsigned 32-bit CRC), -1 if not sent
+    long checksum;
+
+    // Exchange timestamp of the update in epoch milliseconds, -1 if not sent
+    long exchangeTimeMillis;
+
+    // When the message was received, in epoch nanoseconds from the exchange's clock
+    long receivedNanos;
+
+    /**
+     * Clears the event before decoding a new message into it.
+     *
+     * @param receivedNanos When the message was received, in epoch nanoseconds
+     */
+    void reset(long receivedNanos) {
+        type = null;
+        symbol = null;
+        snapshot = false;
+        bidPrice = Double.NaN;
+        askPrice = Double.NaN;
+        lastPrice = Double.NaN;
+        volume = Double.NaN;
+        bidSize = Double.NaN;
+        askSize = Double.NaN;
+        bids.clear();
+        asks.clear();
+        firstUpdateId = -1;
+        lastUpdateId = -1;
+        checksum = -1;
+        exchangeTimeMillis = -1;
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * @return The exchange timestamp in epoch nanoseconds, or -1 if not sent
+     */
+    long exchangeTimeNanos() {
+        return exchangeTimeMillis >= 0 ? exchangeTimeMillis * 1_000_000 : -1;
+    }
+
+    /**
+     * Copies another event into this one, reusing this event's level arrays.
+     *
+     * @param other The event to copy
+     */
+    void copyFrom(MarketDataEvent other) {
+        type = other.type;
+        symbol = other.symbol;
+        snapshot = other.snapshot;
+        bidPrice = other.bidPrice;
+        askPrice = other.askPrice;
+        lastPrice = other.lastPrice;
+        volume = other.volume;
+        bidSize = other.bidSize;
+        askSize = other.askSize;
+        bids.copyFrom(other.bids);
+        asks.copyFrom(other.asks);
+        firstUpdateId = other.firstUpdateId;
+        lastUpdateId = other.lastUpdateId;
+        checksum = other.checksum;
+        exchangeTimeMillis = other.exchangeTimeMillis;
+        receivedNanos = other.receivedNanos;
+    }
+
+    /**
+     * Fills fields this event did not carry from an older event for the same
+     * symbol, so conflating partial ticker updates loses nothing.
+     *
+     * @param older The event being superseded
+     */
+    void mergeMissingFrom(MarketDataEvent older) {
+        bidPrice = Double.isNaN(bidPrice) ? older.bidPrice : bidPrice;
+        askPrice = Double.isNaN(askPrice) ? older.askPrice : askPrice;
+        lastPrice = Double.isNaN(lastPrice) ? older.lastPrice : lastPrice;
+        volume = Double.isNaN(volume) ? older.volume : volume;
+        bidSize = Double.isNaN(bidSize) ? older.bidSize : bidSize;
+        askSize = Double.isNaN(askSize) ? older.askSize : askSize;
+        receivedNanos = Math.min(receivedNanos, older.receivedNanos);
+    }
+
+    /**
+     * @return true if a later event for the same symbol supersedes this one
+     */
+    boolean isConflatable() {
+        return type == Type.TICKER;
+    }
+}
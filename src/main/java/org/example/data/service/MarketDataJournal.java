@@ -0,0 +1,348 @@
+package org.example.data.service;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records decoded market data updates to append-only journal files, so that
+ * what the caches saw can be reproduced after they have been overwritten.
+ *
+ * Each file is mapped into memory whole and written through its
+ * {@link MappedByteBuffer}; when the next record does not fit, the journal
+ * rolls over to a new file. Records are fixed-layout, little-endian and 8-byte
+ * aligned, and writing one allocates nothing, so recording costs a lock and a
+ * few dozen stores on the socket thread. Pages reach the disk when the OS
+ * flushes them, or on {@link #close()}.
+ *
+ * File layout: a header of {@link #FILE_HEADER_SIZE} bytes (magic, version,
+ * creation time in epoch milliseconds and in epoch nanoseconds) followed by records, ended by a zero
+ * type byte. Every record starts with the same {@link #RECORD_HEADER_SIZE}
+ * bytes:
+ * <pre>
+ *  0 byte  type
+ *  1 byte  exchange ID
+ *  2 short flags (book records) or text length (dictionary records)
+ *  4 int   symbol ID
+ *  8 long  receive time in epoch nanoseconds
+ * 16 long  exchange timestamp in epoch milliseconds, or -1 if not sent
+ * </pre>
+ * A ticker record continues with bid, ask, last, volume, bid size and ask size
+ * as doubles. A book record continues with the first and last update IDs, the
+ * checksum, the bid and ask level counts, then (price, size) pairs for the bids
+ * and then the asks, exactly as received: a full book for a snapshot and
+ * changed levels otherwise. Where a book is built from a REST snapshot and a
+ * diff stream (Binance), the snapshot is recorded too, as a snapshot whose
+ * first and last update IDs are the snapshot's lastUpdateId, so the diffs can
+ * be replayed on top of it.
+ *
+ * Exchange and symbol IDs are only meaningful inside one file: the first
+ * record of an exchange or symbol in a file is preceded by a dictionary record
+ * carrying its name, so every file can be read on its own.
+ */
+public class MarketDataJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x4A444D54;
+    // Version 1 stored System.nanoTime() receive times; readers still convert those
+    static final int VERSION = 2;
+    static final int FILE_HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 24;
+    static final int TICKER_RECORD_SIZE = RECORD_HEADER_SIZE + 6 * 8;
+    static final int BOOK_RECORD_HEADER_SIZE = RECORD_HEADER_SIZE + 3 * 8 + 2 * 4;
+    static final int LEVEL_SIZE = 16;
+
+    // Record types; 0 marks the end of the written part of a file
+    static final byte END = 0;
+    static final byte EXCHANGE = 1;
+    static final byte SYMBOL = 2;
+    static final byte TICKER = 3;
+    static final byte BOOK = 4;
+
+    static final short SNAPSHOT_FLAG = 1;
+
+    static final String FILE_PREFIX = "marketdata-";
+    static final String FILE_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int fileSize;
+
+    // Registered exchange names, indexed by exchange ID
+    private final List<String> exchangeNames = new ArrayList<>();
+
+    // What the current file has defined so far
+    private final boolean[] exchangesDefined = new boolean[256];
+    private final boolean[][] symbolsDefined = new boolean[256][];
+
+    private MappedByteBuffer buffer;
+    private int sequence;
+    private boolean closed;
+
+    // Metrics, written under the lock
+    private volatile long records;
+    private volatile long bytes;
+    private volatile long files;
+    private volatile long dropped;
+
+    /**
+     * Opens a journal in a directory, numbering new files after any already there.
+     *
+     * @param directory The directory to write to, created if missing
+     * @param fileSize The size of each file in bytes
+     * @throws IOException if the directory or the first file cannot be created
+     */
+    public MarketDataJournal(Path directory, int fileSize) throws IOException {
+        if (fileSize < FILE_HEADER_SIZE + 4096) {
+            throw new IllegalArgumentException("Journal files must be at least " + (FILE_HEADER_SIZE + 4096) + " bytes");
+        }
+        this.directory = directory;
+        this.fileSize = fileSize;
+        Files.createDirectories(directory);
+        this.sequence = nextSequence(directory);
+        roll();
+    }
+
+    /**
+     * Registers an exchange, returning the ID its records are written under.
+     *
+     * @param exchangeName The exchange name
+     * @return The exchange ID
+     */
+    public synchronized int registerExchange(String exchangeName) {
+        int id = exchangeNames.indexOf(exchangeName);
+        if (id >= 0) {
+            return id;
+        }
+        if (exchangeNames.size() > 255) {
+            throw new IllegalStateException("A journal holds at most 256 exchanges");
+        }
+        exchangeNames.add(exchangeName);
+        return exchangeNames.size() - 1;
+    }
+
+    /**
+     * Appends a decoded update. Updates that do not fit in an empty file are
+     * counted as dropped.
+     *
+     * @param exchangeId The ID from {@link #registerExchange(String)}
+     * @param symbolId The symbol's instrument ID
+     * @param event The update
+     */
+    synchronized void record(int exchangeId, int symbolId, MarketDataEvent event) {
+        if (closed || event.type == null) {
+            return;
+        }
+        int size = event.type == MarketDataEvent.Type.TICKER ? TICKER_RECORD_SIZE
+                : BOOK_RECORD_HEADER_SIZE + (event.bids.size() + event.asks.size()) * LEVEL_SIZE;
+
+        int needed = size + dictionarySize(exchangeId, symbolId, event.symbol);
+        if (needed > buffer.remaining()) {
+            // A new file defines nothing yet
+            needed = size + textRecordSize(exchangeNames.get(exchangeId)) + textRecordSize(event.symbol);
+            if (needed > fileSize - FILE_HEADER_SIZE) {
+                dropped++;
+                return;
+            }
+            try {
+                roll();
+            } catch (IOException e) {
+                closed = true;
+                throw new IllegalStateException("Cannot roll market data journal in " + directory, e);
+            }
+        }
+
+        if (!exchangesDefined[exchangeId]) {
+            writeText(EXCHANGE, exchangeId, 0, exchangeNames.get(exchangeId), event.receivedNanos);
+            exchangesDefined[exchangeId] = true;
+        }
+        boolean[] symbols = symbolsDefined[exchangeId];
+        if (symbols == null || symbolId >= symbols.length) {
+            symbols = Arrays.copyOf(symbols == null ? new boolean[0] : symbols, Math.max(64, symbolId * 2));
+            symbolsDefined[exchangeId] = symbols;
+        }
+        if (!symbols[symbolId]) {
+            writeText(SYMBOL, exchangeId, symbolId, event.symbol, event.receivedNanos);
+            symbols[symbolId] = true;
+        }
+
+        MappedByteBuffer out = buffer;
+        if (event.type == MarketDataEvent.Type.TICKER) {
+            writeHeader(TICKER, exchangeId, 0, symbolId, event);
+            out.putDouble(event.bidPrice);
+            out.putDouble(event.askPrice);
+            out.putDouble(event.lastPrice);
+            out.putDouble(event.volume);
+            out.putDouble(event.bidSize);
+            out.putDouble(event.askSize);
+        } else {
+            writeHeader(BOOK, exchangeId, event.snapshot ? SNAPSHOT_FLAG : 0, symbolId, event);
+            out.putLong(event.firstUpdateId);
+            out.putLong(event.lastUpdateId);
+            out.putLong(event.checksum);
+            out.putInt(event.bids.size());
+            out.putInt(event.asks.size());
+            writeLevels(event.bids);
+            writeLevels(event.asks);
+        }
+        records++;
+        bytes += size;
+    }
+
+    private void writeHeader(byte type, int exchangeId, int flags, int symbolId, MarketDataEvent event) {
+        buffer.put(type);
+        buffer.put((byte) exchangeId);
+        buffer.putShort((short) flags);
+        buffer.putInt(symbolId);
+        buffer.putLong(event.receivedNanos);
+        buffer.putLong(event.exchangeTimeMillis);
+    }
+
+    private void writeLevels(BookLevelBuffer levels) {
+        for (int i = 0; i < levels.size(); i++) {
+            buffer.putDouble(levels.priceAt(i));
+            buffer.putDouble(levels.sizeAt(i));
+        }
+    }
+
+    /**
+     * Writes a dictionary record: the header, then the text as ASCII padded to 8 bytes.
+     */
+    private void writeText(byte type, int exchangeId, int symbolId, String text, long receivedNanos) {
+        int start = buffer.position();
+        buffer.put(type);
+        buffer.put((byte) exchangeId);
+        buffer.putShort((short) text.length());
+        buffer.putInt(symbolId);
+        buffer.putLong(receivedNanos);
+        buffer.putLong(-1L);
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+        buffer.position(start + textRecordSize(text));
+        bytes += textRecordSize(text);
+    }
+
+    private int dictionarySize(int exchangeId, int symbolId, String symbol) {
+        int size = 0;
+        if (!exchangesDefined[exchangeId]) {
+            size += textRecordSize(exchangeNames.get(exchangeId));
+        }
+        boolean[] symbols = symbolsDefined[exchangeId];
+        if (symbols == null || symbolId >= symbols.length || !symbols[symbolId]) {
+            size += textRecordSize(symbol);
+        }
+        return size;
+    }
+
+    private static int textRecordSize(String text) {
+        return (RECORD_HEADER_SIZE + text.length() + 7) & ~7;
+    }
+
+    /**
+     * Ends the current file and maps the next one. Files are zero-filled when
+     * extended, so the unwritten tail already reads as the end marker.
+     */
+    private void roll() throws IOException {
+        Path file = directory.resolve(fileName(sequence++));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.putInt(MAGIC);
+            mapped.putInt(VERSION);
+            mapped.putLong(System.currentTimeMillis());
+            mapped.putLong(SystemClock.INSTANCE.epochNanos());
+            mapped.putLong(0L);
+            buffer = mapped;
+        }
+        Arrays.fill(exchangesDefined, false);
+        for (boolean[] symbols : symbolsDefined) {
+            if (symbols != null) {
+                Arrays.fill(symbols, false);
+            }
+        }
+        files++;
+    }
+
+    static String fileName(int sequence) {
+        return String.format("%s%06d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    /**
+     * Lists the journal files of a directory in the order they were written.
+     *
+     * @param directory The journal directory
+     * @return The files, oldest first
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> listFiles(Path directory) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : stream) {
+                result.add(file);
+            }
+        }
+        // Sequence numbers are zero-padded, so names sort in write order
+        result.sort(null);
+        return result;
+    }
+
+    private static int nextSequence(Path directory) throws IOException {
+        int next = 0;
+        for (Path file : listFiles(directory)) {
+            String name = file.getFileName().toString();
+            try {
+                int sequence = Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+                next = Math.max(next, sequence + 1);
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Flushes the current file to disk and stops recording.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    public long getBytesWritten() {
+        return bytes;
+    }
+
+    public long getFileCount() {
+        return files;
+    }
+
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MarketDataJournal{%s, records=%d, bytes=%d, files=%d, dropped=%d}",
+                directory, records, bytes, files, dropped);
+    }
+}
@@ -0,0 +1,287 @@
+package org.example.data.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads the records of one {@link MarketDataJournal} file back in the order
+ * they were written.
+ *
+ * The file is mapped read-only and decoded into a caller-owned
+ * {@link MarketDataEvent}. Dictionary records are consumed on the way, so the
+ * caller only sees updates; exchange and symbol names are resolved from the
+ * file's dictionary and the strings are shared, so reading a record allocates
+ * nothing. Receive times are returned in epoch nanoseconds whatever the
+ * file's version.
+ */
+final class MarketDataJournalReader implements AutoCloseable {
+
+    private final Path file;
+    private final ByteBuffer buffer;
+    private final int version;
+    private final long startMillis;
+    private final long startNanos;
+
+    // The file's dictionary, indexed by the IDs used in it
+    private final String[] exchangeNames = new String[256];
+    private final String[][] symbols = new String[256][];
+
+    // The record last read
+    private int exchangeId;
+    private int symbolId;
+
+    // Receive time of the file's first record, found by scanDictionary
+    private long firstRecordNanos = -1;
+
+    /**
+     * @param file The journal file
+     * @throws IOException if the file cannot be mapped or is not a journal
+     */
+    MarketDataJournalReader(Path file) throws IOException {
+        this(file, map(file));
+    }
+
+    /**
+     * @param file The journal file
+     * @param buffer A mapping of the whole file, positioned at its start, that only this reader moves
+     * @throws IOException if the file is not a journal
+     */
+    MarketDataJournalReader(Path file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < MarketDataJournal.FILE_HEADER_SIZE
+                || buffer.getInt() != MarketDataJournal.MAGIC) {
+            throw new IOException(file + " is not a market data journal");
+        }
+        version = buffer.getInt();
+        if (version < 1 || version > MarketDataJournal.VERSION) {
+            throw new IOException(file + " has unsupported journal version " + version);
+        }
+        startMillis = buffer.getLong();
+        startNanos = buffer.getLong();
+        buffer.position(MarketDataJournal.FILE_HEADER_SIZE);
+    }
+
+    /**
+     * Reads the next update into an event.
+     *
+     * @param event The event to fill
+     * @return false at the end of the file
+     * @throws IOException if the file is corrupt
+     */
+    boolean next(MarketDataEvent event) throws IOException {
+        while (buffer.remaining() >= MarketDataJournal.RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            byte type = buffer.get();
+            if (type == MarketDataJournal.END) {
+                buffer.position(start);
+                return false;
+            }
+            int exchange = buffer.get() & 0xFF;
+            int flags = buffer.getShort() & 0xFFFF;
+            int symbol = buffer.getInt();
+            long receivedNanos = buffer.getLong();
+            long exchangeTimeMillis = buffer.getLong();
+
+            switch (type) {
+                case MarketDataJournal.EXCHANGE:
+                    exchangeNames[exchange] = readText(start, flags);
+                    break;
+                case MarketDataJournal.SYMBOL:
+                    defineSymbol(exchange, symbol, readText(start, flags));
+                    break;
+                case MarketDataJournal.TICKER:
+                case MarketDataJournal.BOOK:
+                    String name = symbol < symbolsOf(exchange).length ? symbols[exchange][symbol] : null;
+                    if (exchangeNames[exchange] == null || name == null) {
+                        throw new IOException("Undefined exchange or symbol at offset " + start + " of " + file);
+                    }
+                    event.reset(toEpochNanos(receivedNanos));
+                    event.symbol = name;
+                    event.exchangeTimeMillis = exchangeTimeMillis;
+                    if (type == MarketDataJournal.TICKER) {
+                        readTicker(event);
+                    } else {
+                        readBook(event, flags);
+                    }
+                    exchangeId = exchange;
+                    symbolId = symbol;
+                    return true;
+                default:
+                    throw new IOException("Unknown record type " + type + " at offset " + start + " of " + file);
+            }
+        }
+        return false;
+    }
+
+    private void readTicker(MarketDataEvent event) {
+        event.type = MarketDataEvent.Type.TICKER;
+        event.bidPrice = buffer.getDouble();
+        event.askPrice = buffer.getDouble();
+        event.lastPrice = buffer.getDouble();
+        event.volume = buffer.getDouble();
+        event.bidSize = buffer.getDouble();
+        event.askSize = buffer.getDouble();
+    }
+
+    private void readBook(MarketDataEvent event, int flags) {
+        event.type = MarketDataEvent.Type.BOOK;
+        event.snapshot = (flags & MarketDataJournal.SNAPSHOT_FLAG) != 0;
+        event.firstUpdateId = buffer.getLong();
+        event.lastUpdateId = buffer.getLong();
+        event.checksum = buffer.getLong();
+        int bidCount = buffer.getInt();
+        int askCount = buffer.getInt();
+        for (int i = 0; i < bidCount; i++) {
+            event.bids.add(buffer.getDouble(), buffer.getDouble());
+        }
+        for (int i = 0; i < askCount; i++) {
+            event.asks.add(buffer.getDouble(), buffer.getDouble());
+        }
+    }
+
+    private String readText(int start, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        buffer.position(start + ((MarketDataJournal.RECORD_HEADER_SIZE + length + 7) & ~7));
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    private void defineSymbol(int exchange, int symbol, String name) {
+        String[] names = symbolsOf(exchange);
+        if (symbol >= names.length) {
+            names = Arrays.copyOf(names, Math.max(64, symbol * 2));
+            symbols[exchange] = names;
+        }
+        names[symbol] = name;
+    }
+
+    private String[] symbolsOf(int exchange) {
+        String[] names = symbols[exchange];
+        if (names == null) {
+            names = new String[0];
+            symbols[exchange] = names;
+        }
+        return names;
+    }
+
+    /**
+     * @return The exchange of the update last read
+     */
+    String getExchangeName() {
+        return exchangeNames[exchangeId];
+    }
+
+    /**
+     * @return The file's ID for the exchange of the update last read
+     */
+    int getExchangeId() {
+        return exchangeId;
+    }
+
+    /**
+     * @return The symbol ID the update last read was recorded under
+     */
+    int getSymbolId() {
+        return symbolId;
+    }
+
+    /**
+     * @return The wall-clock time the file was created at, in epoch nanoseconds
+     */
+    long getStartEpochNanos() {
+        return version == 1 ? startMillis * 1_000_000 : startNanos;
+    }
+
+    /**
+     * The time of the first record, which differs from the creation time for
+     * files written from older data, such as imported ones.
+     *
+     * @return The receive time of the first record in epoch nanoseconds, or -1
+     *         if the file is empty or {@link #scanDictionary} has not run
+     */
+    long getFirstRecordEpochNanos() {
+        return firstRecordNanos;
+    }
+
+    /**
+     * Converts a receive time as stored in this file to epoch nanoseconds.
+     * Version 1 files stored System.nanoTime(), which is mapped through the
+     * wall and nano times the file was created at.
+     */
+    private long toEpochNanos(long receivedNanos) {
+        return version == 1 ? startMillis * 1_000_000 + (receivedNanos - startNanos) : receivedNanos;
+    }
+
+    /**
+     * Lists every exchange and symbol the file defines, without reading updates.
+     *
+     * @param visitor Called once per symbol definition with the exchange and symbol names
+     */
+    void scanDictionary(BiConsumer<String, String> visitor) throws IOException {
+        int position = buffer.position();
+        buffer.position(MarketDataJournal.FILE_HEADER_SIZE);
+        try {
+            while (buffer.remaining() >= MarketDataJournal.RECORD_HEADER_SIZE) {
+                int start = buffer.position();
+                byte type = buffer.get(start);
+                if (type == MarketDataJournal.END) {
+                    break;
+                }
+                int exchange = buffer.get(start + 1) & 0xFF;
+                int length = buffer.getShort(start + 2) & 0xFFFF;
+                int symbol = buffer.getInt(start + 4);
+                if (firstRecordNanos < 0) {
+                    firstRecordNanos = toEpochNanos(buffer.getLong(start + 8));
+                }
+                buffer.position(start + MarketDataJournal.RECORD_HEADER_SIZE);
+                switch (type) {
+                    case MarketDataJournal.EXCHANGE:
+                        exchangeNames[exchange] = readText(start, length);
+                        break;
+                    case MarketDataJournal.SYMBOL:
+                        String name = readText(start, length);
+                        defineSymbol(exchange, symbol, name);
+                        visitor.accept(exchangeNames[exchange], name);
+                        break;
+                    case MarketDataJournal.TICKER:
+                        buffer.position(start + MarketDataJournal.TICKER_RECORD_SIZE);
+                        break;
+                    case MarketDataJournal.BOOK:
+                        int levels = buffer.getInt(start + MarketDataJournal.BOOK_RECORD_HEADER_SIZE - 8)
+                                + buffer.getInt(start + MarketDataJournal.BOOK_RECORD_HEADER_SIZE - 4);
+                        buffer.position(start + MarketDataJournal.BOOK_RECORD_HEADER_SIZE
+                                + levels * MarketDataJournal.LEVEL_SIZE);
+                        break;
+                    default:
+                        throw new IOException("Unknown record type " + type + " at offset " + start + " of " + file);
+                }
+            }
+        } finally {
+            buffer.position(position);
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        // The mapping is released when the buffer is collected
+    }
+}
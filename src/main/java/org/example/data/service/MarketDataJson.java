@@ -0,0 +1,188 @@
+package org.example.data.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Streaming JSON access for WebSocket market data messages.
+ *
+ * Messages are read token by token with Jackson's JsonParser directly from the
+ * received CharSequence, so no String copy of the message and no JSONObject
+ * tree is built. Field names are canonicalized by Jackson, and numeric values
+ * (quoted or not) are converted from the parser's character buffer with
+ * {@link FastDoubleParser}.
+ *
+ * Each WebSocket listener owns one instance; it is not thread-safe.
+ */
+final class MarketDataJson {
+
+    // Thread-safe and expensive to create, so shared by all listeners
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Reused for every message parsed by this instance
+    private final CharSequenceReader reader = new CharSequenceReader();
+
+    /**
+     * Opens a parser over a complete message.
+     *
+     * @param message The message text
+     * @return A parser positioned before the first token
+     * @throws IOException if the parser cannot be created
+     */
+    JsonParser open(CharSequence message) throws IOException {
+        return JSON_FACTORY.createParser(reader.reset(message));
+    }
+
+    /**
+     * Reads the current token as a double. Quoted numbers, as most exchanges
+     * send prices, are accepted; null and empty strings read as NaN.
+     *
+     * @param parser The parser, positioned on a string or number token
+     * @return The value
+     * @throws IOException if the token is not a number
+     */
+    static double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL
+                || (token == JsonToken.VALUE_STRING && parser.getTextLength() == 0)) {
+            return Double.NaN;
+        }
+        if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT
+                || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            try {
+                return FastDoubleParser.parseDouble(parser.getTextCharacters(),
+                        parser.getTextOffset(), parser.getTextLength());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Invalid number: " + parser.getText(), e);
+            }
+        }
+        throw new JsonParseException(parser, "Expected a number but found " + token);
+    }
+
+    /**
+     * Reads the current token's text as the integer formed by its digits,
+     * ignoring the decimal point: "0.05000" reads as 5000. Exchanges that
+     * checksum their books do so over this form of the price and size text.
+     *
+     * @param parser The parser, positioned on a string or number token
+     * @return The digits as an integer, or -1 if the text is not a plain
+     *         decimal or has more digits than a long holds
+     * @throws IOException if the token text cannot be read
+     */
+    static long readDigits(JsonParser parser) throws IOException {
+        char[] text = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        int length = parser.getTextLength();
+        long value = 0;
+        int digits = 0;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text[i];
+            if (c == '.') {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            if (value == 0 && c == '0') {
+                // Leading zeros do not count towards the limit
+                continue;
+            }
+            if (++digits > 18) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Reads one element of an array as a double and skips the rest of the array.
+     *
+     * @param parser The parser, positioned on START_ARRAY
+     * @param index The element to read
+     * @return The value, or NaN if the array is shorter than that
+     * @throws IOException if the element is not a number
+     */
+    static double readDoubleElement(JsonParser parser, int index) throws IOException {
+        double value = Double.NaN;
+        int position = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            if (position++ == index) {
+                value = readDouble(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Reads an array of [price, size, ...] levels into a buffer.
+     *
+     * @param parser The parser, positioned on the outer START_ARRAY
+     * @param levels The buffer to append to
+     * @throws IOException if a level is malformed
+     */
+    static void readLevels(JsonParser parser, BookLevelBuffer levels) throws IOException {
+        readLevels(parser, levels, false);
+    }
+
+    /**
+     * Reads an array of [price, size, ...] levels into a buffer, optionally
+     * keeping the digits of each price and size.
+     *
+     * @param parser The parser, positioned on the outer START_ARRAY
+     * @param levels The buffer to append to
+     * @param withDigits true to capture the digits as well
+     * @throws IOException if a level is malformed
+     */
+    static void readLevels(JsonParser parser, BookLevelBuffer levels, boolean withDigits) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            readLevel(parser, levels, withDigits);
+        }
+    }
+
+    /**
+     * Reads a single [price, size, ...] level into a buffer.
+     *
+     * @param parser The parser, positioned on the level's START_ARRAY
+     * @param levels The buffer to append to
+     * @throws IOException if the level is malformed
+     */
+    static void readLevel(JsonParser parser, BookLevelBuffer levels) throws IOException {
+        readLevel(parser, levels, false);
+    }
+
+    /**
+     * Reads a single [price, size, ...] level into a buffer, optionally
+     * keeping the digits of the price and size text (see {@link #readDigits(JsonParser)}).
+     *
+     * @param parser The parser, positioned on the level's START_ARRAY
+     * @param levels The buffer to append to
+     * @param withDigits true to capture the digits as well
+     * @throws IOException if the level is malformed
+     */
+    static void readLevel(JsonParser parser, BookLevelBuffer levels, boolean withDigits) throws IOException {
+        parser.nextToken();
+        double price = readDouble(parser);
+        long priceDigits = withDigits ? readDigits(parser) : -1;
+        parser.nextToken();
+        double size = readDouble(parser);
+        long sizeDigits = withDigits ? readDigits(parser) : -1;
+        // Skip trailing elements such as timestamps
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+            parser.skipChildren();
+        }
+        levels.add(price, size, priceDigits, sizeDigits);
+    }
+}
@@ -0,0 +1,354 @@
+package org.example.data.service;
+
+import org.example.data.fee.ExchangeFeeFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays {@link MarketDataJournal} files through stand-in exchanges, so the
+ * arbitrage pipeline can run offline on recorded data.
+ *
+ * Each recorded exchange gets a {@link ReplayExchangeService} under its own
+ * name. Anything that works with live exchanges (engines, market data
+ * listeners, risk and slippage services) is wired to these instead and runs
+ * unchanged. Updates are applied on the thread that calls {@link #run()}, in
+ * journal order, after moving the {@link VirtualClock} to the time they were
+ * received. Work that live code does on a timer, such as a periodic scan, is
+ * registered with {@link #schedule(long, Runnable)} and runs at virtual time.
+ * Given the same files, a replay produces the same callbacks in the same order
+ * whatever its speed; listeners that hand work to other threads (such as a
+ * conflating evaluator) give up that guarantee.
+ *
+ * The speed is a multiple of real time: 1 replays in real time, 60 replays an
+ * hour per minute, and 0 or less applies updates as fast as they can be read.
+ * Quiet periods longer than {@link #setMaxGapMillis(long)}, such as the time
+ * between two recording sessions, are skipped rather than waited out.
+ *
+ * A replayer created from {@link MappedJournalFiles} reads the caller's
+ * mappings instead of mapping the files itself, so many replayers can run over
+ * the same data at once without each mapping it.
+ */
+public class MarketDataReplayer {
+
+    private final List<Path> files;
+    // Shared read-only mappings of the files, or null to map them per read
+    private final MappedJournalFiles mapped;
+    private final VirtualClock clock = new VirtualClock();
+    private final Map<String, ReplayExchangeService> exchanges = new LinkedHashMap<>();
+
+    // Fee models of the stand-in exchanges; null uses the shared default fees
+    private ExchangeFeeFactory feeFactory;
+    private double thirtyDayVolume;
+
+    private volatile double speed = 0;
+    private volatile long maxGapNanos = TimeUnit.SECONDS.toNanos(60);
+    private volatile boolean stopped;
+    private boolean prepared;
+
+    // Virtual timers, run on the replay thread when the clock passes their due time
+    private final List<Timer> timers = new ArrayList<>();
+
+    // Metrics
+    private volatile long records;
+    private volatile long tickers;
+    private volatile long books;
+    private volatile long firstEpochNanos = -1;
+    private volatile long lastEpochNanos = -1;
+    private volatile long wallNanos;
+
+    /**
+     * @param files The journal files, in the order they were written
+     */
+    public MarketDataReplayer(List<Path> files) {
+        this.files = List.copyOf(files);
+        this.mapped = null;
+    }
+
+    /**
+     * @param mapped The journal files, mapped by the caller and possibly shared with other replayers
+     */
+    public MarketDataReplayer(MappedJournalFiles mapped) {
+        this.files = mapped.getFiles();
+        this.mapped = mapped;
+    }
+
+    /**
+     * Replays every journal file of a directory.
+     *
+     * @param directory The journal directory
+     * @return The replayer
+     * @throws IOException if the directory cannot be read
+     */
+    public static MarketDataReplayer forDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException(directory + " is not a directory");
+        }
+        return new MarketDataReplayer(MarketDataJournal.listFiles(directory));
+    }
+
+    /**
+     * Reads the dictionaries of all files and creates a stand-in exchange for
+     * every recorded exchange, listing every recorded symbol, so engines can be
+     * set up before the first update is replayed. The clock is set to the time
+     * of the first record.
+     *
+     * @return The stand-in exchanges
+     * @throws IOException if a file cannot be read
+     */
+    public synchronized Collection<ReplayExchangeService> prepare() throws IOException {
+        Map<String, Set<String>> symbolsByExchange = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            try (MarketDataJournalReader reader = openReader(i)) {
+                reader.scanDictionary((exchange, symbol) ->
+                        symbolsByExchange.computeIfAbsent(exchange, e -> new LinkedHashSet<>()).add(symbol));
+                if (clock.epochNanos() == 0 && reader.getFirstRecordEpochNanos() >= 0) {
+                    clock.advanceTo(reader.getFirstRecordEpochNanos());
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> entry : symbolsByExchange.entrySet()) {
+            getExchange(entry.getKey()).addSymbols(entry.getValue());
+        }
+        prepared = true;
+        return getExchanges();
+    }
+
+    /**
+     * Returns the stand-in for a recorded exchange, creating it on first use.
+     *
+     * @param exchangeName The recorded exchange name
+     * @return The stand-in exchange
+     */
+    public synchronized ReplayExchangeService getExchange(String exchangeName) {
+        return exchanges.computeIfAbsent(exchangeName, name -> feeFactory == null
+                ? new ReplayExchangeService(name, clock)
+                : new ReplayExchangeService(name, clock,
+                        feeFactory.createFee(name, thirtyDayVolume, true),
+                        feeFactory.createFee(name, thirtyDayVolume, false)));
+    }
+
+    /**
+     * Gives the stand-in exchanges the fee tiers of a trading volume, built by
+     * a factory the caller owns, so replays running side by side share no fee
+     * state. Applies to exchanges created afterwards; call before {@link #prepare()}.
+     *
+     * @param feeFactory The factory the fees are created by
+     * @param thirtyDayVolume The 30-day trading volume in USD that selects the fee tier
+     */
+    public synchronized void setFeeFactory(ExchangeFeeFactory feeFactory, double thirtyDayVolume) {
+        this.feeFactory = feeFactory;
+        this.thirtyDayVolume = thirtyDayVolume;
+    }
+
+    /**
+     * @return The stand-in exchanges created so far
+     */
+    public synchronized Collection<ReplayExchangeService> getExchanges() {
+        return Collections.unmodifiableList(new ArrayList<>(exchanges.values()));
+    }
+
+    /**
+     * Runs a task every {@code intervalMillis} of virtual time, on the replay thread.
+     *
+     * @param intervalMillis The interval in virtual milliseconds
+     * @param task The task
+     */
+    public synchronized void schedule(long intervalMillis, Runnable task) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive");
+        }
+        timers.add(new Timer(TimeUnit.MILLISECONDS.toNanos(intervalMillis), task));
+    }
+
+    /**
+     * @param speed Multiple of real time; 0 or less replays as fast as possible
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * @param maxGapMillis Longest quiet period that is waited out at paced speeds
+     */
+    public void setMaxGapMillis(long maxGapMillis) {
+        this.maxGapNanos = TimeUnit.MILLISECONDS.toNanos(maxGapMillis);
+    }
+
+    /**
+     * Makes {@link #run()} return after the update being applied.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Replays every file on the calling thread.
+     *
+     * @return The number of updates applied
+     * @throws IOException if a file cannot be read or is corrupt
+     */
+    public long run() throws IOException {
+        prepareIfNeeded();
+        Timer[] scheduled;
+        synchronized (this) {
+            scheduled = timers.toArray(new Timer[0]);
+        }
+
+        MarketDataEvent event = new MarketDataEvent();
+        long wallStart = System.nanoTime();
+        // Wall and virtual time that pacing is measured from, moved on when a gap is skipped
+        long paceWall = wallStart;
+        long paceVirtual = -1;
+        long previous = -1;
+        long applied = 0;
+
+        for (int i = 0; i < files.size(); i++) {
+            if (stopped) {
+                break;
+            }
+            try (MarketDataJournalReader reader = openReader(i)) {
+                // Exchange IDs are per file
+                ReplayExchangeService[] exchangesById = new ReplayExchangeService[256];
+                while (!stopped && reader.next(event)) {
+                    long epochNanos = event.receivedNanos;
+                    if (paceVirtual < 0 || (previous >= 0 && epochNanos - previous > maxGapNanos)) {
+                        paceVirtual = epochNanos;
+                        paceWall = System.nanoTime();
+                        // Timers restart after a skipped gap instead of catching up on it
+                        for (Timer timer : scheduled) {
+                            timer.nextDue = -1;
+                        }
+                    }
+                    previous = epochNanos;
+                    pace(epochNanos, paceVirtual, paceWall);
+
+                    runTimers(scheduled, epochNanos);
+                    clock.advanceTo(epochNanos);
+
+                    ReplayExchangeService exchange = exchangesById[reader.getExchangeId()];
+                    if (exchange == null) {
+                        exchange = getExchange(reader.getExchangeName());
+                        exchangesById[reader.getExchangeId()] = exchange;
+                    }
+                    exchange.applyMarketDataEventSafely(event);
+                    applied++;
+                    if (event.type == MarketDataEvent.Type.TICKER) {
+                        tickers++;
+                    } else {
+                        books++;
+                    }
+                    records = applied;
+                    if (firstEpochNanos < 0) {
+                        firstEpochNanos = epochNanos;
+                    }
+                    lastEpochNanos = clock.epochNanos();
+                }
+            }
+        }
+        wallNanos = System.nanoTime() - wallStart;
+        return applied;
+    }
+
+    private synchronized void prepareIfNeeded() throws IOException {
+        if (!prepared) {
+            prepare();
+        }
+    }
+
+    /**
+     * Waits until the wall clock catches up with a virtual time at the current speed.
+     */
+    private void pace(long epochNanos, long paceVirtual, long paceWall) {
+        double currentSpeed = speed;
+        if (currentSpeed <= 0) {
+            return;
+        }
+        long due = paceWall + (long) ((epochNanos - paceVirtual) / currentSpeed);
+        long wait;
+        while (!stopped && (wait = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    private void runTimers(Timer[] scheduled, long epochNanos) {
+        for (Timer timer : scheduled) {
+            if (timer.nextDue < 0) {
+                timer.nextDue = epochNanos + timer.intervalNanos;
+                continue;
+            }
+            while (timer.nextDue <= epochNanos) {
+                clock.advanceTo(timer.nextDue);
+                timer.nextDue += timer.intervalNanos;
+                timer.task.run();
+            }
+        }
+    }
+
+    /**
+     * @return The replay clock
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Opens a reader over one of the files, through the shared mappings if the
+     * replayer was given them.
+     *
+     * @param index The index of the file in the replayed list
+     * @return The reader
+     * @throws IOException if the file cannot be mapped or is not a journal
+     */
+    private MarketDataJournalReader openReader(int index) throws IOException {
+        return mapped != null ? mapped.openReader(index) : new MarketDataJournalReader(files.get(index));
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    public long getTickerCount() {
+        return tickers;
+    }
+
+    public long getBookCount() {
+        return books;
+    }
+
+    /**
+     * @return The span of market time replayed so far, in milliseconds
+     */
+    public long getReplayedMillis() {
+        return firstEpochNanos < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(lastEpochNanos - firstEpochNanos);
+    }
+
+    @Override
+    public String toString() {
+        double seconds = wallNanos / 1e9;
+        return String.format("MarketDataReplayer{files=%d, records=%d (tickers=%d, books=%d), market time=%ds, wall time=%.1fs}",
+                files.size(), records, tickers, books, getReplayedMillis() / 1000, seconds);
+    }
+
+    private static final class Timer {
+        final long intervalNanos;
+        final Runnable task;
+        long nextDue = -1;
+
+        Timer(long intervalNanos, Runnable task) {
+            this.intervalNanos = intervalNanos;
+            this.task = task;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.example.data.service;
+
+import java.net.http.WebSocket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One WebSocket connection of an exchange, carrying a subset of its symbols.
+ *
+ * Exchanges cap the streams per connection and the length of a subscription
+ * URL, and a single socket read by a single thread limits throughput, so
+ * {@link ExchangeService} spreads its symbols over several shards. Each shard
+ * has its own socket and listener, its own {@link MarketDataDispatcher}
+ * (whose ring has exactly one producer, the shard's socket thread) and, when
+ * supervision is enabled, its own {@link WebSocketSupervisor}. A symbol is
+ * carried by exactly one shard, so its updates stay in order.
+ *
+ * The shard counts the messages of each symbol so the exchange can rebalance
+ * hot symbols across shards by message rate.
+ */
+public class MarketDataShard {
+
+    private final ExchangeService exchange;
+    private final int index;
+
+    // Symbols subscribed on this connection, replayed on every reconnect
+    private volatile List<String> symbols;
+
+    private volatile WebSocket webSocket;
+    private volatile boolean connected;
+
+    // Outgoing messages are chained: the WebSocket rejects a send while another is pending
+    private CompletableFuture<WebSocket> lastSend = CompletableFuture.completedFuture(null);
+
+    private volatile MarketDataDispatcher dispatcher;
+    private volatile WebSocketSupervisor supervisor;
+
+    // Messages per symbol since the last rate sample
+    private final Map<String, AtomicLong> symbolMessages = new ConcurrentHashMap<>();
+    private volatile long rateWindowStartNanos = System.nanoTime();
+
+    // Metrics
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong connects = new AtomicLong();
+    private volatile long lastMessageNanos;
+
+    /**
+     * @param exchange The exchange the connection belongs to
+     * @param index The shard number within the exchange
+     * @param symbols The symbols the connection carries
+     */
+    MarketDataShard(ExchangeService exchange, int index, List<String> symbols) {
+        this.exchange = exchange;
+        this.index = index;
+        this.symbols = List.copyOf(symbols);
+    }
+
+    /**
+     * Opens the connection and subscribes to the shard's symbols.
+     *
+     * @return true if connected; false if the connection failed or the exchange has no WebSocket feed
+     */
+    boolean connect() {
+        try {
+            WebSocket opened = exchange.openWebSocket(this);
+            if (opened == null) {
+                connected = false;
+                return false;
+            }
+            synchronized (this) {
+                webSocket = opened;
+                lastSend = CompletableFuture.completedFuture(opened);
+            }
+            connected = true;
+            lastMessageNanos = System.nanoTime();
+            connects.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            exchange.logError("Failed to connect WebSocket shard " + index + " of " + symbols.size() + " symbols", e);
+            connected = false;
+            return false;
+        }
+    }
+
+    /**
+     * Closes the connection with a close handshake.
+     */
+    void close() {
+        WebSocket current = webSocket;
+        connected = false;
+        if (current != null) {
+            current.sendClose(WebSocket.NORMAL_CLOSURE, "Closing connection");
+        }
+    }
+
+    /**
+     * Drops the connection immediately, e.g. when it is half-open.
+     */
+    void abort() {
+        WebSocket current = webSocket;
+        connected = false;
+        if (current != null) {
+            current.abort();
+        }
+    }
+
+    /**
+     * Sends a text message once the previous one has been sent.
+     *
+     * @param message The message
+     */
+    synchronized void send(String message) {
+        WebSocket socket = webSocket;
+        if (socket == null) {
+            return;
+        }
+        lastSend = lastSend
+                .handle((ignored, error) -> socket)
+                .thenCompose(ws -> ws.sendText(message, true))
+                .whenComplete((ws, error) -> {
+                    if (error != null) {
+                        exchange.logWarning("WebSocket send failed on shard " + index + ": " + error.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * Hands a decoded update to the shard's dispatcher, or applies it inline
+     * without one. Must only be called from the shard's socket thread.
+     *
+     * @param event The decoded event; may be reused by the caller afterwards
+     */
+    void publish(MarketDataEvent event) {
+        AtomicLong count = symbolMessages.get(event.symbol);
+        if (count == null) {
+            count = symbolMessages.computeIfAbsent(event.symbol, s -> new AtomicLong());
+        }
+        count.incrementAndGet();
+        exchange.recordMarketDataEvent(event);
+
+        MarketDataDispatcher current = dispatcher;
+        if (current != null) {
+            current.publish(event);
+        } else {
+            exchange.applyMarketDataEventSafely(event);
+        }
+    }
+
+    /**
+     * Records that the socket received a message or pong.
+     */
+    void onMessage() {
+        messages.incrementAndGet();
+        lastMessageNanos = System.nanoTime();
+        WebSocketSupervisor current = supervisor;
+        if (current != null) {
+            current.onMessage();
+        }
+    }
+
+    /**
+     * Records that a socket of this shard closed or failed. Late closes of
+     * sockets that were already replaced are ignored.
+     *
+     * @param closed The socket that closed
+     * @param reason What happened
+     */
+    void onClosed(WebSocket closed, String reason) {
+        if (closed != webSocket) {
+            return;
+        }
+        connected = false;
+        WebSocketSupervisor current = supervisor;
+        if (current != null) {
+            current.onDisconnect(reason);
+        }
+    }
+
+    /**
+     * Sends the exchange's heartbeat on the current socket.
+     */
+    void sendHeartbeat() {
+        WebSocket current = webSocket;
+        if (current != null) {
+            exchange.sendHeartbeat(current);
+        }
+    }
+
+    /**
+     * Starts a dispatcher for this shard, replacing any previous one.
+     */
+    void enableDispatch(int capacity, MarketDataDispatcher.BackpressurePolicy policy) {
+        MarketDataDispatcher previous = dispatcher;
+        dispatcher = new MarketDataDispatcher(exchange.getExchangeName() + "-market-data-" + index, capacity, policy,
+                exchange.getClock(), exchange::applyMarketDataEventSafely);
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Stops the dispatcher; updates are applied on the socket thread again.
+     */
+    void disableDispatch() {
+        MarketDataDispatcher previous = dispatcher;
+        dispatcher = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Waits until the dispatcher has applied everything queued.
+     *
+     * @param timeoutMillis Maximum wait
+     * @return true if the queue drained in time
+     */
+    boolean awaitDrained(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        MarketDataDispatcher current = dispatcher;
+        while (current != null && (current.getQueueDepth() > 0 || current.getConflatedPending() > 0)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.onSpinWait();
+        }
+        return true;
+    }
+
+    void setSupervisor(WebSocketSupervisor supervisor) {
+        this.supervisor = supervisor;
+    }
+
+    void setSymbols(List<String> symbols) {
+        this.symbols = List.copyOf(symbols);
+    }
+
+    /**
+     * Returns each symbol's message rate since the previous call and starts a
+     * new sampling window.
+     *
+     * @return Symbol -> messages per second
+     */
+    Map<String, Double> sampleSymbolRates() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - rateWindowStartNanos) / 1e9);
+        rateWindowStartNanos = now;
+        Map<String, Double> rates = new HashMap<>();
+        for (Map.Entry<String, AtomicLong> entry : symbolMessages.entrySet()) {
+            rates.put(entry.getKey(), entry.getValue().getAndSet(0) / seconds);
+        }
+        return rates;
+    }
+
+    /**
+     * @return The exchange the connection belongs to
+     */
+    public ExchangeService getExchange() {
+        return exchange;
+    }
+
+    /**
+     * @return The shard number within the exchange
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The symbols carried by this connection
+     */
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return The current socket, or null before the first connection
+     */
+    public WebSocket getWebSocket() {
+        return webSocket;
+    }
+
+    /**
+     * @return true if the socket is open
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return The shard's dispatcher, or null if updates are applied inline
+     */
+    public MarketDataDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return The shard's supervisor, or null if unsupervised
+     */
+    public WebSocketSupervisor getSupervisor() {
+        return supervisor;
+    }
+
+    /**
+     * @return Messages and pongs received over the shard's lifetime
+     */
+    public long getMessageCount() {
+        return messages.get();
+    }
+
+    /**
+     * @return Successful connections, including reconnects
+     */
+    public long getConnectCount() {
+        return connects.get();
+    }
+
+    /**
+     * @return Milliseconds since the last message, or -1 if none was received
+     */
+    public long getMillisSinceLastMessage() {
+        long last = lastMessageNanos;
+        return last == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - last);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s shard %d: %s, %d symbols, %d messages, last %d ms ago",
+                exchange.getExchangeName(), index, connected ? "connected" : "disconnected",
+                symbols.size(), getMessageCount(), getMillisSinceLastMessage());
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.data.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free token bucket for exchange request budgets.
+ *
+ * Implemented as a generic cell rate algorithm: the only state is the
+ * theoretical arrival time of the next request, advanced with a CAS, so
+ * callers never contend on a lock. A request of weight w consumes w tokens;
+ * up to {@code burst} tokens may be used at once, after which requests are
+ * spaced at the sustained rate.
+ *
+ * The limiter also records how long callers had to wait, which shows how
+ * close a symbol set runs to the exchange's budget.
+ */
+public class RateLimiter {
+
+    private final String name;
+
+    // Nanoseconds of budget one token represents
+    private final long nanosPerToken;
+
+    // How far ahead of real time the schedule may run before callers wait
+    private final long burstNanos;
+
+    // Theoretical arrival time of the next request, in System.nanoTime() units
+    private final AtomicLong theoreticalArrival;
+
+    // Queueing metrics
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong tokensAcquired = new AtomicLong();
+    private final AtomicLong delayedAcquisitions = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a limiter.
+     *
+     * @param name Name used in reports, e.g. the exchange name
+     * @param tokensPerSecond Sustained rate
+     * @param burst Number of tokens that may be used at once
+     */
+    public RateLimiter(String name, double tokensPerSecond, int burst) {
+        if (tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive");
+        }
+        this.name = name;
+        this.nanosPerToken = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.burstNanos = Math.max(1, burst) * nanosPerToken;
+        this.theoreticalArrival = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Creates a limiter for a per-minute budget, such as exchanges.rateLimits.
+     * Up to five seconds' worth of budget may be spent in a burst.
+     *
+     * @param name Name used in reports
+     * @param limitPerMinute Tokens allowed per minute
+     * @return The limiter
+     */
+    public static RateLimiter perMinute(String name, int limitPerMinute) {
+        return new RateLimiter(name, limitPerMinute / 60.0, Math.max(1, limitPerMinute / 12));
+    }
+
+    /**
+     * Creates a limiter for a per-second budget, such as maxOrdersPerSecond.
+     *
+     * @param name Name used in reports
+     * @param limitPerSecond Tokens allowed per second
+     * @return The limiter
+     */
+    public static RateLimiter perSecond(String name, int limitPerSecond) {
+        return new RateLimiter(name, limitPerSecond, Math.max(1, limitPerSecond));
+    }
+
+    /**
+     * Reserves tokens and returns how long the caller must wait before using them.
+     *
+     * @param weight Number of tokens
+     * @return Wait time in nanoseconds, 0 if the request may proceed now
+     */
+    public long reserve(int weight) {
+        long cost = Math.max(1, weight) * nanosPerToken;
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + cost;
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                long wait = Math.max(0, next - now - burstNanos);
+                record(weight, wait);
+                return wait;
+            }
+        }
+    }
+
+    /**
+     * Takes tokens only if no waiting is needed.
+     *
+     * @param weight Number of tokens
+     * @return true if the tokens were taken
+     */
+    public boolean tryAcquire(int weight) {
+        long cost = Math.max(1, weight) * nanosPerToken;
+        while (true) {
+            long now = System.nanoTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + cost;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                record(weight, 0);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes tokens, parking the calling thread until they are available.
+     *
+     * @param weight Number of tokens
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire(int weight) throws InterruptedException {
+        long wait = reserve(weight);
+        long deadline = System.nanoTime() + wait;
+        while (wait > 0) {
+            LockSupport.parkNanos(this, wait);
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Interrupted while waiting for " + name + " rate limit");
+            }
+            wait = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * Takes tokens without blocking a thread; the returned future completes
+     * once the tokens are available.
+     *
+     * @param weight Number of tokens
+     * @param executor Executor that runs the continuation
+     * @return A future completed when the request may proceed
+     */
+    public CompletableFuture<Void> acquireAsync(int weight, Executor executor) {
+        long wait = reserve(weight);
+        if (wait == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> { },
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS, executor));
+    }
+
+    private void record(int weight, long waitNanos) {
+        acquisitions.incrementAndGet();
+        tokensAcquired.addAndGet(Math.max(1, weight));
+        if (waitNanos > 0) {
+            delayedAcquisitions.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            long max = maxWaitNanos.get();
+            while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+                max = maxWaitNanos.get();
+            }
+        }
+    }
+
+    /**
+     * @return The limiter name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Number of requests that went through the limiter
+     */
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    /**
+     * @return Total tokens consumed, i.e. request weight spent
+     */
+    public long getTokensAcquired() {
+        return tokensAcquired.get();
+    }
+
+    /**
+     * @return Number of requests that had to wait
+     */
+    public long getDelayedAcquisitions() {
+        return delayedAcquisitions.get();
+    }
+
+    /**
+     * @return Average queueing delay across all requests, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long count = acquisitions.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * @return Longest queueing delay seen, in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Clears the queueing metrics.
+     */
+    public void resetStatistics() {
+        acquisitions.set(0);
+        tokensAcquired.set(0);
+        delayedAcquisitions.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d requests (%d weight), %d delayed, avg wait %.1f ms, max wait %.1f ms",
+                name, getAcquisitions(), getTokensAcquired(), getDelayedAcquisitions(),
+                getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
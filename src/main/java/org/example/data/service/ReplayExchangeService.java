@@ -0,0 +1,256 @@
+package org.example.data.service;
+
+import org.example.data.fee.Fee;
+import org.example.data.model.OrderBook;
+import org.example.data.model.Ticker;
+import org.example.data.model.TradingPair;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Stands in for a live exchange while recorded market data is replayed.
+ *
+ * It carries the recorded exchange's name, so fees, symbol tables and
+ * opportunities look exactly as they did live, but nothing goes over the
+ * network: {@link MarketDataReplayer} applies the recorded updates to its
+ * caches, REST fetches answer from those caches, and the WebSocket is a
+ * no-op. Its clock is the replay's {@link VirtualClock}, updates keep the
+ * receive and exchange times they were recorded with, and cached data never
+ * goes stale, since the journal holds nothing newer.
+ *
+ * Book updates that carry exchange sequence numbers, which are Binance's
+ * depth diffs and the REST snapshots they were applied to, are synchronised
+ * the way {@link BinanceExchangeService} did it live: diffs are held until a
+ * recorded snapshot arrives, and each diff after it must continue the
+ * sequence. On a gap the book is dropped rather than served partial, until
+ * the next recorded snapshot. Other book updates are applied as they are.
+ *
+ * Everything runs on the replay thread, so a replay of the same files always
+ * produces the same sequence of cache updates and listener callbacks.
+ */
+public class ReplayExchangeService extends ExchangeService {
+
+    // Native symbols found in the journal, in the order they were first seen
+    private final Set<String> symbols = new LinkedHashSet<>();
+
+    // Books rebuilt from a recorded snapshot and the diffs after it, by symbol
+    private final Map<String, SequencedBook> sequencedBooks = new HashMap<>();
+    private long depthGaps;
+
+    /**
+     * @param exchangeName The name of the recorded exchange
+     * @param clock The replay clock
+     */
+    public ReplayExchangeService(String exchangeName, VirtualClock clock) {
+        super(exchangeName, 0.0);
+        setClock(clock);
+    }
+
+    /**
+     * @param exchangeName The name of the recorded exchange
+     * @param clock The replay clock
+     * @param makerFee The maker fee
+     * @param takerFee The taker fee
+     */
+    public ReplayExchangeService(String exchangeName, VirtualClock clock, Fee makerFee, Fee takerFee) {
+        super(exchangeName, makerFee, takerFee);
+        setClock(clock);
+    }
+
+    /**
+     * Adds symbols seen in the journal to the exchange's trading pairs.
+     *
+     * @param symbols The native symbols
+     */
+    synchronized void addSymbols(Collection<String> symbols) {
+        boolean added = false;
+        for (String symbol : symbols) {
+            added |= this.symbols.add(symbol);
+        }
+        if (added) {
+            setTradingPairs(fetchTradingPairs());
+        }
+    }
+
+    /**
+     * @return The symbols found in the journal
+     */
+    @Override
+    public synchronized List<TradingPair> fetchTradingPairs() {
+        List<TradingPair> pairs = new ArrayList<>();
+        for (String symbol : symbols) {
+            pairs.add(new TradingPair(symbol));
+        }
+        return pairs;
+    }
+
+    @Override
+    void applyMarketDataEvent(MarketDataEvent event) {
+        if (event.type == MarketDataEvent.Type.BOOK && event.lastUpdateId >= 0) {
+            sequencedBooks.computeIfAbsent(event.symbol, SequencedBook::new).onUpdate(event);
+            return;
+        }
+        super.applyMarketDataEvent(event);
+    }
+
+    /**
+     * @return The number of sequence gaps in the recorded diffs, each of which dropped a book
+     */
+    public long getDepthGapCount() {
+        return depthGaps;
+    }
+
+    @Override
+    protected Ticker fetchTickerDataREST(String symbol) {
+        return getCachedTicker(symbol);
+    }
+
+    @Override
+    protected OrderBook fetchOrderBookREST(String symbol) {
+        return getCachedOrderBook(symbol);
+    }
+
+    // Answered on the calling thread, so a replay does not depend on the REST executor
+
+    @Override
+    public CompletableFuture<Ticker> fetchTickerDataAsync(String symbol) {
+        return CompletableFuture.completedFuture(fetchTickerDataREST(symbol));
+    }
+
+    @Override
+    public CompletableFuture<OrderBook> fetchOrderBookAsync(String symbol) {
+        return CompletableFuture.completedFuture(fetchOrderBookREST(symbol));
+    }
+
+    @Override
+    protected boolean isTickerStale(Ticker ticker) {
+        return false;
+    }
+
+    @Override
+    protected boolean isOrderBookStale(OrderBook orderBook) {
+        return false;
+    }
+
+    /**
+     * The replayer feeds the caches directly, so there is nothing to connect.
+     */
+    @Override
+    public synchronized boolean initializeWebSocket(List<String> symbols) {
+        return symbols != null && !symbols.isEmpty();
+    }
+
+    @Override
+    public boolean isWebSocketConnected() {
+        return true;
+    }
+
+    /**
+     * Rebuilds one symbol's book from the recorded snapshots and diffs,
+     * following the same rules as the live synchronisation:
+     * <ol>
+     *   <li>diffs are held until a snapshot arrives;</li>
+     *   <li>held diffs with u &lt;= the snapshot's lastUpdateId are dropped;</li>
+     *   <li>the first diff applied must have U &lt;= lastUpdateId + 1;</li>
+     *   <li>from then on each diff's U must be the previous diff's u + 1.</li>
+     * </ol>
+     * Recorded snapshots are the ones the live book was rebuilt from, so they
+     * line up with the held diffs unless diffs were lost while recording.
+     */
+    private final class SequencedBook {
+        private final String symbol;
+
+        // Book rebuilt from the snapshot and the diffs applied since, or null until in sequence
+        private OrderBook book;
+        private long lastUpdateId = -1;
+
+        // Diffs replayed while there is no book, copied since the replayer reuses its event
+        private final ArrayDeque<MarketDataEvent> buffered = new ArrayDeque<>();
+
+        SequencedBook(String symbol) {
+            this.symbol = symbol;
+        }
+
+        void onUpdate(MarketDataEvent event) {
+            if (event.snapshot) {
+                onSnapshot(event);
+                return;
+            }
+            if (book == null) {
+                buffer(event);
+                return;
+            }
+            if (event.lastUpdateId <= lastUpdateId) {
+                // Already contained in the book
+                return;
+            }
+            if (event.firstUpdateId > lastUpdateId + 1) {
+                gap(event, lastUpdateId + 1);
+                return;
+            }
+            apply(event);
+            publish(event);
+        }
+
+        private void onSnapshot(MarketDataEvent snapshot) {
+            while (!buffered.isEmpty() && buffered.peekFirst().lastUpdateId <= snapshot.lastUpdateId) {
+                buffered.pollFirst();
+            }
+            if (!buffered.isEmpty() && buffered.peekFirst().firstUpdateId > snapshot.lastUpdateId + 1) {
+                gap(buffered.pollFirst(), snapshot.lastUpdateId + 1);
+                return;
+            }
+
+            book = new OrderBook(symbol, 0);
+            apply(snapshot);
+            while (!buffered.isEmpty()) {
+                MarketDataEvent next = buffered.pollFirst();
+                if (next.firstUpdateId > lastUpdateId + 1) {
+                    gap(next, lastUpdateId + 1);
+                    return;
+                }
+                apply(next);
+            }
+            publish(snapshot);
+        }
+
+        private void buffer(MarketDataEvent event) {
+            if (buffered.size() >= BinanceExchangeService.MAX_BUFFERED_DEPTH_UPDATES) {
+                // The live book could not have used these either
+                buffered.pollFirst();
+            }
+            MarketDataEvent copy = new MarketDataEvent();
+            copy.copyFrom(event);
+            buffered.addLast(copy);
+        }
+
+        private void gap(MarketDataEvent event, long expectedUpdateId) {
+            depthGaps++;
+            logWarning("Recorded depth gap for " + symbol + ": expected update " + expectedUpdateId
+                    + ", got " + event.firstUpdateId + "; dropping the book until the next snapshot");
+            book = null;
+            lastUpdateId = -1;
+            removeOrderBook(symbol);
+            buffered.clear();
+            buffer(event);
+        }
+
+        private void apply(MarketDataEvent event) {
+            BookLevelBuffer.applyTo(book, event.bids, event.asks);
+            lastUpdateId = event.lastUpdateId;
+        }
+
+        private void publish(MarketDataEvent latest) {
+            book.touch(latest.receivedNanos, latest.exchangeTimeNanos());
+            updateOrderBook(symbol, book);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.data.service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared HTTP client for exchange REST calls.
+ *
+ * Creating an HttpClient per request throws away its connection pool, so every
+ * call paid for a new TCP connection and TLS handshake. All exchange services
+ * share this single client instead: connections are kept alive and reused,
+ * HTTP/2 is negotiated where the exchange supports it (falling back to HTTP/1.1),
+ * and requests can be issued asynchronously so independent calls overlap.
+ */
+public final class RestClient {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final RestClient INSTANCE = new RestClient();
+
+    private final HttpClient httpClient;
+
+    // Runs response handling and blocking fallbacks; daemon threads so the JVM can exit
+    private final ExecutorService executor;
+
+    private RestClient() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "rest-client-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(executor)
+                .build();
+    }
+
+    /**
+     * @return The process-wide REST client
+     */
+    public static RestClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return The executor used for REST work, for callers that need to run
+     *         blocking fetches off the calling thread
+     */
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Performs a blocking GET request.
+     *
+     * @param url The full URL
+     * @return The response body
+     * @throws RestClientException if the exchange answers with a non-2xx status
+     * @throws IOException on network errors
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public String get(String url) throws IOException, InterruptedException {
+        return get(url, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Performs a blocking GET request with a custom timeout.
+     *
+     * @param url The full URL
+     * @param timeout The request timeout
+     * @return The response body
+     * @throws RestClientException if the exchange answers with a non-2xx status
+     * @throws IOException on network errors
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public String get(String url, Duration timeout) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(buildGet(url, timeout), HttpResponse.BodyHandlers.ofString());
+        return checkStatus(url, response);
+    }
+
+    /**
+     * Performs an asynchronous GET request.
+     *
+     * @param url The full URL
+     * @return A future completed with the response body, or exceptionally with a
+     *         RestClientException for non-2xx statuses
+     */
+    public CompletableFuture<String> getAsync(String url) {
+        return getAsync(url, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Performs an asynchronous GET request with a custom timeout.
+     *
+     * @param url The full URL
+     * @param timeout The request timeout
+     * @return A future completed with the response body
+     */
+    public CompletableFuture<String> getAsync(String url, Duration timeout) {
+        return httpClient.sendAsync(buildGet(url, timeout), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    try {
+                        return checkStatus(url, response);
+                    } catch (RestClientException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private static HttpRequest buildGet(String url, Duration timeout) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(timeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    private static String checkStatus(String url, HttpResponse<String> response) throws RestClientException {
+        int status = response.statusCode();
+        if (status < 200 || status >= 300) {
+            throw new RestClientException(url, status, response.body());
+        }
+        return response.body();
+    }
+}
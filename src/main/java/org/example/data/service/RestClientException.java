@@ -0,0 +1,31 @@
+package org.example.data.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an exchange REST endpoint answers with a non-success HTTP status.
+ */
+public class RestClientException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * @param url The requested URL
+     * @param statusCode The HTTP status returned
+     * @param body The response body, used for context
+     */
+    public RestClientException(String url, int statusCode, String body) {
+        super("HTTP " + statusCode + " from " + url + (body != null && !body.isEmpty()
+                ? ": " + (body.length() > 200 ? body.substring(0, 200) + "..." : body) : ""));
+        this.statusCode = statusCode;
+    }
+
+    /**
+     * @return The HTTP status returned by the exchange
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
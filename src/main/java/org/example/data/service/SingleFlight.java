@@ -0,0 +1,72 @@
+package org.example.data.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Collapses concurrent loads of the same key into one.
+ *
+ * The first caller for a key starts the load; every caller that arrives while
+ * it is running receives the same future. The key is released as soon as the
+ * load completes, so the next miss after that starts a fresh load.
+ *
+ * @param <K> The key type
+ * @param <V> The loaded value type
+ */
+public class SingleFlight<K, V> {
+
+    // Loads currently running, by key
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the in-flight load for the key, or starts one with the loader.
+     *
+     * @param key The key to load
+     * @param loader Starts the load for a key; only called when none is running
+     * @return A future shared by every concurrent caller for the key
+     */
+    public CompletableFuture<V> load(K key, Function<K, CompletableFuture<V>> loader) {
+        CompletableFuture<V> existing = inFlight.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            return existing;
+        }
+
+        try {
+            loader.apply(key).whenComplete((value, error) -> {
+                // Release the key before completing so callbacks that reload see no stale entry
+                inFlight.remove(key, promise);
+                if (error != null) {
+                    promise.completeExceptionally(error);
+                } else {
+                    promise.complete(value);
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.remove(key, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise;
+    }
+
+    /**
+     * @param key The key to check
+     * @return true if a load for the key is running
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * @return The number of loads currently running
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.data.service;
+
+import org.example.data.interfaces.IClock;
+
+/**
+ * The wall clock of this machine.
+ *
+ * {@link #epochNanos()} extends the millisecond wall clock with
+ * {@link System#nanoTime()}: it adds the nanos elapsed since an anchor taken
+ * from both clocks. Once a second it compares itself with the wall clock and
+ * takes a new anchor if the two have drifted apart, as when the wall clock is
+ * adjusted; otherwise it stays continuous. Reading it allocates nothing.
+ */
+public final class SystemClock implements IClock {
+
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    private static final long CHECK_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long MAX_DRIFT_NANOS = 2_000_000L;
+
+    // Pairs an epoch time with the nanoTime it was taken at; replaced, never mutated
+    private volatile Anchor anchor = new Anchor();
+    private volatile long nextCheckNanos = System.nanoTime() + CHECK_INTERVAL_NANOS;
+
+    private SystemClock() {
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long epochNanos() {
+        long now = System.nanoTime();
+        Anchor current = anchor;
+        if (now - nextCheckNanos > 0) {
+            current = check(current, now);
+        }
+        return current.epochNanos + (now - current.nanoTime);
+    }
+
+    private Anchor check(Anchor current, long now) {
+        nextCheckNanos = now + CHECK_INTERVAL_NANOS;
+        // The wall clock only has millisecond resolution, so a small difference is expected
+        long drift = current.epochNanos + (now - current.nanoTime) - System.currentTimeMillis() * 1_000_000;
+        if (Math.abs(drift) <= MAX_DRIFT_NANOS) {
+            return current;
+        }
+        Anchor fresh = new Anchor();
+        anchor = fresh;
+        return fresh;
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private static final class Anchor {
+        final long epochNanos = System.currentTimeMillis() * 1_000_000;
+        final long nanoTime = System.nanoTime();
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.data.service;
+
+import org.example.data.interfaces.IClock;
+
+import java.time.Instant;
+
+/**
+ * A clock that only moves when it is told to, used to replay recorded data
+ * deterministically. Time is kept in epoch nanoseconds and never goes back.
+ */
+public final class VirtualClock implements IClock {
+
+    private volatile long epochNanos;
+
+    /**
+     * @param epochNanos The starting time in epoch nanoseconds
+     */
+    public VirtualClock(long epochNanos) {
+        this.epochNanos = epochNanos;
+    }
+
+    public VirtualClock() {
+        this(0);
+    }
+
+    /**
+     * Moves the clock forward to a time; earlier times are ignored.
+     *
+     * @param epochNanos The time in epoch nanoseconds
+     */
+    public void advanceTo(long epochNanos) {
+        if (epochNanos > this.epochNanos) {
+            this.epochNanos = epochNanos;
+        }
+    }
+
+    @Override
+    public long epochNanos() {
+        return epochNanos;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochNanos / 1_000_000;
+    }
+
+    @Override
+    public long nanoTime() {
+        return epochNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock{" + Instant.ofEpochSecond(0, epochNanos) + "}";
+    }
+}
@@ -0,0 +1,391 @@
+package org.example.data.service;
+
+import java.net.http.WebSocket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps one WebSocket connection ({@link MarketDataShard}) of an exchange alive.
+ *
+ * The supervisor sends a heartbeat on a fixed interval (a WebSocket ping by
+ * default, an application-level ping where the exchange requires one, see
+ * {@link ExchangeService#sendHeartbeat(WebSocket)}) and treats a socket that
+ * has received nothing, not even a pong, for longer than the silence timeout
+ * as dead. When the socket closes, fails or goes silent, it is aborted and the
+ * shard reconnects, which replays the subscriptions of its symbols.
+ * Failed attempts are retried with exponential backoff and jitter, so a
+ * venue-wide outage does not have every client reconnecting in lockstep.
+ *
+ * All supervisors share one timer thread; connection attempts, which block,
+ * run on a separate pool so one slow exchange does not delay the heartbeats
+ * of the others. A supervisor makes one attempt at a time, and an attempt that
+ * succeeds after the supervisor was stopped aborts its socket, so a stop
+ * followed by a start never leaves two sockets delivering the same symbols.
+ */
+public class WebSocketSupervisor {
+
+    /**
+     * Connection state as seen by the supervisor.
+     */
+    public enum State {
+        STOPPED,
+        CONNECTING,
+        CONNECTED,
+        // Disconnected and waiting for the next attempt
+        BACKOFF
+    }
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "websocket-supervisor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ExecutorService CONNECTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "websocket-connect");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Upper bound on the backoff exponent, well past any sensible maximum delay
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final MarketDataShard shard;
+    private final ExchangeService exchange;
+    private final long heartbeatIntervalMillis;
+    private final long silenceTimeoutNanos;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.STOPPED);
+
+    // Incremented under the supervisor's lock by start and stop, so an attempt can tell it outlived its run
+    private long run;
+
+    // Held for a whole connection attempt
+    private final Object connectLock = new Object();
+
+    private ScheduledFuture<?> heartbeatTask;
+
+    // System.nanoTime() of the latest message or pong, and of the latest disconnect
+    private volatile long lastMessageNanos;
+    private volatile long disconnectedNanos;
+
+    // Failed attempts since the last successful connection
+    private volatile int attempts;
+
+    private volatile String lastDisconnectReason;
+
+    // Metrics
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong silenceTimeouts = new AtomicLong();
+    private final AtomicLong heartbeatsSent = new AtomicLong();
+    private final AtomicLong totalGapNanos = new AtomicLong();
+    private volatile long lastGapNanos;
+    private volatile long maxGapNanos;
+
+    /**
+     * Creates a supervisor for one WebSocket connection.
+     *
+     * @param shard The connection to supervise
+     * @param heartbeatIntervalMillis Interval between heartbeats and liveness checks
+     * @param silenceTimeoutMillis Time without any message after which the socket is considered dead
+     * @param initialBackoffMillis Delay before the first reconnect attempt
+     * @param maxBackoffMillis Maximum delay between attempts
+     */
+    public WebSocketSupervisor(MarketDataShard shard, long heartbeatIntervalMillis, long silenceTimeoutMillis,
+                               long initialBackoffMillis, long maxBackoffMillis) {
+        this.shard = shard;
+        this.exchange = shard.getExchange();
+        this.heartbeatIntervalMillis = Math.max(100, heartbeatIntervalMillis);
+        this.silenceTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(silenceTimeoutMillis, heartbeatIntervalMillis));
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+    }
+
+    /**
+     * Connects the shard and starts supervising it. If the first attempt
+     * fails, the supervisor keeps retrying in the background.
+     *
+     * @return true if the first connection attempt succeeded
+     */
+    public boolean start() {
+        long startRun;
+        synchronized (this) {
+            if (state.get() != State.STOPPED) {
+                throw new IllegalStateException(describe() + " is already supervised");
+            }
+            this.attempts = 0;
+            state.set(State.CONNECTING);
+            startRun = ++run;
+            shard.setSupervisor(this);
+            heartbeatTask = TIMER.scheduleAtFixedRate(this::checkConnection,
+                    heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+            disconnectedNanos = System.nanoTime();
+        }
+
+        // Waits for an attempt of a previous run to finish and clean up after itself
+        synchronized (connectLock) {
+            return connect(false, startRun);
+        }
+    }
+
+    /**
+     * Stops supervising. The connection itself is left as it is, and the
+     * supervisor can be started again later with its metrics intact.
+     */
+    public synchronized void stop() {
+        state.set(State.STOPPED);
+        run++;
+        if (heartbeatTask != null) {
+            heartbeatTask.cancel(false);
+            heartbeatTask = null;
+        }
+    }
+
+    /**
+     * Records that the socket received something. Called by the shard for
+     * every message and pong.
+     */
+    void onMessage() {
+        lastMessageNanos = System.nanoTime();
+    }
+
+    /**
+     * Handles a close or error of the shard's current socket.
+     *
+     * @param reason What happened
+     */
+    void onDisconnect(String reason) {
+        disconnected(reason);
+    }
+
+    private void checkConnection() {
+        if (state.get() != State.CONNECTED) {
+            return;
+        }
+        if (!shard.isConnected()) {
+            disconnected("connection lost");
+            return;
+        }
+        long silentNanos = System.nanoTime() - lastMessageNanos;
+        if (silentNanos > silenceTimeoutNanos) {
+            silenceTimeouts.incrementAndGet();
+            disconnected("no message for " + TimeUnit.NANOSECONDS.toMillis(silentNanos) + " ms");
+            return;
+        }
+        try {
+            shard.sendHeartbeat();
+            heartbeatsSent.incrementAndGet();
+        } catch (Exception e) {
+            exchange.logWarning("Failed to send heartbeat on " + describe() + ": " + e.getMessage());
+        }
+    }
+
+    private void disconnected(String reason) {
+        if (!state.compareAndSet(State.CONNECTED, State.BACKOFF)) {
+            return;
+        }
+        disconnectedNanos = System.nanoTime();
+        lastDisconnectReason = reason;
+        exchange.logWarning(describe() + " disconnected (" + reason + "), reconnecting");
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        long delay = nextBackoffMillis();
+        try {
+            TIMER.schedule(() -> CONNECTOR.execute(this::reconnect), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            exchange.logError("Failed to schedule WebSocket reconnect", e);
+        }
+    }
+
+    /**
+     * Returns the delay before the next attempt: the exponential backoff for
+     * the number of failed attempts, capped, with its upper half randomized.
+     */
+    private long nextBackoffMillis() {
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempts, MAX_BACKOFF_SHIFT));
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    private void reconnect() {
+        long attemptRun;
+        synchronized (this) {
+            if (!state.compareAndSet(State.BACKOFF, State.CONNECTING)) {
+                return;
+            }
+            attemptRun = run;
+        }
+
+        synchronized (connectLock) {
+            synchronized (this) {
+                if (run != attemptRun) {
+                    // Stopped, and perhaps restarted, while the previous attempt finished
+                    return;
+                }
+            }
+            // The old socket may be half-open; abort it rather than wait for a close handshake
+            shard.abort();
+
+            if (connect(true, attemptRun)) {
+                reconnects.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Runs one connection attempt, with the connect lock held. A failed
+     * attempt schedules the next one; a socket opened after the supervisor
+     * was stopped is aborted.
+     *
+     * @param afterDisconnect true if the attempt ends an outage, which is then recorded
+     * @param attemptRun The run the attempt belongs to
+     * @return true if connected
+     */
+    private boolean connect(boolean afterDisconnect, long attemptRun) {
+        if (!shard.connect()) {
+            attempts++;
+            failedAttempts.incrementAndGet();
+            synchronized (this) {
+                if (run == attemptRun && state.compareAndSet(State.CONNECTING, State.BACKOFF)) {
+                    scheduleReconnect();
+                }
+            }
+            return false;
+        }
+
+        long now = System.nanoTime();
+        lastMessageNanos = now;
+        synchronized (this) {
+            if (run != attemptRun || !state.compareAndSet(State.CONNECTING, State.CONNECTED)) {
+                // Stopped during the attempt; whoever stopped it no longer expects this socket
+                shard.abort();
+                exchange.logInfo(describe() + " was stopped while connecting; closed the new connection");
+                return false;
+            }
+        }
+
+        if (afterDisconnect) {
+            long gap = now - disconnectedNanos;
+            lastGapNanos = gap;
+            maxGapNanos = Math.max(maxGapNanos, gap);
+            totalGapNanos.addAndGet(gap);
+            exchange.logInfo(describe() + " reconnected after " + TimeUnit.NANOSECONDS.toMillis(gap) + " ms and "
+                    + (attempts + 1) + " attempt(s)");
+        }
+        attempts = 0;
+        return true;
+    }
+
+    /**
+     * @return The current state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * @return true if the supervised socket is connected
+     */
+    public boolean isConnected() {
+        return state.get() == State.CONNECTED;
+    }
+
+    /**
+     * @return The supervised connection
+     */
+    public MarketDataShard getShard() {
+        return shard;
+    }
+
+    /**
+     * @return Successful reconnects after a disconnect
+     */
+    public long getReconnectCount() {
+        return reconnects.get();
+    }
+
+    /**
+     * @return Connection attempts that failed
+     */
+    public long getFailedAttemptCount() {
+        return failedAttempts.get();
+    }
+
+    /**
+     * @return Disconnects caused by the silence timeout
+     */
+    public long getSilenceTimeoutCount() {
+        return silenceTimeouts.get();
+    }
+
+    /**
+     * @return Heartbeats sent
+     */
+    public long getHeartbeatCount() {
+        return heartbeatsSent.get();
+    }
+
+    /**
+     * @return Duration of the latest outage, from disconnect to reconnect, in milliseconds
+     */
+    public long getLastGapMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastGapNanos);
+    }
+
+    /**
+     * @return Duration of the longest outage in milliseconds
+     */
+    public long getMaxGapMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxGapNanos);
+    }
+
+    /**
+     * @return Total time spent disconnected, including the current outage, in milliseconds
+     */
+    public long getTotalGapMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalGapNanos.get() + getCurrentGapNanos());
+    }
+
+    /**
+     * @return Duration of the current outage in milliseconds, 0 while connected
+     */
+    public long getCurrentGapMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(getCurrentGapNanos());
+    }
+
+    private long getCurrentGapNanos() {
+        State current = state.get();
+        return current == State.BACKOFF || current == State.CONNECTING ? System.nanoTime() - disconnectedNanos : 0;
+    }
+
+    /**
+     * @return Why the socket was last considered disconnected, or null if it never was
+     */
+    public String getLastDisconnectReason() {
+        return lastDisconnectReason;
+    }
+
+    private String describe() {
+        return exchange.getExchangeName() + " WebSocket shard " + shard.getIndex();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %s, %d reconnects, %d failed attempts, %d silence timeouts, "
+                        + "gap last %d ms / max %d ms / total %d ms%s",
+                describe(), getState(), getReconnectCount(), getFailedAttemptCount(),
+                getSilenceTimeoutCount(), getLastGapMillis(), getMaxGapMillis(), getTotalGapMillis(),
+                lastDisconnectReason != null ? ", last cause: " + lastDisconnectReason : "");
+    }
+}
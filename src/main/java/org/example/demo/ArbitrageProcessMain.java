@@ -4,15 +4,28 @@ import org.example.data.model.ArbitrageOpportunity;
 import org.example.data.model.Ticker;
 import org.example.data.model.TradingPair;
 import org.example.data.model.RiskAssessment;
+import org.example.data.model.SymbolRegistry;
 import org.example.data.fee.FeeReportGenerator;
 import org.example.data.fee.Fee;
 import org.example.data.fee.FeeCalculator;
 import org.example.data.service.BinanceExchangeService;
 import org.example.data.service.BybitV5ExchangeService;
 import org.example.data.service.CoinbaseExchangeService;
+import org.example.data.service.ConflatingMarketDataChannel;
 import org.example.data.service.ExchangeService;
 import org.example.data.service.KrakenExchangeService;
-import org.example.domain.engine.ExchangeToExchangeArbitrage;
+import org.example.data.service.ListingIndex;
+import org.example.data.service.MarketDataDispatcher;
+import org.example.data.service.MarketDataJournal;
+import org.example.data.service.MarketDataShard;
+import org.example.data.service.RateLimiter;
+import org.example.data.service.WebSocketSupervisor;
+import org.example.domain.engine.ArbitrageEngine;
+import org.example.domain.engine.PriceGraphArbitrageEngine;
+import org.example.domain.engine.TickDrivenArbitrageEvaluator;
+import org.example.domain.engine.TopOpportunityHeap;
+import org.example.domain.engine.TriangularArbitrageEngine;
+import org.example.domain.position.PositionSizer;
 import org.example.domain.risk.RiskCalculator;
 import org.example.domain.risk.SlippageAnalyticsBuilder;
 import org.example.domain.risk.SlippageManagerService;
@@ -22,13 +35,18 @@ import org.example.data.model.ArbitrageConfiguration;
 import org.example.data.model.ExchangeConfiguration;
 import org.example.data.model.RiskConfiguration;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -41,13 +59,28 @@ public class ArbitrageProcessMain {
     private static double MAX_SLIPPAGE_PERCENT;
     private static boolean ENABLE_FEE_REPORTS;
     
-    // Store exchange symbol mappings
-    private static Map<ExchangeService, Map<String, String>> exchangeSymbolMap = new HashMap<>();
-    
     // Add slippage manager service as a static field
     private static SlippageManagerService slippageManager;
 
     private static SlippageAnalyticsBuilder slippageAnalytics;
+    
+    // Event-driven evaluator, null unless tick-driven evaluation is enabled
+    private static TickDrivenArbitrageEvaluator tickEvaluator;
+
+    // Best opportunities seen by the tick-driven evaluator, null unless it is enabled
+    private static TopOpportunityHeap topOpportunities;
+
+    // Journal of every decoded WebSocket update, null unless recording is enabled
+    private static MarketDataJournal marketDataJournal;
+
+    // Single-exchange cycle evaluation, null unless triangular evaluation is enabled
+    private static TriangularArbitrageEngine triangularEngine;
+
+    // Multi-exchange cycle search, null unless price graph evaluation is enabled
+    private static PriceGraphArbitrageEngine priceGraphEngine;
+
+    // Scans the exchange pairs for the periodic comparison, on system.performance.threadPoolSize threads
+    private static ArbitrageEngine scanEngine;
 
     public static void main(String[] args) {
         System.out.println("=== Starting Real-time Arbitrage Process with WebSocket Data ===");
@@ -73,9 +106,36 @@ public class ArbitrageProcessMain {
         // Configure exchange-specific fee structures based on trading volume
         binance.updateFeesTiers(0.0);
         binance.setBnbDiscount(ConfigurationFactory.getBoolean("exchanges.binance.bnbDiscount", false));
+        binance.setDepthStream(ConfigurationFactory.getBoolean("exchanges.binance.depthStream", true),
+                ConfigurationFactory.getInteger("exchanges.binance.depthSnapshotLimit", 1000));
         coinbase.updateFeesTiers(0.0);
         kraken.updateFeesTiers(0.0);
         bybit.updateFeesTiers(0.0);
+        
+        // Serve slightly stale market data while a single background refresh runs
+        boolean staleWhileRevalidate = ConfigurationFactory.getBoolean("system.performance.staleWhileRevalidate", false);
+        int maxStaleMs = ConfigurationFactory.getInteger("system.performance.maxStaleMs", 30000);
+        for (ExchangeService ex : List.of(binance, coinbase, kraken, bybit)) {
+            ex.setStaleWhileRevalidate(staleWhileRevalidate, maxStaleMs);
+        }
+        
+        // Enforce the exchanges' REST request budgets and our own order limits
+        configureRateLimits(List.of(binance, coinbase, kraken, bybit), exchangeConfig);
+        
+        // Decode WebSocket messages on the socket thread and apply them on a dedicated one
+        if (ConfigurationFactory.getBoolean("system.performance.marketDataDispatch", true)) {
+            int queueCapacity = ConfigurationFactory.getInteger("system.performance.marketDataQueueCapacity", 4096);
+            MarketDataDispatcher.BackpressurePolicy backpressure = MarketDataDispatcher.BackpressurePolicy.valueOf(
+                    ConfigurationFactory.getString("system.performance.marketDataBackpressure", "CONFLATE").toUpperCase());
+            for (ExchangeService ex : List.of(binance, coinbase, kraken, bybit)) {
+                ex.enableMarketDataDispatch(queueCapacity, backpressure);
+            }
+        }
+
+        // Record what the feeds deliver so opportunities can be reproduced later
+        if (ConfigurationFactory.getBoolean("system.recording.enabled", false)) {
+            startRecording(List.of(binance, coinbase, kraken, bybit));
+        }
 
         List<ExchangeService> exchanges = new ArrayList<>();
         // Add only enabled exchanges from configuration
@@ -111,20 +171,32 @@ public class ArbitrageProcessMain {
             System.out.println("Limited to " + maxSymbolLimit + " tradable symbols for demonstration purposes");
         }
         
+        // Evaluate opportunities as ticks arrive, registered before the feeds start
+        if (!tradableSymbols.isEmpty()
+                && ConfigurationFactory.getBoolean("system.scheduling.tickDrivenEvaluation", false)) {
+            startTickDrivenEvaluation(exchanges, tradableSymbols);
+        }
+        if (ConfigurationFactory.getBoolean("system.scheduling.triangularEvaluation", false)) {
+            startTriangularEvaluation(exchanges);
+        }
+        if (ConfigurationFactory.getBoolean("system.scheduling.priceGraphEvaluation", false)) {
+            startPriceGraphEvaluation(exchanges);
+        }
+
         // Step 4: Initialize WebSocket connections for all exchanges with proper error handling
         if (!tradableSymbols.isEmpty()) {
+            int[] instrumentIds = toInstrumentIds(tradableSymbols);
+            boolean supervise = ConfigurationFactory.getBoolean("system.websocket.supervise", true);
+            int maxSymbolsPerConnection = ConfigurationFactory.getInteger("system.websocket.maxSymbolsPerConnection", 0);
+            int maxConnections = ConfigurationFactory.getInteger("system.websocket.maxConnections", 16);
             try {
                 for (ExchangeService ex : exchanges) {
                     try {
                         List<String> exchangeSpecificSymbols = new ArrayList<>();
-                        Map<String, String> symbolMap = exchangeSymbolMap.get(ex);
-                        
-                        if (symbolMap != null) {
-                            for (String normalizedSymbol : tradableSymbols) {
-                                String exchangeSymbol = symbolMap.get(normalizedSymbol);
-                                if (exchangeSymbol != null) {
-                                    exchangeSpecificSymbols.add(exchangeSymbol);
-                                }
+                        for (int instrumentId : instrumentIds) {
+                            String exchangeSymbol = ex.getNativeSymbol(instrumentId);
+                            if (exchangeSymbol != null) {
+                                exchangeSpecificSymbols.add(exchangeSymbol);
                             }
                         }
                         
@@ -132,7 +204,13 @@ public class ArbitrageProcessMain {
                             continue;
                         }
                         
-                        boolean success = ex.initializeWebSocket(exchangeSpecificSymbols);
+                        // Symbols are spread over as many connections as the exchange's per-connection cap requires
+                        ex.setWebSocketSharding(maxSymbolsPerConnection, maxConnections);
+                        if (supervise) {
+                            // Each connection reconnects with backoff and replays its subscriptions when it drops
+                            enableWebSocketSupervision(ex);
+                        }
+                        ex.initializeWebSocket(exchangeSpecificSymbols);
 
                     } catch (Exception e) {
                         e.printStackTrace();
@@ -166,9 +244,40 @@ public class ArbitrageProcessMain {
         schedulePeriodicScans(exchanges, tradableSymbolsSet);
     }
     
+    /**
+     * Enables supervision of an exchange's WebSocket connections with the configured timings.
+     */
+    private static void enableWebSocketSupervision(ExchangeService exchange) {
+        exchange.enableWebSocketSupervision(
+                ConfigurationFactory.getInteger("system.websocket.heartbeatIntervalMs", 15000),
+                ConfigurationFactory.getInteger("system.websocket.silenceTimeoutMs", 45000),
+                ConfigurationFactory.getInteger("system.websocket.reconnectInitialBackoffMs", 500),
+                ConfigurationFactory.getInteger("system.websocket.reconnectMaxBackoffMs", 30000));
+    }
+
     /**
      * Load configuration values from configuration service
      */
+    /**
+     * Opens the market data journal and attaches it to every exchange. The journal
+     * is flushed to disk when the process exits.
+     */
+    private static void startRecording(List<ExchangeService> exchanges) {
+        String directory = ConfigurationFactory.getString("system.recording.directory", "data/journal/");
+        int fileSizeMb = ConfigurationFactory.getInteger("system.recording.fileSizeMb", 256);
+        try {
+            MarketDataJournal journal = new MarketDataJournal(Paths.get(directory), fileSizeMb * 1024 * 1024);
+            for (ExchangeService exchange : exchanges) {
+                exchange.setMarketDataJournal(journal);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "market-data-journal-close"));
+            marketDataJournal = journal;
+            System.out.println("Recording market data to " + journal.getDirectory().toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Cannot record market data to " + directory + ": " + e.getMessage());
+        }
+    }
+
     private static void loadConfiguration() {
         // Load arbitrage configuration
         ArbitrageConfiguration arbitrageConfig = ConfigurationFactory.getArbitrageConfig();
@@ -190,6 +299,93 @@ public class ArbitrageProcessMain {
         System.out.println("- Max Slippage %: " + (MAX_SLIPPAGE_PERCENT * 100) + "%");
     }
     
+    /**
+     * Creates the REST and order rate limiters of each exchange from
+     * exchanges.rateLimits (requests or weight per minute) and
+     * trading.exchangeLimits.&lt;exchange&gt;.maxOrdersPerSecond.
+     * 
+     * @param exchanges List of exchange services
+     * @param exchangeConfig The exchange configuration
+     */
+    private static void configureRateLimits(List<ExchangeService> exchanges, ExchangeConfiguration exchangeConfig) {
+        Map<String, Integer> rateLimits = exchangeConfig.getRateLimits();
+        for (ExchangeService exchange : exchanges) {
+            String key = exchange.getExchangeName().toLowerCase();
+            
+            Integer requestsPerMinute = rateLimits.get(key);
+            if (requestsPerMinute != null && requestsPerMinute > 0) {
+                exchange.setRestRateLimiter(RateLimiter.perMinute(exchange.getExchangeName() + " REST", requestsPerMinute));
+            }
+            
+            int ordersPerSecond = ConfigurationFactory.getInteger("trading.exchangeLimits." + key + ".maxOrdersPerSecond", 0);
+            if (ordersPerSecond > 0) {
+                exchange.setOrderRateLimiter(RateLimiter.perSecond(exchange.getExchangeName() + " orders", ordersPerSecond));
+            }
+        }
+    }
+    
+    /**
+     * Prints REST rate limiter usage, market data hand-off queue metrics and
+     * tick evaluation conflation ratios for each exchange.
+     * 
+     * @param exchanges List of exchange services
+     */
+    private static void printMarketDataStats(List<ExchangeService> exchanges) {
+        for (ExchangeService exchange : exchanges) {
+            RateLimiter limiter = exchange.getRestRateLimiter();
+            if (limiter != null && limiter.getAcquisitions() > 0) {
+                System.out.println("[RateLimit] " + limiter);
+            }
+            for (MarketDataShard shard : exchange.getMarketDataShards()) {
+                System.out.println("[WebSocket] " + shard);
+                WebSocketSupervisor supervisor = shard.getSupervisor();
+                if (supervisor != null) {
+                    System.out.println("[WebSocket] " + supervisor);
+                }
+            }
+            for (MarketDataDispatcher dispatcher : exchange.getMarketDataDispatchers()) {
+                if (dispatcher.getPublishedCount() > 0) {
+                    System.out.println("[MarketData] " + dispatcher);
+                }
+            }
+            if (exchange.getFeedLatencyStats().getCount() > 0) {
+                System.out.println("[Latency] " + exchange.getExchangeName() + " " + exchange.getFeedLatencyStats());
+            }
+            if (exchange instanceof BinanceExchangeService && ((BinanceExchangeService) exchange).isDepthStream()) {
+                System.out.println("[Depth] " + ((BinanceExchangeService) exchange).getDepthSyncStatus());
+            }
+            if (exchange instanceof KrakenExchangeService) {
+                System.out.println("[Depth] " + ((KrakenExchangeService) exchange).getBookChecksumStatus());
+            }
+        }
+        if (tickEvaluator != null) {
+            for (ConflatingMarketDataChannel channel : tickEvaluator.getChannels()) {
+                System.out.println("[Conflation] " + channel);
+            }
+        }
+        if (marketDataJournal != null) {
+            System.out.println("[Journal] " + marketDataJournal);
+        }
+        if (topOpportunities != null) {
+            // Drop pairs whose tickers went quiet without a closing evaluation
+            topOpportunities.expire(ConfigurationFactory.getInteger("system.scheduling.tickMaxTickerAgeMs", 5000));
+            int rank = 1;
+            for (ArbitrageOpportunity opportunity : topOpportunities.snapshot()) {
+                System.out.println("[Top] " + rank++ + ". " + opportunity.getNormalizedSymbol()
+                        + ": buy on " + opportunity.getExchangeBuy() + " at " + formatPrice(opportunity.getBuyPrice())
+                        + ", sell on " + opportunity.getExchangeSell() + " at " + formatPrice(opportunity.getSellPrice())
+                        + " = " + String.format("%.4f", opportunity.getProfitPercent()) + "%");
+            }
+        }
+        if (triangularEngine != null) {
+            System.out.println("[Triangular] " + triangularEngine.getEvaluationCount() + " cycle evaluations, "
+                    + triangularEngine.getOpportunityCount() + " opportunities");
+        }
+        if (priceGraphEngine != null) {
+            System.out.println("[PriceGraph] " + priceGraphEngine);
+        }
+    }
+    
     /**
      * Prints fee reports for all exchanges.
      * 
@@ -210,6 +406,22 @@ public class ArbitrageProcessMain {
         }
     }
     
+    /**
+     * Returns the engine the periodic comparison scans with, creating it on
+     * first use with one scan thread per system.performance.threadPoolSize.
+     */
+    private static synchronized ArbitrageEngine getScanEngine(List<ExchangeService> exchanges) {
+        if (scanEngine == null) {
+            int threads = ConfigurationFactory.getInteger("system.performance.threadPoolSize",
+                    Runtime.getRuntime().availableProcessors());
+            scanEngine = new ArbitrageEngine(MIN_PROFIT_PERCENT, new RiskCalculator(MIN_PROFIT_PERCENT / 100), null, threads);
+            for (ExchangeService exchange : exchanges) {
+                scanEngine.addExchange(exchange);
+            }
+        }
+        return scanEngine;
+    }
+
     /**
      * Runs a direct comparison between exchanges for all common symbols.
      * This provides a more detailed view of the price differences.
@@ -230,153 +442,135 @@ public class ArbitrageProcessMain {
         // Create risk calculator and position sizer
         RiskCalculator riskCalculator = new RiskCalculator(MIN_PROFIT_PERCENT / 100);
         
-        for (int i = 0; i < exchanges.size(); i++) {
-            for (int j = i + 1; j < exchanges.size(); j++) {
-                ExchangeService exA = exchanges.get(i);
-                ExchangeService exB = exchanges.get(j);
-                
-                for (String symbol : tradableSymbols) {
-                    try {
-                        // Check if both exchanges support this symbol
-                        if (!exchangeSymbolMap.containsKey(exA) || !exchangeSymbolMap.containsKey(exB)) {
-                            continue;
-                        }
-                        
-                        String symbolA = exchangeSymbolMap.get(exA).get(symbol);
-                        String symbolB = exchangeSymbolMap.get(exB).get(symbol);
-                        
-                        // Skip if the symbol is not available on both exchanges
-                        if (symbolA == null || symbolB == null) {
-                            continue;
-                        }
+        // Every exchange pair is compared for every symbol listed on both, fanned out over the
+        // scan engine's threads; the engine refreshes each exchange's tickers with one batch call first
+        List<TradingPair> pairs = new ArrayList<>();
+        for (int instrumentId : toInstrumentIds(tradableSymbols)) {
+            pairs.add(new TradingPair(SymbolRegistry.getInstance().symbolOf(instrumentId)));
+        }
+        List<ArbitrageOpportunity> scanned = getScanEngine(exchanges).scanForOpportunities(pairs).getOpportunities();
+        
+        Map<String, ExchangeService> exchangesByName = new HashMap<>();
+        for (ExchangeService exchange : exchanges) {
+            exchangesByName.put(exchange.getExchangeName(), exchange);
+        }
+        
+        for (ArbitrageOpportunity opportunity : scanned) {
+            String symbol = opportunity.getNormalizedSymbol();
+            try {
+                if (opportunity.getProfitPercent() > MIN_PROFIT_PERCENT) {
+                    // Get fee information
+                    String buyExchange = opportunity.getExchangeBuy();
+                    String sellExchange = opportunity.getExchangeSell();
+                    double buyPrice = opportunity.getBuyPrice();
+                    double sellPrice = opportunity.getSellPrice();
+                    
+                    // Determine which exchange service is the buy/sell exchange
+                    ExchangeService buyExchangeService = exchangesByName.get(buyExchange);
+                    ExchangeService sellExchangeService = exchangesByName.get(sellExchange);
+                    
+                    // Get fee objects
+                    Fee buyFee = buyExchangeService.getMakerFee();
+                    Fee sellFee = sellExchangeService.getTakerFee();
+                    
+                    // Calculate quantity based on price
+                    double quantity;
+                    if (buyPrice < 0.001) {
+                        quantity = 1000000; // 1 million units for micro-priced tokens like SHIB
+                    } else if (buyPrice < 1.0) {
+                        quantity = 1000; // 1,000 units for tokens under $1
+                    } else if (buyPrice < 100.0) {
+                        quantity = 10; // 10 units for tokens under $100
+                    } else {
+                        quantity = 0.01; // 0.01 units for expensive tokens like BTC
+                    }
+                    
+                    // Calculate fee percentages
+                    double buyFeePercent = buyFee.calculateFee(buyPrice * quantity) / (buyPrice * quantity) * 100;
+                    double sellFeePercent = sellFee.calculateFee(sellPrice * quantity) / (sellPrice * quantity) * 100;
+                    double totalFeePercent = buyFeePercent + sellFeePercent;
+                    
+                    // Calculate raw price difference percentage
+                    double priceDiffPercent = ((sellPrice / buyPrice) - 1) * 100;
+                    
+                    // Tickers for risk assessment are the ones the opportunity was priced from
+                    String buySymbol = opportunity.getNormalizedSymbol();
+                    String sellSymbol = opportunity.getNormalizedSymbol();
+                    Ticker buyTicker = opportunity.getBuyTicker();
+                    Ticker sellTicker = opportunity.getSellTicker();
+                    
+                    // Calculate enhanced risk assessment with slippage information
+                    RiskAssessment risk = riskCalculator.calculateRisk(
+                        buyTicker, 
+                        sellTicker, 
+                        buyFeePercent / 100, 
+                        sellFeePercent / 100
+                    );
+                    
+                    // Add risk assessment to opportunity
+                    opportunity.setRiskAssessment(risk);
+                    
+                    // Set ticker data in the opportunity
+                    opportunity.setBuyTicker(buyTicker);
+                    opportunity.setSellTicker(sellTicker);
+                    
+                    // Calculate optimal position size
+                    double optimalPositionSize = calculateOptimalPositionSize(
+                        opportunity, 
+                        AVAILABLE_CAPITAL, 
+                        MAX_POSITION_PERCENT
+                    );
+                    
+                    // Calculate expected slippage
+                    double tradeSize = optimalPositionSize / buyPrice;
+                    double buySlippage = calculateExpectedSlippage(buyTicker, true, tradeSize, buySymbol);
+                    double sellSlippage = calculateExpectedSlippage(sellTicker, false, tradeSize, sellSymbol);
+                    double totalSlippage = buySlippage + sellSlippage;
+                    
+                    // Format the opportunity display
+                    StringBuilder sb = new StringBuilder();
+                    sb.append(String.format(">>> %s: Buy on %s at %s, Sell on %s at %s\n", 
+                        opportunity.getNormalizedSymbol(),
+                        opportunity.getExchangeBuy(),
+                        formatPrice(opportunity.getBuyPrice()),
+                        opportunity.getExchangeSell(),
+                        formatPrice(opportunity.getSellPrice())));
+                    
+                    sb.append(String.format("    Profit: %.4f%% | Success Rate: %.2f%%\n", 
+                        opportunity.getProfitPercent(),
+                        opportunity.getSuccessfulArbitragePercent()));
+                    
+                    // Add fee information
+                    sb.append(String.format("    Fees: Buy: %.4f%% (%s) | Sell: %.4f%% (%s) | Total: %.4f%%\n",
+                        buyFeePercent, 
+                        buyFee.getDescription(),
+                        sellFeePercent,
+                        sellFee.getDescription(),
+                        totalFeePercent));
                         
-                        TradingPair pair = new TradingPair(symbol);
-                        ExchangeToExchangeArbitrage arbitrageCalc = new ExchangeToExchangeArbitrage(exA, exB);
-                        ArbitrageOpportunity opportunity = arbitrageCalc.calculateArbitrage(pair);
-
-                        if (opportunity != null && opportunity.getProfitPercent() > MIN_PROFIT_PERCENT) {
-                            // Get fee information
-                            String buyExchange = opportunity.getExchangeBuy();
-                            String sellExchange = opportunity.getExchangeSell();
-                            double buyPrice = opportunity.getBuyPrice();
-                            double sellPrice = opportunity.getSellPrice();
-                            
-                            // Determine which exchange service is the buy/sell exchange
-                            ExchangeService buyExchangeService = null;
-                            ExchangeService sellExchangeService = null;
-                            
-                            if (buyExchange.equals(exA.getExchangeName())) {
-                                buyExchangeService = exA;
-                                sellExchangeService = exB;
-                            } else {
-                                buyExchangeService = exB;
-                                sellExchangeService = exA;
-                            }
-                            
-                            // Get fee objects
-                            Fee buyFee = buyExchangeService.getMakerFee();
-                            Fee sellFee = sellExchangeService.getTakerFee();
-                            
-                            // Calculate quantity based on price
-                            double quantity;
-                            if (buyPrice < 0.001) {
-                                quantity = 1000000; // 1 million units for micro-priced tokens like SHIB
-                            } else if (buyPrice < 1.0) {
-                                quantity = 1000; // 1,000 units for tokens under $1
-                            } else if (buyPrice < 100.0) {
-                                quantity = 10; // 10 units for tokens under $100
-                            } else {
-                                quantity = 0.01; // 0.01 units for expensive tokens like BTC
-                            }
-                            
-                            // Calculate fee percentages
-                            double buyFeePercent = buyFee.calculateFee(buyPrice * quantity) / (buyPrice * quantity) * 100;
-                            double sellFeePercent = sellFee.calculateFee(sellPrice * quantity) / (sellPrice * quantity) * 100;
-                            double totalFeePercent = buyFeePercent + sellFeePercent;
-                            
-                            // Calculate raw price difference percentage
-                            double priceDiffPercent = ((sellPrice / buyPrice) - 1) * 100;
-                            
-                            // Get tickers for risk assessment using normalized symbol
-                            String buySymbol = opportunity.getNormalizedSymbol();
-                            String sellSymbol = opportunity.getNormalizedSymbol();
-                            Ticker buyTicker = buyExchangeService.getTickerData(buySymbol);
-                            Ticker sellTicker = sellExchangeService.getTickerData(sellSymbol);
-                            
-                            // Calculate enhanced risk assessment with slippage information
-                            RiskAssessment risk = riskCalculator.calculateRisk(
-                                buyTicker, 
-                                sellTicker, 
-                                buyFeePercent / 100, 
-                                sellFeePercent / 100
-                            );
-                            
-                            // Add risk assessment to opportunity
-                            opportunity.setRiskAssessment(risk);
-                            
-                            // Set ticker data in the opportunity
-                            opportunity.setBuyTicker(buyTicker);
-                            opportunity.setSellTicker(sellTicker);
-                            
-                            // Calculate optimal position size
-                            double optimalPositionSize = calculateOptimalPositionSize(
-                                opportunity, 
-                                AVAILABLE_CAPITAL, 
-                                MAX_POSITION_PERCENT
-                            );
-                            
-                            // Calculate expected slippage
-                            double tradeSize = optimalPositionSize / buyPrice;
-                            double buySlippage = calculateExpectedSlippage(buyTicker, true, tradeSize, buySymbol);
-                            double sellSlippage = calculateExpectedSlippage(sellTicker, false, tradeSize, sellSymbol);
-                            double totalSlippage = buySlippage + sellSlippage;
-                            
-                            // Format the opportunity display
-                            StringBuilder sb = new StringBuilder();
-                            sb.append(String.format(">>> %s: Buy on %s at %s, Sell on %s at %s\n", 
-                                opportunity.getNormalizedSymbol(),
-                                opportunity.getExchangeBuy(),
-                                formatPrice(opportunity.getBuyPrice()),
-                                opportunity.getExchangeSell(),
-                                formatPrice(opportunity.getSellPrice())));
-                            
-                            sb.append(String.format("    Profit: %.4f%% | Success Rate: %.2f%%\n", 
-                                opportunity.getProfitPercent(),
-                                opportunity.getSuccessfulArbitragePercent()));
-                            
-                            // Add fee information
-                            sb.append(String.format("    Fees: Buy: %.4f%% (%s) | Sell: %.4f%% (%s) | Total: %.4f%%\n",
-                                buyFeePercent, 
-                                buyFee.getDescription(),
-                                sellFeePercent,
-                                sellFee.getDescription(),
-                                totalFeePercent));
-                                
-                            sb.append(String.format("    Price Diff: %.4f%% | Net After Fees: %.4f%%\n",
-                                priceDiffPercent,
-                                priceDiffPercent - totalFeePercent));
-                            
-                            // Add risk assessment if available
-                            if (risk != null) {
-                                sb.append(String.format("    Risk Score: %.2f | Liquidity: %.2f | Volatility: %.2f\n",
-                                    risk.getOverallRiskScore(),
-                                    risk.getLiquidityScore(),
-                                    risk.getVolatilityScore()));
-                                    
-                                // Add slippage information
-                                sb.append(String.format("    Slippage: Buy: %.4f%% | Sell: %.4f%% | Total: %.4f%%\n",
-                                    buySlippage * 100,
-                                    sellSlippage * 100,
-                                    totalSlippage * 100));
-                            }
-
+                    sb.append(String.format("    Price Diff: %.4f%% | Net After Fees: %.4f%%\n",
+                        priceDiffPercent,
+                        priceDiffPercent - totalFeePercent));
+                    
+                    // Add risk assessment if available
+                    if (risk != null) {
+                        sb.append(String.format("    Risk Score: %.2f | Liquidity: %.2f | Volatility: %.2f\n",
+                            risk.getOverallRiskScore(),
+                            risk.getLiquidityScore(),
+                            risk.getVolatilityScore()));
                             
-                            System.out.println(sb.toString());
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error calculating arbitrage for " + symbol + ": " + e.getMessage());
+                        // Add slippage information
+                        sb.append(String.format("    Slippage: Buy: %.4f%% | Sell: %.4f%% | Total: %.4f%%\n",
+                            buySlippage * 100,
+                            sellSlippage * 100,
+                            totalSlippage * 100));
                     }
+
+                    
+                    System.out.println(sb.toString());
                 }
+            } catch (Exception e) {
+                System.err.println("Error calculating arbitrage for " + symbol + ": " + e.getMessage());
             }
         }
         
@@ -385,7 +579,8 @@ public class ArbitrageProcessMain {
     }
     
     /**
-     * Calculates the optimal position size for an arbitrage opportunity based on risk assessment.
+     * Calculates the optimal position size for an arbitrage opportunity based on risk assessment,
+     * with the same {@link PositionSizer} that backtests use, at half Kelly.
      * 
      * @param opportunity The arbitrage opportunity to size
      * @param availableCapital Total capital available for trading
@@ -393,56 +588,7 @@ public class ArbitrageProcessMain {
      * @return Optimal position size in base currency units
      */
     private static double calculateOptimalPositionSize(ArbitrageOpportunity opportunity, double availableCapital, double maxPositionPct) {
-        // Validate inputs
-        if (opportunity == null || opportunity.getRiskAssessment() == null) {
-            return 0.0;
-        }
-        
-        RiskAssessment risk = opportunity.getRiskAssessment();
-        
-        // Extract key risk factors
-        double overallRisk = risk.getOverallRiskScore();
-        double slippageRisk = risk.getSlippageRisk();
-        double liquidityScore = risk.getLiquidityScore();
-        double volatilityScore = risk.getVolatilityScore();
-        
-        // Calculate win probability (using overall risk as a proxy)
-        double winProbability = Math.min(0.95, overallRisk * 0.9 + 0.05);
-        
-        // Calculate potential profit and loss
-        double potentialProfit = opportunity.getProfitPercent() / 100.0;
-        double potentialLoss = 1.0 - slippageRisk; // Use slippage risk as a proxy for potential loss
-        
-        // Calculate Kelly fraction (optimal bet size as fraction of capital)
-        double kellyFraction = 0.0;
-        if (potentialLoss > 0) {
-            kellyFraction = (winProbability * (1 + potentialProfit) - 1) / potentialLoss;
-        }
-        
-        // Apply a safety factor (using half Kelly or less is common practice)
-        double safetyFactor = 0.5;
-        kellyFraction *= safetyFactor;
-        
-        // Cap the position size
-        double cappedFraction = Math.min(kellyFraction, maxPositionPct);
-        
-        // Apply additional risk-based scaling factors
-        double liquidityAdjustment = Math.pow(liquidityScore, 1.5); // Penalize low liquidity more aggressively
-        double volatilityAdjustment = Math.pow(volatilityScore, 1.2); // Slightly reduce size for high volatility
-        
-        // Calculate final position size with all constraints
-        double optimalFraction = cappedFraction * liquidityAdjustment * volatilityAdjustment;
-        
-        // Convert fraction to actual position size
-        double positionSize = availableCapital * optimalFraction;
-        
-        // Implement minimum position size threshold (to avoid dust positions)
-        double minimumPositionSize = 10.0; // Example minimum size in base currency
-        if (positionSize < minimumPositionSize) {
-            return 0.0; // Don't trade if optimal size is too small
-        }
-        
-        return positionSize;
+        return new PositionSizer(maxPositionPct, 0.5, 10.0).calculateOptimalPositionSize(opportunity, availableCapital);
     }
     
     /**
@@ -512,76 +658,49 @@ public class ArbitrageProcessMain {
         }
     }
 
-    /**
-     * Normalizes a symbol to a standard format.
-     */
-    private static String normalizeSymbol(String symbol) {
-        // Remove any separators like '-' or '/'
-        String normalized = symbol.replace("-", "").replace("/", "").toUpperCase();
-        
-        // Handle special cases like XBT (Kraken's name for BTC)
-        if (normalized.startsWith("XBT")) {
-            normalized = "BTC" + normalized.substring(3);
-        }
-        
-        // Strip exchange-specific suffixes if needed
-        // Some exchanges add specific identifiers we don't need for comparison
-        if (normalized.endsWith(".P") || normalized.endsWith(".T")) {
-            normalized = normalized.substring(0, normalized.length() - 2);
-        }
-        
-        return normalized;
-    }
-
     /**
      * Find trading symbols available on at least two exchanges using symbol normalization.
      * This enhances arbitrage opportunities by considering any pair traded on at least two exchanges.
+     * Pairs are grouped by instrument through a {@link ListingIndex}; each exchange's native
+     * symbols are also registered with the {@link SymbolRegistry} by the exchange itself.
      */
     private static List<String> findCommonSymbols(List<ExchangeService> exchangeServices) {
         if (exchangeServices.isEmpty()) {
             return new ArrayList<>();
         }
         
-        // Create maps to store normalized symbol -> original symbol for each exchange
-        Map<ExchangeService, Map<String, String>> exchangeSymbolMaps = new HashMap<>();
-        
-        // Track which exchanges support each normalized symbol
-        Map<String, Set<ExchangeService>> symbolExchangeMap = new HashMap<>();
-        
-        // Populate maps with normalized symbols for each exchange
         for (ExchangeService exchange : exchangeServices) {
-            Map<String, String> normalizedMap = new HashMap<>();
             List<TradingPair> pairs = exchange.getTradingPairs();
             
-            // Skip exchanges with no trading pairs
+            // Exchanges with no trading pairs simply list nothing in the index
             if (pairs == null || pairs.isEmpty()) {
                 System.out.println("Warning: No trading pairs available for " + exchange.getExchangeName());
                 continue;
             }
-            
-            for (TradingPair pair : pairs) {
-                String originalSymbol = pair.getSymbol();
-                String normalizedSymbol = normalizeSymbol(originalSymbol);
-                normalizedMap.put(normalizedSymbol, originalSymbol);
-                
-                // Track this exchange as supporting this symbol
-                symbolExchangeMap.computeIfAbsent(normalizedSymbol, k -> new HashSet<>()).add(exchange);
-            }
-            
-            exchangeSymbolMaps.put(exchange, normalizedMap);
-            System.out.println("Found " + normalizedMap.size() + " trading pairs for " + exchange.getExchangeName());
+            System.out.println("Found " + pairs.size() + " trading pairs for " + exchange.getExchangeName());
         }
         
+        ListingIndex listingIndex = new ListingIndex();
+        listingIndex.refresh(exchangeServices);
+        
         // Find symbols available on at least two exchanges
-        Set<String> validArbitrageSymbols = new HashSet<>();
+        List<String> validArbitrageSymbols = new ArrayList<>();
         
-        for (Map.Entry<String, Set<ExchangeService>> entry : symbolExchangeMap.entrySet()) {
-            String symbol = entry.getKey();
-            Set<ExchangeService> supportingExchanges = entry.getValue();
+        for (TradingPair pair : listingIndex.getPairsListedOn(2)) {
+            String normalizedSymbol = pair.getNormalizedSymbol();
+            validArbitrageSymbols.add(normalizedSymbol);
             
-            if (supportingExchanges.size() >= 2) {
-                validArbitrageSymbols.add(symbol);
+            StringBuilder sb = new StringBuilder("Found tradable symbol: " + normalizedSymbol + " on exchanges: (");
+            boolean first = true;
+            for (Map.Entry<ExchangeService, TradingPair> listing : listingIndex.getListings(pair).entrySet()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(listing.getKey().getExchangeName()).append(": ").append(listing.getValue().getSymbol());
+                first = false;
             }
+            sb.append(")");
+            System.out.println(sb.toString());
         }
         
         if (validArbitrageSymbols.isEmpty()) {
@@ -590,39 +709,139 @@ public class ArbitrageProcessMain {
         }
         
         System.out.println("Found " + validArbitrageSymbols.size() + " symbols available on at least two exchanges");
-        
-        // Create mapping of normalized symbols to original symbols for each exchange
-        // This will help us later when we need to query data for specific exchange formats
-        exchangeSymbolMap.clear(); // Clear any previous mappings
-        
-        for (String normalizedSymbol : validArbitrageSymbols) {
-            StringBuilder sb = new StringBuilder("Found tradable symbol: " + normalizedSymbol + " on exchanges: (");
-            boolean first = true;
-            Set<ExchangeService> exchanges = symbolExchangeMap.get(normalizedSymbol);
-            
-            for (ExchangeService exchange : exchanges) {
-                Map<String, String> symbolMap = exchangeSymbolMaps.get(exchange);
-                String originalSymbol = symbolMap.get(normalizedSymbol);
-                
-                if (originalSymbol != null) {
-                    if (!first) {
-                        sb.append(", ");
-                    }
-                    sb.append(exchange.getExchangeName()).append(": ").append(originalSymbol);
-                    first = false;
-                    
-                    // Store the mapping for later use
-                    if (!exchangeSymbolMap.containsKey(exchange)) {
-                        exchangeSymbolMap.put(exchange, new HashMap<>());
-                    }
-                    exchangeSymbolMap.get(exchange).put(normalizedSymbol, originalSymbol);
+        return validArbitrageSymbols;
+    }
+
+    /**
+     * Resolves normalized symbols to instrument IDs, skipping unknown ones.
+     */
+    private static int[] toInstrumentIds(Collection<String> normalizedSymbols) {
+        SymbolRegistry symbols = SymbolRegistry.getInstance();
+        int[] instrumentIds = new int[normalizedSymbols.size()];
+        int count = 0;
+        for (String normalizedSymbol : normalizedSymbols) {
+            int instrumentId = symbols.idOf(normalizedSymbol);
+            if (instrumentId >= 0) {
+                instrumentIds[count++] = instrumentId;
+            }
+        }
+        return count == instrumentIds.length ? instrumentIds : Arrays.copyOf(instrumentIds, count);
+    }
+
+    /**
+     * Registers the tradable symbols with a tick-driven evaluator so opportunities are
+     * detected as soon as a WebSocket update arrives, between the periodic scans.
+     */
+    private static void startTickDrivenEvaluation(List<ExchangeService> exchanges, List<String> tradableSymbols) {
+        RiskCalculator riskCalculator = new RiskCalculator(MIN_PROFIT_PERCENT / 100);
+        TickDrivenArbitrageEvaluator evaluator = new TickDrivenArbitrageEvaluator(riskCalculator, MIN_PROFIT_PERCENT);
+        evaluator.setMaxTickerAgeMs(ConfigurationFactory.getInteger("system.scheduling.tickMaxTickerAgeMs", 5000));
+        evaluator.setConflation(ConfigurationFactory.getBoolean("system.scheduling.tickConflation", true),
+                ConfigurationFactory.getInteger("system.scheduling.tickConflationCapacity", 4096));
+        tickEvaluator = evaluator;
+
+        // Keep the best few opportunities current instead of collecting all of them
+        int topCount = ConfigurationFactory.getInteger("system.scheduling.tickTopOpportunities", 10);
+        boolean riskAdjusted = "riskAdjusted".equalsIgnoreCase(
+                ConfigurationFactory.getString("system.scheduling.tickTopOpportunityScore", "profit"));
+        topOpportunities = new TopOpportunityHeap(topCount,
+                riskAdjusted ? TopOpportunityHeap.BY_RISK_ADJUSTED_PROFIT : TopOpportunityHeap.BY_PROFIT_PERCENT);
+        evaluator.addOpportunityListener(topOpportunities);
+
+        SymbolRegistry symbols = SymbolRegistry.getInstance();
+        int[] instrumentIds = toInstrumentIds(tradableSymbols);
+        for (ExchangeService exchange : exchanges) {
+            for (int instrumentId : instrumentIds) {
+                String exchangeSymbol = exchange.getNativeSymbol(instrumentId);
+                if (exchangeSymbol != null) {
+                    evaluator.registerSymbol(symbols.symbolOf(instrumentId), exchange, exchangeSymbol);
                 }
             }
-            sb.append(")");
-            System.out.println(sb.toString());
         }
-        
-        return new ArrayList<>(validArbitrageSymbols);
+
+        // The same spread is re-detected on every tick, so only print it once per second
+        Map<String, Long> lastPrinted = new ConcurrentHashMap<>();
+        evaluator.addOpportunityListener(opportunity -> {
+            String key = opportunity.getNormalizedSymbol() + ":" + opportunity.getExchangeBuy()
+                    + ">" + opportunity.getExchangeSell();
+            long now = System.currentTimeMillis();
+            Long previous = lastPrinted.get(key);
+            if (previous == null || now - previous >= 1000) {
+                lastPrinted.put(key, now);
+                System.out.println("[Tick] " + opportunity.getNormalizedSymbol()
+                        + ": buy on " + opportunity.getExchangeBuy() + " at " + formatPrice(opportunity.getBuyPrice())
+                        + ", sell on " + opportunity.getExchangeSell() + " at " + formatPrice(opportunity.getSellPrice())
+                        + " = " + String.format("%.4f", opportunity.getProfitPercent()) + "%");
+            }
+        });
+        System.out.println("Tick-driven evaluation enabled for " + tradableSymbols.size() + " symbols");
+    }
+
+    /**
+     * Evaluates the currency triangles inside each exchange as its tickers
+     * update. Only cycles whose three pairs all receive tickers are evaluated.
+     */
+    private static void startTriangularEvaluation(List<ExchangeService> exchanges) {
+        TriangularArbitrageEngine engine = new TriangularArbitrageEngine(MIN_PROFIT_PERCENT);
+        engine.setMaxTickerAgeMs(ConfigurationFactory.getInteger("system.scheduling.tickMaxTickerAgeMs", 5000));
+        for (ExchangeService exchange : exchanges) {
+            try {
+                int cycles = engine.addExchange(exchange);
+                System.out.println("Triangular evaluation on " + exchange.getExchangeName() + ": " + cycles + " triangles");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        triangularEngine = engine;
+
+        // A cycle is re-detected on every tick of its legs, so only print it once per second
+        Map<String, Long> lastPrinted = new ConcurrentHashMap<>();
+        engine.addOpportunityListener(opportunity -> {
+            String key = opportunity.getExchange() + ":" + opportunity.getSymbol(0) + ">"
+                    + opportunity.getSymbol(1) + ">" + opportunity.getSymbol(2);
+            long now = System.currentTimeMillis();
+            Long previous = lastPrinted.get(key);
+            if (previous == null || now - previous >= 1000) {
+                lastPrinted.put(key, now);
+                System.out.println("[Triangular] " + opportunity);
+            }
+        });
+    }
+
+    /**
+     * Searches one price graph over all exchanges, joined by transfer edges,
+     * for profitable cycles of any length as tickers update.
+     */
+    private static void startPriceGraphEvaluation(List<ExchangeService> exchanges) {
+        PriceGraphArbitrageEngine engine = new PriceGraphArbitrageEngine(MIN_PROFIT_PERCENT);
+        engine.setTransfers(ConfigurationFactory.getBoolean("system.scheduling.priceGraphTransfers", true),
+                ConfigurationFactory.getDouble("system.scheduling.priceGraphTransferCostPercent", 0.05) / 100);
+        engine.setMaxCycleLength(ConfigurationFactory.getInteger("system.scheduling.priceGraphMaxCycleLength", 8));
+        engine.setMaxTickerAgeMs(ConfigurationFactory.getInteger("system.scheduling.tickMaxTickerAgeMs", 5000));
+        for (ExchangeService exchange : exchanges) {
+            try {
+                engine.addExchange(exchange);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        priceGraphEngine = engine;
+
+        // A cycle is re-detected whenever one of its legs is repriced, so only print it once per second
+        Map<String, Long> lastPrinted = new ConcurrentHashMap<>();
+        engine.addCycleListener(cycle -> {
+            StringBuilder key = new StringBuilder();
+            for (int leg = 0; leg < cycle.getLegCount(); leg++) {
+                key.append(cycle.getExchange(leg)).append(':').append(cycle.getCurrency(leg)).append('>');
+            }
+            long now = System.currentTimeMillis();
+            Long previous = lastPrinted.get(key.toString());
+            if (previous == null || now - previous >= 1000) {
+                lastPrinted.put(key.toString(), now);
+                System.out.println("[PriceGraph] " + cycle);
+            }
+        });
+        System.out.println("Price graph evaluation enabled: " + engine);
     }
 
     /**
@@ -638,12 +857,32 @@ public class ArbitrageProcessMain {
             try {
                 System.out.println("\n[" + new Date() + "] Scanning for arbitrage opportunities...");
                 runDirectArbitrageComparison(exchanges, tradableSymbols);
+                printMarketDataStats(exchanges);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         };
         
         executor.scheduleAtFixedRate(task, scanInterval, scanInterval, TimeUnit.MILLISECONDS);
+
+        // Move hot symbols off overloaded WebSocket connections
+        int rebalanceInterval = ConfigurationFactory.getInteger("system.websocket.rebalanceIntervalMs", 0);
+        if (rebalanceInterval > 0) {
+            double maxImbalance = ConfigurationFactory.getDouble("system.websocket.rebalanceImbalance", 1.5);
+            Runnable rebalance = () -> {
+                for (ExchangeService exchange : exchanges) {
+                    try {
+                        int moved = exchange.rebalanceShards(maxImbalance);
+                        if (moved > 0) {
+                            System.out.println("[WebSocket] Rebalanced " + moved + " " + exchange.getExchangeName() + " connection(s)");
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+            };
+            executor.scheduleWithFixedDelay(rebalance, rebalanceInterval, rebalanceInterval, TimeUnit.MILLISECONDS);
+        }
     }
 
     /**
@@ -659,19 +898,16 @@ public class ArbitrageProcessMain {
         
         List<ArbitrageOpportunity> opportunities = new ArrayList<>();
         
-        for (String normalizedSymbol : tradableSymbols) {
+        for (int instrumentId : toInstrumentIds(tradableSymbols)) {
+            String normalizedSymbol = SymbolRegistry.getInstance().symbolOf(instrumentId);
             for (int i = 0; i < exchanges.size(); i++) {
                 for (int j = i + 1; j < exchanges.size(); j++) {
                     ExchangeService exchangeA = exchanges.get(i);
                     ExchangeService exchangeB = exchanges.get(j);
                     
                     // Get the exchange-specific symbols
-                    if (!exchangeSymbolMap.containsKey(exchangeA) || !exchangeSymbolMap.containsKey(exchangeB)) {
-                        continue;
-                    }
-                    
-                    String symbolA = exchangeSymbolMap.get(exchangeA).get(normalizedSymbol);
-                    String symbolB = exchangeSymbolMap.get(exchangeB).get(normalizedSymbol);
+                    String symbolA = exchangeA.getNativeSymbol(instrumentId);
+                    String symbolB = exchangeB.getNativeSymbol(instrumentId);
                     
                     if (symbolA == null || symbolB == null) {
                         continue;
@@ -900,14 +1136,18 @@ public class ArbitrageProcessMain {
         } else {
             System.out.println("Found " + opportunities.size() + " arbitrage opportunities!");
             
-            // Sort opportunities by profit percentage (descending)
-            opportunities.sort((o1, o2) -> Double.compare(o2.getProfitPercent(), o1.getProfitPercent()));
+            // Keep the best five by profit percentage instead of sorting all of them
+            TopOpportunityHeap best = new TopOpportunityHeap(5);
+            for (ArbitrageOpportunity opportunity : opportunities) {
+                best.offer(opportunity);
+            }
+            List<ArbitrageOpportunity> top = best.snapshot();
             
             // Display the top opportunities with risk assessment
-            int displayCount = Math.min(5, opportunities.size());
+            int displayCount = top.size();
             System.out.println("\nTop " + displayCount + " opportunities with risk assessment:");
             for (int i = 0; i < displayCount; i++) {
-                ArbitrageOpportunity opportunity = opportunities.get(i);
+                ArbitrageOpportunity opportunity = top.get(i);
                 RiskAssessment risk = opportunity.getRiskAssessment();
                 
                 System.out.println((i+1) + ". " + opportunity);
@@ -0,0 +1,96 @@
+package org.example.demo;
+
+import org.example.config.ConfigurationFactory;
+import org.example.data.service.MarketDataCsvImporter;
+import org.example.data.service.MarketDataJournal;
+import org.example.domain.backtest.BacktestConfig;
+import org.example.domain.backtest.BacktestResult;
+import org.example.domain.backtest.BacktestRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backtests the exchange-to-exchange strategy over recorded market data at
+ * several profit thresholds, one backtest per core.
+ *
+ * Usage: BacktestMain [journal directory | CSV file] [minProfitPercent,...]
+ *
+ * The data defaults to system.recording.directory. A CSV file (see
+ * {@link MarketDataCsvImporter}) is converted to a temporary journal first.
+ * The thresholds default to a spread around arbitrage.minProfitPercent; every
+ * other setting comes from the configuration files.
+ */
+public class BacktestMain {
+
+    public static void main(String[] args) throws Exception {
+        List<Path> files = journalFiles(args.length > 0 ? args[0] : null);
+        if (files.isEmpty()) {
+            return;
+        }
+
+        // Read the configuration once; each backtest gets its own copy
+        BacktestConfig base = BacktestConfig.fromConfiguration();
+        List<BacktestConfig> configs = new ArrayList<>();
+        if (args.length > 1) {
+            for (String threshold : args[1].split(",")) {
+                configs.add(withThreshold(base, Double.parseDouble(threshold.trim())));
+            }
+        } else {
+            double minProfitPercent = base.getMinProfitPercent();
+            for (double factor : new double[] {0.25, 0.5, 1, 2, 4}) {
+                configs.add(withThreshold(base, minProfitPercent * factor));
+            }
+        }
+
+        BacktestRunner runner = new BacktestRunner(files);
+        System.out.println("=== Backtesting " + configs.size() + " configs over " + files.size()
+                + " journal files on " + runner.getParallelism() + " threads ===");
+        long start = System.nanoTime();
+        List<BacktestResult> results = runner.runAll(configs);
+        System.out.printf("Finished in %.1fs%n%n", (System.nanoTime() - start) / 1e9);
+
+        System.out.printf("%-16s %8s %8s %8s %12s %12s %10s %12s %10s%n",
+                "config", "opps", "trades", "hit %", "profit", "expected", "return %", "drawdown %", "slip bps");
+        for (BacktestResult result : results) {
+            System.out.printf("%-16s %8d %8d %8.1f %12.2f %12.2f %10.4f %12.4f %10.2f%n",
+                    result.getConfig().getName(), result.getOpportunityCount(), result.getTradeCount(),
+                    result.getHitRate() * 100, result.getProfit(), result.getExpectedProfit(),
+                    result.getReturnPercent(), result.getMaxDrawdownPercent(), result.getMeanSlippageErrorBps());
+        }
+    }
+
+    /**
+     * Finds the journal files to backtest over, importing a CSV file first.
+     *
+     * @param path A journal directory or CSV file, or null for system.recording.directory
+     * @return The journal files, or an empty list (reported) if there are none
+     * @throws IOException if the data cannot be read
+     */
+    static List<Path> journalFiles(String path) throws IOException {
+        Path data = Paths.get(path != null ? path
+                : ConfigurationFactory.getString("system.recording.directory", "data/journal/"));
+        Path directory = data;
+        if (Files.isRegularFile(data)) {
+            directory = Files.createTempDirectory("backtest-journal");
+            long imported = MarketDataCsvImporter.importFile(data, directory, 256 << 20);
+            System.out.println("Imported " + imported + " updates from " + data);
+        }
+        List<Path> files = MarketDataJournal.listFiles(directory);
+        if (files.isEmpty()) {
+            System.out.println("No journal files in " + directory);
+        }
+        return files;
+    }
+
+    private static BacktestConfig withThreshold(BacktestConfig base, double minProfitPercent) {
+        BacktestConfig config = base.copy();
+        config.setMinProfitPercent(minProfitPercent);
+        config.setName(String.format("minProfit=%.3f", minProfitPercent));
+        return config;
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.demo;
+
+import org.example.domain.backtest.BacktestConfig;
+import org.example.domain.backtest.BacktestRunner;
+import org.example.domain.backtest.OptimizationCandidate;
+import org.example.domain.backtest.ParameterOptimizer;
+import org.example.domain.backtest.ParameterSpace;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Searches the risk weights, position sizing and minimum success rate for the
+ * best trade-offs between profit and drawdown over recorded market data, and
+ * prints the Pareto frontier.
+ *
+ * Usage: OptimizerMain [journal directory | CSV file] [bayes | random | grid] [samples | steps] [parameter,...]
+ *
+ * The data is found as by {@link BacktestMain}. The search defaults to a
+ * Bayesian search of 200 candidates over every parameter of
+ * {@link ParameterSpace#defaults()}; a grid search takes the number of steps
+ * per parameter instead, and defaults to the position sizing parameters and
+ * the minimum success rate, since a grid over all of them is too large. Every
+ * other setting comes from the configuration files.
+ */
+public class OptimizerMain {
+
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        List<Path> files = BacktestMain.journalFiles(args.length > 0 ? args[0] : null);
+        if (files.isEmpty()) {
+            return;
+        }
+        String search = args.length > 1 ? args[1] : "bayes";
+        boolean grid = search.equals("grid");
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : grid ? 4 : 200;
+
+        ParameterSpace space = ParameterSpace.defaults();
+        if (args.length > 3) {
+            space = space.only(args[3].split(","));
+        } else if (grid) {
+            space = space.only(ParameterSpace.MAX_POSITION_PCT, ParameterSpace.SAFETY_FACTOR,
+                    ParameterSpace.MINIMUM_SUCCESS_RATE);
+        }
+
+        BacktestConfig base = BacktestConfig.fromConfiguration();
+        BacktestRunner runner = new BacktestRunner(files);
+        ParameterOptimizer optimizer = new ParameterOptimizer(runner, base, space);
+        System.out.println("=== " + search + " search over " + space + " on " + runner.getParallelism()
+                + " threads, " + runner.getMappedFiles().getSize() / (1 << 20) + " MB of journal ===");
+
+        long start = System.nanoTime();
+        List<OptimizationCandidate> candidates;
+        switch (search) {
+            case "grid":
+                candidates = optimizer.gridSearch(count);
+                break;
+            case "random":
+                candidates = optimizer.randomSearch(count, SEED);
+                break;
+            case "bayes":
+                candidates = optimizer.bayesianSearch(count, Math.max(4, runner.getParallelism() * 2), SEED);
+                break;
+            default:
+                System.out.println("Unknown search: " + search);
+                return;
+        }
+        System.out.printf("Evaluated %d candidates in %.1fs%n%n", candidates.size(), (System.nanoTime() - start) / 1e9);
+
+        List<OptimizationCandidate> frontier = ParameterOptimizer.paretoFrontier(candidates);
+        System.out.println("Pareto frontier of profit vs drawdown (" + frontier.size() + " candidates):");
+        System.out.printf("%-16s %12s %12s %12s %8s %8s  %s%n",
+                "candidate", "profit", "drawdown", "drawdown %", "trades", "hit %", "parameters");
+        for (OptimizationCandidate candidate : frontier) {
+            System.out.printf("%-16s %12.2f %12.2f %12.4f %8d %8.1f  %s%n",
+                    candidate.getConfig().getName(), candidate.getProfit(), candidate.getMaxDrawdown(),
+                    candidate.getResult().getMaxDrawdownPercent(), candidate.getResult().getTradeCount(),
+                    candidate.getResult().getHitRate() * 100, space.describe(candidate.getValues()));
+        }
+    }
+}
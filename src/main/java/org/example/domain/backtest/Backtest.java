@@ -0,0 +1,295 @@
+package org.example.domain.backtest;
+
+import org.example.data.fee.ExchangeFeeFactory;
+import org.example.data.fee.Fee;
+import org.example.data.interfaces.IArbitrageOpportunityListener;
+import org.example.data.interfaces.IMarketDataListener;
+import org.example.data.model.ArbitrageOpportunity;
+import org.example.data.model.OrderBook;
+import org.example.data.model.RiskAssessment;
+import org.example.data.model.Ticker;
+import org.example.data.model.TradingPair;
+import org.example.data.service.ExchangeService;
+import org.example.data.service.MappedJournalFiles;
+import org.example.data.service.MarketDataReplayer;
+import org.example.data.service.ReplayExchangeService;
+import org.example.data.service.VirtualClock;
+import org.example.domain.engine.TickDrivenArbitrageEvaluator;
+import org.example.domain.position.PositionSizer;
+import org.example.domain.risk.RiskCalculator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the exchange-to-exchange strategy over recorded market data and
+ * simulates its trades.
+ *
+ * The journal files are replayed through stand-in exchanges (see
+ * {@link MarketDataReplayer}) into a {@link TickDrivenArbitrageEvaluator},
+ * which evaluates every update with {@link org.example.domain.engine.ExchangeToExchangeArbitrage}
+ * as it would live. Each viable opportunity is sized by a {@link PositionSizer}
+ * from the current equity, never beyond the quantity the opportunity was
+ * priced for, and both legs are sent as taker orders. After the configured
+ * execution latency they fill against the recorded books as they stand then,
+ * best level first, paying the fees of the exchanges' fee models; without a
+ * book, they fill at the top of book of the latest ticker. Fills take only
+ * the visible depth, and do not consume it: the books stay as recorded.
+ *
+ * A backtest owns everything it runs on: its virtual clock, exchanges, fee
+ * factory, risk calculator and position sizer are created for it and read
+ * nothing from the configuration service, so any number of backtests can run
+ * at once, one per thread. The only shared state is the append-only symbol
+ * registry and the journal data: backtests given the same
+ * {@link MappedJournalFiles} read the same read-only mappings, and otherwise
+ * each maps the files itself and they share the OS page cache. A backtest
+ * runs once, on the thread that calls {@link #run()}, and the same files and
+ * config always give the same result.
+ */
+public class Backtest implements IArbitrageOpportunityListener, IMarketDataListener {
+
+    private final List<Path> files;
+    // Shared read-only mappings of the files, or null to map them for this backtest
+    private final MappedJournalFiles mapped;
+    private final BacktestConfig config;
+
+    private VirtualClock clock;
+    private Map<String, ReplayExchangeService> exchanges;
+    private RiskCalculator riskCalculator;
+    private PositionSizer positionSizer;
+    private BacktestResult result;
+    private long latencyNanos;
+    private long cooldownNanos;
+
+    // Orders waiting for the execution latency to pass, in the order they were sent
+    private final ArrayDeque<PendingOrder> pending = new ArrayDeque<>();
+
+    // Time each direction of a pair (buy>sell:symbol) may be traded again, in epoch nanoseconds
+    private final Map<String, Long> busyUntil = new HashMap<>();
+
+    private boolean started;
+
+    /**
+     * @param files The journal files, in the order they were written
+     * @param config The parameters of the run
+     */
+    public Backtest(List<Path> files, BacktestConfig config) {
+        this.files = List.copyOf(files);
+        this.mapped = null;
+        this.config = config;
+    }
+
+    /**
+     * @param mapped The journal files, mapped once and shared with other backtests
+     * @param config The parameters of the run
+     */
+    public Backtest(MappedJournalFiles mapped, BacktestConfig config) {
+        this.files = mapped.getFiles();
+        this.mapped = mapped;
+        this.config = config;
+    }
+
+    /**
+     * Replays every file and simulates the trades.
+     *
+     * @return The result
+     * @throws IOException if a file cannot be read or is corrupt
+     */
+    public BacktestResult run() throws IOException {
+        if (started) {
+            throw new IllegalStateException("A backtest runs only once");
+        }
+        started = true;
+        long wallStart = System.nanoTime();
+        result = new BacktestResult(config);
+        latencyNanos = TimeUnit.MILLISECONDS.toNanos(config.getExecutionLatencyMillis());
+        cooldownNanos = TimeUnit.MILLISECONDS.toNanos(config.getCooldownMillis());
+
+        MarketDataReplayer replayer = mapped != null ? new MarketDataReplayer(mapped) : new MarketDataReplayer(files);
+        replayer.setFeeFactory(new ExchangeFeeFactory(), config.getThirtyDayVolume());
+        clock = replayer.getClock();
+
+        riskCalculator = new RiskCalculator(config.getMinProfitPercent() / 100,
+                config.getRiskConfiguration(), config.getAssetRiskFactors());
+        riskCalculator.setWeights(config.getRiskWeights());
+        positionSizer = new PositionSizer(config.getMaxPositionPct(), config.getSafetyFactor(), config.getMinPositionSize());
+
+        TickDrivenArbitrageEvaluator evaluator = new TickDrivenArbitrageEvaluator(riskCalculator, config.getMinProfitPercent());
+        evaluator.setMinimumSuccessRate(config.getMinimumSuccessRate());
+        evaluator.setMaxTickerAgeMs(config.getMaxTickerAgeMs());
+        evaluator.addOpportunityListener(this);
+
+        Collection<ReplayExchangeService> prepared = replayer.prepare();
+        exchanges = new HashMap<>();
+        for (ReplayExchangeService exchange : prepared) {
+            exchanges.put(exchange.getExchangeName(), exchange);
+            // Registered before the evaluator, so due orders fill before an update is evaluated
+            exchange.addMarketDataListener(this);
+        }
+        for (ReplayExchangeService exchange : prepared) {
+            for (TradingPair pair : exchange.getTradingPairs()) {
+                evaluator.registerSymbol(pair.getNormalizedSymbol(), exchange, pair.getSymbol());
+            }
+        }
+
+        long records = replayer.run();
+        evaluator.close();
+        // Orders still waiting when the data ends never reached a book
+        while (!pending.isEmpty()) {
+            pending.poll();
+            result.addUnfilled();
+        }
+        result.setReplay(records, replayer.getReplayedMillis(), System.nanoTime() - wallStart);
+        return result;
+    }
+
+    @Override
+    public void onOpportunity(ArbitrageOpportunity opportunity) {
+        result.addOpportunity();
+        if (!opportunity.isViable()) {
+            result.addNotViable();
+            return;
+        }
+        String key = opportunity.getExchangeBuy() + '>' + opportunity.getExchangeSell() + ':' + opportunity.getNormalizedSymbol();
+        long now = clock.epochNanos();
+        Long until = busyUntil.get(key);
+        if (until != null && now < until) {
+            result.addSkipped();
+            return;
+        }
+
+        ExchangeService buyExchange = exchanges.get(opportunity.getExchangeBuy());
+        ExchangeService sellExchange = exchanges.get(opportunity.getExchangeSell());
+        Ticker buyTicker = opportunity.getBuyTicker();
+        Ticker sellTicker = opportunity.getSellTicker();
+        if (buyExchange == null || sellExchange == null || buyTicker == null || sellTicker == null
+                || opportunity.getBuyPrice() <= 0) {
+            result.addSkipped();
+            return;
+        }
+
+        RiskAssessment risk = riskCalculator.calculateRisk(buyTicker, sellTicker,
+                buyExchange.getTakerFeeRate(), sellExchange.getTakerFeeRate());
+        double size = positionSizer.calculateOptimalPositionSize(opportunity, risk, result.getFinalEquity());
+        double quantity = size / opportunity.getBuyPrice();
+        if (opportunity.getAmount() > 0) {
+            quantity = Math.min(quantity, opportunity.getAmount());
+        }
+        if (!(quantity > 0)) {
+            result.addSizedOut();
+            return;
+        }
+
+        PendingOrder order = new PendingOrder(key, opportunity, buyExchange, sellExchange, quantity, now + latencyNanos);
+        if (latencyNanos <= 0) {
+            execute(order);
+        } else {
+            busyUntil.put(key, Long.MAX_VALUE);
+            pending.add(order);
+        }
+    }
+
+    @Override
+    public void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker) {
+        executeDue();
+    }
+
+    @Override
+    public void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook) {
+        executeDue();
+    }
+
+    /**
+     * Fills the orders whose latency has passed. All orders share one latency,
+     * so they come due in the order they were sent.
+     */
+    private void executeDue() {
+        long now = clock.epochNanos();
+        PendingOrder order;
+        while ((order = pending.peek()) != null && order.dueNanos <= now) {
+            pending.poll();
+            execute(order);
+        }
+    }
+
+    private void execute(PendingOrder order) {
+        ArbitrageOpportunity opportunity = order.opportunity;
+        int instrumentId = opportunity.getPair().getInstrumentId();
+        OrderBook buyBook = order.buyExchange.getCachedOrderBook(instrumentId);
+        OrderBook sellBook = order.sellExchange.getCachedOrderBook(instrumentId);
+        Ticker buyTicker = order.buyExchange.getCachedTicker(instrumentId);
+        Ticker sellTicker = order.sellExchange.getCachedTicker(instrumentId);
+
+        double quantity = order.quantity;
+        boolean buyFromBook = buyBook != null && buyBook.getAskDepth() > 0;
+        boolean sellToBook = sellBook != null && sellBook.getBidDepth() > 0;
+        if (buyFromBook) {
+            quantity = Math.min(quantity, buyBook.getTotalVolume(false));
+        } else if (buyTicker == null || !(buyTicker.getAskPrice() > 0)) {
+            quantity = 0;
+        }
+        if (sellToBook) {
+            quantity = Math.min(quantity, sellBook.getTotalVolume(true));
+        } else if (sellTicker == null || !(sellTicker.getBidPrice() > 0)) {
+            quantity = 0;
+        }
+        long now = clock.epochNanos();
+        busyUntil.put(order.key, now + cooldownNanos);
+        if (!(quantity > 0)) {
+            result.addUnfilled();
+            return;
+        }
+
+        double cost = buyFromBook ? buyBook.getCostToFill(false, quantity) : quantity * buyTicker.getAskPrice();
+        double proceeds = sellToBook ? sellBook.getCostToFill(true, quantity) : quantity * sellTicker.getBidPrice();
+        double fees = takerFee(order.buyExchange, cost) + takerFee(order.sellExchange, proceeds);
+        double profit = proceeds - cost - fees;
+
+        double quotedCost = quantity * opportunity.getBuyPrice();
+        double quotedProceeds = quantity * opportunity.getSellPrice();
+        double expectedProfit = quotedProceeds - quotedCost
+                - takerFee(order.buyExchange, quotedCost) - takerFee(order.sellExchange, quotedProceeds);
+
+        result.addTrade(new BacktestTrade(TimeUnit.NANOSECONDS.toMillis(now), opportunity.getNormalizedSymbol(),
+                opportunity.getExchangeBuy(), opportunity.getExchangeSell(), quantity,
+                opportunity.getBuyPrice(), opportunity.getSellPrice(), cost / quantity, proceeds / quantity,
+                fees, expectedProfit, profit));
+    }
+
+    private static double takerFee(ExchangeService exchange, double amount) {
+        Fee fee = exchange.getTakerFee();
+        return fee != null ? fee.calculateFee(amount) : amount * exchange.getTakerFeeRate();
+    }
+
+    public BacktestConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * An order pair waiting for the execution latency to pass.
+     */
+    private static final class PendingOrder {
+        final String key;
+        final ArbitrageOpportunity opportunity;
+        final ExchangeService buyExchange;
+        final ExchangeService sellExchange;
+        final double quantity;
+        final long dueNanos;
+
+        PendingOrder(String key, ArbitrageOpportunity opportunity, ExchangeService buyExchange,
+                     ExchangeService sellExchange, double quantity, long dueNanos) {
+            this.key = key;
+            this.opportunity = opportunity;
+            this.buyExchange = buyExchange;
+            this.sellExchange = sellExchange;
+            this.quantity = quantity;
+            this.dueNanos = dueNanos;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.domain.backtest;
+
+import org.example.config.ConfigurationFactory;
+import org.example.data.model.ArbitrageConfiguration;
+import org.example.data.model.RiskConfiguration;
+import org.example.domain.engine.ExchangeToExchangeArbitrage;
+import org.example.domain.risk.RiskCalculator;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parameters of one backtest: the strategy settings under evaluation
+ * (profit threshold, risk weights, position sizing) and how fills are
+ * simulated.
+ *
+ * A backtest only reads its config, and everything it builds from it is its
+ * own, so configs can be copied and varied freely for parameter sweeps. Load
+ * the defaults once with {@link #fromConfiguration()} and copy from there
+ * rather than reading the configuration service per run.
+ */
+public class BacktestConfig {
+
+    private String name = "backtest";
+
+    // Strategy parameters
+    private double minProfitPercent = 0.1;
+    private int minimumSuccessRate = ExchangeToExchangeArbitrage.DEFAULT_MINIMUM_SUCCESS_RATE;
+    private double[] riskWeights = RiskCalculator.DEFAULT_WEIGHTS.clone();
+    private double maxPositionPct = 0.25;
+    private double safetyFactor = 0.5;
+    private double minPositionSize = 10.0;
+    private RiskConfiguration riskConfiguration = new RiskConfiguration();
+    private Map<String, Double> assetRiskFactors = Collections.emptyMap();
+
+    // Simulation settings
+    private double initialCapital = 100000.0;
+    private double thirtyDayVolume = 0.0;
+    private long executionLatencyMillis = 50;
+    private long cooldownMillis = 1000;
+    private long maxTickerAgeMs = 5000;
+    private boolean recordTrades = false;
+
+    /**
+     * Creates a config with the strategy settings of the configuration files:
+     * the arbitrage section, the risk parameters and the asset risk factors.
+     * Reads the configuration service, so call it once and copy the result.
+     *
+     * @return A new config
+     */
+    public static BacktestConfig fromConfiguration() {
+        ArbitrageConfiguration arbitrage = ConfigurationFactory.getArbitrageConfig();
+        BacktestConfig config = new BacktestConfig();
+        config.minProfitPercent = arbitrage.getMinProfitPercent();
+        config.minimumSuccessRate = arbitrage.getMinimumSuccessRate();
+        config.maxPositionPct = arbitrage.getMaxPositionPercent();
+        config.minPositionSize = arbitrage.getMinimumTradeSize();
+        config.initialCapital = arbitrage.getAvailableCapital();
+        config.riskConfiguration = ConfigurationFactory.getRiskConfig();
+        config.assetRiskFactors = ConfigurationFactory.getAssetRiskFactors();
+        return config;
+    }
+
+    /**
+     * @return A copy that can be changed without affecting this config
+     */
+    public BacktestConfig copy() {
+        BacktestConfig copy = new BacktestConfig();
+        copy.name = name;
+        copy.minProfitPercent = minProfitPercent;
+        copy.minimumSuccessRate = minimumSuccessRate;
+        copy.riskWeights = riskWeights.clone();
+        copy.maxPositionPct = maxPositionPct;
+        copy.safetyFactor = safetyFactor;
+        copy.minPositionSize = minPositionSize;
+        copy.riskConfiguration = riskConfiguration;
+        copy.assetRiskFactors = assetRiskFactors;
+        copy.initialCapital = initialCapital;
+        copy.thirtyDayVolume = thirtyDayVolume;
+        copy.executionLatencyMillis = executionLatencyMillis;
+        copy.cooldownMillis = cooldownMillis;
+        copy.maxTickerAgeMs = maxTickerAgeMs;
+        copy.recordTrades = recordTrades;
+        return copy;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return The minimum profit after fees, in percent, for an opportunity to be reported
+     */
+    public double getMinProfitPercent() {
+        return minProfitPercent;
+    }
+
+    public void setMinProfitPercent(double minProfitPercent) {
+        this.minProfitPercent = minProfitPercent;
+    }
+
+    /**
+     * @return The success rate, in percent, an opportunity must exceed to be traded
+     */
+    public int getMinimumSuccessRate() {
+        return minimumSuccessRate;
+    }
+
+    public void setMinimumSuccessRate(int minimumSuccessRate) {
+        this.minimumSuccessRate = minimumSuccessRate;
+    }
+
+    /**
+     * @return The risk factor weights, in the order of {@link RiskCalculator#WEIGHT_NAMES}
+     */
+    public double[] getRiskWeights() {
+        return riskWeights.clone();
+    }
+
+    public void setRiskWeights(double... riskWeights) {
+        if (riskWeights.length != RiskCalculator.WEIGHT_NAMES.size()) {
+            throw new IllegalArgumentException("Expected " + RiskCalculator.WEIGHT_NAMES.size()
+                    + " weights, got " + riskWeights.length);
+        }
+        this.riskWeights = riskWeights.clone();
+    }
+
+    /**
+     * @param name The weight's name, one of {@link RiskCalculator#WEIGHT_NAMES}
+     * @param weight The weight
+     */
+    public void setRiskWeight(String name, double weight) {
+        int index = RiskCalculator.WEIGHT_NAMES.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown risk weight: " + name);
+        }
+        riskWeights[index] = weight;
+    }
+
+    public double getMaxPositionPct() {
+        return maxPositionPct;
+    }
+
+    public void setMaxPositionPct(double maxPositionPct) {
+        this.maxPositionPct = maxPositionPct;
+    }
+
+    public double getSafetyFactor() {
+        return safetyFactor;
+    }
+
+    public void setSafetyFactor(double safetyFactor) {
+        this.safetyFactor = safetyFactor;
+    }
+
+    public double getMinPositionSize() {
+        return minPositionSize;
+    }
+
+    public void setMinPositionSize(double minPositionSize) {
+        this.minPositionSize = minPositionSize;
+    }
+
+    public RiskConfiguration getRiskConfiguration() {
+        return riskConfiguration;
+    }
+
+    /**
+     * @param riskConfiguration The risk parameters; shared by copies, so not changed once backtests run
+     */
+    public void setRiskConfiguration(RiskConfiguration riskConfiguration) {
+        this.riskConfiguration = riskConfiguration;
+    }
+
+    public Map<String, Double> getAssetRiskFactors() {
+        return assetRiskFactors;
+    }
+
+    public void setAssetRiskFactors(Map<String, Double> assetRiskFactors) {
+        this.assetRiskFactors = Collections.unmodifiableMap(new HashMap<>(assetRiskFactors));
+    }
+
+    /**
+     * @return The equity the backtest starts with, in the quote currency
+     */
+    public double getInitialCapital() {
+        return initialCapital;
+    }
+
+    public void setInitialCapital(double initialCapital) {
+        this.initialCapital = initialCapital;
+    }
+
+    /**
+     * @return The 30-day trading volume in USD that selects each exchange's fee tier
+     */
+    public double getThirtyDayVolume() {
+        return thirtyDayVolume;
+    }
+
+    public void setThirtyDayVolume(double thirtyDayVolume) {
+        this.thirtyDayVolume = thirtyDayVolume;
+    }
+
+    /**
+     * @return How long after an opportunity is detected its orders reach the books, in milliseconds
+     */
+    public long getExecutionLatencyMillis() {
+        return executionLatencyMillis;
+    }
+
+    public void setExecutionLatencyMillis(long executionLatencyMillis) {
+        this.executionLatencyMillis = executionLatencyMillis;
+    }
+
+    /**
+     * @return How long after a trade the same direction of a pair is not traded again, in milliseconds
+     */
+    public long getCooldownMillis() {
+        return cooldownMillis;
+    }
+
+    public void setCooldownMillis(long cooldownMillis) {
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    public long getMaxTickerAgeMs() {
+        return maxTickerAgeMs;
+    }
+
+    public void setMaxTickerAgeMs(long maxTickerAgeMs) {
+        this.maxTickerAgeMs = maxTickerAgeMs;
+    }
+
+    /**
+     * @return Whether the result keeps every simulated trade, not only the totals
+     */
+    public boolean isRecordTrades() {
+        return recordTrades;
+    }
+
+    public void setRecordTrades(boolean recordTrades) {
+        this.recordTrades = recordTrades;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BacktestConfig{%s, minProfit=%.3f%%, minSuccessRate=%d, maxPosition=%.2f, safetyFactor=%.2f}",
+                name, minProfitPercent, minimumSuccessRate, maxPositionPct, safetyFactor);
+    }
+}
@@ -0,0 +1,257 @@
+package org.example.domain.backtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of one backtest: how many opportunities were seen and traded,
+ * the profit and loss of the simulated fills, and how far the fills were
+ * from the prices the opportunities quoted.
+ *
+ * Built by the {@link Backtest} that ran, on its thread; read it once the run
+ * has returned it.
+ */
+public class BacktestResult {
+
+    private final BacktestConfig config;
+
+    // Opportunities and what became of them
+    private long opportunities;
+    private long notViable;
+    private long skipped;
+    private long sizedOut;
+    private long unfilled;
+    private long trades;
+    private long profitableTrades;
+
+    // Profit and loss in the quote currency
+    private double profit;
+    private double expectedProfit;
+    private double fees;
+    private double notional;
+    private double equity;
+    private double peakEquity;
+    private double maxDrawdown;
+    private double maxDrawdownPercent;
+
+    // Slippage error of the fills, summed over trades
+    private double slippageErrorBps;
+    private double absSlippageErrorBps;
+
+    // Replay metrics
+    private long records;
+    private long marketMillis;
+    private long wallNanos;
+
+    private final List<BacktestTrade> tradeLog;
+
+    BacktestResult(BacktestConfig config) {
+        this.config = config;
+        this.equity = config.getInitialCapital();
+        this.peakEquity = equity;
+        this.tradeLog = config.isRecordTrades() ? new ArrayList<>() : null;
+    }
+
+    void addOpportunity() {
+        opportunities++;
+    }
+
+    void addNotViable() {
+        notViable++;
+    }
+
+    void addSkipped() {
+        skipped++;
+    }
+
+    void addSizedOut() {
+        sizedOut++;
+    }
+
+    void addUnfilled() {
+        unfilled++;
+    }
+
+    void addTrade(BacktestTrade trade) {
+        trades++;
+        if (trade.getProfit() > 0) {
+            profitableTrades++;
+        }
+        profit += trade.getProfit();
+        expectedProfit += trade.getExpectedProfit();
+        fees += trade.getFees();
+        notional += trade.getNotional();
+        slippageErrorBps += trade.getSlippageErrorBps();
+        absSlippageErrorBps += Math.abs(trade.getSlippageErrorBps());
+
+        equity += trade.getProfit();
+        if (equity > peakEquity) {
+            peakEquity = equity;
+        } else if (peakEquity - equity > maxDrawdown) {
+            maxDrawdown = peakEquity - equity;
+            maxDrawdownPercent = maxDrawdown / peakEquity * 100;
+        }
+        if (tradeLog != null) {
+            tradeLog.add(trade);
+        }
+    }
+
+    void setReplay(long records, long marketMillis, long wallNanos) {
+        this.records = records;
+        this.marketMillis = marketMillis;
+        this.wallNanos = wallNanos;
+    }
+
+    public BacktestConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * @return The opportunities the engine reported
+     */
+    public long getOpportunityCount() {
+        return opportunities;
+    }
+
+    /**
+     * @return The opportunities below the minimum success rate
+     */
+    public long getNotViableCount() {
+        return notViable;
+    }
+
+    /**
+     * @return The opportunities passed over because the same direction of the pair was already
+     *         being executed or cooling down
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+    /**
+     * @return The opportunities the position sizer gave no size
+     */
+    public long getSizedOutCount() {
+        return sizedOut;
+    }
+
+    /**
+     * @return The orders that found no liquidity to fill against
+     */
+    public long getUnfilledCount() {
+        return unfilled;
+    }
+
+    public long getTradeCount() {
+        return trades;
+    }
+
+    public long getProfitableTradeCount() {
+        return profitableTrades;
+    }
+
+    /**
+     * @return The share of trades that made money after fees, from 0 to 1
+     */
+    public double getHitRate() {
+        return trades > 0 ? (double) profitableTrades / trades : 0;
+    }
+
+    /**
+     * @return The profit after fees of every fill, in the quote currency
+     */
+    public double getProfit() {
+        return profit;
+    }
+
+    /**
+     * @return The profit after fees the trades would have made at their quoted prices
+     */
+    public double getExpectedProfit() {
+        return expectedProfit;
+    }
+
+    public double getFees() {
+        return fees;
+    }
+
+    /**
+     * @return The quote currency spent on buy legs, at quoted prices
+     */
+    public double getNotional() {
+        return notional;
+    }
+
+    public double getFinalEquity() {
+        return equity;
+    }
+
+    /**
+     * @return The return on the initial capital, in percent
+     */
+    public double getReturnPercent() {
+        return profit / config.getInitialCapital() * 100;
+    }
+
+    /**
+     * @return The largest fall of equity from a previous high, in the quote currency
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    /**
+     * @return The largest fall of equity from a previous high, in percent of that high
+     */
+    public double getMaxDrawdownPercent() {
+        return maxDrawdownPercent;
+    }
+
+    /**
+     * @return The mean slippage error per trade in basis points; positive when fills were worse than quoted
+     */
+    public double getMeanSlippageErrorBps() {
+        return trades > 0 ? slippageErrorBps / trades : 0;
+    }
+
+    /**
+     * @return The mean absolute slippage error per trade in basis points
+     */
+    public double getMeanAbsSlippageErrorBps() {
+        return trades > 0 ? absSlippageErrorBps / trades : 0;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * @return The span of market time replayed, in milliseconds
+     */
+    public long getMarketMillis() {
+        return marketMillis;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return Every simulated trade in order, or an empty list unless the config records trades
+     */
+    public List<BacktestTrade> getTrades() {
+        return tradeLog != null ? Collections.unmodifiableList(tradeLog) : Collections.emptyList();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BacktestResult{%s: opportunities=%d (not viable=%d, skipped=%d, sized out=%d, unfilled=%d), "
+                        + "trades=%d, hit rate=%.1f%%, profit=%.2f (expected %.2f), fees=%.2f, return=%.3f%%, "
+                        + "max drawdown=%.2f (%.3f%%), slippage error=%.2fbps (abs %.2fbps), records=%d, wall time=%.2fs}",
+                config.getName(), opportunities, notViable, skipped, sizedOut, unfilled,
+                trades, getHitRate() * 100, profit, expectedProfit, fees, getReturnPercent(),
+                maxDrawdown, maxDrawdownPercent, getMeanSlippageErrorBps(), getMeanAbsSlippageErrorBps(),
+                records, wallNanos / 1e9);
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.domain.backtest;
+
+import org.example.data.service.MappedJournalFiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs backtests of many configs over the same journal files in parallel,
+ * one backtest per thread.
+ *
+ * Backtests share nothing mutable, so they scale with the number of cores.
+ * The journal files are mapped read-only once, on first use, and every
+ * backtest the runner starts reads those same mappings, so the data is read
+ * from disk once however many configs are evaluated. Backtests are submitted
+ * to a work-stealing {@link ForkJoinPool}, so a thread that finishes a short
+ * run takes the next config while the others are still busy.
+ */
+public class BacktestRunner {
+
+    private final List<Path> files;
+    private final int parallelism;
+    private MappedJournalFiles mapped;
+
+    /**
+     * @param files The journal files, in the order they were written
+     * @param parallelism The number of backtests to run at once
+     */
+    public BacktestRunner(List<Path> files, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.files = List.copyOf(files);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param files The journal files, in the order they were written
+     */
+    public BacktestRunner(List<Path> files) {
+        this(files, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs one backtest per config and waits for all of them.
+     *
+     * @param configs The configs to evaluate
+     * @return The results, in the order of the configs
+     * @throws IOException if a journal file cannot be read or is corrupt
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<BacktestResult> runAll(List<BacktestConfig> configs) throws IOException, InterruptedException {
+        MappedJournalFiles data = getMappedFiles();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, configs.size())));
+        try {
+            List<ForkJoinTask<BacktestResult>> tasks = new ArrayList<>(configs.size());
+            for (BacktestConfig config : configs) {
+                tasks.add(pool.submit(() -> run(data, config)));
+            }
+            List<BacktestResult> results = new ArrayList<>(configs.size());
+            for (ForkJoinTask<BacktestResult> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Backtest failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs one backtest on the calling thread.
+     *
+     * @param config The config to evaluate
+     * @return The result
+     */
+    public BacktestResult run(BacktestConfig config) {
+        try {
+            return run(getMappedFiles(), config);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BacktestResult run(MappedJournalFiles data, BacktestConfig config) {
+        try {
+            return new Backtest(data, config).run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return The journal files, mapped on the first call
+     * @throws IOException if a file cannot be mapped
+     */
+    public synchronized MappedJournalFiles getMappedFiles() throws IOException {
+        if (mapped == null) {
+            mapped = MappedJournalFiles.map(files);
+        }
+        return mapped;
+    }
+
+    public List<Path> getFiles() {
+        return files;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.domain.backtest;
+
+/**
+ * One simulated arbitrage trade: what the opportunity quoted when it was
+ * detected, and what filling both legs against the books actually gave.
+ *
+ * Prices are per unit of the base asset; amounts are in the quote currency.
+ */
+public class BacktestTrade {
+
+    private final long timeMillis;
+    private final String symbol;
+    private final String buyExchange;
+    private final String sellExchange;
+    private final double quantity;
+    private final double quotedBuyPrice;
+    private final double quotedSellPrice;
+    private final double buyPrice;
+    private final double sellPrice;
+    private final double fees;
+    private final double expectedProfit;
+    private final double profit;
+
+    /**
+     * @param timeMillis When the orders were filled, in epoch milliseconds of market time
+     * @param symbol The normalized symbol
+     * @param buyExchange The exchange bought on
+     * @param sellExchange The exchange sold on
+     * @param quantity The filled quantity
+     * @param quotedBuyPrice The buy price the opportunity quoted
+     * @param quotedSellPrice The sell price the opportunity quoted
+     * @param buyPrice The average price the buy filled at
+     * @param sellPrice The average price the sell filled at
+     * @param fees The fees paid on both legs
+     * @param expectedProfit The profit after fees had both legs filled at the quoted prices
+     * @param profit The profit after fees of the fills
+     */
+    public BacktestTrade(long timeMillis, String symbol, String buyExchange, String sellExchange,
+                         double quantity, double quotedBuyPrice, double quotedSellPrice,
+                         double buyPrice, double sellPrice, double fees,
+                         double expectedProfit, double profit) {
+        this.timeMillis = timeMillis;
+        this.symbol = symbol;
+        this.buyExchange = buyExchange;
+        this.sellExchange = sellExchange;
+        this.quantity = quantity;
+        this.quotedBuyPrice = quotedBuyPrice;
+        this.quotedSellPrice = quotedSellPrice;
+        this.buyPrice = buyPrice;
+        this.sellPrice = sellPrice;
+        this.fees = fees;
+        this.expectedProfit = expectedProfit;
+        this.profit = profit;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getBuyExchange() {
+        return buyExchange;
+    }
+
+    public String getSellExchange() {
+        return sellExchange;
+    }
+
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public double getQuotedBuyPrice() {
+        return quotedBuyPrice;
+    }
+
+    public double getQuotedSellPrice() {
+        return quotedSellPrice;
+    }
+
+    public double getBuyPrice() {
+        return buyPrice;
+    }
+
+    public double getSellPrice() {
+        return sellPrice;
+    }
+
+    public double getFees() {
+        return fees;
+    }
+
+    public double getExpectedProfit() {
+        return expectedProfit;
+    }
+
+    public double getProfit() {
+        return profit;
+    }
+
+    /**
+     * @return The quote currency spent on the buy leg at the quoted price
+     */
+    public double getNotional() {
+        return quantity * quotedBuyPrice;
+    }
+
+    /**
+     * How much worse than quoted both legs filled, in basis points of the
+     * notional. Positive when the fills were worse, negative when better.
+     *
+     * @return The slippage error in basis points
+     */
+    public double getSlippageErrorBps() {
+        double notional = getNotional();
+        if (notional <= 0) {
+            return 0;
+        }
+        double slippage = (buyPrice - quotedBuyPrice) + (quotedSellPrice - sellPrice);
+        return slippage * quantity / notional * 10_000;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BacktestTrade{%tT %s buy %s @ %.8f (quoted %.8f), sell %s @ %.8f (quoted %.8f), qty=%.6f, profit=%.4f (expected %.4f), fees=%.4f}",
+                timeMillis, symbol, buyExchange, buyPrice, quotedBuyPrice, sellExchange, sellPrice, quotedSellPrice,
+                quantity, profit, expectedProfit, fees);
+    }
+}
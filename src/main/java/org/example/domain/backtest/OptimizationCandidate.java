@@ -0,0 +1,75 @@
+package org.example.domain.backtest;
+
+/**
+ * One point of a parameter search: the parameter values tried, the config
+ * they made and the backtest result it got.
+ */
+public class OptimizationCandidate {
+
+    private final int index;
+    private final double[] values;
+    private final BacktestConfig config;
+    private final BacktestResult result;
+
+    /**
+     * @param index The order the candidate was proposed in, from 0
+     * @param values One value per parameter of the searched space
+     * @param config The config backtested
+     * @param result The backtest result
+     */
+    public OptimizationCandidate(int index, double[] values, BacktestConfig config, BacktestResult result) {
+        this.index = index;
+        this.values = values.clone();
+        this.config = config;
+        this.result = result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The parameter values, in the order of the searched space
+     */
+    public double[] getValues() {
+        return values.clone();
+    }
+
+    public BacktestConfig getConfig() {
+        return config;
+    }
+
+    public BacktestResult getResult() {
+        return result;
+    }
+
+    public double getProfit() {
+        return result.getProfit();
+    }
+
+    public double getMaxDrawdown() {
+        return result.getMaxDrawdown();
+    }
+
+    /**
+     * Whether this candidate is at least as good as another on both profit and
+     * drawdown, and better on one of them.
+     *
+     * @param other The other candidate
+     * @return true if this candidate dominates the other
+     */
+    public boolean dominates(OptimizationCandidate other) {
+        double profit = getProfit();
+        double drawdown = getMaxDrawdown();
+        double otherProfit = other.getProfit();
+        double otherDrawdown = other.getMaxDrawdown();
+        return profit >= otherProfit && drawdown <= otherDrawdown
+                && (profit > otherProfit || drawdown < otherDrawdown);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OptimizationCandidate{#%d %s: profit=%.2f, max drawdown=%.2f, trades=%d}",
+                index, config.getName(), getProfit(), getMaxDrawdown(), result.getTradeCount());
+    }
+}
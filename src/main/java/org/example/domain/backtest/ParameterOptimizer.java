@@ -0,0 +1,399 @@
+package org.example.domain.backtest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Searches strategy parameters for the best trade-off between profit and
+ * drawdown, evaluating each candidate by backtesting it over recorded data.
+ *
+ * Three searches are offered over a {@link ParameterSpace}:
+ * <ul>
+ *   <li>{@link #gridSearch(int)} tries every combination of evenly spaced values,
+ *       which is only practical over a few parameters</li>
+ *   <li>{@link #randomSearch(int, long)} tries uniformly random points</li>
+ *   <li>{@link #bayesianSearch(int, int, long)} starts at random points and then
+ *       proposes points where the best candidates so far are dense and the rest
+ *       are sparse (a tree-structured Parzen estimator), one batch at a time</li>
+ * </ul>
+ * Candidates are backtested in batches by a {@link BacktestRunner}, in
+ * parallel on its work-stealing pool over one shared read-only mapping of the
+ * journal files. There is no single best candidate: each search returns every
+ * candidate it evaluated, and {@link #paretoFrontier(List)} picks those no
+ * other candidate beats on both profit and drawdown.
+ *
+ * The same data, base config and seed always give the same candidates and results.
+ */
+public class ParameterOptimizer {
+
+    /** The largest grid {@link #gridSearch(int)} will evaluate */
+    public static final int MAX_GRID_CANDIDATES = 1_000_000;
+
+    // Share of the ranked candidates the Bayesian search treats as good
+    private static final double GOOD_FRACTION = 0.25;
+
+    // Points drawn around the good candidates for each one proposed
+    private static final int PROPOSAL_DRAWS = 24;
+
+    // Bounds of the kernel widths, in unit cube coordinates
+    private static final double MIN_BANDWIDTH = 0.02;
+    private static final double MAX_BANDWIDTH = 0.5;
+
+    private static final double LOG_SQRT_2PI = 0.5 * Math.log(2 * Math.PI);
+
+    private final BacktestRunner runner;
+    private final BacktestConfig base;
+    private final ParameterSpace space;
+
+    /**
+     * @param runner The runner that backtests the candidates
+     * @param base The config every candidate starts from; not changed
+     * @param space The parameters searched
+     */
+    public ParameterOptimizer(BacktestRunner runner, BacktestConfig base, ParameterSpace space) {
+        if (space.size() == 0) {
+            throw new IllegalArgumentException("The parameter space is empty");
+        }
+        this.runner = runner;
+        this.base = base.copy();
+        this.space = space;
+    }
+
+    /**
+     * Evaluates every combination of {@code steps} evenly spaced values per
+     * parameter, from the low to the high end of each range. Combinations that
+     * round to the same values are evaluated once.
+     *
+     * @param steps The values per parameter; 1 tries the middle of each range
+     * @return The candidates, in grid order
+     * @throws IOException if the journal files cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<OptimizationCandidate> gridSearch(int steps) throws IOException, InterruptedException {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("steps must be positive");
+        }
+        int dimensions = space.size();
+        long size = 1;
+        for (int i = 0; i < dimensions; i++) {
+            size *= steps;
+            if (size > MAX_GRID_CANDIDATES) {
+                throw new IllegalArgumentException("A grid of " + steps + " steps over " + dimensions
+                        + " parameters exceeds " + MAX_GRID_CANDIDATES + " candidates; search fewer parameters");
+            }
+        }
+
+        List<double[]> points = new ArrayList<>((int) size);
+        Set<List<Double>> seen = new HashSet<>();
+        int[] digits = new int[dimensions];
+        for (long n = 0; n < size; n++) {
+            double[] point = new double[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                point[i] = steps == 1 ? 0.5 : (double) digits[i] / (steps - 1);
+            }
+            if (seen.add(asList(space.values(point)))) {
+                points.add(point);
+            }
+            for (int i = dimensions - 1; i >= 0 && ++digits[i] == steps; i--) {
+                digits[i] = 0;
+            }
+        }
+        return evaluate(points, new ArrayList<>());
+    }
+
+    /**
+     * Evaluates uniformly random points of the space.
+     *
+     * @param samples The number of candidates
+     * @param seed The random seed
+     * @return The candidates, in the order they were drawn
+     * @throws IOException if the journal files cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<OptimizationCandidate> randomSearch(int samples, long seed) throws IOException, InterruptedException {
+        if (samples <= 0) {
+            throw new IllegalArgumentException("samples must be positive");
+        }
+        Random random = new Random(seed);
+        List<double[]> points = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            points.add(randomPoint(random));
+        }
+        return evaluate(points, new ArrayList<>());
+    }
+
+    /**
+     * Evaluates a first batch of random points, then proposes each further
+     * batch from the candidates so far. These are ranked by Pareto front on
+     * profit and drawdown, then by profit; the best quarter are the good
+     * candidates and the rest the bad ones. Each proposal is the best of a
+     * number of points drawn around good candidates, by the ratio of the
+     * good candidates' kernel density there to the bad candidates'. A larger
+     * batch keeps more cores busy but learns from the results less often.
+     *
+     * @param samples The number of candidates in total
+     * @param batchSize The number of candidates evaluated at once
+     * @param seed The random seed
+     * @return The candidates, in the order they were proposed
+     * @throws IOException if the journal files cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<OptimizationCandidate> bayesianSearch(int samples, int batchSize, long seed)
+            throws IOException, InterruptedException {
+        if (samples <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("samples and batchSize must be positive");
+        }
+        Random random = new Random(seed);
+        List<OptimizationCandidate> candidates = new ArrayList<>(samples);
+        List<double[]> evaluatedPoints = new ArrayList<>(samples);
+
+        // Too few candidates say nothing about where the good ones are, so start at random
+        int initial = Math.min(samples, Math.max(batchSize, 2 * space.size() + 1));
+        List<double[]> batch = new ArrayList<>(initial);
+        for (int i = 0; i < initial; i++) {
+            batch.add(randomPoint(random));
+        }
+        while (true) {
+            evaluate(batch, candidates);
+            evaluatedPoints.addAll(batch);
+            int remaining = samples - candidates.size();
+            if (remaining <= 0) {
+                return candidates;
+            }
+            batch = propose(candidates, evaluatedPoints, Math.min(batchSize, remaining), random);
+        }
+    }
+
+    /**
+     * Picks the candidates no other candidate dominates on profit and
+     * drawdown. Of candidates with the same profit and drawdown, such as all
+     * those that never traded, only the first is kept.
+     *
+     * @param candidates The candidates to choose from
+     * @return The frontier, from the lowest drawdown and profit to the highest
+     */
+    public static List<OptimizationCandidate> paretoFrontier(List<OptimizationCandidate> candidates) {
+        int[] ranks = paretoRanks(candidates);
+        List<OptimizationCandidate> frontier = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (ranks[i] == 0) {
+                OptimizationCandidate candidate = candidates.get(i);
+                boolean duplicate = false;
+                for (OptimizationCandidate kept : frontier) {
+                    if (kept.getProfit() == candidate.getProfit() && kept.getMaxDrawdown() == candidate.getMaxDrawdown()) {
+                        duplicate = true;
+                        break;
+                    }
+                }
+                if (!duplicate) {
+                    frontier.add(candidate);
+                }
+            }
+        }
+        frontier.sort(Comparator.comparingDouble(OptimizationCandidate::getMaxDrawdown)
+                .thenComparingDouble(OptimizationCandidate::getProfit));
+        return frontier;
+    }
+
+    /**
+     * Sorts candidates into Pareto fronts: front 0 is dominated by none, front
+     * 1 only by candidates of front 0, and so on.
+     *
+     * @param candidates The candidates
+     * @return The front of each candidate, by index
+     */
+    static int[] paretoRanks(List<OptimizationCandidate> candidates) {
+        int n = candidates.size();
+        int[] dominatedBy = new int[n];
+        List<List<Integer>> dominates = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dominates.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                if (candidates.get(i).dominates(candidates.get(j))) {
+                    dominates.get(i).add(j);
+                    dominatedBy[j]++;
+                } else if (candidates.get(j).dominates(candidates.get(i))) {
+                    dominates.get(j).add(i);
+                    dominatedBy[i]++;
+                }
+            }
+        }
+
+        int[] ranks = new int[n];
+        List<Integer> front = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (dominatedBy[i] == 0) {
+                front.add(i);
+            }
+        }
+        for (int rank = 0; !front.isEmpty(); rank++) {
+            List<Integer> next = new ArrayList<>();
+            for (int i : front) {
+                ranks[i] = rank;
+                for (int j : dominates.get(i)) {
+                    if (--dominatedBy[j] == 0) {
+                        next.add(j);
+                    }
+                }
+            }
+            front = next;
+        }
+        return ranks;
+    }
+
+    private List<double[]> propose(List<OptimizationCandidate> candidates, List<double[]> points,
+                                   int count, Random random) {
+        int n = candidates.size();
+        int[] ranks = paretoRanks(candidates);
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> ranks[i])
+                .thenComparingDouble(i -> -candidates.get(i).getProfit())
+                .thenComparingInt(i -> i));
+
+        int goodCount = Math.max(1, Math.min(n - 1, (int) Math.ceil(n * GOOD_FRACTION)));
+        List<double[]> good = new ArrayList<>(goodCount);
+        List<double[]> bad = new ArrayList<>(n - goodCount);
+        for (int i = 0; i < n; i++) {
+            (i < goodCount ? good : bad).add(points.get(order[i]));
+        }
+        double[] goodWidths = bandwidths(good);
+        double[] badWidths = bandwidths(bad);
+
+        List<double[]> proposals = new ArrayList<>(count);
+        for (int p = 0; p < count; p++) {
+            double[] best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int d = 0; d < PROPOSAL_DRAWS; d++) {
+                double[] point = sample(good, goodWidths, random);
+                double score = logDensity(point, good, goodWidths) - logDensity(point, bad, badWidths);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = point;
+                }
+            }
+            proposals.add(best);
+        }
+        return proposals;
+    }
+
+    /**
+     * Kernel widths per coordinate: the spread of the points, narrowed as they
+     * grow in number (Scott's rule).
+     */
+    private double[] bandwidths(List<double[]> points) {
+        int dimensions = space.size();
+        double[] widths = new double[dimensions];
+        double factor = Math.pow(Math.max(1, points.size()), -1.0 / (dimensions + 4));
+        for (int j = 0; j < dimensions; j++) {
+            double mean = 0;
+            for (double[] point : points) {
+                mean += point[j];
+            }
+            mean /= Math.max(1, points.size());
+            double variance = 0;
+            for (double[] point : points) {
+                variance += (point[j] - mean) * (point[j] - mean);
+            }
+            double deviation = points.size() > 1 ? Math.sqrt(variance / (points.size() - 1)) : MAX_BANDWIDTH;
+            widths[j] = Math.max(MIN_BANDWIDTH, Math.min(MAX_BANDWIDTH, deviation * factor));
+        }
+        return widths;
+    }
+
+    /**
+     * Draws from the kernel density of the points, mixed with the uniform
+     * density with the weight of one point so no region is ever ruled out.
+     */
+    private double[] sample(List<double[]> points, double[] widths, Random random) {
+        int pick = random.nextInt(points.size() + 1);
+        if (pick == points.size()) {
+            return randomPoint(random);
+        }
+        double[] centre = points.get(pick);
+        double[] point = new double[centre.length];
+        for (int j = 0; j < centre.length; j++) {
+            point[j] = Math.max(0.0, Math.min(1.0, centre[j] + random.nextGaussian() * widths[j]));
+        }
+        return point;
+    }
+
+    /**
+     * The log of the density {@link #sample} draws from, at a point.
+     */
+    private static double logDensity(double[] point, List<double[]> points, double[] widths) {
+        double[] logs = new double[points.size() + 1];
+        // The uniform density on the unit cube is 1
+        double max = 0;
+        for (int k = 0; k < points.size(); k++) {
+            double[] centre = points.get(k);
+            double log = 0;
+            for (int j = 0; j < point.length; j++) {
+                double z = (point[j] - centre[j]) / widths[j];
+                log -= 0.5 * z * z + Math.log(widths[j]) + LOG_SQRT_2PI;
+            }
+            logs[k] = log;
+            max = Math.max(max, log);
+        }
+        double sum = Math.exp(-max);
+        for (int k = 0; k < points.size(); k++) {
+            sum += Math.exp(logs[k] - max);
+        }
+        return max + Math.log(sum) - Math.log(points.size() + 1);
+    }
+
+    private double[] randomPoint(Random random) {
+        double[] point = new double[space.size()];
+        for (int j = 0; j < point.length; j++) {
+            point[j] = random.nextDouble();
+        }
+        return point;
+    }
+
+    /**
+     * Backtests a batch of points and appends their candidates.
+     */
+    private List<OptimizationCandidate> evaluate(List<double[]> points, List<OptimizationCandidate> candidates)
+            throws IOException, InterruptedException {
+        List<double[]> values = new ArrayList<>(points.size());
+        List<BacktestConfig> configs = new ArrayList<>(points.size());
+        for (double[] point : points) {
+            double[] pointValues = space.values(point);
+            BacktestConfig config = space.apply(base, pointValues);
+            config.setName("candidate-" + (candidates.size() + configs.size()));
+            values.add(pointValues);
+            configs.add(config);
+        }
+        List<BacktestResult> results = runner.runAll(configs);
+        for (int i = 0; i < configs.size(); i++) {
+            candidates.add(new OptimizationCandidate(candidates.size(), values.get(i), configs.get(i), results.get(i)));
+        }
+        return candidates;
+    }
+
+    private static List<Double> asList(double[] values) {
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public ParameterSpace getSpace() {
+        return space;
+    }
+
+    public BacktestConfig getBase() {
+        return base.copy();
+    }
+}
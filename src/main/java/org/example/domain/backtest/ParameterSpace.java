@@ -0,0 +1,230 @@
+package org.example.domain.backtest;
+
+import org.example.domain.risk.RiskCalculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The strategy parameters an optimizer may vary, each with the range it is
+ * searched over.
+ *
+ * Known parameters are the risk factor weights (by their names in
+ * {@link RiskCalculator#WEIGHT_NAMES}), {@link #MAX_POSITION_PCT},
+ * {@link #SAFETY_FACTOR}, {@link #MINIMUM_SUCCESS_RATE} and
+ * {@link #MIN_PROFIT_PERCENT}. The minimum success rate is a whole number of
+ * percent; the others are continuous. Searches work on points of the unit
+ * cube, one coordinate per parameter, which {@link #values(double[])} maps
+ * onto the ranges.
+ */
+public class ParameterSpace {
+
+    public static final String MAX_POSITION_PCT = "maxPositionPct";
+    public static final String SAFETY_FACTOR = "safetyFactor";
+    public static final String MINIMUM_SUCCESS_RATE = "minimumSuccessRate";
+    public static final String MIN_PROFIT_PERCENT = "minProfitPercent";
+
+    private final List<Parameter> parameters = new ArrayList<>();
+
+    /**
+     * Creates the space of every risk weight, from 0 to 1, the position sizing
+     * parameters and the minimum success rate. The profit threshold is left
+     * out; {@link #add(String, double, double)} it to search it too.
+     *
+     * @return A new space
+     */
+    public static ParameterSpace defaults() {
+        ParameterSpace space = new ParameterSpace();
+        for (String weight : RiskCalculator.WEIGHT_NAMES) {
+            space.add(weight, 0.0, 1.0);
+        }
+        space.add(MAX_POSITION_PCT, 0.05, 0.5);
+        space.add(SAFETY_FACTOR, 0.1, 1.0);
+        space.add(MINIMUM_SUCCESS_RATE, 50, 95);
+        return space;
+    }
+
+    /**
+     * Adds a parameter, or changes the range of one already added.
+     *
+     * @param name The parameter's name
+     * @param min The lowest value searched
+     * @param max The highest value searched
+     * @return This space
+     */
+    public ParameterSpace add(String name, double min, double max) {
+        if (!isKnown(name)) {
+            throw new IllegalArgumentException("Unknown parameter: " + name);
+        }
+        if (!(min <= max)) {
+            throw new IllegalArgumentException("Invalid range for " + name + ": " + min + " to " + max);
+        }
+        if (RiskCalculator.WEIGHT_NAMES.contains(name) && min < 0) {
+            throw new IllegalArgumentException("Weight " + name + " must not be negative: " + min);
+        }
+        Parameter parameter = new Parameter(name, min, max, MINIMUM_SUCCESS_RATE.equals(name));
+        int index = indexOf(name);
+        if (index >= 0) {
+            parameters.set(index, parameter);
+        } else {
+            parameters.add(parameter);
+        }
+        return this;
+    }
+
+    /**
+     * @param names The parameters to keep
+     * @return A new space of only the given parameters, with their ranges in this space
+     */
+    public ParameterSpace only(String... names) {
+        ParameterSpace space = new ParameterSpace();
+        for (String name : names) {
+            int index = indexOf(name);
+            if (index < 0) {
+                throw new IllegalArgumentException("Parameter not in this space: " + name);
+            }
+            space.parameters.add(parameters.get(index));
+        }
+        return space;
+    }
+
+    public List<Parameter> getParameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    /**
+     * @return The number of parameters, which is the dimension of the unit cube searched
+     */
+    public int size() {
+        return parameters.size();
+    }
+
+    /**
+     * Maps a point of the unit cube onto the parameters' ranges.
+     *
+     * @param point One coordinate from 0 to 1 per parameter
+     * @return The parameter values
+     */
+    public double[] values(double[] point) {
+        if (point.length != parameters.size()) {
+            throw new IllegalArgumentException("Expected " + parameters.size() + " coordinates, got " + point.length);
+        }
+        double[] values = new double[point.length];
+        for (int i = 0; i < point.length; i++) {
+            values[i] = parameters.get(i).valueAt(point[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Creates a config from a base config and parameter values.
+     *
+     * @param base The config the unsearched settings come from; not changed
+     * @param values One value per parameter, as returned by {@link #values(double[])}
+     * @return A new config
+     */
+    public BacktestConfig apply(BacktestConfig base, double[] values) {
+        BacktestConfig config = base.copy();
+        for (int i = 0; i < parameters.size(); i++) {
+            String name = parameters.get(i).getName();
+            double value = values[i];
+            switch (name) {
+                case MAX_POSITION_PCT: config.setMaxPositionPct(value); break;
+                case SAFETY_FACTOR: config.setSafetyFactor(value); break;
+                case MINIMUM_SUCCESS_RATE: config.setMinimumSuccessRate((int) Math.round(value)); break;
+                case MIN_PROFIT_PERCENT: config.setMinProfitPercent(value); break;
+                default: config.setRiskWeight(name, value); break;
+            }
+        }
+        return config;
+    }
+
+    /**
+     * @param values One value per parameter
+     * @return The values by name, for reports
+     */
+    public String describe(double[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            Parameter parameter = parameters.get(i);
+            sb.append(parameter.getName()).append('=');
+            if (parameter.isInteger()) {
+                sb.append((long) values[i]);
+            } else {
+                sb.append(String.format("%.3f", values[i]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).getName().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isKnown(String name) {
+        return RiskCalculator.WEIGHT_NAMES.contains(name) || MAX_POSITION_PCT.equals(name)
+                || SAFETY_FACTOR.equals(name) || MINIMUM_SUCCESS_RATE.equals(name)
+                || MIN_PROFIT_PERCENT.equals(name);
+    }
+
+    @Override
+    public String toString() {
+        return "ParameterSpace" + parameters;
+    }
+
+    /**
+     * One searched parameter and its range.
+     */
+    public static final class Parameter {
+        private final String name;
+        private final double min;
+        private final double max;
+        private final boolean integer;
+
+        Parameter(String name, double min, double max, boolean integer) {
+            this.name = name;
+            this.min = min;
+            this.max = max;
+            this.integer = integer;
+        }
+
+        /**
+         * @param coordinate A coordinate from 0 to 1
+         * @return The value at that fraction of the range, rounded for whole-number parameters
+         */
+        double valueAt(double coordinate) {
+            double value = min + Math.max(0.0, Math.min(1.0, coordinate)) * (max - min);
+            return integer ? Math.round(value) : value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        public boolean isInteger() {
+            return integer;
+        }
+
+        @Override
+        public String toString() {
+            return name + "[" + min + ", " + max + "]";
+        }
+    }
+}
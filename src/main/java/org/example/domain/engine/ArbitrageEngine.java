@@ -3,6 +3,8 @@ package org.example.domain.engine;
 import org.example.data.model.ArbitrageOpportunity;
 import org.example.data.model.TradingPair;
 import org.example.data.service.ExchangeService;
+import org.example.data.service.ListingIndex;
+import org.example.data.service.RestClient;
 import org.example.data.interfaces.IArbitrageEngine;
 import org.example.data.interfaces.IExchangeService;
 import org.example.data.interfaces.INotificationService;
@@ -11,7 +13,11 @@ import org.example.data.interfaces.ArbitrageResult;
 import org.example.domain.risk.RiskCalculator;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Main engine for arbitrage detection across multiple exchanges.
@@ -25,6 +31,35 @@ public class ArbitrageEngine implements IArbitrageEngine {
     private final RiskCalculator riskCalculator;
     private final INotificationService notificationService;
     
+    // Minimum number of (exchange pair, symbol) evaluations handled by a single scan task
+    private static final int SCAN_SPLIT_THRESHOLD = 16;
+    
+    // Pairwise engines reused across scans; rebuilt when the exchange set or threshold changes
+    private volatile List<ExchangeToExchangeArbitrage> pairEngines;
+    
+    // Work-stealing pool for parallel scans, or null to scan on the calling thread;
+    // replaced under the engine's lock, read without it by scans
+    private volatile ForkJoinPool scanPool;
+    
+    // Which exchanges list which instruments; rebuilt only when listings change
+    private final ListingIndex listingIndex = new ListingIndex();
+    
+    /**
+     * Constructor with notification service and parallel scan support.
+     *
+     * @param minProfitThreshold Minimum profit threshold for opportunities
+     * @param riskCalculator Risk calculator for opportunity assessment
+     * @param notificationService Notification service for logging
+     * @param scanParallelism Number of threads used to scan, or 1 for a serial scan
+     */
+    public ArbitrageEngine(double minProfitThreshold,
+                         RiskCalculator riskCalculator,
+                         INotificationService notificationService,
+                         int scanParallelism) {
+        this(minProfitThreshold, riskCalculator, notificationService);
+        setScanParallelism(scanParallelism);
+    }
+    
     /**
      * Constructor with notification service.
      *
@@ -55,6 +90,7 @@ public class ArbitrageEngine implements IArbitrageEngine {
     public void addExchange(ExchangeService exchange) {
         if (exchange != null && !exchanges.contains(exchange)) {
             exchanges.add(exchange);
+            pairEngines = null;
             logInfo("Added exchange: " + exchange.getExchangeName());
         }
     }
@@ -62,10 +98,18 @@ public class ArbitrageEngine implements IArbitrageEngine {
     @Override
     public void removeExchange(ExchangeService exchange) {
         if (exchanges.remove(exchange)) {
+            pairEngines = null;
             logInfo("Removed exchange: " + exchange.getExchangeName());
         }
     }
     
+    /**
+     * @return The cross-exchange listing index used by scans
+     */
+    public ListingIndex getListingIndex() {
+        return listingIndex;
+    }
+    
     @Override
     public List<ExchangeService> getExchanges() {
         return new ArrayList<>(exchanges);
@@ -74,6 +118,7 @@ public class ArbitrageEngine implements IArbitrageEngine {
     @Override
     public void setMinProfitThreshold(double threshold) {
         this.minProfitThreshold = threshold;
+        pairEngines = null;
         logInfo("Set minimum profit threshold to: " + threshold + "%");
     }
     
@@ -85,26 +130,11 @@ public class ArbitrageEngine implements IArbitrageEngine {
             return new ArbitrageResultImpl(new ArrayList<>());
         }
         
-        // Map to track which exchanges support each trading pair
-        Map<TradingPair, Set<ExchangeService>> pairExchangeMap = new HashMap<>();
-        
-        // Collect all trading pairs from all exchanges and track supporting exchanges
-        for (ExchangeService exchange : exchanges) {
-            List<TradingPair> exchangePairs = exchange.getTradingPairs();
-            if (exchangePairs == null) {
-                continue;
-            }
-            
-            for (TradingPair pair : exchangePairs) {
-                pairExchangeMap.computeIfAbsent(pair, k -> new HashSet<>()).add(exchange);
-            }
+        // Pairs available on at least two exchanges (viable for arbitrage)
+        if (listingIndex.refresh(exchanges)) {
+            logInfo("Indexed " + listingIndex.size() + " instruments across " + exchanges.size() + " exchanges");
         }
-        
-        // Filter to pairs available on at least two exchanges (viable for arbitrage)
-        List<TradingPair> viablePairs = pairExchangeMap.entrySet().stream()
-                .filter(entry -> entry.getValue().size() >= 2)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        List<TradingPair> viablePairs = listingIndex.getPairsListedOn(2);
         
         logInfo("Found " + viablePairs.size() + " trading pairs available on at least two exchanges");
         
@@ -113,34 +143,169 @@ public class ArbitrageEngine implements IArbitrageEngine {
     
     @Override
     public ArbitrageResult scanForOpportunities(List<TradingPair> pairs) {
-        List<ArbitrageOpportunity> opportunities = new ArrayList<>();
+        List<ExchangeToExchangeArbitrage> engines = getPairEngines();
+        List<TradingPair> symbols = new ArrayList<>(pairs);
 
         logInfo("Scanning for arbitrage opportunities across " + exchanges.size() + 
-                " exchanges for " + pairs.size() + " trading pairs");
+                " exchanges for " + symbols.size() + " trading pairs");
         
-        // Create arbitrage engines for each exchange pair
-        for (int i = 0; i < exchanges.size(); i++) {
-            for (int j = i + 1; j < exchanges.size(); j++) {
-                ExchangeService exchangeA = exchanges.get(i);
-                ExchangeService exchangeB = exchanges.get(j);
-                
-                ExchangeToExchangeArbitrage arbitrageEngine = new ExchangeToExchangeArbitrage(
-                        exchangeA, exchangeB, riskCalculator, minProfitThreshold, notificationService);
-                
-                // Scan each trading pair
-                for (TradingPair pair : pairs) {
-                    ArbitrageOpportunity opportunity = arbitrageEngine.calculateArbitrage(pair);
-                        if (opportunity != null) {
-                            opportunities.add(opportunity);
-                        }
-                    }
-                }
+        refreshTickers(symbols);
+        
+        // Work items are laid out exchange pair by exchange pair, so both paths
+        // produce opportunities in the same order
+        int workItems = engines.size() * symbols.size();
+        List<ArbitrageOpportunity> opportunities = null;
+        ForkJoinPool pool = scanPool;
+        if (pool != null && workItems > SCAN_SPLIT_THRESHOLD) {
+            try {
+                opportunities = pool.invoke(new ScanTask(engines, symbols, 0, workItems));
+            } catch (RejectedExecutionException e) {
+                // The pool was retired by setScanParallelism while this scan started
             }
+        }
+        if (opportunities == null) {
+            opportunities = scanRange(engines, symbols, 0, workItems);
+        }
         
         logInfo("Found " + opportunities.size() + " arbitrage opportunities");
         return new ArbitrageResultImpl(opportunities);
     }
 
+    /**
+     * Brings every exchange's ticker cache up to date with one batch fetch per
+     * exchange, issued concurrently, so the scan itself does not fall back to a
+     * REST call per symbol.
+     */
+    private void refreshTickers(List<TradingPair> pairs) {
+        List<CompletableFuture<Integer>> refreshes = new ArrayList<>();
+        for (ExchangeService exchange : exchanges) {
+            // Each exchange is refreshed under its own symbols, for the pairs it lists
+            List<String> symbols = new ArrayList<>(pairs.size());
+            for (TradingPair pair : pairs) {
+                if (exchange.getSymbolTable().lists(pair.getInstrumentId())) {
+                    symbols.add(exchange.getNativeSymbol(pair));
+                }
+            }
+            if (symbols.isEmpty()) {
+                continue;
+            }
+            refreshes.add(CompletableFuture.supplyAsync(() -> exchange.refreshTickers(symbols),
+                    RestClient.getInstance().getExecutor()));
+        }
+        for (CompletableFuture<Integer> refresh : refreshes) {
+            try {
+                refresh.join();
+            } catch (CompletionException e) {
+                logWarning("Ticker refresh failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Set the number of threads used by scanForOpportunities.
+     * A value of 1 or less scans serially on the calling thread.
+     *
+     * @param parallelism Number of scan threads (e.g. system.performance.threadPoolSize)
+     */
+    public synchronized void setScanParallelism(int parallelism) {
+        ForkJoinPool previous = scanPool;
+        scanPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        if (previous != null) {
+            // Scans already running on it finish; new ones use the replacement
+            previous.shutdown();
+        }
+        logInfo("Set scan parallelism to: " + Math.max(1, parallelism));
+    }
+
+    /**
+     * Release the scan threads, if any.
+     */
+    public void shutdown() {
+        setScanParallelism(1);
+    }
+
+    /**
+     * Get the pairwise engines for every configured exchange pair, creating them on first use.
+     *
+     * @return The pairwise engines in (i, j) exchange order
+     */
+    private List<ExchangeToExchangeArbitrage> getPairEngines() {
+        List<ExchangeToExchangeArbitrage> engines = pairEngines;
+        if (engines == null) {
+            engines = new ArrayList<>();
+            for (int i = 0; i < exchanges.size(); i++) {
+                for (int j = i + 1; j < exchanges.size(); j++) {
+                    engines.add(new ExchangeToExchangeArbitrage(
+                            exchanges.get(i), exchanges.get(j), riskCalculator, minProfitThreshold, notificationService));
+                }
+            }
+            pairEngines = engines;
+        }
+        return engines;
+    }
+
+    /**
+     * Evaluate a contiguous range of (exchange pair, symbol) work items.
+     *
+     * @param engines The pairwise engines
+     * @param symbols The trading pairs to scan
+     * @param from First work item (inclusive)
+     * @param to Last work item (exclusive)
+     * @return The opportunities found, in work item order
+     */
+    private static List<ArbitrageOpportunity> scanRange(List<ExchangeToExchangeArbitrage> engines,
+                                                        List<TradingPair> symbols, int from, int to) {
+        List<ArbitrageOpportunity> opportunities = new ArrayList<>();
+        int symbolCount = symbols.size();
+        for (int item = from; item < to; item++) {
+            ExchangeToExchangeArbitrage engine = engines.get(item / symbolCount);
+            TradingPair pair = symbols.get(item % symbolCount);
+            if (!engine.isListedOnBoth(pair)) {
+                continue;
+            }
+            ArbitrageOpportunity opportunity = engine.calculateArbitrage(pair);
+            if (opportunity != null) {
+                opportunities.add(opportunity);
+            }
+        }
+        return opportunities;
+    }
+
+    /**
+     * Fork/join task that splits the work item range in half until it is small enough
+     * to scan directly. Each half returns its own list, and the lists are concatenated
+     * left to right, so no shared state or locking is needed.
+     */
+    private static class ScanTask extends RecursiveTask<List<ArbitrageOpportunity>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ExchangeToExchangeArbitrage> engines;
+        private final List<TradingPair> symbols;
+        private final int from;
+        private final int to;
+
+        ScanTask(List<ExchangeToExchangeArbitrage> engines, List<TradingPair> symbols, int from, int to) {
+            this.engines = engines;
+            this.symbols = symbols;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ArbitrageOpportunity> compute() {
+            if (to - from <= SCAN_SPLIT_THRESHOLD) {
+                return scanRange(engines, symbols, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            ScanTask left = new ScanTask(engines, symbols, from, mid);
+            left.fork();
+            List<ArbitrageOpportunity> right = new ScanTask(engines, symbols, mid, to).compute();
+            List<ArbitrageOpportunity> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+    }
+
     @Override
     public ArbitrageOpportunity calculateArbitrage(
             IExchangeService fromExchange, IExchangeService toExchange,
@@ -30,7 +30,17 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
     private final List<ExchangeService> exchanges;
     
     // Minimum success rate to consider an arbitrage opportunity viable
-    private static final int MINIMUM_SUCCESS_RATE = 70;
+    public static final int DEFAULT_MINIMUM_SUCCESS_RATE = 70;
+    private volatile int minimumSuccessRate = DEFAULT_MINIMUM_SUCCESS_RATE;
+
+    // Order book walkers keep scratch arrays, so each evaluating thread gets its own
+    private static final ThreadLocal<OrderBookDepthWalker> DEPTH_WALKERS =
+            ThreadLocal.withInitial(OrderBookDepthWalker::new);
+
+    // Size opportunities from order book depth when both books are available
+    private volatile boolean depthAware = true;
+    // Books older than this fall back to top-of-book pricing
+    private volatile long maxOrderBookAgeMs = 5000;
 
     /**
      * Constructor with notification service for detailed logging if needed
@@ -91,12 +101,18 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             return null;
         }
 
-        String symbol = pair.getSymbol();
-        logDebug("Analyzing arbitrage for symbol: " + symbol);
+        // Each exchange is queried under its own symbol for the pair
+        String symbolA = exchangeA.getNativeSymbol(pair);
+        String symbolB = exchangeB.getNativeSymbol(pair);
+        if (symbolA == null || symbolB == null) {
+            logDebug("Trading pair " + pair.getSymbol() + " is not listed on both exchanges.");
+            return null;
+        }
+        logDebug("Analyzing arbitrage for symbol: " + pair.getSymbol());
 
         // Get ticker data from both exchanges
-        Ticker tickerA = exchangeA.getTickerData(symbol);
-        Ticker tickerB = exchangeB.getTickerData(symbol);
+        Ticker tickerA = exchangeA.getTickerData(symbolA);
+        Ticker tickerB = exchangeB.getTickerData(symbolB);
 
         if (tickerA == null || tickerB == null) {
             logDebug("Insufficient ticker data from one or both exchanges.");
@@ -104,13 +120,66 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
         }
 
         // Get order books for maker/taker determination
-        OrderBook orderBookA = exchangeA.getOrderBook(symbol);
-        OrderBook orderBookB = exchangeB.getOrderBook(symbol);
+        OrderBook orderBookA = exchangeA.getOrderBook(symbolA);
+        OrderBook orderBookB = exchangeB.getOrderBook(symbolB);
 
         if (orderBookA == null || orderBookB == null) {
             logDebug("Order book data missing; using taker fees for both sides.");
         }
 
+        return calculateArbitrage(pair, tickerA, tickerB, orderBookA, orderBookB);
+    }
+
+    /**
+     * Whether both exchanges list a trading pair, so it can be compared without
+     * asking an exchange for a symbol it does not trade.
+     *
+     * @param pair The trading pair
+     * @return true if both exchanges have a symbol for the pair's instrument
+     */
+    public boolean isListedOnBoth(TradingPair pair) {
+        return pair != null
+                && exchangeA.getNativeSymbol(pair.getInstrumentId()) != null
+                && exchangeB.getNativeSymbol(pair.getInstrumentId()) != null;
+    }
+
+    /**
+     * Calculates the potential arbitrage opportunity between the two exchanges from
+     * tickers the caller already holds. No market data is fetched, so this is safe to
+     * call from a market data callback.
+     *
+     * @param pair The trading pair to analyze.
+     * @param tickerA The current ticker on exchange A.
+     * @param tickerB The current ticker on exchange B.
+     * @return An ArbitrageOpportunity object if an opportunity exists, null otherwise.
+     */
+    public ArbitrageOpportunity calculateArbitrage(TradingPair pair, Ticker tickerA, Ticker tickerB) {
+        if (pair == null || tickerA == null || tickerB == null) {
+            return null;
+        }
+        OrderBook orderBookA = null;
+        OrderBook orderBookB = null;
+        if (depthAware) {
+            orderBookA = exchangeA.getCachedOrderBook(pair.getInstrumentId());
+            orderBookB = exchangeB.getCachedOrderBook(pair.getInstrumentId());
+        }
+        return calculateArbitrage(pair, tickerA, tickerB, orderBookA, orderBookB);
+    }
+
+    /**
+     * Prices the pair from the order books when both are usable, walking them for the
+     * executable size, and from the tickers otherwise.
+     */
+    private ArbitrageOpportunity calculateArbitrage(TradingPair pair, Ticker tickerA, Ticker tickerB,
+                                                    OrderBook orderBookA, OrderBook orderBookB) {
+        if (pair == null || tickerA == null || tickerB == null) {
+            return null;
+        }
+        if (depthAware && isWalkable(orderBookA) && isWalkable(orderBookB)) {
+            return calculateDepthArbitrage(pair, tickerA, tickerB, orderBookA, orderBookB);
+        }
+        String symbol = pair.getSymbol();
+
         // Determine appropriate quantity based on token price
         double buyOnAPrice = tickerA.getAskPrice();
         double quantity = determineAppropriateQuantity(buyOnAPrice);
@@ -131,7 +200,6 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             Fee sellFeeB = isSellMakerB ? exchangeB.getMakerFee() : exchangeB.getTakerFee();
     
             // Calculate net profit after fees using the FeeCalculator
-            double profitAB = FeeCalculator.calculateArbitrageProfit(buyOnAPrice, sellOnBPrice, quantity, buyFeeA, sellFeeB);
             double profitPercentAB = FeeCalculator.calculateArbitrageProfitPercentage(buyOnAPrice, sellOnBPrice, quantity, buyFeeA, sellFeeB);
     
             // Calculate fee percentages directly from fee amounts
@@ -141,15 +209,15 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             double buyFeePercentA = (buyOnAPrice * quantity > 0) ? (buyFeeAmountA / (buyOnAPrice * quantity) * 100) : 0;
             double sellFeePercentB = (sellOnBPrice * quantity > 0) ? (sellFeeAmountB / (sellOnBPrice * quantity) * 100) : 0;
     
-            String buyFeeTypeA = isBuyMakerA ? "Maker" : "Taker";
-            String sellFeeTypeB = isSellMakerB ? "Maker" : "Taker";
-            
-            logDebug("Buy on " + exchangeA.getExchangeName() + " at " + formatPrice(buyOnAPrice)
-                    + " (" + buyFeeTypeA + " fee: " + String.format("%.4f", buyFeePercentA) + "%)"
-                    + ", Sell on " + exchangeB.getExchangeName() + " at " + formatPrice(sellOnBPrice)
-                    + " (" + sellFeeTypeB + " fee: " + String.format("%.4f", sellFeePercentB) + "%)"
-                    + " = " + String.format("%.4f", profitPercentAB)
-                    + "% profit after fees");
+            // Only build the debug line when someone will read it
+            if (notificationService != null) {
+                logDebug("Buy on " + exchangeA.getExchangeName() + " at " + formatPrice(buyOnAPrice)
+                        + " (" + (isBuyMakerA ? "Maker" : "Taker") + " fee: " + String.format("%.4f", buyFeePercentA) + "%)"
+                        + ", Sell on " + exchangeB.getExchangeName() + " at " + formatPrice(sellOnBPrice)
+                        + " (" + (isSellMakerB ? "Maker" : "Taker") + " fee: " + String.format("%.4f", sellFeePercentB) + "%)"
+                        + " = " + String.format("%.4f", profitPercentAB)
+                        + "% profit after fees");
+            }
 
         // Case 2: Buy on B, sell on A
         double buyOnBPrice = tickerB.getAskPrice();
@@ -164,7 +232,6 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             Fee sellFeeA = isSellMakerA ? exchangeA.getMakerFee() : exchangeA.getTakerFee();
     
             // Calculate net profit after fees
-            double profitBA = FeeCalculator.calculateArbitrageProfit(buyOnBPrice, sellOnAPrice, quantity, buyFeeB, sellFeeA);
             double profitPercentBA = FeeCalculator.calculateArbitrageProfitPercentage(buyOnBPrice, sellOnAPrice, quantity, buyFeeB, sellFeeA);
     
             // Calculate fee percentages directly from fee amounts
@@ -174,22 +241,22 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             double buyFeePercentB = (buyOnBPrice * quantity > 0) ? (buyFeeAmountB / (buyOnBPrice * quantity) * 100) : 0;
             double sellFeePercentA = (sellOnAPrice * quantity > 0) ? (sellFeeAmountA / (sellOnAPrice * quantity) * 100) : 0;
     
-            String buyFeeTypeB = isBuyMakerB ? "Maker" : "Taker";
-            String sellFeeTypeA = isSellMakerA ? "Maker" : "Taker";
-            
-            logDebug("Buy on " + exchangeB.getExchangeName() + " at " + formatPrice(buyOnBPrice)
-                    + " (" + buyFeeTypeB + " fee: " + String.format("%.4f", buyFeePercentB) + "%)"
-                    + ", Sell on " + exchangeA.getExchangeName() + " at " + formatPrice(sellOnAPrice)
-                    + " (" + sellFeeTypeA + " fee: " + String.format("%.4f", sellFeePercentA) + "%)"
-                    + " = " + String.format("%.4f", profitPercentBA)
-                    + "% profit after fees");
+            if (notificationService != null) {
+                logDebug("Buy on " + exchangeB.getExchangeName() + " at " + formatPrice(buyOnBPrice)
+                        + " (" + (isBuyMakerB ? "Maker" : "Taker") + " fee: " + String.format("%.4f", buyFeePercentB) + "%)"
+                        + ", Sell on " + exchangeA.getExchangeName() + " at " + formatPrice(sellOnAPrice)
+                        + " (" + (isSellMakerA ? "Maker" : "Taker") + " fee: " + String.format("%.4f", sellFeePercentA) + "%)"
+                        + " = " + String.format("%.4f", profitPercentBA)
+                        + "% profit after fees");
+            }
 
         // Determine which direction has the higher profit potential and meets the minimum profit threshold
         if (profitPercentAB > profitPercentBA && profitPercentAB > minProfitPercent) {
-                return createArbitrageOpportunity(pair, exchangeA, exchangeB, buyOnAPrice, sellOnBPrice, 
+                return createArbitrageOpportunity(pair, exchangeA, exchangeB, tickerA, tickerB, quantity, buyOnAPrice, sellOnBPrice, 
                         profitPercentAB, buyFeePercentA, sellFeePercentB, isBuyMakerA, isSellMakerB);
             } else if (profitPercentBA > minProfitPercent) {
-                return createArbitrageOpportunity(pair, exchangeB, exchangeA, buyOnBPrice, sellOnAPrice, 
+                return createArbitrageOpportunity(pair, exchangeB, exchangeA, tickerB, tickerA,
+                        determineAppropriateQuantity(buyOnBPrice), buyOnBPrice, sellOnAPrice, 
                         profitPercentBA, buyFeePercentB, sellFeePercentA, isBuyMakerB, isSellMakerA);
             }
         } catch (Exception e) {
@@ -201,6 +268,97 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
         return null;
     }
 
+    /**
+     * Prices the pair by walking the order books in both directions. The size of each
+     * direction is the depth whose marginal return after taker fees still clears
+     * {@code minProfitPercent}; prices are the VWAPs of that size, and the profit is the
+     * total over it after fees. When both directions clear it, the one with the larger
+     * total profit wins.
+     *
+     * Nothing is allocated unless an opportunity is found.
+     */
+    private ArbitrageOpportunity calculateDepthArbitrage(TradingPair pair, Ticker tickerA, Ticker tickerB,
+                                                         OrderBook orderBookA, OrderBook orderBookB) {
+        OrderBookDepthWalker walker = DEPTH_WALKERS.get();
+        double feeRateA = exchangeA.getTakerFeeRate();
+        double feeRateB = exchangeB.getTakerFeeRate();
+
+        // Case 1: Buy on A, sell on B
+        double quantityAB = 0;
+        double buyPriceAB = 0;
+        double sellPriceAB = 0;
+        double profitAB = 0;
+        double profitPercentAB = 0;
+        if (walker.walk(orderBookA, feeRateA, orderBookB, feeRateB, minProfitPercent)) {
+            quantityAB = walker.getQuantity();
+            buyPriceAB = walker.getBuyVwap();
+            sellPriceAB = walker.getSellVwap();
+            profitAB = walker.getNetProfit();
+            profitPercentAB = walker.getProfitPercent();
+        }
+
+        // Case 2: Buy on B, sell on A
+        boolean profitableBA = walker.walk(orderBookB, feeRateB, orderBookA, feeRateA, minProfitPercent);
+
+        if (quantityAB > 0 && (!profitableBA || profitAB >= walker.getNetProfit())) {
+            if (notificationService != null) {
+                logDebug("Buy " + quantityAB + " " + pair.getSymbol() + " on " + exchangeA.getExchangeName()
+                        + " at " + formatPrice(buyPriceAB) + ", sell on " + exchangeB.getExchangeName()
+                        + " at " + formatPrice(sellPriceAB) + " = " + String.format("%.4f", profitPercentAB)
+                        + "% profit after fees");
+            }
+            return createArbitrageOpportunity(pair, exchangeA, exchangeB, tickerA, tickerB, quantityAB,
+                    buyPriceAB, sellPriceAB, profitAB, profitPercentAB, feeRateA * 100, feeRateB * 100, false, false);
+        }
+        if (profitableBA) {
+            if (notificationService != null) {
+                logDebug("Buy " + walker.getQuantity() + " " + pair.getSymbol() + " on " + exchangeB.getExchangeName()
+                        + " at " + formatPrice(walker.getBuyVwap()) + ", sell on " + exchangeA.getExchangeName()
+                        + " at " + formatPrice(walker.getSellVwap()) + " = "
+                        + String.format("%.4f", walker.getProfitPercent()) + "% profit after fees");
+            }
+            return createArbitrageOpportunity(pair, exchangeB, exchangeA, tickerB, tickerA, walker.getQuantity(),
+                    walker.getBuyVwap(), walker.getSellVwap(), walker.getNetProfit(), walker.getProfitPercent(),
+                    feeRateB * 100, feeRateA * 100, false, false);
+        }
+        return null;
+    }
+
+    private boolean isWalkable(OrderBook orderBook) {
+        return orderBook != null
+                && orderBook.getBidDepth() > 0 && orderBook.getAskDepth() > 0
+                && exchangeA.getClock().currentTimeMillis() - orderBook.getTimestampMillis() <= maxOrderBookAgeMs;
+    }
+
+    /**
+     * Enables or disables sizing opportunities from order book depth. When disabled,
+     * or when a book is missing or stale, opportunities are priced at the top of book
+     * for a fixed quantity.
+     *
+     * @param depthAware Whether to walk the order books
+     */
+    public void setDepthAware(boolean depthAware) {
+        this.depthAware = depthAware;
+    }
+
+    /**
+     * @param maxOrderBookAgeMs The oldest order book, in milliseconds, that is walked
+     */
+    public void setMaxOrderBookAgeMs(long maxOrderBookAgeMs) {
+        this.maxOrderBookAgeMs = maxOrderBookAgeMs;
+    }
+
+    /**
+     * @param minimumSuccessRate The success rate, in percent, an opportunity must exceed to be marked viable
+     */
+    public void setMinimumSuccessRate(int minimumSuccessRate) {
+        this.minimumSuccessRate = minimumSuccessRate;
+    }
+
+    public int getMinimumSuccessRate() {
+        return minimumSuccessRate;
+    }
+
     /**
      * Determines the appropriate quantity to trade based on the token price
      * 
@@ -230,8 +388,50 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
      * @param pair The trading pair object
      * @param buyExchange The exchange to buy from
      * @param sellExchange The exchange to sell to
+     * @param buyTicker The ticker on the buy exchange
+     * @param sellTicker The ticker on the sell exchange
+     * @param amount The amount to trade
+     * @param buyPrice The buy price
+     * @param sellPrice The sell price
+     * @param profitPercentage The profit percentage
+     * @param buyFeePercentage The buy fee percentage
+     * @param sellFeePercentage The sell fee percentage
+     * @param isBuyMaker Whether the buy order is a maker order
+     * @param isSellMaker Whether the sell order is a maker order
+     * @return The arbitrage opportunity
+     */
+    private ArbitrageOpportunity createArbitrageOpportunity(
+            TradingPair pair, 
+            ExchangeService buyExchange,
+            ExchangeService sellExchange, 
+            Ticker buyTicker,
+            Ticker sellTicker,
+            double amount,
+            double buyPrice, 
+            double sellPrice,
+            double profitPercentage, 
+            double buyFeePercentage, 
+            double sellFeePercentage,
+            boolean isBuyMaker,
+            boolean isSellMaker) {
+        return createArbitrageOpportunity(pair, buyExchange, sellExchange, buyTicker, sellTicker, amount,
+                buyPrice, sellPrice, (sellPrice - buyPrice) * amount, profitPercentage,
+                buyFeePercentage, sellFeePercentage, isBuyMaker, isSellMaker);
+    }
+
+    /**
+     * Create an arbitrage opportunity object with risk assessment, with a profit
+     * the caller already computed, e.g. after fees over a walked order book depth.
+     *
+     * @param pair The trading pair object
+     * @param buyExchange The exchange to buy from
+     * @param sellExchange The exchange to sell to
+     * @param buyTicker The ticker on the buy exchange
+     * @param sellTicker The ticker on the sell exchange
+     * @param amount The amount to trade
      * @param buyPrice The buy price
      * @param sellPrice The sell price
+     * @param profit The total profit of trading the amount
      * @param profitPercentage The profit percentage
      * @param buyFeePercentage The buy fee percentage
      * @param sellFeePercentage The sell fee percentage
@@ -243,8 +443,12 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             TradingPair pair, 
             ExchangeService buyExchange,
             ExchangeService sellExchange, 
+            Ticker buyTicker,
+            Ticker sellTicker,
+            double amount,
             double buyPrice, 
             double sellPrice,
+            double profit,
             double profitPercentage, 
             double buyFeePercentage, 
             double sellFeePercentage,
@@ -257,11 +461,9 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
         }
         
         String tradingPair = pair.getSymbol();
-        double amount = determineAppropriateQuantity(buyPrice);
-        double profit = (sellPrice - buyPrice) * amount;
         
         return createArbitrageOpportunity(
-            buyExchange, sellExchange, tradingPair, amount, buyPrice, sellPrice,
+            buyExchange, sellExchange, tradingPair, buyTicker, sellTicker, amount, buyPrice, sellPrice,
             profit, profitPercentage, riskCalculator, buyFeePercentage, sellFeePercentage,
             isBuyMaker, isSellMaker);
     }
@@ -272,6 +474,8 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
      * @param fromExchange     The exchange to buy from
      * @param toExchange       The exchange to sell to
      * @param tradingPair      The trading pair
+     * @param buyTicker        The ticker on the buy exchange
+     * @param sellTicker       The ticker on the sell exchange
      * @param amount           The amount to trade
      * @param buyPrice         The buy price
      * @param sellPrice        The sell price
@@ -286,7 +490,8 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
      */
     private ArbitrageOpportunity createArbitrageOpportunity(
             ExchangeService fromExchange, ExchangeService toExchange,
-            String tradingPair, double amount, double buyPrice, double sellPrice,
+            String tradingPair, Ticker buyTicker, Ticker sellTicker,
+            double amount, double buyPrice, double sellPrice,
             double profit, double profitPercentage, IRiskManager riskManager,
             double buyFeePercentage, double sellFeePercentage, 
             boolean isBuyMaker, boolean isSellMaker) {
@@ -295,10 +500,6 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
         TradingPair pair = new TradingPair(tradingPair);
         
         try {
-            // Get fresh ticker data for risk assessment
-            Ticker buyTicker = fromExchange.getTicker(tradingPair);
-            Ticker sellTicker = toExchange.getTicker(tradingPair);
-            
             if (buyTicker == null || sellTicker == null) {
                 logError("Missing ticker data for risk assessment", null);
                 return null;
@@ -322,7 +523,7 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
             
             // Check if the opportunity is still viable after risk assessment
             int successRate = riskManager.calculateSuccessRate(profitPercentage, riskScore, volatility);
-            boolean isViable = successRate > MINIMUM_SUCCESS_RATE;
+            boolean isViable = successRate > minimumSuccessRate;
             
             // Create the arbitrage opportunity using pair constructor for backward compatibility
             ArbitrageOpportunity opportunity = new ArbitrageOpportunity(
@@ -346,6 +547,8 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
                     volatility,
                     isViable
             );
+            opportunity.setBuyTicker(buyTicker);
+            opportunity.setSellTicker(sellTicker);
             
             return opportunity;
         } catch (Exception e) {
@@ -428,13 +631,13 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
         
         if (isBuy) {
             // For buy orders: if our price is below the lowest ask, it's a maker order
-            double lowestAsk = orderBook.getAsks().isEmpty() ? Double.MAX_VALUE 
-                    : orderBook.getAsks().get(0).getPrice();
+            double lowestAsk = orderBook.getAskDepth() == 0 ? Double.MAX_VALUE 
+                    : orderBook.getBestAskPrice();
             return price < lowestAsk;
         } else {
             // For sell orders: if our price is above the highest bid, it's a maker order
-            double highestBid = orderBook.getBids().isEmpty() ? 0 
-                    : orderBook.getBids().get(0).getPrice();
+            double highestBid = orderBook.getBidDepth() == 0 ? 0 
+                    : orderBook.getBestBidPrice();
             return price > highestBid;
         }
     }
@@ -533,7 +736,7 @@ public class ExchangeToExchangeArbitrage implements IArbitrageEngine {
                 }
                 
                 return createArbitrageOpportunity(fromExchange, toExchange, tradingPair,
-                        amount, buyPrice, sellPrice, profit, profitPercentage,
+                        buyTicker, sellTicker, amount, buyPrice, sellPrice, profit, profitPercentage,
                         riskManager, buyFeePercentage, sellFeePercentage,
                         isBuyMaker, isSellMaker);
             } else {
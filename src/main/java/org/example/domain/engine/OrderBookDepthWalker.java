@@ -0,0 +1,203 @@
+package org.example.domain.engine;
+
+import org.example.data.model.OrderBook;
+
+/**
+ * Finds how much of a pair can be bought on one exchange and sold on another
+ * while every unit still clears the profit threshold after fees.
+ *
+ * The asks of the buy book and the bids of the sell book are walked together,
+ * best level first. Each step fills the smaller of the two remaining level
+ * sizes, and the walk stops at the first step whose marginal return after taker
+ * fees no longer exceeds the threshold. Because the marginal return only falls
+ * as the walk goes deeper, the average return of the filled size clears the
+ * threshold as well.
+ *
+ * Levels are copied into scratch arrays owned by the walker, which only grow
+ * when a deeper book shows up, so a walk allocates nothing. The results of the
+ * last walk are read back through the getters. A walker is not thread-safe;
+ * use one per evaluating thread.
+ */
+public class OrderBookDepthWalker {
+
+    private static final int INITIAL_LEVELS = 64;
+
+    private final int maxLevels;
+
+    private double[] askPrices = new double[INITIAL_LEVELS];
+    private double[] askSizes = new double[INITIAL_LEVELS];
+    private double[] bidPrices = new double[INITIAL_LEVELS];
+    private double[] bidSizes = new double[INITIAL_LEVELS];
+
+    // Results of the last walk
+    private double quantity;
+    private double buyCost;
+    private double sellProceeds;
+    private double netProfit;
+    private double profitPercent;
+    private double marginalProfitPercent;
+    private int askLevelsUsed;
+    private int bidLevelsUsed;
+    private boolean depthExhausted;
+
+    /**
+     * @param maxLevels The number of levels per side to consider
+     */
+    public OrderBookDepthWalker(int maxLevels) {
+        if (maxLevels <= 0) {
+            throw new IllegalArgumentException("maxLevels must be positive");
+        }
+        this.maxLevels = maxLevels;
+    }
+
+    public OrderBookDepthWalker() {
+        this(200);
+    }
+
+    /**
+     * Walks the asks of {@code buyBook} against the bids of {@code sellBook}.
+     *
+     * @param buyBook The book to buy from
+     * @param buyFeeRate The taker fee rate on the buy side as a decimal
+     * @param sellBook The book to sell into
+     * @param sellFeeRate The taker fee rate on the sell side as a decimal
+     * @param minProfitPercent The smallest marginal return, in percent, worth executing
+     * @return true if some size clears the threshold
+     */
+    public boolean walk(OrderBook buyBook, double buyFeeRate, OrderBook sellBook, double sellFeeRate,
+                        double minProfitPercent) {
+        reset();
+        ensureCapacity(Math.min(maxLevels, Math.max(buyBook.getAskDepth(), sellBook.getBidDepth())));
+        int askCount = buyBook.copyAsks(askPrices, askSizes, Math.min(maxLevels, askPrices.length));
+        int bidCount = sellBook.copyBids(bidPrices, bidSizes, Math.min(maxLevels, bidPrices.length));
+        if (askCount == 0 || bidCount == 0) {
+            return false;
+        }
+
+        double buyMultiplier = 1 + buyFeeRate;
+        double sellMultiplier = 1 - sellFeeRate;
+        double minRatio = 1 + minProfitPercent / 100;
+
+        int i = 0;
+        int j = 0;
+        double askLeft = askSizes[0];
+        double bidLeft = bidSizes[0];
+        while (i < askCount && j < bidCount) {
+            double ask = askPrices[i];
+            double bid = bidPrices[j];
+            double ratio = bid * sellMultiplier / (ask * buyMultiplier);
+            marginalProfitPercent = (ratio - 1) * 100;
+            if (ratio <= minRatio) {
+                break;
+            }
+
+            double fill = Math.min(askLeft, bidLeft);
+            if (fill > 0) {
+                quantity += fill;
+                buyCost += fill * ask;
+                sellProceeds += fill * bid;
+                askLeft -= fill;
+                bidLeft -= fill;
+            }
+            if (askLeft <= 0 && ++i < askCount) {
+                askLeft = askSizes[i];
+            }
+            if (bidLeft <= 0 && ++j < bidCount) {
+                bidLeft = bidSizes[j];
+            }
+        }
+
+        if (quantity <= 0) {
+            return false;
+        }
+        // A level counts as used once any of it has been filled
+        askLevelsUsed = i < askCount && askLeft < askSizes[i] ? i + 1 : i;
+        bidLevelsUsed = j < bidCount && bidLeft < bidSizes[j] ? j + 1 : j;
+        depthExhausted = i >= askCount || j >= bidCount;
+
+        double totalCost = buyCost * buyMultiplier;
+        netProfit = sellProceeds * sellMultiplier - totalCost;
+        profitPercent = netProfit / totalCost * 100;
+        return true;
+    }
+
+    private void reset() {
+        quantity = 0;
+        buyCost = 0;
+        sellProceeds = 0;
+        netProfit = 0;
+        profitPercent = 0;
+        marginalProfitPercent = 0;
+        askLevelsUsed = 0;
+        bidLevelsUsed = 0;
+        depthExhausted = false;
+    }
+
+    private void ensureCapacity(int levels) {
+        if (levels <= askPrices.length) {
+            return;
+        }
+        askPrices = new double[levels];
+        askSizes = new double[levels];
+        bidPrices = new double[levels];
+        bidSizes = new double[levels];
+    }
+
+    /**
+     * @return The executable size of the last walk, in base units
+     */
+    public double getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * @return The volume-weighted price paid on the buy book, before fees
+     */
+    public double getBuyVwap() {
+        return quantity > 0 ? buyCost / quantity : 0;
+    }
+
+    /**
+     * @return The volume-weighted price received on the sell book, before fees
+     */
+    public double getSellVwap() {
+        return quantity > 0 ? sellProceeds / quantity : 0;
+    }
+
+    /**
+     * @return The profit of the whole size after fees, in quote currency
+     */
+    public double getNetProfit() {
+        return netProfit;
+    }
+
+    /**
+     * @return The profit of the whole size after fees, in percent of the buy cost
+     */
+    public double getProfitPercent() {
+        return profitPercent;
+    }
+
+    /**
+     * @return The return after fees of the step where the walk stopped, in percent
+     */
+    public double getMarginalProfitPercent() {
+        return marginalProfitPercent;
+    }
+
+    public int getAskLevelsUsed() {
+        return askLevelsUsed;
+    }
+
+    public int getBidLevelsUsed() {
+        return bidLevelsUsed;
+    }
+
+    /**
+     * @return true if the walk ran out of copied levels while still profitable,
+     *         so more size may be available beyond them
+     */
+    public boolean isDepthExhausted() {
+        return depthExhausted;
+    }
+}
@@ -0,0 +1,718 @@
+package org.example.domain.engine;
+
+import org.example.data.interfaces.IArbitrageCycleListener;
+import org.example.data.interfaces.IClock;
+import org.example.data.interfaces.IMarketDataListener;
+import org.example.data.interfaces.INotificationService;
+import org.example.data.model.ArbitrageCycle;
+import org.example.data.model.OrderBook;
+import org.example.data.model.Ticker;
+import org.example.data.model.TradingPair;
+import org.example.data.service.ExchangeService;
+import org.example.data.service.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Arbitrage cycles of any length across exchanges, found by negative-cycle
+ * detection in one price graph.
+ *
+ * Every (exchange, currency) is a vertex. Each trading pair contributes two
+ * edges: base to quote, weighted -log(bid * (1 - fee)), and quote to base,
+ * weighted -log((1 - fee) / ask), with the exchange's taker fee. The same
+ * currency on two exchanges is joined in both directions by a transfer edge
+ * weighted -log(1 - transfer cost). A sequence of conversions that ends with
+ * more than it started with is then a cycle of negative total weight.
+ *
+ * The graph grows as exchanges are added and its weights follow the ticker
+ * stream. Cycles are found with an incremental SPFA (queue-based
+ * Bellman-Ford) that keeps its distances between updates: the distances
+ * satisfy dist[v] <= dist[u] + w(u, v) on every edge, so only an edge whose
+ * weight dropped can break that, and only its tail is queued and relaxed from.
+ * An edge that got more expensive needs no work. A relaxation that closes a
+ * loop in the shortest-path tree is checked against the current weights; a
+ * negative loop is reported if it clears the profit threshold and, either
+ * way, its edges are set aside until one of them is repriced, so the search
+ * converges instead of circling the loop forever.
+ *
+ * Updates from all exchanges are applied under one lock; listeners are
+ * called after it is released.
+ */
+public class PriceGraphArbitrageEngine implements IMarketDataListener {
+
+    private static final double EPSILON = 1e-12;
+
+    // Weight of an edge without a usable price
+    private static final double UNPRICED = Double.POSITIVE_INFINITY;
+
+    private volatile double minProfitPercent;
+    private final INotificationService notificationService;
+
+    // Cost of moving a currency between exchanges, as a rate; applies to exchanges added afterwards
+    private double transferCostRate = 0.0;
+    private boolean transfers = true;
+
+    // Longest loop checked on every relaxation; longer loops are found once a vertex
+    // has been relaxed more often than there are vertices
+    private int maxCycleLength = 8;
+
+    // Cycles with a trade leg priced longer ago than this are not reported
+    private long maxTickerAgeMs = 5000;
+
+    // Ages the prices; the replay clock when running on recorded data
+    private IClock clock = SystemClock.INSTANCE;
+
+    // Relaxations per update before the remaining work is left for the next update
+    private int maxRelaxationsPerUpdate = 100_000;
+
+    // Vertices
+    private int vertexCount;
+    private int[] vertexExchange = new int[0];
+    private String[] vertexCurrency = new String[0];
+    private double[] distance = new double[0];
+    private int[] parentEdge = new int[0];
+    private int[] relaxCounts = new int[0];
+    private int[][] outEdges = new int[0][];
+    private int[] outCounts = new int[0];
+
+    // Vertices waiting to be relaxed from, as a ring; each vertex is queued at most once
+    private int[] queue = new int[0];
+    private boolean[] queued = new boolean[0];
+    private int queueHead;
+    private int queueSize;
+
+    // Edges
+    private int edgeCount;
+    private int[] edgeFrom = new int[0];
+    private int[] edgeTo = new int[0];
+    private double[] edgeWeight = new double[0];
+    private ArbitrageCycle.LegType[] edgeType = new ArbitrageCycle.LegType[0];
+    private String[] edgeSymbol = new String[0];
+    private long[] edgePricedAt = new long[0];
+    // Group of a set-aside negative loop, or -1
+    private int[] edgeGroup = new int[0];
+
+    // Set-aside loops: group -> edges
+    private final Map<Integer, int[]> setAside = new HashMap<>();
+    private int nextGroup;
+
+    // Scratch for loops found in the shortest-path tree
+    private int[] loopEdges = new int[16];
+
+    private final List<ExchangeService> exchanges = new ArrayList<>();
+    private final Map<ExchangeService, ExchangeEdges> edgesByExchange = new IdentityHashMap<>();
+    private final Map<String, List<Integer>> verticesByCurrency = new HashMap<>();
+
+    // Cycles found under the lock, published once it is released
+    private final List<ArbitrageCycle> pendingCycles = new ArrayList<>();
+
+    private final List<IArbitrageCycleListener> cycleListeners = new CopyOnWriteArrayList<>();
+
+    // Counters for monitoring, written under the lock
+    private volatile long relaxationCount;
+    private volatile long negativeCycleCount;
+    private volatile long reportedCycleCount;
+
+    /**
+     * Constructor with notification service.
+     *
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     * @param notificationService Notification service for logging, may be null
+     */
+    public PriceGraphArbitrageEngine(double minProfitPercent, INotificationService notificationService) {
+        this.minProfitPercent = minProfitPercent;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Simple constructor without notification service.
+     *
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     */
+    public PriceGraphArbitrageEngine(double minProfitPercent) {
+        this(minProfitPercent, null);
+    }
+
+    /**
+     * Adds an exchange's currencies and pairs to the graph, joins its
+     * currencies to the same currencies on the exchanges already added, and
+     * starts following its ticker updates. Pairs with a cached ticker are
+     * priced immediately. Adding an exchange twice has no effect.
+     *
+     * @param exchange The exchange
+     * @return The number of edges added
+     */
+    public int addExchange(ExchangeService exchange) {
+        List<ArbitrageCycle> found;
+        int added;
+        synchronized (this) {
+            if (edgesByExchange.containsKey(exchange)) {
+                return 0;
+            }
+            int firstEdge = edgeCount;
+            ExchangeEdges edges = new ExchangeEdges(exchanges.size(), 1.0 - exchange.getTakerFeeRate());
+            exchanges.add(exchange);
+            edgesByExchange.put(exchange, edges);
+
+            Map<Integer, Integer> sellEdges = new HashMap<>();
+            int maxInstrument = -1;
+            List<TradingPair> pairs = exchange.getTradingPairs();
+            if (pairs != null) {
+                for (TradingPair pair : pairs) {
+                    String base = pair.getBaseCurrency();
+                    String quote = pair.getQuoteCurrency();
+                    int instrumentId = exchange.getInstrumentId(pair.getSymbol());
+                    if (base == null || quote == null || base.equals(quote) || instrumentId < 0
+                            || sellEdges.containsKey(instrumentId)) {
+                        continue;
+                    }
+                    int baseVertex = vertex(edges, base);
+                    int quoteVertex = vertex(edges, quote);
+                    // The buy edge always follows its sell edge
+                    int sellEdge = addEdge(baseVertex, quoteVertex, ArbitrageCycle.LegType.SELL, pair.getSymbol(), UNPRICED);
+                    addEdge(quoteVertex, baseVertex, ArbitrageCycle.LegType.BUY, pair.getSymbol(), UNPRICED);
+                    sellEdges.put(instrumentId, sellEdge);
+                    maxInstrument = Math.max(maxInstrument, instrumentId);
+
+                    Ticker ticker = exchange.getCachedTicker(instrumentId);
+                    if (ticker != null) {
+                        price(edges, sellEdge, ticker);
+                    }
+                }
+            }
+            edges.sellEdgeByInstrument = new int[maxInstrument + 1];
+            Arrays.fill(edges.sellEdgeByInstrument, -1);
+            for (Map.Entry<Integer, Integer> entry : sellEdges.entrySet()) {
+                edges.sellEdgeByInstrument[entry.getKey()] = entry.getValue();
+            }
+
+            added = edgeCount - firstEdge;
+            drain();
+            found = takePendingCycles();
+        }
+        exchange.addMarketDataListener(this);
+        publish(found);
+        logInfo("Price graph: added " + exchange.getExchangeName() + " with " + added + " edges, "
+                + vertexCount + " vertices and " + edgeCount + " edges in total");
+        return added;
+    }
+
+    /**
+     * Stops following every exchange. The graph is kept.
+     */
+    public synchronized void close() {
+        for (ExchangeService exchange : exchanges) {
+            exchange.removeMarketDataListener(this);
+        }
+    }
+
+    /**
+     * Re-reads the taker fee of every exchange, e.g. after its fee tier
+     * changed. Edges take the new fee when their pair is next repriced.
+     */
+    public synchronized void refreshFees() {
+        for (Map.Entry<ExchangeService, ExchangeEdges> entry : edgesByExchange.entrySet()) {
+            entry.getValue().feeMultiplier = 1.0 - entry.getKey().getTakerFeeRate();
+        }
+    }
+
+    /**
+     * Returns the vertex of a currency on an exchange, creating it and its
+     * transfer edges on first use.
+     */
+    private int vertex(ExchangeEdges edges, String currency) {
+        Integer existing = edges.vertexByCurrency.get(currency);
+        if (existing != null) {
+            return existing;
+        }
+        int v = vertexCount++;
+        ensureVertexCapacity(vertexCount);
+        vertexExchange[v] = edges.index;
+        vertexCurrency[v] = currency;
+        distance[v] = 0.0;
+        parentEdge[v] = -1;
+        outEdges[v] = new int[4];
+        edges.vertexByCurrency.put(currency, v);
+
+        List<Integer> sameCurrency = verticesByCurrency.computeIfAbsent(currency, c -> new ArrayList<>());
+        if (transfers) {
+            double weight = -Math.log(1.0 - transferCostRate);
+            for (int other : sameCurrency) {
+                addEdge(v, other, ArbitrageCycle.LegType.TRANSFER, null, weight);
+                addEdge(other, v, ArbitrageCycle.LegType.TRANSFER, null, weight);
+            }
+        }
+        sameCurrency.add(v);
+        return v;
+    }
+
+    private int addEdge(int from, int to, ArbitrageCycle.LegType type, String symbol, double weight) {
+        int e = edgeCount++;
+        ensureEdgeCapacity(edgeCount);
+        edgeFrom[e] = from;
+        edgeTo[e] = to;
+        edgeType[e] = type;
+        edgeSymbol[e] = symbol;
+        edgeWeight[e] = weight;
+        edgeGroup[e] = -1;
+
+        int[] out = outEdges[from];
+        if (outCounts[from] == out.length) {
+            out = Arrays.copyOf(out, out.length * 2);
+            outEdges[from] = out;
+        }
+        out[outCounts[from]++] = e;
+        checkEdge(e);
+        return e;
+    }
+
+    private void ensureVertexCapacity(int capacity) {
+        if (capacity <= distance.length) {
+            return;
+        }
+        int size = Math.max(64, distance.length * 2);
+        vertexExchange = Arrays.copyOf(vertexExchange, size);
+        vertexCurrency = Arrays.copyOf(vertexCurrency, size);
+        distance = Arrays.copyOf(distance, size);
+        parentEdge = Arrays.copyOf(parentEdge, size);
+        relaxCounts = Arrays.copyOf(relaxCounts, size);
+        outEdges = Arrays.copyOf(outEdges, size);
+        outCounts = Arrays.copyOf(outCounts, size);
+        queued = Arrays.copyOf(queued, size);
+
+        // Unwrap the ring into the larger array
+        int[] grown = new int[size];
+        for (int i = 0; i < queueSize; i++) {
+            grown[i] = queue[(queueHead + i) % queue.length];
+        }
+        queue = grown;
+        queueHead = 0;
+    }
+
+    private void ensureEdgeCapacity(int capacity) {
+        if (capacity <= edgeFrom.length) {
+            return;
+        }
+        int size = Math.max(256, edgeFrom.length * 2);
+        edgeFrom = Arrays.copyOf(edgeFrom, size);
+        edgeTo = Arrays.copyOf(edgeTo, size);
+        edgeWeight = Arrays.copyOf(edgeWeight, size);
+        edgeType = Arrays.copyOf(edgeType, size);
+        edgeSymbol = Arrays.copyOf(edgeSymbol, size);
+        edgePricedAt = Arrays.copyOf(edgePricedAt, size);
+        edgeGroup = Arrays.copyOf(edgeGroup, size);
+    }
+
+    @Override
+    public void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker) {
+        update(exchange, exchange.getInstrumentId(symbol), ticker);
+    }
+
+    @Override
+    public void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook) {
+        // Edges are priced from the top of book carried by tickers
+    }
+
+    /**
+     * Reprices the two edges of a pair and relaxes from them if either got cheaper.
+     *
+     * @param exchange The exchange that produced the update
+     * @param instrumentId The instrument ID of the updated pair
+     * @param ticker The latest ticker of the pair
+     * @return The number of cycles reported
+     */
+    public int update(ExchangeService exchange, int instrumentId, Ticker ticker) {
+        if (ticker == null || instrumentId < 0) {
+            return 0;
+        }
+        List<ArbitrageCycle> found;
+        synchronized (this) {
+            ExchangeEdges edges = edgesByExchange.get(exchange);
+            if (edges == null || instrumentId >= edges.sellEdgeByInstrument.length) {
+                return 0;
+            }
+            int sellEdge = edges.sellEdgeByInstrument[instrumentId];
+            if (sellEdge < 0) {
+                return 0;
+            }
+            price(edges, sellEdge, ticker);
+            drain();
+            found = takePendingCycles();
+        }
+        publish(found);
+        return found != null ? found.size() : 0;
+    }
+
+    private void price(ExchangeEdges edges, int sellEdge, Ticker ticker) {
+        double bid = ticker.getBidPrice();
+        double ask = ticker.getAskPrice();
+        double fee = edges.feeMultiplier;
+        long pricedAt = ticker.getReceivedNanos() >= 0 ? ticker.getTimestampMillis() : clock.currentTimeMillis();
+        setWeight(sellEdge, bid > 0 ? -Math.log(bid * fee) : UNPRICED, pricedAt);
+        setWeight(sellEdge + 1, ask > 0 ? -Math.log(fee / ask) : UNPRICED, pricedAt);
+    }
+
+    private void setWeight(int e, double weight, long pricedAt) {
+        double previous = edgeWeight[e];
+        edgeWeight[e] = weight;
+        edgePricedAt[e] = pricedAt;
+        if (edgeGroup[e] >= 0) {
+            // A repriced loop is searched again from all of its edges
+            release(edgeGroup[e]);
+        } else if (weight < previous) {
+            checkEdge(e);
+        }
+    }
+
+    private void release(int group) {
+        int[] edges = setAside.remove(group);
+        if (edges == null) {
+            return;
+        }
+        for (int e : edges) {
+            edgeGroup[e] = -1;
+        }
+        for (int e : edges) {
+            checkEdge(e);
+        }
+    }
+
+    /**
+     * Queues the tail of an edge that violates its distance constraint.
+     */
+    private void checkEdge(int e) {
+        double weight = edgeWeight[e];
+        if (edgeGroup[e] < 0 && weight != UNPRICED
+                && distance[edgeFrom[e]] + weight < distance[edgeTo[e]] - EPSILON) {
+            enqueue(edgeFrom[e]);
+        }
+    }
+
+    private void enqueue(int v) {
+        if (!queued[v]) {
+            queued[v] = true;
+            queue[(queueHead + queueSize) % queue.length] = v;
+            queueSize++;
+        }
+    }
+
+    private int poll() {
+        int v = queue[queueHead];
+        queueHead = (queueHead + 1) % queue.length;
+        queueSize--;
+        queued[v] = false;
+        return v;
+    }
+
+    /**
+     * Runs SPFA until no distance constraint is violated or the budget is spent.
+     */
+    private void drain() {
+        long budget = maxRelaxationsPerUpdate;
+        long start = relaxationCount;
+        while (queueSize > 0 && relaxationCount - start < budget) {
+            relax(poll());
+        }
+    }
+
+    private void relax(int u) {
+        int[] out = outEdges[u];
+        for (int i = 0; i < outCounts[u]; i++) {
+            int e = out[i];
+            double weight = edgeWeight[e];
+            if (edgeGroup[e] >= 0 || weight == UNPRICED) {
+                continue;
+            }
+            int v = edgeTo[e];
+            double candidate = distance[u] + weight;
+            if (candidate >= distance[v] - EPSILON) {
+                continue;
+            }
+            relaxationCount++;
+
+            int length = findLoop(v, e, maxCycleLength);
+            if (length < 0 && ++relaxCounts[v] > vertexCount) {
+                relaxCounts[v] = 0;
+                length = findLoop(v, e, vertexCount);
+            }
+            if (length > 0 && setAsideIfNegative(length)) {
+                // The edge now belongs to a set-aside loop
+                continue;
+            }
+
+            distance[v] = candidate;
+            parentEdge[v] = e;
+            enqueue(v);
+        }
+    }
+
+    /**
+     * Looks for a loop closed by edge e into v: walks the shortest-path tree
+     * up from the tail of e and succeeds if it reaches v. The loop's edges
+     * are left in {@code loopEdges}, last edge first.
+     *
+     * @return The loop length, or -1 if v was not reached within maxLength edges
+     */
+    private int findLoop(int v, int e, int maxLength) {
+        if (loopEdges.length < maxLength + 1) {
+            loopEdges = new int[Math.max(maxLength + 1, loopEdges.length * 2)];
+        }
+        int length = 0;
+        loopEdges[length++] = e;
+        int x = edgeFrom[e];
+        while (x != v) {
+            if (length >= maxLength) {
+                return -1;
+            }
+            int parent = parentEdge[x];
+            if (parent < 0) {
+                return -1;
+            }
+            loopEdges[length++] = parent;
+            x = edgeFrom[parent];
+        }
+        return length;
+    }
+
+    /**
+     * Checks a loop in the shortest-path tree against the current weights;
+     * the tree may predate later price changes. A negative loop is set aside
+     * and, if profitable enough and fresh, reported.
+     *
+     * @return true if the loop was negative
+     */
+    private boolean setAsideIfNegative(int length) {
+        double total = 0.0;
+        for (int i = 0; i < length; i++) {
+            int e = loopEdges[i];
+            if (edgeGroup[e] >= 0 || edgeWeight[e] == UNPRICED) {
+                return false;
+            }
+            total += edgeWeight[e];
+        }
+        if (total >= -EPSILON) {
+            return false;
+        }
+
+        negativeCycleCount++;
+        int group = nextGroup++;
+        int[] edges = new int[length];
+        // Stored in trading order, starting where the closing edge ends
+        for (int i = 0; i < length; i++) {
+            edges[i] = loopEdges[length - 1 - i];
+            edgeGroup[edges[i]] = group;
+        }
+        setAside.put(group, edges);
+
+        if (total < -Math.log1p(minProfitPercent / 100.0) && isFresh(edges)) {
+            reportedCycleCount++;
+            pendingCycles.add(describe(edges, total));
+        }
+        return true;
+    }
+
+    private boolean isFresh(int[] edges) {
+        long oldest = clock.currentTimeMillis() - maxTickerAgeMs;
+        for (int e : edges) {
+            if (edgeType[e] != ArbitrageCycle.LegType.TRANSFER && edgePricedAt[e] < oldest) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ArbitrageCycle describe(int[] edges, double total) {
+        int legs = edges.length;
+        String[] legExchanges = new String[legs];
+        String[] legCurrencies = new String[legs];
+        ArbitrageCycle.LegType[] legTypes = new ArbitrageCycle.LegType[legs];
+        String[] legSymbols = new String[legs];
+        double[] legRates = new double[legs];
+        for (int i = 0; i < legs; i++) {
+            int e = edges[i];
+            int from = edgeFrom[e];
+            legExchanges[i] = exchanges.get(vertexExchange[from]).getExchangeName();
+            legCurrencies[i] = vertexCurrency[from];
+            legTypes[i] = edgeType[e];
+            legSymbols[i] = edgeSymbol[e];
+            legRates[i] = Math.exp(-edgeWeight[e]);
+        }
+        return new ArbitrageCycle(legExchanges, legCurrencies, legTypes, legSymbols, legRates,
+                Math.expm1(-total) * 100.0, clock.currentTimeMillis());
+    }
+
+    private List<ArbitrageCycle> takePendingCycles() {
+        if (pendingCycles.isEmpty()) {
+            return null;
+        }
+        List<ArbitrageCycle> found = new ArrayList<>(pendingCycles);
+        pendingCycles.clear();
+        return found;
+    }
+
+    private void publish(List<ArbitrageCycle> cycles) {
+        if (cycles == null) {
+            return;
+        }
+        for (ArbitrageCycle cycle : cycles) {
+            for (IArbitrageCycleListener listener : cycleListeners) {
+                try {
+                    listener.onCycle(cycle);
+                } catch (Exception e) {
+                    logError("Arbitrage cycle listener failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a consumer of detected cycles.
+     *
+     * @param listener The listener to add
+     */
+    public void addCycleListener(IArbitrageCycleListener listener) {
+        if (listener != null) {
+            cycleListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a consumer of detected cycles.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeCycleListener(IArbitrageCycleListener listener) {
+        cycleListeners.remove(listener);
+    }
+
+    /**
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     */
+    public void setMinProfitPercent(double minProfitPercent) {
+        this.minProfitPercent = minProfitPercent;
+    }
+
+    /**
+     * Sets the cost of moving funds between exchanges, for exchanges added afterwards.
+     *
+     * @param enabled Whether to join the same currency across exchanges
+     * @param costRate Transfer cost as a rate, e.g. 0.0005 for 0.05%
+     */
+    public synchronized void setTransfers(boolean enabled, double costRate) {
+        this.transfers = enabled;
+        this.transferCostRate = costRate;
+    }
+
+    /**
+     * @param maxCycleLength Longest loop checked on every relaxation
+     */
+    public synchronized void setMaxCycleLength(int maxCycleLength) {
+        this.maxCycleLength = Math.max(2, maxCycleLength);
+    }
+
+    /**
+     * @param maxTickerAgeMs Maximum age of the prices of a reported cycle, in milliseconds
+     */
+    public synchronized void setMaxTickerAgeMs(long maxTickerAgeMs) {
+        this.maxTickerAgeMs = maxTickerAgeMs;
+    }
+
+    /**
+     * @param clock The clock price ages are measured against
+     */
+    public synchronized void setClock(IClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param maxRelaxationsPerUpdate Relaxations per update before the rest is deferred
+     */
+    public synchronized void setMaxRelaxationsPerUpdate(int maxRelaxationsPerUpdate) {
+        this.maxRelaxationsPerUpdate = Math.max(1, maxRelaxationsPerUpdate);
+    }
+
+    /**
+     * @return The number of (exchange, currency) vertices
+     */
+    public synchronized int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * @return The number of trade and transfer edges
+     */
+    public synchronized int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return Edge relaxations performed so far
+     */
+    public long getRelaxationCount() {
+        return relaxationCount;
+    }
+
+    /**
+     * @return Negative loops found so far, reported or not
+     */
+    public long getNegativeCycleCount() {
+        return negativeCycleCount;
+    }
+
+    /**
+     * @return Cycles reported to listeners so far
+     */
+    public long getReportedCycleCount() {
+        return reportedCycleCount;
+    }
+
+    /**
+     * @return Negative loops currently set aside until repriced
+     */
+    public synchronized int getSetAsideCycleCount() {
+        return setAside.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Price graph: %d vertices, %d edges, %d relaxations, %d negative cycles "
+                        + "(%d reported, %d set aside), %d vertices queued",
+                vertexCount, edgeCount, relaxationCount, negativeCycleCount, reportedCycleCount,
+                setAside.size(), queueSize);
+    }
+
+    private void logInfo(String message) {
+        if (notificationService != null) {
+            notificationService.logInfo(message);
+        }
+    }
+
+    private void logError(String message, Throwable t) {
+        if (notificationService != null) {
+            notificationService.logError(message, t);
+        }
+    }
+
+    /**
+     * The part of the graph contributed by one exchange.
+     */
+    private static final class ExchangeEdges {
+        final int index;
+        final Map<String, Integer> vertexByCurrency = new HashMap<>();
+        // Instrument ID -> sell edge of the pair, or -1; the buy edge is the next one
+        int[] sellEdgeByInstrument = new int[0];
+        // 1 - taker fee rate
+        double feeMultiplier;
+
+        ExchangeEdges(int index, double feeMultiplier) {
+            this.index = index;
+            this.feeMultiplier = feeMultiplier;
+        }
+    }
+}
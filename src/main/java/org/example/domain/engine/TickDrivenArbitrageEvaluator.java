@@ -0,0 +1,434 @@
+package org.example.domain.engine;
+
+import org.example.data.model.ArbitrageOpportunity;
+import org.example.data.model.InstrumentArray;
+import org.example.data.model.OrderBook;
+import org.example.data.model.SymbolRegistry;
+import org.example.data.model.Ticker;
+import org.example.data.model.TradingPair;
+import org.example.data.service.ConflatingMarketDataChannel;
+import org.example.data.service.ExchangeService;
+import org.example.data.interfaces.IArbitrageOpportunityListener;
+import org.example.data.interfaces.IMarketDataListener;
+import org.example.data.interfaces.INotificationService;
+import org.example.domain.risk.RiskCalculator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event-driven arbitrage evaluation.
+ *
+ * Instead of re-scanning every symbol on a fixed timer, this evaluator listens to
+ * the exchange caches and re-evaluates only the symbol that just changed, against
+ * the cached tickers of every other exchange that lists the same instrument.
+ * Nothing is fetched over the network on the evaluation path, so an opportunity
+ * is detected on the same thread that received the tick.
+ *
+ * Symbols are registered under a normalized name (e.g. "BTCUSDT") together with
+ * each exchange's native symbol (e.g. "BTC-USDT", "XBT/USDT"). Both are resolved
+ * to instrument IDs at registration (see {@link SymbolRegistry}), so an update
+ * costs one symbol lookup and everything after it is array indexing.
+ *
+ * With conflation enabled, updates are not evaluated on the thread that applied
+ * them. Each exchange gets a {@link ConflatingMarketDataChannel} and a single
+ * evaluation thread drains them, so a burst of updates on one symbol results
+ * in one evaluation of its latest state.
+ */
+public class TickDrivenArbitrageEvaluator implements IMarketDataListener {
+
+    private final RiskCalculator riskCalculator;
+    private final double minProfitPercent;
+    private final INotificationService notificationService;
+
+    // Tickers older than this are not used as the counter side of an evaluation
+    private volatile long maxTickerAgeMs = 5000;
+
+    // Success rate an opportunity must exceed to be marked viable, passed to the pairwise engines
+    private volatile int minimumSuccessRate = ExchangeToExchangeArbitrage.DEFAULT_MINIMUM_SUCCESS_RATE;
+
+    // Instrument ID of the normalized symbol -> every exchange listing of that symbol
+    private final InstrumentArray<List<Listing>> listingsByInstrument = new InstrumentArray<>();
+
+    // Exchange -> exchange's instrument ID -> listing, used to resolve incoming updates
+    private final Map<ExchangeService, InstrumentArray<Listing>> listingsByExchange = new ConcurrentHashMap<>();
+
+    // Pairwise engines, created once per ordered exchange pair
+    private final Map<ExchangeService, Map<ExchangeService, ExchangeToExchangeArbitrage>> engines = new ConcurrentHashMap<>();
+
+    // Consumers of detected opportunities
+    private final List<IArbitrageOpportunityListener> opportunityListeners = new CopyOnWriteArrayList<>();
+
+    // Conflating channels per exchange, used when conflation is enabled
+    private volatile boolean conflation = false;
+    private volatile int conflationCapacity = 4096;
+    private final Map<ExchangeService, ConflatingMarketDataChannel> channels = new ConcurrentHashMap<>();
+    private volatile Thread evaluationThread;
+    private volatile boolean running = true;
+
+    // Counters for monitoring
+    private final AtomicLong evaluationCount = new AtomicLong();
+    private final AtomicLong opportunityCount = new AtomicLong();
+
+    /**
+     * Constructor with notification service.
+     *
+     * @param riskCalculator Risk calculator for opportunity assessment
+     * @param minProfitPercent Minimum profit percentage to report an opportunity
+     * @param notificationService Notification service for logging, may be null
+     */
+    public TickDrivenArbitrageEvaluator(RiskCalculator riskCalculator, double minProfitPercent,
+                                        INotificationService notificationService) {
+        this.riskCalculator = riskCalculator;
+        this.minProfitPercent = minProfitPercent;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Simple constructor without notification service.
+     *
+     * @param riskCalculator Risk calculator for opportunity assessment
+     * @param minProfitPercent Minimum profit percentage to report an opportunity
+     */
+    public TickDrivenArbitrageEvaluator(RiskCalculator riskCalculator, double minProfitPercent) {
+        this(riskCalculator, minProfitPercent, null);
+    }
+
+    /**
+     * Registers an exchange listing of a normalized symbol and subscribes this
+     * evaluator to the exchange's market data updates.
+     *
+     * @param normalizedSymbol The exchange-independent symbol
+     * @param exchange The exchange listing the symbol
+     * @param exchangeSymbol The exchange's native symbol
+     */
+    public void registerSymbol(String normalizedSymbol, ExchangeService exchange, String exchangeSymbol) {
+        if (normalizedSymbol == null || exchange == null || exchangeSymbol == null) {
+            return;
+        }
+
+        int instrumentId = SymbolRegistry.getInstance().intern(normalizedSymbol);
+        int cacheId = exchange.getSymbolTable().register(exchangeSymbol);
+        Listing listing = new Listing(exchange, exchangeSymbol, cacheId, new TradingPair(normalizedSymbol), instrumentId);
+        InstrumentArray<Listing> exchangeListings =
+                listingsByExchange.computeIfAbsent(exchange, ex -> new InstrumentArray<>());
+        if (exchangeListings.setIfAbsent(cacheId, listing) != listing) {
+            return;
+        }
+        List<Listing> listings = listingsByInstrument.get(instrumentId);
+        if (listings == null) {
+            listings = listingsByInstrument.setIfAbsent(instrumentId, new CopyOnWriteArrayList<>());
+        }
+        listings.add(listing);
+
+        if (conflation) {
+            channels.computeIfAbsent(exchange, this::openChannel);
+        } else {
+            exchange.addMarketDataListener(this);
+        }
+    }
+
+    /**
+     * Registers every listing from a per-exchange map of normalized to native symbols.
+     *
+     * @param exchangeSymbolMap Exchange -> (normalized symbol -> native symbol)
+     */
+    public void registerSymbols(Map<ExchangeService, Map<String, String>> exchangeSymbolMap) {
+        for (Map.Entry<ExchangeService, Map<String, String>> exchangeEntry : exchangeSymbolMap.entrySet()) {
+            for (Map.Entry<String, String> symbolEntry : exchangeEntry.getValue().entrySet()) {
+                registerSymbol(symbolEntry.getKey(), exchangeEntry.getKey(), symbolEntry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Stops listening to every registered exchange.
+     */
+    public void close() {
+        running = false;
+        for (ExchangeService exchange : listingsByExchange.keySet()) {
+            exchange.removeMarketDataListener(this);
+        }
+        for (ConflatingMarketDataChannel channel : channels.values()) {
+            channel.close();
+        }
+        Thread thread = evaluationThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Evaluates the latest state of each changed symbol on a dedicated thread
+     * instead of every update on the thread that applied it. Must be set before
+     * symbols are registered.
+     *
+     * @param enabled Whether to conflate updates
+     * @param capacity Maximum number of symbols per exchange
+     */
+    public void setConflation(boolean enabled, int capacity) {
+        this.conflation = enabled;
+        this.conflationCapacity = capacity;
+    }
+
+    /**
+     * @return The conflating channels, empty unless conflation is enabled
+     */
+    public Collection<ConflatingMarketDataChannel> getChannels() {
+        return channels.values();
+    }
+
+    private ConflatingMarketDataChannel openChannel(ExchangeService exchange) {
+        ConflatingMarketDataChannel channel = new ConflatingMarketDataChannel(exchange, conflationCapacity);
+        channel.setDirtySignal(this::signalEvaluationThread);
+        startEvaluationThread();
+        return channel;
+    }
+
+    private synchronized void startEvaluationThread() {
+        if (evaluationThread == null) {
+            Thread thread = new Thread(this::runEvaluationLoop, "tick-arbitrage-evaluator");
+            thread.setDaemon(true);
+            evaluationThread = thread;
+            thread.start();
+        }
+    }
+
+    private void signalEvaluationThread() {
+        Thread thread = evaluationThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Drains every channel until none has pending updates, then parks until a
+     * symbol turns dirty. The timed park covers a signal racing with the check.
+     */
+    private void runEvaluationLoop() {
+        while (running) {
+            int drained = 0;
+            for (ConflatingMarketDataChannel channel : channels.values()) {
+                try {
+                    drained += channel.drain(this);
+                } catch (Exception e) {
+                    logError("Error evaluating conflated updates from " + channel.getExchange().getExchangeName(), e);
+                }
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    /**
+     * Adds a consumer of detected opportunities.
+     *
+     * @param listener The listener to add
+     */
+    public void addOpportunityListener(IArbitrageOpportunityListener listener) {
+        if (listener != null) {
+            opportunityListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a consumer of detected opportunities.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeOpportunityListener(IArbitrageOpportunityListener listener) {
+        opportunityListeners.remove(listener);
+    }
+
+    /**
+     * Sets the maximum age of a counter-side ticker used in an evaluation.
+     *
+     * @param maxTickerAgeMs Maximum age in milliseconds
+     */
+    public void setMaxTickerAgeMs(long maxTickerAgeMs) {
+        this.maxTickerAgeMs = maxTickerAgeMs;
+    }
+
+    /**
+     * Sets the success rate an opportunity must exceed to be marked viable.
+     *
+     * @param minimumSuccessRate The minimum success rate in percent
+     */
+    public void setMinimumSuccessRate(int minimumSuccessRate) {
+        this.minimumSuccessRate = minimumSuccessRate;
+        for (Map<ExchangeService, ExchangeToExchangeArbitrage> byCounterpart : engines.values()) {
+            for (ExchangeToExchangeArbitrage engine : byCounterpart.values()) {
+                engine.setMinimumSuccessRate(minimumSuccessRate);
+            }
+        }
+    }
+
+    /**
+     * @return The number of pairwise evaluations performed so far
+     */
+    public long getEvaluationCount() {
+        return evaluationCount.get();
+    }
+
+    /**
+     * @return The number of opportunities reported so far
+     */
+    public long getOpportunityCount() {
+        return opportunityCount.get();
+    }
+
+    @Override
+    public void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker) {
+        evaluate(exchange, exchange.getInstrumentId(symbol), ticker);
+    }
+
+    @Override
+    public void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook) {
+        // A book update may move the top of book before the next ticker arrives
+        int instrumentId = exchange.getInstrumentId(symbol);
+        evaluate(exchange, instrumentId, exchange.getCachedTicker(instrumentId));
+    }
+
+    /**
+     * Re-evaluates a single updated listing against every other listing of the
+     * same normalized symbol.
+     *
+     * @param exchange The exchange that produced the update
+     * @param symbol The native symbol that changed
+     * @param ticker The latest ticker for that symbol
+     * @return The number of opportunities detected
+     */
+    public int evaluate(ExchangeService exchange, String symbol, Ticker ticker) {
+        return evaluate(exchange, exchange.getInstrumentId(symbol), ticker);
+    }
+
+    /**
+     * Re-evaluates a single updated listing, identified by the exchange's
+     * instrument ID, against every other listing of the same normalized symbol.
+     *
+     * @param exchange The exchange that produced the update
+     * @param instrumentId The exchange's instrument ID of the symbol that changed
+     * @param ticker The latest ticker for that symbol
+     * @return The number of opportunities detected
+     */
+    public int evaluate(ExchangeService exchange, int instrumentId, Ticker ticker) {
+        if (ticker == null || instrumentId < 0) {
+            return 0;
+        }
+        InstrumentArray<Listing> exchangeListings = listingsByExchange.get(exchange);
+        if (exchangeListings == null) {
+            return 0;
+        }
+        Listing updated = exchangeListings.get(instrumentId);
+        if (updated == null) {
+            return 0;
+        }
+
+        List<Listing> listings = listingsByInstrument.get(updated.instrumentId);
+        long now = exchange.getClock().currentTimeMillis();
+        int detected = 0;
+
+        for (Listing other : listings) {
+            if (other.exchange == exchange) {
+                continue;
+            }
+            Ticker otherTicker = other.exchange.getCachedTicker(other.cacheId);
+            if (otherTicker == null || now - otherTicker.getTimestampMillis() > maxTickerAgeMs) {
+                continue;
+            }
+
+            evaluationCount.incrementAndGet();
+            ArbitrageOpportunity opportunity;
+            try {
+                opportunity = getEngine(exchange, other.exchange)
+                        .calculateArbitrage(updated.pair, ticker, otherTicker);
+            } catch (Exception e) {
+                logError("Error evaluating " + updated.pair.getSymbol() + " on "
+                        + exchange.getExchangeName() + "/" + other.exchange.getExchangeName(), e);
+                continue;
+            }
+
+            if (opportunity != null) {
+                detected++;
+                opportunityCount.incrementAndGet();
+                updated.openAgainst.add(other.exchange);
+                other.openAgainst.add(exchange);
+                publish(opportunity);
+            } else if (updated.openAgainst.remove(other.exchange)) {
+                other.openAgainst.remove(exchange);
+                publishClosed(updated.pair.getSymbol(), exchange, other.exchange);
+            }
+        }
+        return detected;
+    }
+
+    /**
+     * Returns the pairwise engine for an ordered exchange pair, creating it on first use.
+     */
+    private ExchangeToExchangeArbitrage getEngine(ExchangeService exchangeA, ExchangeService exchangeB) {
+        return engines.computeIfAbsent(exchangeA, ex -> new ConcurrentHashMap<>())
+                .computeIfAbsent(exchangeB, ex -> {
+                    ExchangeToExchangeArbitrage engine = new ExchangeToExchangeArbitrage(
+                            exchangeA, exchangeB, riskCalculator, minProfitPercent, notificationService);
+                    engine.setMinimumSuccessRate(minimumSuccessRate);
+                    return engine;
+                });
+    }
+
+    private void publish(ArbitrageOpportunity opportunity) {
+        for (IArbitrageOpportunityListener listener : opportunityListeners) {
+            try {
+                listener.onOpportunity(opportunity);
+            } catch (Exception e) {
+                logError("Opportunity listener failed for " + opportunity.getNormalizedSymbol(), e);
+            }
+        }
+    }
+
+    private void publishClosed(String symbol, ExchangeService exchangeA, ExchangeService exchangeB) {
+        for (IArbitrageOpportunityListener listener : opportunityListeners) {
+            try {
+                listener.onOpportunityClosed(symbol, exchangeA.getExchangeName(), exchangeB.getExchangeName());
+            } catch (Exception e) {
+                logError("Opportunity listener failed closing " + symbol, e);
+            }
+        }
+    }
+
+    private void logError(String message, Throwable t) {
+        if (notificationService != null) {
+            notificationService.logError(message, t);
+        }
+    }
+
+    /**
+     * An exchange listing of a normalized symbol.
+     */
+    private static final class Listing {
+        final ExchangeService exchange;
+        final String symbol;
+        // ID the exchange caches the symbol under
+        final int cacheId;
+        final TradingPair pair;
+        // ID of the normalized symbol, shared by all listings of the instrument
+        final int instrumentId;
+        // Exchanges this listing last had an opportunity against, in either direction
+        final Set<ExchangeService> openAgainst = ConcurrentHashMap.newKeySet();
+
+        Listing(ExchangeService exchange, String symbol, int cacheId, TradingPair pair, int instrumentId) {
+            this.exchange = exchange;
+            this.symbol = symbol;
+            this.cacheId = cacheId;
+            this.pair = pair;
+            this.instrumentId = instrumentId;
+        }
+    }
+}
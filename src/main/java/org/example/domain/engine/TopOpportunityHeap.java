@@ -0,0 +1,315 @@
+package org.example.domain.engine;
+
+import org.example.data.interfaces.IArbitrageOpportunityListener;
+import org.example.data.interfaces.IClock;
+import org.example.data.model.ArbitrageOpportunity;
+import org.example.data.service.SystemClock;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Keeps the best K opportunities by score as they stream in.
+ *
+ * Opportunities are keyed by (buy exchange, sell exchange, symbol), so a newer
+ * opportunity replaces the one it supersedes instead of being added next to it.
+ * The entries live in a min-heap on score with an index from key to heap slot,
+ * which makes an insert, a change of score and a removal O(log K). When the heap
+ * is full, a new key only gets in by beating the worst entry, which it evicts.
+ *
+ * Updates take a lock; readers use {@link #snapshot()}, which is rebuilt at most
+ * once per change and otherwise returns the same list.
+ */
+public class TopOpportunityHeap implements IArbitrageOpportunityListener {
+
+    /**
+     * Ranks by profit percent after fees.
+     */
+    public static final ToDoubleFunction<ArbitrageOpportunity> BY_PROFIT_PERCENT =
+            ArbitrageOpportunity::getProfitPercent;
+
+    /**
+     * Ranks by profit percent after fees, weighted by the estimated success rate.
+     */
+    public static final ToDoubleFunction<ArbitrageOpportunity> BY_RISK_ADJUSTED_PROFIT =
+            opportunity -> opportunity.getProfitPercent() * opportunity.getSuccessfulArbitragePercent() / 100;
+
+    private final int capacity;
+    private final ToDoubleFunction<ArbitrageOpportunity> scorer;
+    private volatile IClock clock = SystemClock.INSTANCE;
+
+    // Min-heap on score; slot 0 holds the worst entry
+    private final String[] keys;
+    private final ArbitrageOpportunity[] opportunities;
+    private final double[] scores;
+    // When each entry was last offered, for expiry
+    private final long[] offeredAt;
+    private final Map<String, Integer> slots;
+    private int size;
+
+    private long version;
+    private List<ArbitrageOpportunity> snapshot = Collections.emptyList();
+    private long snapshotVersion;
+
+    /**
+     * @param capacity The number of opportunities to keep
+     * @param scorer Ranks opportunities, higher is better
+     */
+    public TopOpportunityHeap(int capacity, ToDoubleFunction<ArbitrageOpportunity> scorer) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.scorer = scorer;
+        this.keys = new String[capacity];
+        this.opportunities = new ArbitrageOpportunity[capacity];
+        this.scores = new double[capacity];
+        this.offeredAt = new long[capacity];
+        this.slots = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * @param capacity The number of opportunities to keep, ranked by profit percent
+     */
+    public TopOpportunityHeap(int capacity) {
+        this(capacity, BY_PROFIT_PERCENT);
+    }
+
+    @Override
+    public void onOpportunity(ArbitrageOpportunity opportunity) {
+        offer(opportunity);
+    }
+
+    @Override
+    public void onOpportunityClosed(String symbol, String exchangeA, String exchangeB) {
+        synchronized (this) {
+            boolean removed = removeKey(key(exchangeA, exchangeB, symbol));
+            removed |= removeKey(key(exchangeB, exchangeA, symbol));
+            if (removed) {
+                version++;
+            }
+        }
+    }
+
+    /**
+     * Inserts an opportunity, or replaces the one with the same key. An opportunity
+     * for the opposite direction of the same pair is dropped, since the spread
+     * cannot point both ways at once.
+     *
+     * @param opportunity The opportunity to offer
+     * @return true if the opportunity is among the best K
+     */
+    public boolean offer(ArbitrageOpportunity opportunity) {
+        if (opportunity == null) {
+            return false;
+        }
+        String symbol = opportunity.getNormalizedSymbol();
+        String key = key(opportunity.getExchangeBuy(), opportunity.getExchangeSell(), symbol);
+        String reverseKey = key(opportunity.getExchangeSell(), opportunity.getExchangeBuy(), symbol);
+        double score = scorer.applyAsDouble(opportunity);
+        long now = clock.currentTimeMillis();
+
+        synchronized (this) {
+            boolean changed = removeKey(reverseKey);
+            boolean kept = true;
+            Integer slot = slots.get(key);
+            if (slot != null) {
+                int i = slot;
+                double previous = scores[i];
+                opportunities[i] = opportunity;
+                scores[i] = score;
+                offeredAt[i] = now;
+                if (score < previous) {
+                    siftUp(i);
+                } else {
+                    siftDown(i);
+                }
+                changed = true;
+            } else if (size < capacity) {
+                place(size, key, opportunity, score, now);
+                siftUp(size++);
+                changed = true;
+            } else if (score > scores[0]) {
+                slots.remove(keys[0]);
+                place(0, key, opportunity, score, now);
+                siftDown(0);
+                changed = true;
+            } else {
+                kept = false;
+            }
+            if (changed) {
+                version++;
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Removes the opportunity for one direction of a pair.
+     *
+     * @return true if it was held
+     */
+    public synchronized boolean remove(String buyExchange, String sellExchange, String symbol) {
+        boolean removed = removeKey(key(buyExchange, sellExchange, symbol));
+        if (removed) {
+            version++;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every opportunity that has not been offered again within the given
+     * age, for feeds that stop reporting a pair without saying it closed.
+     *
+     * @param maxAgeMs The oldest opportunity to keep, in milliseconds
+     * @return The number of opportunities removed
+     */
+    public synchronized int expire(long maxAgeMs) {
+        long cutoff = clock.currentTimeMillis() - maxAgeMs;
+        // Collect first, removing reorders the heap
+        String[] expired = new String[size];
+        int removed = 0;
+        for (int i = 0; i < size; i++) {
+            if (offeredAt[i] < cutoff) {
+                expired[removed++] = keys[i];
+            }
+        }
+        for (int i = 0; i < removed; i++) {
+            removeKey(expired[i]);
+        }
+        if (removed > 0) {
+            version++;
+        }
+        return removed;
+    }
+
+    /**
+     * @param clock The clock offers are stamped with and expiry is measured against
+     */
+    public void setClock(IClock clock) {
+        this.clock = clock;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(opportunities, 0, size, null);
+        slots.clear();
+        size = 0;
+        version++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the opportunities held, best first. The list is immutable and is only
+     * rebuilt after the heap changed, so polling it is cheap.
+     *
+     * @return The current best opportunities
+     */
+    public List<ArbitrageOpportunity> snapshot() {
+        synchronized (this) {
+            if (snapshotVersion == version) {
+                return snapshot;
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            ArbitrageOpportunity[] sorted = new ArbitrageOpportunity[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = opportunities[order[i]];
+            }
+            snapshot = Collections.unmodifiableList(Arrays.asList(sorted));
+            snapshotVersion = version;
+            return snapshot;
+        }
+    }
+
+    private boolean removeKey(String key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        int i = slot;
+        int last = --size;
+        if (i != last) {
+            double removedScore = scores[i];
+            place(i, keys[last], opportunities[last], scores[last], offeredAt[last]);
+            if (scores[i] < removedScore) {
+                siftUp(i);
+            } else {
+                siftDown(i);
+            }
+        }
+        keys[last] = null;
+        opportunities[last] = null;
+        return true;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String key = keys[a];
+        ArbitrageOpportunity opportunity = opportunities[a];
+        double score = scores[a];
+        long time = offeredAt[a];
+        place(a, keys[b], opportunities[b], scores[b], offeredAt[b]);
+        place(b, key, opportunity, score, time);
+    }
+
+    private void place(int i, String key, ArbitrageOpportunity opportunity, double score, long time) {
+        keys[i] = key;
+        opportunities[i] = opportunity;
+        scores[i] = score;
+        offeredAt[i] = time;
+        slots.put(key, i);
+    }
+
+    private static String key(String buyExchange, String sellExchange, String symbol) {
+        return buyExchange + '>' + sellExchange + ':' + symbol;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TopOpportunityHeap{" + size + "/" + capacity + " held}";
+    }
+}
@@ -0,0 +1,473 @@
+package org.example.domain.engine;
+
+import org.example.data.interfaces.IMarketDataListener;
+import org.example.data.interfaces.INotificationService;
+import org.example.data.interfaces.ITriangularOpportunityListener;
+import org.example.data.model.OrderBook;
+import org.example.data.model.Ticker;
+import org.example.data.model.TradingPair;
+import org.example.data.model.TriangularOpportunity;
+import org.example.data.service.ExchangeService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event-driven triangular arbitrage inside a single exchange.
+ *
+ * The trading pairs of an exchange form a graph with currencies as nodes and
+ * pairs as edges. Every triangle in that graph is a cycle that can be traded
+ * in two directions, e.g. USDT -> BTC -> ETH -> USDT and USDT -> ETH -> BTC -> USDT.
+ * All triangles are enumerated once per exchange from
+ * {@link ExchangeService#getTradingPairs()} and stored in flat arrays,
+ * together with an index from each pair to the cycles it is part of.
+ *
+ * On a ticker update only the cycles through the updated pair are
+ * re-evaluated, in both directions, from the cached tickers of the other two
+ * legs. A leg sells the pair's base at the bid or buys it at the ask, and
+ * every leg pays the exchange's taker fee. Legs without a fresh cached
+ * ticker (e.g. pairs that are not subscribed) make their cycles unavailable
+ * until they receive one. Nothing is allocated on the evaluation path unless an
+ * opportunity is found.
+ */
+public class TriangularArbitrageEngine implements IMarketDataListener {
+
+    private volatile double minProfitPercent;
+    private final INotificationService notificationService;
+
+    // Tickers older than this are not used for the other legs of a cycle
+    private volatile long maxTickerAgeMs = 5000;
+
+    private final Map<ExchangeService, CycleGraph> graphs = new ConcurrentHashMap<>();
+
+    private final List<ITriangularOpportunityListener> opportunityListeners = new CopyOnWriteArrayList<>();
+
+    // Counters for monitoring
+    private final AtomicLong evaluationCount = new AtomicLong();
+    private final AtomicLong opportunityCount = new AtomicLong();
+
+    /**
+     * Constructor with notification service.
+     *
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     * @param notificationService Notification service for logging, may be null
+     */
+    public TriangularArbitrageEngine(double minProfitPercent, INotificationService notificationService) {
+        this.minProfitPercent = minProfitPercent;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Simple constructor without notification service.
+     *
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     */
+    public TriangularArbitrageEngine(double minProfitPercent) {
+        this(minProfitPercent, null);
+    }
+
+    /**
+     * Enumerates the cycles of an exchange and starts evaluating its ticker
+     * updates. Adding an exchange again rebuilds its cycles, e.g. after its
+     * trading pairs changed.
+     *
+     * @param exchange The exchange
+     * @return The number of triangles found
+     */
+    public int addExchange(ExchangeService exchange) {
+        CycleGraph graph = CycleGraph.build(exchange, exchange.getTakerFeeRate());
+        graphs.put(exchange, graph);
+        exchange.addMarketDataListener(this);
+        logInfo("Triangular arbitrage on " + exchange.getExchangeName() + ": " + graph.cycleCount()
+                + " triangles over " + graph.pairCount() + " pairs");
+        return graph.cycleCount();
+    }
+
+    /**
+     * Stops evaluating an exchange.
+     *
+     * @param exchange The exchange
+     */
+    public void removeExchange(ExchangeService exchange) {
+        if (graphs.remove(exchange) != null) {
+            exchange.removeMarketDataListener(this);
+        }
+    }
+
+    /**
+     * Stops evaluating every exchange.
+     */
+    public void close() {
+        for (ExchangeService exchange : graphs.keySet()) {
+            removeExchange(exchange);
+        }
+    }
+
+    /**
+     * Re-reads the taker fee of every exchange, e.g. after its fee tier changed.
+     */
+    public void refreshFees() {
+        for (Map.Entry<ExchangeService, CycleGraph> entry : graphs.entrySet()) {
+            entry.getValue().feeMultiplier = 1.0 - entry.getKey().getTakerFeeRate();
+        }
+    }
+
+    /**
+     * Adds a consumer of detected cycles.
+     *
+     * @param listener The listener to add
+     */
+    public void addOpportunityListener(ITriangularOpportunityListener listener) {
+        if (listener != null) {
+            opportunityListeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes a consumer of detected cycles.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeOpportunityListener(ITriangularOpportunityListener listener) {
+        opportunityListeners.remove(listener);
+    }
+
+    /**
+     * @param minProfitPercent Minimum profit percentage after fees to report a cycle
+     */
+    public void setMinProfitPercent(double minProfitPercent) {
+        this.minProfitPercent = minProfitPercent;
+    }
+
+    /**
+     * Sets the maximum age of the tickers used for the other legs of a cycle.
+     *
+     * @param maxTickerAgeMs Maximum age in milliseconds
+     */
+    public void setMaxTickerAgeMs(long maxTickerAgeMs) {
+        this.maxTickerAgeMs = maxTickerAgeMs;
+    }
+
+    /**
+     * @param exchange The exchange
+     * @return The number of triangles of the exchange, 0 if it was not added
+     */
+    public int getCycleCount(ExchangeService exchange) {
+        CycleGraph graph = graphs.get(exchange);
+        return graph != null ? graph.cycleCount() : 0;
+    }
+
+    /**
+     * @return The number of triangles evaluated so far, each in both directions
+     */
+    public long getEvaluationCount() {
+        return evaluationCount.get();
+    }
+
+    /**
+     * @return The number of opportunities reported so far
+     */
+    public long getOpportunityCount() {
+        return opportunityCount.get();
+    }
+
+    @Override
+    public void onTickerUpdate(ExchangeService exchange, String symbol, Ticker ticker) {
+        evaluate(exchange, exchange.getInstrumentId(symbol), ticker);
+    }
+
+    @Override
+    public void onOrderBookUpdate(ExchangeService exchange, String symbol, OrderBook orderBook) {
+        // Cycles are priced from the top of book carried by tickers
+    }
+
+    /**
+     * Re-evaluates every cycle through one updated pair.
+     *
+     * @param exchange The exchange that produced the update
+     * @param instrumentId The instrument ID of the updated pair
+     * @param ticker The latest ticker of the pair
+     * @return The number of opportunities detected
+     */
+    public int evaluate(ExchangeService exchange, int instrumentId, Ticker ticker) {
+        CycleGraph graph = graphs.get(exchange);
+        if (graph == null || ticker == null) {
+            return 0;
+        }
+        int pair = graph.pairOf(instrumentId);
+        if (pair < 0) {
+            return 0;
+        }
+        int[] cycles = graph.cyclesByPair[pair];
+        if (cycles.length == 0) {
+            return 0;
+        }
+
+        double threshold = 1.0 + minProfitPercent / 100.0;
+        double feeMultiplier = graph.feeMultiplier;
+        long oldest = exchange.getClock().currentTimeMillis() - maxTickerAgeMs;
+        int detected = 0;
+        evaluationCount.addAndGet(cycles.length);
+
+        for (int cycle : cycles) {
+            double forward = 1.0;
+            double reverse = 1.0;
+            int leg = cycle * 3;
+            boolean priced = true;
+            for (int k = 0; k < 3; k++) {
+                int legPair = graph.cycleLegs[leg + k];
+                Ticker legTicker = legPair == pair ? ticker : exchange.getCachedTicker(graph.instrumentIds[legPair]);
+                if (legTicker == null || (legPair != pair && legTicker.getTimestampMillis() < oldest)) {
+                    priced = false;
+                    break;
+                }
+                double bid = legTicker.getBidPrice();
+                double ask = legTicker.getAskPrice();
+                if (!(bid > 0) || !(ask > 0)) {
+                    priced = false;
+                    break;
+                }
+                // Selling the base yields bid quote per base; buying yields 1/ask base per quote
+                if (graph.cycleSells[leg + k]) {
+                    forward *= bid * feeMultiplier;
+                    reverse *= feeMultiplier / ask;
+                } else {
+                    forward *= feeMultiplier / ask;
+                    reverse *= bid * feeMultiplier;
+                }
+            }
+            if (!priced) {
+                continue;
+            }
+            if (forward > threshold) {
+                detected++;
+                publish(graph.describe(cycle, false, exchange, pair, ticker, (forward - 1.0) * 100.0));
+            }
+            if (reverse > threshold) {
+                detected++;
+                publish(graph.describe(cycle, true, exchange, pair, ticker, (reverse - 1.0) * 100.0));
+            }
+        }
+        return detected;
+    }
+
+    private void publish(TriangularOpportunity opportunity) {
+        opportunityCount.incrementAndGet();
+        for (ITriangularOpportunityListener listener : opportunityListeners) {
+            try {
+                listener.onOpportunity(opportunity);
+            } catch (Exception e) {
+                logError("Triangular opportunity listener failed on " + opportunity.getExchange(), e);
+            }
+        }
+    }
+
+    private void logInfo(String message) {
+        if (notificationService != null) {
+            notificationService.logInfo(message);
+        }
+    }
+
+    private void logError(String message, Throwable t) {
+        if (notificationService != null) {
+            notificationService.logError(message, t);
+        }
+    }
+
+    /**
+     * The triangles of one exchange in flat arrays. Pairs and currencies are
+     * numbered locally; cycle {@code c} occupies slots {@code 3c..3c+2} of the
+     * leg arrays, in the order currency a -> b -> c -> a.
+     */
+    private static final class CycleGraph {
+        final String exchangeName;
+        final String[] currencies;
+
+        // By local pair: instrument ID, exchange symbol, and the cycles through the pair
+        final int[] instrumentIds;
+        final String[] symbols;
+        final int[][] cyclesByPair;
+
+        // Instrument ID -> local pair, or -1
+        final int[] pairsByInstrument;
+
+        // By leg: local pair, whether the forward direction sells the pair's base, and the currency it starts from
+        final int[] cycleLegs;
+        final boolean[] cycleSells;
+        final int[] cycleCurrencies;
+
+        // 1 - taker fee rate
+        volatile double feeMultiplier;
+
+        private CycleGraph(String exchangeName, String[] currencies, int[] instrumentIds, String[] symbols,
+                           int[][] cyclesByPair, int[] pairsByInstrument, int[] cycleLegs, boolean[] cycleSells,
+                           int[] cycleCurrencies, double feeRate) {
+            this.exchangeName = exchangeName;
+            this.currencies = currencies;
+            this.instrumentIds = instrumentIds;
+            this.symbols = symbols;
+            this.cyclesByPair = cyclesByPair;
+            this.pairsByInstrument = pairsByInstrument;
+            this.cycleLegs = cycleLegs;
+            this.cycleSells = cycleSells;
+            this.cycleCurrencies = cycleCurrencies;
+            this.feeMultiplier = 1.0 - feeRate;
+        }
+
+        static CycleGraph build(ExchangeService exchange, double feeRate) {
+            Map<String, Integer> currencyIndex = new HashMap<>();
+            List<String> currencyNames = new ArrayList<>();
+            List<Integer> pairInstruments = new ArrayList<>();
+            List<String> pairSymbols = new ArrayList<>();
+            List<Integer> pairBases = new ArrayList<>();
+            // Unordered currency pair -> local pair; the first listing of a currency pair is used
+            Map<Long, Integer> edges = new HashMap<>();
+            List<Set<Integer>> neighbours = new ArrayList<>();
+
+            List<TradingPair> tradingPairs = exchange.getTradingPairs();
+            if (tradingPairs != null) {
+                for (TradingPair tradingPair : tradingPairs) {
+                    String base = tradingPair.getBaseCurrency();
+                    String quote = tradingPair.getQuoteCurrency();
+                    int instrumentId = exchange.getInstrumentId(tradingPair.getSymbol());
+                    if (base == null || quote == null || base.equals(quote) || instrumentId < 0) {
+                        continue;
+                    }
+                    int b = currencyIndex.computeIfAbsent(base, name -> addCurrency(name, currencyNames, neighbours));
+                    int q = currencyIndex.computeIfAbsent(quote, name -> addCurrency(name, currencyNames, neighbours));
+                    long key = edgeKey(b, q);
+                    if (edges.containsKey(key)) {
+                        continue;
+                    }
+                    edges.put(key, pairSymbols.size());
+                    pairInstruments.add(instrumentId);
+                    pairSymbols.add(tradingPair.getSymbol());
+                    pairBases.add(b);
+                    neighbours.get(b).add(q);
+                    neighbours.get(q).add(b);
+                }
+            }
+
+            // Each triangle once, as u < v < w
+            int[] legs = new int[0];
+            int[] starts = new int[0];
+            int legCount = 0;
+            for (int u = 0; u < currencyNames.size(); u++) {
+                for (int v : neighbours.get(u)) {
+                    if (v <= u) {
+                        continue;
+                    }
+                    for (int w : neighbours.get(v)) {
+                        if (w <= v || !edges.containsKey(edgeKey(u, w))) {
+                            continue;
+                        }
+                        if (legCount + 3 > legs.length) {
+                            legs = Arrays.copyOf(legs, Math.max(48, legs.length * 2));
+                            starts = Arrays.copyOf(starts, legs.length);
+                        }
+                        legs[legCount] = edges.get(edgeKey(u, v));
+                        legs[legCount + 1] = edges.get(edgeKey(v, w));
+                        legs[legCount + 2] = edges.get(edgeKey(w, u));
+                        starts[legCount] = u;
+                        starts[legCount + 1] = v;
+                        starts[legCount + 2] = w;
+                        legCount += 3;
+                    }
+                }
+            }
+            legs = Arrays.copyOf(legs, legCount);
+            starts = Arrays.copyOf(starts, legCount);
+
+            // A forward leg sells when it starts from the pair's base currency
+            boolean[] sells = new boolean[legCount];
+            for (int i = 0; i < legCount; i++) {
+                sells[i] = pairBases.get(legs[i]) == starts[i];
+            }
+
+            int pairCount = pairSymbols.size();
+            int[] cycleCounts = new int[pairCount];
+            for (int leg : legs) {
+                cycleCounts[leg]++;
+            }
+            int[][] cyclesByPair = new int[pairCount][];
+            for (int p = 0; p < pairCount; p++) {
+                cyclesByPair[p] = new int[cycleCounts[p]];
+                cycleCounts[p] = 0;
+            }
+            for (int i = 0; i < legCount; i++) {
+                int p = legs[i];
+                cyclesByPair[p][cycleCounts[p]++] = i / 3;
+            }
+
+            int[] instrumentIds = new int[pairCount];
+            int maxInstrument = -1;
+            for (int p = 0; p < pairCount; p++) {
+                instrumentIds[p] = pairInstruments.get(p);
+                maxInstrument = Math.max(maxInstrument, instrumentIds[p]);
+            }
+            int[] pairsByInstrument = new int[maxInstrument + 1];
+            Arrays.fill(pairsByInstrument, -1);
+            for (int p = 0; p < pairCount; p++) {
+                pairsByInstrument[instrumentIds[p]] = p;
+            }
+
+            return new CycleGraph(exchange.getExchangeName(), currencyNames.toArray(new String[0]), instrumentIds,
+                    pairSymbols.toArray(new String[0]), cyclesByPair, pairsByInstrument, legs, sells, starts, feeRate);
+        }
+
+        private static int addCurrency(String name, List<String> names, List<Set<Integer>> neighbours) {
+            names.add(name);
+            neighbours.add(new HashSet<>());
+            return names.size() - 1;
+        }
+
+        private static long edgeKey(int a, int b) {
+            return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        }
+
+        int pairOf(int instrumentId) {
+            return instrumentId >= 0 && instrumentId < pairsByInstrument.length ? pairsByInstrument[instrumentId] : -1;
+        }
+
+        int cycleCount() {
+            return cycleLegs.length / 3;
+        }
+
+        int pairCount() {
+            return symbols.length;
+        }
+
+        /**
+         * Builds the opportunity for one direction of a cycle. The reverse
+         * direction trades the legs backwards, each on the other side of the book.
+         */
+        TriangularOpportunity describe(int cycle, boolean reverse, ExchangeService exchange, int updatedPair,
+                                       Ticker updatedTicker, double profitPercent) {
+            String[] legCurrencies = new String[3];
+            String[] legSymbols = new String[3];
+            boolean[] legSells = new boolean[3];
+            double[] legPrices = new double[3];
+            for (int k = 0; k < 3; k++) {
+                // Reverse order: a -> c -> b -> a, i.e. legs 2, 1, 0 starting from each leg's end currency
+                int slot = cycle * 3 + (reverse ? 2 - k : k);
+                int pair = cycleLegs[slot];
+                boolean sell = reverse != cycleSells[slot];
+                Ticker ticker = pair == updatedPair ? updatedTicker : exchange.getCachedTicker(instrumentIds[pair]);
+                legCurrencies[k] = currencies[reverse ? cycleCurrencies[cycle * 3 + (3 - k) % 3] : cycleCurrencies[slot]];
+                legSymbols[k] = symbols[pair];
+                legSells[k] = sell;
+                legPrices[k] = ticker == null ? Double.NaN : sell ? ticker.getBidPrice() : ticker.getAskPrice();
+            }
+            return new TriangularOpportunity(exchangeName, legCurrencies, legSymbols, legSells, legPrices, profitPercent,
+                    exchange.getClock().currentTimeMillis());
+        }
+    }
+}
@@ -42,11 +42,26 @@ public class PositionSizer {
      */
     public double calculateOptimalPositionSize(ArbitrageOpportunity opportunity, double availableCapital) {
         // Validate inputs
-        if (opportunity == null || opportunity.getRiskAssessment() == null) {
+        if (opportunity == null) {
+            return 0.0;
+        }
+        return calculateOptimalPositionSize(opportunity, opportunity.getRiskAssessment(), availableCapital);
+    }
+
+    /**
+     * Calculates the optimal position size for an arbitrage opportunity using the Kelly Criterion,
+     * from a risk assessment the caller made rather than the one attached to the opportunity
+     * 
+     * @param opportunity The arbitrage opportunity to size
+     * @param risk The risk assessment of the opportunity
+     * @param availableCapital Total capital available for trading
+     * @return Optimal position size in base currency units
+     */
+    public double calculateOptimalPositionSize(ArbitrageOpportunity opportunity, RiskAssessment risk,
+                                               double availableCapital) {
+        if (opportunity == null || risk == null) {
             return 0.0;
         }
-        
-        RiskAssessment risk = opportunity.getRiskAssessment();
         
         // Extract key risk factors
         double overallRisk = risk.getOverallRiskScore();
@@ -61,14 +76,8 @@ public class PositionSizer {
         double potentialProfit = opportunity.getProfitPercent() / 100.0;
         double potentialLoss = 1.0 - slippageRisk; // Use slippage risk as a proxy for potential loss
         
-        // Calculate Kelly fraction (optimal bet size as fraction of capital)
-        double kellyFraction = 0.0;
-        if (potentialLoss > 0) {
-            kellyFraction = (winProbability * (1 + potentialProfit) - 1) / potentialLoss;
-        }
-        
-        // Apply safety factor
-        kellyFraction *= safetyFactor;
+        // Apply safety factor to the Kelly fraction
+        double kellyFraction = kellyFraction(winProbability, potentialProfit, potentialLoss) * safetyFactor;
         
         // Cap the position size
         double cappedFraction = Math.min(kellyFraction, maxPositionPct);
@@ -91,6 +100,22 @@ public class PositionSizer {
         return positionSize;
     }
     
+    /**
+     * Calculates the Kelly fraction (optimal bet size as fraction of capital) for a trade that
+     * gains potentialProfit with winProbability and otherwise loses potentialLoss
+     * 
+     * @param winProbability Probability that the trade gains potentialProfit
+     * @param potentialProfit Fraction of the position gained on a win (e.g. 0.002 for 0.2%)
+     * @param potentialLoss Fraction of the position lost otherwise
+     * @return The Kelly fraction, negative if the trade has no edge, or 0 if either outcome is not positive
+     */
+    public static double kellyFraction(double winProbability, double potentialProfit, double potentialLoss) {
+        if (potentialLoss <= 0 || potentialProfit <= 0) {
+            return 0.0;
+        }
+        return winProbability / potentialLoss - (1 - winProbability) / potentialProfit;
+    }
+    
     /**
      * Calculates an appropriate position size based on fixed percentage of capital.
      * This is a simpler alternative to Kelly when risk factors are uncertain.
@@ -1,15 +1,13 @@
 package org.example.domain.risk;
 
+import org.example.data.model.InstrumentArray;
 import org.example.data.model.OrderBook;
-import org.example.data.model.OrderBookEntry;
+import org.example.data.model.SymbolRegistry;
 import org.example.data.model.Ticker;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Advanced slippage calculation engine for cryptocurrency trading.
@@ -48,11 +46,11 @@ public class AdvancedSlippageCalculator {
     private static final double OFF_HOURS_MULTIPLIER = 1.2; // Multiplier for low liquidity hours
     private static final double MARKET_STRESS_MULTIPLIER = 1.5; // Multiplier for stressed markets
 
-    // Historical performance tracking
-    private final Map<String, SlippageHistory> slippageHistory = new ConcurrentHashMap<>();
+    // Historical performance tracking, indexed by instrument ID
+    private final InstrumentArray<SlippageHistory> slippageHistory = new InstrumentArray<>();
     
-    // Market condition tracking
-    private final Map<String, MarketCondition> marketConditions = new ConcurrentHashMap<>();
+    // Market condition tracking, indexed by instrument ID
+    private final InstrumentArray<MarketCondition> marketConditions = new InstrumentArray<>();
     
     /**
      * Calculates expected slippage with enhanced techniques including order book analysis
@@ -84,11 +82,14 @@ public class AdvancedSlippageCalculator {
                 baseSlippage = enhanceWithOrderBookAnalysis(baseSlippage, orderBook, tradeSize, isBuy);
             }
             
+            // Resolve the symbol once for the per-instrument lookups below
+            int instrumentId = symbol != null ? SymbolRegistry.getInstance().idOf(symbol) : -1;
+            
             // Apply dynamic calibration based on current market conditions
-            double calibratedSlippage = applyDynamicCalibration(baseSlippage, ticker, symbol);
+            double calibratedSlippage = applyDynamicCalibration(baseSlippage, ticker, instrumentId);
             
             // Apply historical adjustment based on prediction accuracy
-            double finalSlippage = applyHistoricalAdjustment(calibratedSlippage, symbol);
+            double finalSlippage = applyHistoricalAdjustment(calibratedSlippage, instrumentId);
             
             // Ensure slippage is within acceptable bounds
             finalSlippage = Math.min(Math.max(finalSlippage, MIN_SLIPPAGE), MAX_SLIPPAGE);
@@ -160,44 +161,39 @@ public class AdvancedSlippageCalculator {
     private double enhanceWithOrderBookAnalysis(double baseSlippage, OrderBook orderBook, 
                                               double tradeSize, boolean isBuy) {
         // If we don't have valid order book data, return the base slippage
-        if (orderBook == null || orderBook.getBids().isEmpty() || orderBook.getAsks().isEmpty()) {
+        if (orderBook == null || orderBook.getBidDepth() == 0 || orderBook.getAskDepth() == 0) {
             return baseSlippage;
         }
         
-        // Get relevant side of the order book
-        List<OrderBookEntry> relevantSide = isBuy ? orderBook.getAsks() : orderBook.getBids();
-        
-        // Calculate how much of the order book we'd consume with our trade
-        double remainingSize = tradeSize;
-        double totalCost = 0;
-        double totalSize = 0;
-        
-        for (OrderBookEntry entry : relevantSide) {
-            double available = entry.getVolume();
-            double taken = Math.min(remainingSize, available);
-            
-            totalCost += taken * entry.getPrice();
-            totalSize += taken;
-            remainingSize -= taken;
-            
-            if (remainingSize <= 0) {
-                break;
-            }
-        }
+        // Walk the relevant side of the order book (asks for buys, bids for sells)
+        boolean bidSide = !isBuy;
+        double available = orderBook.getTotalVolume(bidSide);
+        double filled = Math.min(tradeSize, available);
+        double totalCost = orderBook.getCostToFill(bidSide, filled);
+        double totalSize = filled;
+        double remainingSize = tradeSize - filled;
         
         // If we couldn't fill the entire order from the visible order book
         if (remainingSize > 0) {
             // Use the last price level with a penalty
-            OrderBookEntry lastEntry = relevantSide.get(relevantSide.size() - 1);
-            totalCost += remainingSize * lastEntry.getPrice() * (isBuy ? 1.03 : 0.97); // 3% penalty
+            int depth = bidSide ? orderBook.getBidDepth() : orderBook.getAskDepth();
+            double lastPrice = bidSide ? orderBook.getBidPrice(depth - 1) : orderBook.getAskPrice(depth - 1);
+            totalCost += remainingSize * lastPrice * (isBuy ? 1.03 : 0.97); // 3% penalty
             totalSize += remainingSize;
         }
         
+        if (totalSize <= 0) {
+            return baseSlippage;
+        }
+        
         // Calculate average execution price
         double avgPrice = totalCost / totalSize;
         
         // Calculate slippage relative to best price
-        double bestPrice = isBuy ? relevantSide.get(0).getPrice() : relevantSide.get(0).getPrice();
+        double bestPrice = isBuy ? orderBook.getBestAskPrice() : orderBook.getBestBidPrice();
+        if (bestPrice <= 0) {
+            return baseSlippage;
+        }
         double calculatedSlippage = isBuy ? 
             (avgPrice - bestPrice) / bestPrice : 
             (bestPrice - avgPrice) / bestPrice;
@@ -209,7 +205,7 @@ public class AdvancedSlippageCalculator {
     /**
      * Applies dynamic calibration based on current market conditions.
      */
-    private double applyDynamicCalibration(double baseSlippage, Ticker ticker, String symbol) {
+    private double applyDynamicCalibration(double baseSlippage, Ticker ticker, int instrumentId) {
         double adjustedSlippage = baseSlippage;
         
         // Adjust for time of day (market hours)
@@ -221,7 +217,7 @@ public class AdvancedSlippageCalculator {
         }
         
         // Adjust for recent volatility if we have it
-        MarketCondition condition = marketConditions.get(symbol);
+        MarketCondition condition = marketConditions.get(instrumentId);
         if (condition != null && condition.getVolatility() > 0) {
             double volatilityAdjustment = 1.0 + (condition.getVolatility() * VOLATILITY_MULTIPLIER);
             adjustedSlippage *= volatilityAdjustment;
@@ -238,8 +234,8 @@ public class AdvancedSlippageCalculator {
     /**
      * Applies adjustments based on historical slippage prediction accuracy.
      */
-    private double applyHistoricalAdjustment(double calibratedSlippage, String symbol) {
-        SlippageHistory history = slippageHistory.get(symbol);
+    private double applyHistoricalAdjustment(double calibratedSlippage, int instrumentId) {
+        SlippageHistory history = slippageHistory.get(instrumentId);
         
         if (history == null || history.getSampleCount() < 5) {
             // Not enough history for this symbol
@@ -265,7 +261,21 @@ public class AdvancedSlippageCalculator {
      * @param actualSlippage The actual slippage that occurred during execution
      */
     public void recordActualSlippage(String symbol, double predictedSlippage, double actualSlippage) {
-        SlippageHistory history = slippageHistory.computeIfAbsent(symbol, k -> new SlippageHistory());
+        recordActualSlippage(SymbolRegistry.getInstance().intern(symbol), predictedSlippage, actualSlippage);
+    }
+
+    /**
+     * Records actual observed slippage for an instrument to improve future predictions.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @param predictedSlippage The slippage that was predicted before the trade
+     * @param actualSlippage The actual slippage that occurred during execution
+     */
+    public void recordActualSlippage(int instrumentId, double predictedSlippage, double actualSlippage) {
+        SlippageHistory history = slippageHistory.get(instrumentId);
+        if (history == null) {
+            history = slippageHistory.setIfAbsent(instrumentId, new SlippageHistory());
+        }
         history.addObservation(predictedSlippage, actualSlippage);
     }
 
@@ -277,7 +287,18 @@ public class AdvancedSlippageCalculator {
      * @param isStressedMarket Whether the market is showing stress indicators
      */
     public void updateMarketCondition(String symbol, double volatility, boolean isStressedMarket) {
-        marketConditions.put(symbol, new MarketCondition(volatility, isStressedMarket));
+        updateMarketCondition(SymbolRegistry.getInstance().intern(symbol), volatility, isStressedMarket);
+    }
+
+    /**
+     * Updates market condition data for an instrument.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @param volatility Recent price volatility measure
+     * @param isStressedMarket Whether the market is showing stress indicators
+     */
+    public void updateMarketCondition(int instrumentId, double volatility, boolean isStressedMarket) {
+        marketConditions.set(instrumentId, new MarketCondition(volatility, isStressedMarket));
     }
 
     /**
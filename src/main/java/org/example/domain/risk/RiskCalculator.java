@@ -7,6 +7,11 @@ import org.example.data.interfaces.IRiskManager;
 import org.example.config.ConfigurationFactory;
 import org.example.data.model.RiskConfiguration;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -42,9 +47,24 @@ public class RiskCalculator implements IRiskManager {
     private static final double PREDICTIVE_RISK_FACTOR = 0.95;
     private static final double PREDICTIVE_CONFIDENCE = 0.75;
 
+    /**
+     * Names of the risk factor weights, in the order of {@link #getWeights()}.
+     */
+    public static final List<String> WEIGHT_NAMES = Collections.unmodifiableList(Arrays.asList(
+            "liquidity", "volatility", "fee", "marketDepth", "executionSpeed",
+            "slippage", "marketRegime", "sentiment", "anomaly", "correlation"));
+
+    /**
+     * The weights a calculator starts with, in the order of {@link #WEIGHT_NAMES}.
+     */
+    public static final double[] DEFAULT_WEIGHTS = {0.3, 0.3, 0.4, 0.2, 0.2, 0.2, 0.1, 0.1, 0.2, 0.1};
+
     private double minProfitPercent;
     private RiskConfiguration riskConfig;
 
+    // Asset risk factors by base asset; null reads them from the configuration service
+    private final Map<String, Double> assetRiskFactors;
+
     // Weights for risk factors
     private double liquidityWeight = 0.3;
     private double volatilityWeight = 0.3;
@@ -63,6 +83,7 @@ public class RiskCalculator implements IRiskManager {
     public RiskCalculator() {
         this.riskConfig = ConfigurationFactory.getRiskConfig();
         this.minProfitPercent = ConfigurationFactory.getArbitrageConfig().getMinProfitPercent() / 100.0;
+        this.assetRiskFactors = null;
     }
 
     /**
@@ -73,6 +94,21 @@ public class RiskCalculator implements IRiskManager {
     public RiskCalculator(double minProfitPercent) {
         this.minProfitPercent = minProfitPercent;
         this.riskConfig = ConfigurationFactory.getRiskConfig();
+        this.assetRiskFactors = null;
+    }
+
+    /**
+     * Constructor that reads nothing from the configuration service, for
+     * calculators that run in isolation, such as one per backtest.
+     *
+     * @param minProfitPercent Minimum profit percentage as a decimal (e.g., 0.001 for 0.1%)
+     * @param riskConfig The risk parameters
+     * @param assetRiskFactors Risk factor by base asset (e.g., "BTC"); assets not listed use 0.5
+     */
+    public RiskCalculator(double minProfitPercent, RiskConfiguration riskConfig, Map<String, Double> assetRiskFactors) {
+        this.minProfitPercent = minProfitPercent;
+        this.riskConfig = Objects.requireNonNull(riskConfig, "riskConfig must not be null");
+        this.assetRiskFactors = new HashMap<>(assetRiskFactors);
     }
 
     /**
@@ -415,6 +451,55 @@ public class RiskCalculator implements IRiskManager {
         return assessment;
     }
 
+    /**
+     * @return The risk factor weights, in the order of {@link #WEIGHT_NAMES}
+     */
+    public double[] getWeights() {
+        return new double[] {
+                liquidityWeight, volatilityWeight, feeWeight, marketDepthWeight, executionSpeedWeight,
+                slippageWeight, marketRegimeWeight, sentimentWeight, anomalyWeight, correlationWeight};
+    }
+
+    /**
+     * Sets every risk factor weight. Only their ratios matter: the overall
+     * score divides by their sum.
+     *
+     * @param weights The weights, in the order of {@link #WEIGHT_NAMES}
+     */
+    public void setWeights(double... weights) {
+        if (weights.length != WEIGHT_NAMES.size()) {
+            throw new IllegalArgumentException("Expected " + WEIGHT_NAMES.size() + " weights, got " + weights.length);
+        }
+        for (int i = 0; i < weights.length; i++) {
+            setWeight(WEIGHT_NAMES.get(i), weights[i]);
+        }
+    }
+
+    /**
+     * Sets one risk factor weight.
+     *
+     * @param name The weight's name, one of {@link #WEIGHT_NAMES}
+     * @param weight The weight, not negative
+     */
+    public void setWeight(String name, double weight) {
+        if (!(weight >= 0)) {
+            throw new IllegalArgumentException("Weight " + name + " must not be negative: " + weight);
+        }
+        switch (name) {
+            case "liquidity": liquidityWeight = weight; break;
+            case "volatility": volatilityWeight = weight; break;
+            case "fee": feeWeight = weight; break;
+            case "marketDepth": marketDepthWeight = weight; break;
+            case "executionSpeed": executionSpeedWeight = weight; break;
+            case "slippage": slippageWeight = weight; break;
+            case "marketRegime": marketRegimeWeight = weight; break;
+            case "sentiment": sentimentWeight = weight; break;
+            case "anomaly": anomalyWeight = weight; break;
+            case "correlation": correlationWeight = weight; break;
+            default: throw new IllegalArgumentException("Unknown risk weight: " + name);
+        }
+    }
+
     public void updateRiskWeights(String marketCondition) {
         switch (marketCondition.toLowerCase()) {
             case "volatile":
@@ -503,7 +588,9 @@ public class RiskCalculator implements IRiskManager {
         
         // Use asset-specific risk factors from configuration if available
         String baseAsset = extractBaseAsset(symbol);
-        double assetRiskFactor = ConfigurationFactory.getDouble("risk.assetRiskFactors." + baseAsset, 0.5);
+        double assetRiskFactor = assetRiskFactors != null
+                ? assetRiskFactors.getOrDefault(baseAsset, 0.5)
+                : ConfigurationFactory.getDouble("risk.assetRiskFactors." + baseAsset, 0.5);
         
         // Some assets are known to be more volatile
         if (symbol.startsWith("BTC") || symbol.contains("BTC")) {
@@ -1,7 +1,9 @@
 package org.example.domain.risk;
 
+import org.example.data.interfaces.IClock;
 import org.example.data.model.OrderBook;
 import org.example.data.model.Ticker;
+import org.example.data.service.SystemClock;
 
 import java.time.Instant;
 import java.util.Map;
@@ -44,6 +46,9 @@ public class SlippageManagerService {
     // Cleanup scheduler
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
     
+    // Stamps estimates and pending trades; the replay clock when running on recorded data
+    private volatile IClock clock = SystemClock.INSTANCE;
+    
     /**
      * Creates a new slippage manager service with default calculator instances.
      */
@@ -83,7 +88,9 @@ public class SlippageManagerService {
                                   boolean isBuy, String symbol) {
         // Update volatility data
         if (ticker != null) {
-            volatilityCalculator.updatePrice(symbol, ticker.getLastPrice(), Instant.now());
+            // Prices are timed by when the ticker was received, not when it is used
+            Instant pricedAt = ticker.getReceivedNanos() >= 0 ? Instant.ofEpochSecond(0, ticker.getReceivedNanos()) : now();
+            volatilityCalculator.updatePrice(symbol, ticker.getLastPrice(), pricedAt);
             
             // Update market condition data for the slippage calculator
             double volatility = volatilityCalculator.calculateVolatility(symbol);
@@ -95,7 +102,7 @@ public class SlippageManagerService {
         double slippage = slippageCalculator.calculateSlippage(ticker, orderBook, tradeSize, isBuy, symbol);
         
         // Cache the estimate
-        SlippageEstimate estimate = new SlippageEstimate(slippage, tradeSize, isBuy, Instant.now());
+        SlippageEstimate estimate = new SlippageEstimate(slippage, tradeSize, isBuy, now());
         slippageEstimateCache.put(getEstimateKey(symbol, tradeSize, isBuy), estimate);
         
         return slippage;
@@ -119,7 +126,7 @@ public class SlippageManagerService {
      */
     public void recordPendingTrade(String tradeId, String symbol, double tradeSize, 
                                  boolean isBuy, double predictedSlippage) {
-        PendingTrade trade = new PendingTrade(symbol, tradeSize, isBuy, predictedSlippage, Instant.now());
+        PendingTrade trade = new PendingTrade(symbol, tradeSize, isBuy, predictedSlippage, now());
         pendingTrades.put(tradeId, trade);
     }
     
@@ -171,7 +178,7 @@ public class SlippageManagerService {
      * Cleans up stale data periodically.
      */
     private void cleanupStaleData() {
-        Instant oneHourAgo = Instant.now().minus(1, TimeUnit.HOURS.toChronoUnit());
+        Instant oneHourAgo = now().minus(1, TimeUnit.HOURS.toChronoUnit());
         
         // Clean up stale estimates
         slippageEstimateCache.entrySet().removeIf(entry -> 
@@ -182,6 +189,19 @@ public class SlippageManagerService {
             entry.getValue().getTimestamp().isBefore(oneHourAgo));
     }
     
+    /**
+     * Sets the clock that estimates and pending trades are stamped with.
+     *
+     * @param clock The clock, e.g. a replay's virtual clock
+     */
+    public void setClock(IClock clock) {
+        this.clock = clock;
+    }
+    
+    private Instant now() {
+        return Instant.ofEpochMilli(clock.currentTimeMillis());
+    }
+    
     /**
      * Generates a key for the slippage estimate cache.
      */
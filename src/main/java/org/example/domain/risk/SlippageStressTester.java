@@ -4,9 +4,7 @@ import org.example.data.model.OrderBook;
 import org.example.data.model.OrderBookEntry;
 import org.example.data.model.Ticker;
 
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -121,7 +119,8 @@ public class SlippageStressTester {
                 midPrice + (wideSpread / 2),  // Wider ask
                 ticker.getLastPrice(),
                 ticker.getVolume(),
-                ticker.getTimestamp()
+                ticker.getReceivedNanos(),
+                ticker.getExchangeTimeNanos()
             );
         });
         
@@ -131,7 +130,8 @@ public class SlippageStressTester {
             ticker.getAskPrice(),
             ticker.getLastPrice(),
             ticker.getVolume() * 0.1,
-            ticker.getTimestamp()
+            ticker.getReceivedNanos(),
+            ticker.getExchangeTimeNanos()
         ));
         
         // High volatility scenario (3x spread)
@@ -145,7 +145,8 @@ public class SlippageStressTester {
                 midPrice + (wideSpread / 2),
                 ticker.getLastPrice(),
                 ticker.getVolume(),
-                ticker.getTimestamp()
+                ticker.getReceivedNanos(),
+                ticker.getExchangeTimeNanos()
             );
         });
         
@@ -160,7 +161,8 @@ public class SlippageStressTester {
                 crashPrice + (panicSpread / 2),
                 crashPrice,
                 ticker.getVolume() * 0.3,
-                ticker.getTimestamp()
+                ticker.getReceivedNanos(),
+                ticker.getExchangeTimeNanos()
             );
         });
         
@@ -175,7 +177,8 @@ public class SlippageStressTester {
                 bullPrice + (excitementSpread / 2),
                 bullPrice,
                 ticker.getVolume() * 2.0,
-                ticker.getTimestamp()
+                ticker.getReceivedNanos(),
+                ticker.getExchangeTimeNanos()
             );
         });
         
@@ -240,8 +243,8 @@ public class SlippageStressTester {
             currentAsk += priceStep;
         }
         
-        // Convert Instant to Date when creating OrderBook
-        return new OrderBook(symbol, bids, asks, Date.from(Instant.now()));
+        // The simulated book is as of the ticker it was built from
+        return new OrderBook(symbol, bids, asks, ticker.getReceivedNanos());
     }
     
     /**
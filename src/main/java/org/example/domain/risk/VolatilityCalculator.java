@@ -1,11 +1,12 @@
 package org.example.domain.risk;
 
+import org.example.data.model.InstrumentArray;
+import org.example.data.model.SymbolRegistry;
+
 import java.time.Duration;
 import java.time.Instant;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Real-time market volatility analysis system for cryptocurrency trading.
@@ -38,8 +39,8 @@ public class VolatilityCalculator {
     // Threshold for determining market stress
     private static final double MARKET_STRESS_THRESHOLD = 0.05; // 5% volatility indicates stress
     
-    // Price history for each trading symbol
-    private final Map<String, PriceHistory> priceHistories = new ConcurrentHashMap<>();
+    // Price history for each instrument, indexed by instrument ID
+    private final InstrumentArray<PriceHistory> priceHistories = new InstrumentArray<>();
     
     /**
      * Updates price history with a new price point.
@@ -49,7 +50,21 @@ public class VolatilityCalculator {
      * @param timestamp The timestamp of the price update
      */
     public void updatePrice(String symbol, double price, Instant timestamp) {
-        PriceHistory history = priceHistories.computeIfAbsent(symbol, k -> new PriceHistory());
+        updatePrice(SymbolRegistry.getInstance().intern(symbol), price, timestamp);
+    }
+    
+    /**
+     * Updates price history with a new price point.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @param price The current price
+     * @param timestamp The timestamp of the price update
+     */
+    public void updatePrice(int instrumentId, double price, Instant timestamp) {
+        PriceHistory history = priceHistories.get(instrumentId);
+        if (history == null) {
+            history = priceHistories.setIfAbsent(instrumentId, new PriceHistory());
+        }
         history.addPrice(price, timestamp);
     }
     
@@ -60,7 +75,17 @@ public class VolatilityCalculator {
      * @return Volatility measure (standard deviation of returns)
      */
     public double calculateVolatility(String symbol) {
-        PriceHistory history = priceHistories.get(symbol);
+        return calculateVolatility(SymbolRegistry.getInstance().idOf(symbol));
+    }
+    
+    /**
+     * Calculates recent price volatility for an instrument.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @return Volatility measure (standard deviation of returns)
+     */
+    public double calculateVolatility(int instrumentId) {
+        PriceHistory history = priceHistories.get(instrumentId);
         if (history == null || history.getPricePoints().size() < 2) {
             return 0.0;
         }
@@ -96,7 +121,17 @@ public class VolatilityCalculator {
      * @return true if market stress is detected, false otherwise
      */
     public boolean isMarketStressed(String symbol) {
-        double volatility = calculateVolatility(symbol);
+        return isMarketStressed(SymbolRegistry.getInstance().idOf(symbol));
+    }
+    
+    /**
+     * Detects if the market for an instrument is currently under stress.
+     *
+     * @param instrumentId The instrument ID (see {@link SymbolRegistry})
+     * @return true if market stress is detected, false otherwise
+     */
+    public boolean isMarketStressed(int instrumentId) {
+        double volatility = calculateVolatility(instrumentId);
         
         // High volatility indicates market stress
         if (volatility > MARKET_STRESS_THRESHOLD) {
@@ -104,7 +139,7 @@ public class VolatilityCalculator {
         }
         
         // Check for rapid price changes
-        PriceHistory history = priceHistories.get(symbol);
+        PriceHistory history = priceHistories.get(instrumentId);
         if (history == null || history.getPricePoints().size() < 2) {
             return false;
         }
@@ -0,0 +1,109 @@
+package org.example.data.service;
+
+import org.example.data.model.OrderBook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Records a Binance depth stream, with the REST snapshot it was synchronised
+ * from, and checks that replaying the journal rebuilds the book that was live.
+ */
+class BinanceBookReplayTest {
+
+    private static final String SYMBOL = "BTCUSDT";
+    private static final String SNAPSHOT = "{\"lastUpdateId\":100,"
+            + "\"bids\":[[\"99.00\",\"1.0\"],[\"98.00\",\"2.0\"]],"
+            + "\"asks\":[[\"101.00\",\"1.5\"],[\"102.00\",\"3.0\"]]}";
+
+    @TempDir
+    Path journalDir;
+
+    private final VirtualClock clock = new VirtualClock(1_700_000_000_000_000_000L);
+
+    @Test
+    void replayedBookMatchesLiveBook() throws IOException {
+        // The first diff predates the snapshot, the second straddles it
+        BinanceExchangeService live = record(new long[][] {{95, 98}, {99, 102}, {103, 105}, {106, 106}, {107, 110}});
+        OrderBook liveBook = live.getCachedOrderBook(SYMBOL);
+        assertNotNull(liveBook);
+        assertEquals(0, live.getDepthGapCount());
+
+        ReplayExchangeService replayed = replay();
+        assertEquals(0, replayed.getDepthGapCount());
+        assertSameLevels(liveBook, replayed.getCachedOrderBook(SYMBOL));
+    }
+
+    @Test
+    void recordedGapLeavesNoReplayedBook() throws IOException {
+        // Update 107 is missing, and no later snapshot lines up with the diffs after it
+        BinanceExchangeService live = record(new long[][] {{95, 98}, {99, 102}, {103, 105}, {108, 108}, {109, 110}});
+        assertEquals(1, live.getDepthGapCount());
+
+        ReplayExchangeService replayed = replay();
+        assertEquals(1, replayed.getDepthGapCount());
+        assertNull(replayed.getCachedOrderBook(SYMBOL));
+    }
+
+    /**
+     * Feeds diffs with the given U and u through a Binance service recording
+     * to the journal, the way its WebSocket listener would. Some levels are
+     * removed by later diffs.
+     */
+    private BinanceExchangeService record(long[][] updateIds) throws IOException {
+        BinanceExchangeService live = new BinanceExchangeService(0.001) {
+            @Override
+            protected CompletableFuture<String> restGetAsync(String url, int weight) {
+                return CompletableFuture.completedFuture(SNAPSHOT);
+            }
+        };
+        live.setClock(clock);
+        try (MarketDataJournal journal = new MarketDataJournal(journalDir, 1 << 20)) {
+            live.setMarketDataJournal(journal);
+            MarketDataEvent event = new MarketDataEvent();
+            for (int i = 0; i < updateIds.length; i++) {
+                long now = clock.epochNanos() + 1_000_000;
+                clock.advanceTo(now);
+                event.reset(now);
+                event.type = MarketDataEvent.Type.BOOK;
+                event.symbol = SYMBOL;
+                event.firstUpdateId = updateIds[i][0];
+                event.lastUpdateId = updateIds[i][1];
+                event.bids.add(99.0 - i * 0.5, i == 2 ? 0 : 1 + i);
+                event.asks.add(101.0, i == 3 ? 0 : 2 + i);
+                event.asks.add(103.0 + i, 0.5);
+                live.recordMarketDataEvent(event);
+                live.applyMarketDataEventSafely(event);
+            }
+        }
+        return live;
+    }
+
+    private ReplayExchangeService replay() throws IOException {
+        MarketDataReplayer replayer = MarketDataReplayer.forDirectory(journalDir);
+        replayer.prepare();
+        replayer.run();
+        return replayer.getExchange("Binance");
+    }
+
+    private static void assertSameLevels(OrderBook expected, OrderBook actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getBidDepth(), actual.getBidDepth());
+        for (int i = 0; i < expected.getBidDepth(); i++) {
+            assertEquals(expected.getBidPrice(i), actual.getBidPrice(i), "bid price " + i);
+            assertEquals(expected.getBidSize(i), actual.getBidSize(i), "bid size " + i);
+        }
+        assertEquals(expected.getAskDepth(), actual.getAskDepth());
+        for (int i = 0; i < expected.getAskDepth(); i++) {
+            assertEquals(expected.getAskPrice(i), actual.getAskPrice(i), "ask price " + i);
+            assertEquals(expected.getAskSize(i), actual.getAskSize(i), "ask size " + i);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.data.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that FastDoubleParser returns bit for bit what Double.parseDouble
+ * returns, on both sides of the bounds of its fast path.
+ */
+class FastDoubleParserTest {
+
+    private static final String[] BOUNDARY_INPUTS = {
+            // Mantissa around 2^53
+            "9007199254740991", "9007199254740992", "9007199254740993",
+            "9007199254.740991", "9007199254.740993", "0.9007199254740993",
+            "-9007199254740993",
+            // 17, 18 and 19 significant digits
+            "12345678901234567", "123456789012345678", "1234567890123456789",
+            "0.12345678901234567", "0.123456789012345678", "0.1234567890123456789",
+            "99999999999999999", "999999999999999999", "9999999999999999999",
+            // Scale 22 and 23
+            "0.0000000000000000000001", "0.00000000000000000000001",
+            "1.0000000000000000000000", "1.00000000000000000000000",
+            "4503599627370496.0000000000000000000001",
+            "0.1234567890123456789012", "0.12345678901234567890123",
+            // Leading and trailing zeros
+            "0", "00", "0.0", "000123.4500", "0000000000000000000000001",
+            "0.000000000000000000000000", "25.35190000", "0.00000001",
+            // Signs
+            "-0", "-0.0", "+0", "-25.3519", "+25.3519", "-0.00000001",
+            // Exponents and forms only Double.parseDouble handles
+            "1e5", "1E-5", "-2.5e-3", "1.7976931348623157e308", "4.9e-324", "1e400",
+            "1.", ".5", "-.5", "NaN", "-Infinity", "0x1p3"
+    };
+
+    @Test
+    void boundaryInputsMatchParseDouble() {
+        for (String input : BOUNDARY_INPUTS) {
+            assertSameBits(input);
+        }
+    }
+
+    @Test
+    void randomDecimalsMatchParseDouble() {
+        Random random = new Random(42);
+        for (int n = 0; n < 100_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            if (random.nextInt(4) == 0) {
+                sb.append('-');
+            }
+            int intDigits = random.nextInt(12);
+            int fracDigits = random.nextInt(14);
+            for (int i = 0; i < intDigits; i++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            if (intDigits == 0 || fracDigits > 0) {
+                sb.append(intDigits == 0 ? "0." : ".");
+            }
+            for (int i = 0; i < fracDigits; i++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            assertSameBits(sb.toString());
+        }
+    }
+
+    @Test
+    void parsesRangeWithinLargerBuffer() {
+        char[] chars = "[\"25.35190000\",\"-0.00000001\"]".toCharArray();
+        assertEquals(Double.doubleToRawLongBits(25.3519),
+                Double.doubleToRawLongBits(FastDoubleParser.parseDouble(chars, 2, 11)));
+        assertEquals(Double.doubleToRawLongBits(-0.00000001),
+                Double.doubleToRawLongBits(FastDoubleParser.parseDouble(chars, 16, 11)));
+    }
+
+    private static void assertSameBits(String input) {
+        assertEquals(Double.doubleToRawLongBits(Double.parseDouble(input)),
+                Double.doubleToRawLongBits(FastDoubleParser.parseDouble(input)), input);
+    }
+}
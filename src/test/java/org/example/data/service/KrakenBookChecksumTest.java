@@ -0,0 +1,213 @@
+package org.example.data.service;
+
+import org.example.data.model.OrderBook;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Feeds Kraken v1 book messages, in the text form Kraken sends them, through
+ * the WebSocket listener and checks the book against the checksums sent with
+ * them. The expected checksums come from a plain string implementation of
+ * Kraken's algorithm over a reference book: the top 10 asks then the top 10
+ * bids, each price and volume with the '.' and leading zeros removed, CRC32.
+ */
+class KrakenBookChecksumTest {
+
+    private static final String PAIR = "XBT/USD";
+
+    private final KrakenExchangeService kraken = new KrakenExchangeService(0.0026);
+    private final KrakenExchangeService.KrakenWebSocketListener listener =
+            kraken.new KrakenWebSocketListener(new MarketDataShard(kraken, 0, List.of(PAIR)));
+
+    private final ReferenceBook reference = new ReferenceBook();
+
+    @Test
+    void snapshotAndUpdatesMatchTheirChecksums() {
+        snapshot();
+
+        // A better ask pushes the 10th out of the book, and an existing bid changes size
+        update(new String[][] {{"5541.10000", "0.00500000"}}, new String[][] {{"5539.90000", "1.25000000"}});
+        // A deleted ask is followed by the level Kraken republishes at the bottom of the depth
+        update(new String[][] {{"5541.80000", "0.00000000"}, {"5546.00000", "3.10000000", "r"}}, null);
+        // Small volumes have many leading zeros once the point is removed
+        update(null, new String[][] {{"5541.20000", "0.00000100"}, {"5530.00000", "0.00000000"}});
+
+        assertEquals(3, kraken.getChecksumVerifiedCount());
+        assertEquals(0, kraken.getChecksumFailureCount());
+        assertBookMatchesReference();
+    }
+
+    @Test
+    void updateWithBothSidesInSeparatePayloads() {
+        snapshot();
+
+        String[][] asks = {{"5542.10000", "0.75000000"}};
+        String[][] bids = {{"5540.00000", "0.02000000"}};
+        reference.apply(asks, bids);
+        listener.processMessage("[336,{\"a\":" + levels(asks) + "},{\"b\":" + levels(bids)
+                + ",\"c\":\"" + reference.checksum() + "\"},\"book-10\",\"" + PAIR + "\"]");
+
+        assertEquals(1, kraken.getChecksumVerifiedCount());
+        assertEquals(0, kraken.getChecksumFailureCount());
+        assertBookMatchesReference();
+    }
+
+    @Test
+    void checksumMismatchWithdrawsBookUntilNextSnapshot() {
+        snapshot();
+
+        String[][] asks = {{"5541.30000", "2.00000000"}};
+        reference.apply(asks, null);
+        listener.processMessage("[336,{\"a\":" + levels(asks) + ",\"c\":\"" + (reference.checksum() ^ 1)
+                + "\"},\"book-10\",\"" + PAIR + "\"]");
+
+        assertEquals(1, kraken.getChecksumFailureCount());
+        assertEquals(0, kraken.getCachedOrderBook(PAIR).getAskDepth());
+
+        // Updates before the new snapshot are ignored
+        update(new String[][] {{"5541.40000", "1.00000000"}}, null);
+        assertEquals(0, kraken.getCachedOrderBook(PAIR).getAskDepth());
+
+        reference.clear();
+        snapshot();
+        update(new String[][] {{"5541.40000", "1.00000000"}}, null);
+        assertEquals(1, kraken.getChecksumFailureCount());
+        assertBookMatchesReference();
+    }
+
+    /**
+     * Sends a depth 10 snapshot with 10 levels per side.
+     */
+    private void snapshot() {
+        String[][] asks = {
+                {"5541.30000", "2.50700000"}, {"5541.80000", "0.33000000"}, {"5542.70000", "0.64700000"},
+                {"5543.00000", "1.00000000"}, {"5543.40000", "0.05000000"}, {"5543.90000", "4.00000000"},
+                {"5544.20000", "0.10000000"}, {"5544.80000", "2.20000000"}, {"5545.10000", "0.98765432"},
+                {"5545.60000", "10.00000000"}};
+        String[][] bids = {
+                {"5541.20000", "1.52900000"}, {"5539.90000", "0.30000000"}, {"5539.50000", "5.00000000"},
+                {"5538.00000", "0.01000000"}, {"5537.30000", "0.75000000"}, {"5536.00000", "1.10000000"},
+                {"5535.50000", "0.00100000"}, {"5534.20000", "3.00000000"}, {"5533.00000", "0.45000000"},
+                {"5530.00000", "12.00000000"}};
+        reference.apply(asks, bids);
+        listener.processMessage("[336,{\"as\":" + levels(asks) + ",\"bs\":" + levels(bids)
+                + "},\"book-10\",\"" + PAIR + "\"]");
+    }
+
+    /**
+     * Sends an update of either or both sides, with the checksum of the reference book after it.
+     */
+    private void update(String[][] asks, String[][] bids) {
+        reference.apply(asks, bids);
+        StringBuilder payload = new StringBuilder("{");
+        if (asks != null) {
+            payload.append("\"a\":").append(levels(asks)).append(',');
+        }
+        if (bids != null) {
+            payload.append("\"b\":").append(levels(bids)).append(',');
+        }
+        payload.append("\"c\":\"").append(reference.checksum()).append("\"}");
+        listener.processMessage("[336," + payload + ",\"book-10\",\"" + PAIR + "\"]");
+    }
+
+    private static String levels(String[][] levels) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < levels.length; i++) {
+            sb.append(i > 0 ? "," : "").append("[\"").append(levels[i][0]).append("\",\"")
+                    .append(levels[i][1]).append("\",\"1534614248.456738\"");
+            if (levels[i].length > 2) {
+                sb.append(",\"").append(levels[i][2]).append('"');
+            }
+            sb.append(']');
+        }
+        return sb.append(']').toString();
+    }
+
+    private void assertBookMatchesReference() {
+        OrderBook book = kraken.getCachedOrderBook(PAIR);
+        assertEquals(reference.asks.size(), book.getAskDepth());
+        int i = 0;
+        for (Map.Entry<BigDecimal, String> level : reference.asks.entrySet()) {
+            assertEquals(level.getKey().doubleValue(), book.getAskPrice(i), "ask price " + i);
+            assertEquals(Double.parseDouble(level.getValue()), book.getAskSize(i), "ask size " + i);
+            i++;
+        }
+        assertEquals(reference.bids.size(), book.getBidDepth());
+        i = 0;
+        for (Map.Entry<BigDecimal, String> level : reference.bids.entrySet()) {
+            assertEquals(level.getKey().doubleValue(), book.getBidPrice(i), "bid price " + i);
+            assertEquals(Double.parseDouble(level.getValue()), book.getBidSize(i), "bid size " + i);
+            i++;
+        }
+    }
+
+    /**
+     * The book as Kraken keeps it at depth 10, with prices and volumes as the text it sent.
+     */
+    private static final class ReferenceBook {
+        private static final int DEPTH = 10;
+
+        final TreeMap<BigDecimal, String> asks = new TreeMap<>();
+        final TreeMap<BigDecimal, String> bids = new TreeMap<>(Comparator.reverseOrder());
+        final Map<BigDecimal, String> askPrices = new TreeMap<>();
+        final Map<BigDecimal, String> bidPrices = new TreeMap<>();
+
+        void clear() {
+            asks.clear();
+            bids.clear();
+        }
+
+        void apply(String[][] askLevels, String[][] bidLevels) {
+            apply(asks, askPrices, askLevels);
+            apply(bids, bidPrices, bidLevels);
+        }
+
+        private static void apply(TreeMap<BigDecimal, String> side, Map<BigDecimal, String> priceText,
+                                  String[][] levels) {
+            if (levels == null) {
+                return;
+            }
+            for (String[] level : levels) {
+                BigDecimal price = new BigDecimal(level[0]);
+                if (new BigDecimal(level[1]).signum() == 0) {
+                    side.remove(price);
+                } else {
+                    side.put(price, level[1]);
+                    priceText.put(price, level[0]);
+                }
+            }
+            while (side.size() > DEPTH) {
+                side.pollLastEntry();
+            }
+        }
+
+        long checksum() {
+            StringBuilder text = new StringBuilder();
+            append(text, asks, askPrices);
+            append(text, bids, bidPrices);
+            CRC32 crc = new CRC32();
+            crc.update(text.toString().getBytes(StandardCharsets.US_ASCII));
+            return crc.getValue();
+        }
+
+        private static void append(StringBuilder text, TreeMap<BigDecimal, String> side,
+                                   Map<BigDecimal, String> priceText) {
+            for (Map.Entry<BigDecimal, String> level : side.entrySet()) {
+                text.append(digits(priceText.get(level.getKey()))).append(digits(level.getValue()));
+            }
+        }
+
+        private static String digits(String number) {
+            return number.replace(".", "").replaceFirst("^0+", "");
+        }
+    }
+}
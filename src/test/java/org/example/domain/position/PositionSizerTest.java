@@ -0,0 +1,56 @@
+package org.example.domain.position;
+
+import org.example.data.model.ArbitrageOpportunity;
+import org.example.data.model.RiskAssessment;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pins the Kelly fraction p/loss - q/profit and the sizes it gives for a
+ * 0.2% spread, the typical size of an exchange-to-exchange opportunity.
+ */
+class PositionSizerTest {
+
+    private static final double SPREAD = 0.002;
+
+    @Test
+    void kellyFractionForTypicalSpread() {
+        // 0.95 / 0.01 - 0.05 / 0.002
+        assertEquals(70.0, PositionSizer.kellyFraction(0.95, SPREAD, 0.01), 1e-9);
+        // 0.86 / 0.2 - 0.14 / 0.002: the spread does not pay for the chance of losing 20%
+        assertEquals(-65.7, PositionSizer.kellyFraction(0.86, SPREAD, 0.2), 1e-9);
+    }
+
+    @Test
+    void kellyFractionWithoutBothOutcomesIsZero() {
+        assertEquals(0.0, PositionSizer.kellyFraction(0.95, 0.0, 0.01));
+        assertEquals(0.0, PositionSizer.kellyFraction(0.95, SPREAD, 0.0));
+    }
+
+    @Test
+    void lowRiskSpreadIsSizedAtTheCap() {
+        // Win probability 0.95 and loss 0.01 give 70 * 0.5 = 35, capped at 25% of capital.
+        // The former (p(1 + b) - 1) / loss gave (0.95 * 1.002 - 1) / 0.01 < 0, so no trade.
+        PositionSizer sizer = new PositionSizer(0.25, 0.5, 10.0);
+        assertEquals(2500.0, sizer.calculateOptimalPositionSize(opportunity(1.0, 0.99), 10_000.0), 1e-6);
+    }
+
+    @Test
+    void riskySpreadIsNotTraded() {
+        PositionSizer sizer = new PositionSizer(0.25, 0.5, 10.0);
+        assertEquals(0.0, sizer.calculateOptimalPositionSize(opportunity(0.9, 0.8), 10_000.0));
+    }
+
+    /**
+     * @param overallRisk Overall risk score; the win probability is 0.9 times it plus 0.05, at most 0.95
+     * @param slippageRisk Slippage risk score; the loss on a failed trade is 1 minus it
+     */
+    private static ArbitrageOpportunity opportunity(double overallRisk, double slippageRisk) {
+        ArbitrageOpportunity opportunity = new ArbitrageOpportunity("BTCUSDT", "BTCUSDT", "BTC-USD",
+                "Binance", "Coinbase", 50_000.0, 50_100.0, SPREAD * 100);
+        opportunity.setRiskAssessment(new RiskAssessment(1.0, 1.0, 0.0, 1.0, 0.0, slippageRisk,
+                1.0, 1.0, 0.0, 0.0, overallRisk));
+        return opportunity;
+    }
+}